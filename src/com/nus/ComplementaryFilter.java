@@ -0,0 +1,144 @@
+package com.nus;
+
+/**
+ * Quaternion complementary filter. Each step integrates the gyroscope rate,
+ * then moves the orientation a fraction {@code gain} of the way towards the
+ * orientation measured by the other sensors, in two independent corrections:
+ * the tilt, by the shortest rotation taking the measured gravity direction
+ * to the predicted one, and the heading, by a rotation about the earth z
+ * axis bringing the horizontal magnetic field to the earth x axis.
+ *
+ * <p>The gyroscope dominates at high frequency and the accelerometer and
+ * magnetometer at low frequency, with a time constant of about
+ * {@code dt / gain}
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+public final class ComplementaryFilter extends OrientationFilter {
+  public static final double DEFAULT_GAIN = 0.02;
+
+  public static final String INVALID_FRACTION_MSG =
+    "Complementary filter gain must be in [0, 1]";
+
+  // Below this, the rotation between two directions is about 180 degrees
+  private static final double OPPOSITE_THRESHOLD = 1e-12;
+
+  private final double gain;
+
+  /**
+   * Constructs a bank of filters starting at the identity orientation
+   *
+   * @param size The number of devices
+   * @param gain The fraction of the correction applied at each step
+   * @throws IllegalArgumentException if {@code size} is not positive or
+   *                                  {@code gain} is not in [0, 1]
+   */
+  public ComplementaryFilter(int size, double gain)
+      throws IllegalArgumentException {
+    super(size);
+    if (!(gain >= 0.0 && gain <= 1.0)) {
+      throw new IllegalArgumentException(INVALID_FRACTION_MSG);
+    }
+    this.gain = gain;
+  }
+
+  /**
+   * Gets the fraction of the correction applied at each step
+   *
+   * @return The gain
+   */
+  public double getGain() {
+    return gain;
+  }
+
+  @Override
+  void doUpdate(int device, double gx, double gy, double gz, double ax,
+      double ay, double az, double mx, double my, double mz, double dt) {
+    integrate(device, gx, gy, gz, dt);
+    double aNorm2 = ax * ax + ay * ay + az * az;
+    if (aNorm2 == 0.0 || gain == 0.0) {
+      return;
+    }
+
+    double[] qx = orientations.x;
+    double[] qy = orientations.y;
+    double[] qz = orientations.z;
+    double[] qw = orientations.w;
+    double q0 = qw[device];
+    double q1 = qx[device];
+    double q2 = qy[device];
+    double q3 = qz[device];
+    double invA = 1.0 / Math.sqrt(aNorm2);
+    ax *= invA;
+    ay *= invA;
+    az *= invA;
+
+    // Tilt: q = q * d, where d rotates the measured gravity a towards the
+    // predicted one v, which is the shortest arc (a x v, 1 + a . v)
+    double vx = 2.0 * (q1 * q3 - q0 * q2);
+    double vy = 2.0 * (q0 * q1 + q2 * q3);
+    double vz = 1.0 - 2.0 * (q1 * q1 + q2 * q2);
+    double dx = ay * vz - az * vy;
+    double dy = az * vx - ax * vz;
+    double dz = ax * vy - ay * vx;
+    double dw = 1.0 + ax * vx + ay * vy + az * vz;
+    if (dw < OPPOSITE_THRESHOLD) {
+      // Upside down: turn about any horizontal axis of the sensor
+      dx = Math.abs(ax) < 0.9 ? 0.0 : -az;
+      dy = Math.abs(ax) < 0.9 ? az : 0.0;
+      dz = Math.abs(ax) < 0.9 ? -ay : ax;
+      dw = 0.0;
+    }
+    double invD = gain / Math.sqrt(dx * dx + dy * dy + dz * dz + dw * dw);
+    dx *= invD;
+    dy *= invD;
+    dz *= invD;
+    dw = dw * invD + (1.0 - gain);
+    double nx = q0 * dx + q1 * dw + q2 * dz - q3 * dy;
+    double ny = q0 * dy - q1 * dz + q2 * dw + q3 * dx;
+    double nz = q0 * dz + q1 * dy - q2 * dx + q3 * dw;
+    double nw = q0 * dw - q1 * dx - q2 * dy - q3 * dz;
+    double invN = 1.0 / Math.sqrt(nx * nx + ny * ny + nz * nz + nw * nw);
+    q0 = nw * invN;
+    q1 = nx * invN;
+    q2 = ny * invN;
+    q3 = nz * invN;
+
+    double mNorm2 = mx * mx + my * my + mz * mz;
+    if (mNorm2 > 0.0) {
+      // Heading: q = e * q, where e turns the horizontal field (hx, hy)
+      // about the earth z axis towards the x axis
+      double hx = (1.0 - 2.0 * (q2 * q2 + q3 * q3)) * mx +
+        2.0 * (q1 * q2 - q0 * q3) * my + 2.0 * (q1 * q3 + q0 * q2) * mz;
+      double hy = 2.0 * (q1 * q2 + q0 * q3) * mx +
+        (1.0 - 2.0 * (q1 * q1 + q3 * q3)) * my +
+        2.0 * (q2 * q3 - q0 * q1) * mz;
+      double hNorm = Math.sqrt(hx * hx + hy * hy);
+      if (hNorm > 0.0) {
+        double ez = -hy;
+        double ew = hNorm + hx;
+        if (ew < OPPOSITE_THRESHOLD * hNorm) {
+          ez = 1.0;
+          ew = 0.0;
+        }
+        double invE = gain / Math.sqrt(ez * ez + ew * ew);
+        ez *= invE;
+        ew = ew * invE + (1.0 - gain);
+        nx = ew * q1 - ez * q2;
+        ny = ew * q2 + ez * q1;
+        nz = ew * q3 + ez * q0;
+        nw = ew * q0 - ez * q3;
+        invN = 1.0 / Math.sqrt(nx * nx + ny * ny + nz * nz + nw * nw);
+        q0 = nw * invN;
+        q1 = nx * invN;
+        q2 = ny * invN;
+        q3 = nz * invN;
+      }
+    }
+
+    qw[device] = q0;
+    qx[device] = q1;
+    qy[device] = q2;
+    qz[device] = q3;
+  }
+}
@@ -0,0 +1,667 @@
+package com.nus;
+
+import java.io.Serializable;
+
+/**
+ * Dual quaternion {@code r + e * d}, where {@code e^2 = 0}, representing a
+ * rigid transform: a unit dual quaternion with real part {@code r} and
+ * translation {@code t} has dual part {@code d = (t, 0) * r / 2}, and maps a
+ * point {@code p} to {@code R(r) p + t}. The real and dual parts combine
+ * with the Hamilton product of {@link Quaternion#multiplyEq(Quaternion)}:
+ * {@code (r1 + e d1)(r2 + e d2) = r1 r2 + e (r1 d2 + d1 r2)}, so that
+ * {@code a * b} applies {@code b} first, then {@code a}.
+ *
+ * <p>The eight components are stored as primitive fields. Every operation
+ * has an in-place or output-argument form that does not allocate, for
+ * composing and applying poses in control loops; the forms returning a new
+ * DualQuaternion are conveniences built on them
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+public class DualQuaternion implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  public static final String ZERO_REAL_PART_MSG =
+    "The real part of the dual quaternion must not be zero";
+
+  // Below this rotation sine, a screw motion is a pure translation
+  private static final double PURE_TRANSLATION_THRESHOLD = 1e-12;
+
+  // Real part
+  private double rx;
+  private double ry;
+  private double rz;
+  private double rw;
+  // Dual part
+  private double dx;
+  private double dy;
+  private double dz;
+  private double dw;
+
+  //////////////////////////////////////////////////////////
+  //
+  // Constructors, setters and getters
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Constructs the identity transform (0, 0, 0, 1) + e (0, 0, 0, 0)
+   */
+  public DualQuaternion() {
+    this.rw = 1.0;
+  }
+
+  /**
+   * Constructs a dual quaternion from its real and dual parts
+   *
+   * @param real The real part
+   * @param dual The dual part
+   */
+  public DualQuaternion(final Quaternion real, final Quaternion dual) {
+    set(real, dual);
+  }
+
+  /**
+   * Copy constructor
+   *
+   * @param another The dual quaternion to be copied
+   */
+  public DualQuaternion(final DualQuaternion another) {
+    set(another);
+  }
+
+  /**
+   * Constructs the rigid transform rotating by {@code rotation}, then
+   * translating by {@code translation}
+   *
+   * @param rotation The rotation, which is normalized
+   * @param translation An array of size at least 3 holding the translation
+   * @return The unit dual quaternion
+   * @throws IllegalArgumentException if {@code rotation} is zero
+   */
+  public static DualQuaternion fromRotationTranslation(
+      final Quaternion rotation, final double[] translation)
+      throws IllegalArgumentException {
+    DualQuaternion result = new DualQuaternion();
+    result.setRotationTranslation(rotation, translation[0], translation[1],
+      translation[2]);
+    return result;
+  }
+
+  /**
+   * Sets the real and dual parts
+   *
+   * @param real The real part
+   * @param dual The dual part
+   */
+  public final void set(final Quaternion real, final Quaternion dual) {
+    this.rx = real.getX();
+    this.ry = real.getY();
+    this.rz = real.getZ();
+    this.rw = real.getW();
+    this.dx = dual.getX();
+    this.dy = dual.getY();
+    this.dz = dual.getZ();
+    this.dw = dual.getW();
+  }
+
+  /**
+   * Copies another dual quaternion
+   *
+   * @param another The dual quaternion to be copied
+   */
+  public final void set(final DualQuaternion another) {
+    this.rx = another.rx;
+    this.ry = another.ry;
+    this.rz = another.rz;
+    this.rw = another.rw;
+    this.dx = another.dx;
+    this.dy = another.dy;
+    this.dz = another.dz;
+    this.dw = another.dw;
+  }
+
+  /**
+   * Sets this dual quaternion to the rigid transform rotating by
+   * {@code rotation}, then translating by {@code (tx, ty, tz)}
+   *
+   * @param rotation The rotation, which is normalized
+   * @param tx The x-coordinate of the translation
+   * @param ty The y-coordinate of the translation
+   * @param tz The z-coordinate of the translation
+   * @throws IllegalArgumentException if {@code rotation} is zero
+   */
+  public final void setRotationTranslation(final Quaternion rotation,
+      double tx, double ty, double tz) throws IllegalArgumentException {
+    double norm = rotation.norm();
+    if (!(norm > 0.0)) {
+      throw new IllegalArgumentException(ZERO_REAL_PART_MSG);
+    }
+    double x = rotation.getX() / norm;
+    double y = rotation.getY() / norm;
+    double z = rotation.getZ() / norm;
+    double w = rotation.getW() / norm;
+    this.rx = x;
+    this.ry = y;
+    this.rz = z;
+    this.rw = w;
+    // d = (t, 0) * r / 2
+    this.dx = 0.5 * (tx * w + ty * z - tz * y);
+    this.dy = 0.5 * (-tx * z + ty * w + tz * x);
+    this.dz = 0.5 * (tx * y - ty * x + tz * w);
+    this.dw = -0.5 * (tx * x + ty * y + tz * z);
+  }
+
+  /**
+   * Gets the real part
+   *
+   * @param out The Quaternion receiving the real part
+   */
+  public final void getReal(final Quaternion out) {
+    out.set(rx, ry, rz, rw);
+  }
+
+  /**
+   * Gets the dual part
+   *
+   * @param out The Quaternion receiving the dual part
+   */
+  public final void getDual(final Quaternion out) {
+    out.set(dx, dy, dz, dw);
+  }
+
+  /**
+   * Gets the rotation of the transform, which is the normalized real part
+   *
+   * @param out The Quaternion receiving the rotation
+   */
+  public final void getRotation(final Quaternion out) {
+    double invNorm = 1.0 / Math.sqrt(rx * rx + ry * ry + rz * rz + rw * rw);
+    out.set(rx * invNorm, ry * invNorm, rz * invNorm, rw * invNorm);
+  }
+
+  /**
+   * Gets the translation of the transform, {@code 2 * d * conj(r) / |r|^2}
+   *
+   * @param out An array of size at least 3 receiving the translation
+   */
+  public final void getTranslation(final double[] out) {
+    double s = 2.0 / (rx * rx + ry * ry + rz * rz + rw * rw);
+    out[0] = s * (-dw * rx + dx * rw - dy * rz + dz * ry);
+    out[1] = s * (-dw * ry + dx * rz + dy * rw - dz * rx);
+    out[2] = s * (-dw * rz - dx * ry + dy * rx + dz * rw);
+  }
+
+  /**
+   * Checks if this dual quaternion is a unit dual quaternion, that is, if
+   * its real part is unit and orthogonal to its dual part
+   *
+   * @return {@code true} if this is a unit dual quaternion
+   */
+  public boolean isUnit() {
+    double realNorm2 = rx * rx + ry * ry + rz * rz + rw * rw;
+    double dot = rx * dx + ry * dy + rz * dz + rw * dw;
+    return Math.abs(Math.sqrt(realNorm2) - 1.0) < Quaternion.EPSILON &&
+      Math.abs(dot) < Quaternion.EPSILON;
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Dual quaternion operations
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Composes this transform with another, that is {@code this * another},
+   * which applies {@code another} first
+   *
+   * @param another The other dual quaternion
+   * @return The product
+   */
+  public final DualQuaternion multiply(final DualQuaternion another) {
+    DualQuaternion result = new DualQuaternion();
+    multiply(this, another, result);
+    return result;
+  }
+
+  /**
+   * Performs {@code this * another} and assigns the result to this object
+   *
+   * @param another The other dual quaternion
+   */
+  public final void multiplyEq(final DualQuaternion another) {
+    multiply(this, another, this);
+  }
+
+  /**
+   * Writes {@code a * b} to {@code out}, which may be {@code a} or {@code b}
+   *
+   * @param a The left operand, applied last
+   * @param b The right operand, applied first
+   * @param out The dual quaternion receiving the product
+   */
+  public static void multiply(final DualQuaternion a,
+      final DualQuaternion b, final DualQuaternion out) {
+    double arx = a.rx;
+    double ary = a.ry;
+    double arz = a.rz;
+    double arw = a.rw;
+    double adx = a.dx;
+    double ady = a.dy;
+    double adz = a.dz;
+    double adw = a.dw;
+    double brx = b.rx;
+    double bry = b.ry;
+    double brz = b.rz;
+    double brw = b.rw;
+    double bdx = b.dx;
+    double bdy = b.dy;
+    double bdz = b.dz;
+    double bdw = b.dw;
+    // Real: ar * br
+    out.rx = arw * brx + arx * brw + ary * brz - arz * bry;
+    out.ry = arw * bry - arx * brz + ary * brw + arz * brx;
+    out.rz = arw * brz + arx * bry - ary * brx + arz * brw;
+    out.rw = arw * brw - arx * brx - ary * bry - arz * brz;
+    // Dual: ar * bd + ad * br
+    out.dx = arw * bdx + arx * bdw + ary * bdz - arz * bdy +
+      adw * brx + adx * brw + ady * brz - adz * bry;
+    out.dy = arw * bdy - arx * bdz + ary * bdw + arz * bdx +
+      adw * bry - adx * brz + ady * brw + adz * brx;
+    out.dz = arw * bdz + arx * bdy - ary * bdx + arz * bdw +
+      adw * brz + adx * bry - ady * brx + adz * brw;
+    out.dw = arw * bdw - arx * bdx - ary * bdy - arz * bdz +
+      adw * brw - adx * brx - ady * bry - adz * brz;
+  }
+
+  /**
+   * Gets the quaternion conjugate {@code conj(r) + e * conj(d)}, which is
+   * the inverse transform for unit dual quaternions
+   *
+   * @return The conjugate
+   */
+  public final DualQuaternion conjugate() {
+    DualQuaternion result = new DualQuaternion(this);
+    result.conjugateEq();
+    return result;
+  }
+
+  /**
+   * Conjugates this dual quaternion
+   *
+   * @see #conjugate()
+   */
+  public final void conjugateEq() {
+    rx = -rx;
+    ry = -ry;
+    rz = -rz;
+    dx = -dx;
+    dy = -dy;
+    dz = -dz;
+  }
+
+  /**
+   * Gets the inverse of this dual quaternion,
+   * {@code r^-1 - e * r^-1 d r^-1}
+   *
+   * @return The inverse
+   * @throws ArithmeticException if the real part is zero
+   */
+  public final DualQuaternion inverse() throws ArithmeticException {
+    DualQuaternion result = new DualQuaternion(this);
+    result.invert();
+    return result;
+  }
+
+  /**
+   * Inverts this dual quaternion
+   *
+   * @throws ArithmeticException if the real part is zero
+   * @see #inverse()
+   */
+  public final void invert() throws ArithmeticException {
+    double realNorm2 = rx * rx + ry * ry + rz * rz + rw * rw;
+    if (!(realNorm2 > 0.0)) {
+      throw new ArithmeticException(ZERO_REAL_PART_MSG);
+    }
+    double s = 1.0 / realNorm2;
+    // i = r^-1
+    double ix = -rx * s;
+    double iy = -ry * s;
+    double iz = -rz * s;
+    double iw = rw * s;
+    // u = i * d
+    double ux = iw * dx + ix * dw + iy * dz - iz * dy;
+    double uy = iw * dy - ix * dz + iy * dw + iz * dx;
+    double uz = iw * dz + ix * dy - iy * dx + iz * dw;
+    double uw = iw * dw - ix * dx - iy * dy - iz * dz;
+    // d = -u * i
+    dx = -(uw * ix + ux * iw + uy * iz - uz * iy);
+    dy = -(uw * iy - ux * iz + uy * iw + uz * ix);
+    dz = -(uw * iz + ux * iy - uy * ix + uz * iw);
+    dw = -(uw * iw - ux * ix - uy * iy - uz * iz);
+    rx = ix;
+    ry = iy;
+    rz = iz;
+    rw = iw;
+  }
+
+  /**
+   * Normalizes this dual quaternion into a unit dual quaternion: divides it
+   * by the norm of its real part, then removes from the dual part its
+   * component along the real part. This restores a rigid transform after
+   * rounding errors accumulate over many compositions
+   *
+   * @throws ArithmeticException if the real part is zero
+   */
+  public final void normalize() throws ArithmeticException {
+    double realNorm2 = rx * rx + ry * ry + rz * rz + rw * rw;
+    if (!(realNorm2 > 0.0)) {
+      throw new ArithmeticException(ZERO_REAL_PART_MSG);
+    }
+    double invNorm = 1.0 / Math.sqrt(realNorm2);
+    rx *= invNorm;
+    ry *= invNorm;
+    rz *= invNorm;
+    rw *= invNorm;
+    dx *= invNorm;
+    dy *= invNorm;
+    dz *= invNorm;
+    dw *= invNorm;
+    double dot = rx * dx + ry * dy + rz * dz + rw * dw;
+    dx -= dot * rx;
+    dy -= dot * ry;
+    dz -= dot * rz;
+    dw -= dot * rw;
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Transforming points
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Transforms the 3D point stored at {@code in[inOff .. inOff + 2]} by the
+   * rigid transform represented by the normalized version of this dual
+   * quaternion, and writes the image to {@code out[outOff .. outOff + 2]}.
+   * No temporary objects are allocated
+   *
+   * @param in The array containing the input point
+   * @param inOff The index of the x-coordinate of the input point
+   * @param out The array receiving the image point
+   * @param outOff The index at which the x-coordinate of the image is written
+   * @throws ArrayIndexOutOfBoundsException if either array does not hold 3
+   *         elements from the given offset
+   */
+  public final void transform(
+      final double[] in, int inOff, final double[] out, int outOff) {
+    transform(in, inOff, 3, out, outOff, 3, 1);
+  }
+
+  /**
+   * Transforms {@code count} 3D points packed in {@code in} by the rigid
+   * transform represented by the normalized version of this dual quaternion,
+   * and writes the images to {@code out}, with the same layout as
+   * {@link Quaternion#rotate(double[], int, int, double[], int, int, int)}.
+   * The rotation matrix and translation are computed once per call, and each
+   * point is rotated and translated in a single pass.
+   * {@code in} and {@code out} may be the same array provided that the
+   * offsets and strides are the same as well
+   *
+   * @param in The array containing the input points
+   * @param inOff The index of the x-coordinate of the first input point
+   * @param inStride The distance between two consecutive input points
+   * @param out The array receiving the image points
+   * @param outOff The index of the x-coordinate of the first image point
+   * @param outStride The distance between two consecutive image points
+   * @param count The number of points to transform
+   * @throws IllegalArgumentException if {@code count} is negative, a stride
+   *         is less than 3, or a range does not fit inside its array
+   */
+  public final void transform(final double[] in, int inOff, int inStride,
+      final double[] out, int outOff, int outStride, int count)
+      throws IllegalArgumentException {
+    Quaternion.checkBatchRange(in.length, inOff, inStride, count);
+    Quaternion.checkBatchRange(out.length, outOff, outStride, count);
+
+    double x = rx;
+    double y = ry;
+    double z = rz;
+    double w = rw;
+    double s = 2.0 / (x * x + y * y + z * z + w * w);
+    double xx = x * x;
+    double yy = y * y;
+    double zz = z * z;
+    double m00 = 1.0 - s * (yy + zz);
+    double m01 = s * (x * y - z * w);
+    double m02 = s * (x * z + y * w);
+    double m10 = s * (x * y + z * w);
+    double m11 = 1.0 - s * (xx + zz);
+    double m12 = s * (y * z - x * w);
+    double m20 = s * (x * z - y * w);
+    double m21 = s * (y * z + x * w);
+    double m22 = 1.0 - s * (xx + yy);
+    double tx = s * (-dw * x + dx * w - dy * z + dz * y);
+    double ty = s * (-dw * y + dx * z + dy * w - dz * x);
+    double tz = s * (-dw * z - dx * y + dy * x + dz * w);
+
+    for (int i = 0; i < count; ++i) {
+      int src = inOff + i * inStride;
+      int dst = outOff + i * outStride;
+      double vx = in[src];
+      double vy = in[src + 1];
+      double vz = in[src + 2];
+      out[dst] = m00 * vx + m01 * vy + m02 * vz + tx;
+      out[dst + 1] = m10 * vx + m11 * vy + m12 * vz + ty;
+      out[dst + 2] = m20 * vx + m21 * vy + m22 * vz + tz;
+    }
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Interpolation
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Interpolates between the unit dual quaternions {@code from} and
+   * {@code to} along the screw motion taking one to the other (ScLERP): the
+   * rotation angle and the translation along the screw axis both vary
+   * linearly with {@code t}, which is the rigid-body analog of
+   * {@link Quaternion#slerp(Quaternion, Quaternion, double)}. The shorter
+   * of the two rotations is taken
+   *
+   * @param from The first unit dual quaternion
+   * @param to The second unit dual quaternion
+   * @param t Value indicating how far to interpolate between the two
+   * @return The interpolated unit dual quaternion
+   * @throws IllegalArgumentException if {@code t} is not between 0 and 1
+   *                                  inclusively
+   */
+  public static DualQuaternion sclerp(final DualQuaternion from,
+      final DualQuaternion to, double t) throws IllegalArgumentException {
+    DualQuaternion result = new DualQuaternion();
+    sclerp(from, to, t, result);
+    return result;
+  }
+
+  /**
+   * Same as {@link #sclerp(DualQuaternion, DualQuaternion, double)}, but
+   * writes the result to {@code out}, which may be {@code from} or
+   * {@code to}, instead of allocating
+   *
+   * @param from The first unit dual quaternion
+   * @param to The second unit dual quaternion
+   * @param t Value indicating how far to interpolate between the two
+   * @param out The dual quaternion receiving the result
+   * @throws IllegalArgumentException if {@code t} is not between 0 and 1
+   *                                  inclusively
+   */
+  public static void sclerp(final DualQuaternion from,
+      final DualQuaternion to, double t, final DualQuaternion out)
+      throws IllegalArgumentException {
+    Quaternion.checkInterpolationParam(t);
+    // Relative motion conj(from) * to
+    double fx = -from.rx;
+    double fy = -from.ry;
+    double fz = -from.rz;
+    double fw = from.rw;
+    double gx = -from.dx;
+    double gy = -from.dy;
+    double gz = -from.dz;
+    double gw = from.dw;
+    double rx = fw * to.rx + fx * to.rw + fy * to.rz - fz * to.ry;
+    double ry = fw * to.ry - fx * to.rz + fy * to.rw + fz * to.rx;
+    double rz = fw * to.rz + fx * to.ry - fy * to.rx + fz * to.rw;
+    double rw = fw * to.rw - fx * to.rx - fy * to.ry - fz * to.rz;
+    double dx = fw * to.dx + fx * to.dw + fy * to.dz - fz * to.dy +
+      gw * to.rx + gx * to.rw + gy * to.rz - gz * to.ry;
+    double dy = fw * to.dy - fx * to.dz + fy * to.dw + fz * to.dx +
+      gw * to.ry - gx * to.rz + gy * to.rw + gz * to.rx;
+    double dz = fw * to.dz + fx * to.dy - fy * to.dx + fz * to.dw +
+      gw * to.rz + gx * to.ry - gy * to.rx + gz * to.rw;
+    double dw = fw * to.dw - fx * to.dx - fy * to.dy - fz * to.dz +
+      gw * to.rw - gx * to.rx - gy * to.ry - gz * to.rz;
+    if (rw < 0.0) {
+      rx = -rx;
+      ry = -ry;
+      rz = -rz;
+      rw = -rw;
+      dx = -dx;
+      dy = -dy;
+      dz = -dz;
+      dw = -dw;
+    }
+
+    // Raise the relative motion to the power t through its screw
+    // parameters: angle theta about the unit axis l, displacement pitch
+    // along l, and moment m of the axis
+    double sin = Math.sqrt(rx * rx + ry * ry + rz * rz);
+    double px;
+    double py;
+    double pz;
+    double pw;
+    double qx;
+    double qy;
+    double qz;
+    double qw;
+    if (sin < PURE_TRANSLATION_THRESHOLD) {
+      // Pure translation, scaled by t
+      px = 0.0;
+      py = 0.0;
+      pz = 0.0;
+      pw = 1.0;
+      qx = t * dx;
+      qy = t * dy;
+      qz = t * dz;
+      qw = 0.0;
+    } else {
+      double halfTheta = Math.atan2(sin, rw);
+      double invSin = 1.0 / sin;
+      double lx = rx * invSin;
+      double ly = ry * invSin;
+      double lz = rz * invSin;
+      double halfPitch = -dw * invSin;
+      double mx = (dx - halfPitch * rw * lx) * invSin;
+      double my = (dy - halfPitch * rw * ly) * invSin;
+      double mz = (dz - halfPitch * rw * lz) * invSin;
+
+      double sinT = Math.sin(t * halfTheta);
+      double cosT = Math.cos(t * halfTheta);
+      double halfPitchT = t * halfPitch;
+      px = sinT * lx;
+      py = sinT * ly;
+      pz = sinT * lz;
+      pw = cosT;
+      qx = halfPitchT * cosT * lx + sinT * mx;
+      qy = halfPitchT * cosT * ly + sinT * my;
+      qz = halfPitchT * cosT * lz + sinT * mz;
+      qw = -halfPitchT * sinT;
+    }
+
+    // out = from * (p + e q)
+    double arx = from.rx;
+    double ary = from.ry;
+    double arz = from.rz;
+    double arw = from.rw;
+    double adx = from.dx;
+    double ady = from.dy;
+    double adz = from.dz;
+    double adw = from.dw;
+    out.rx = arw * px + arx * pw + ary * pz - arz * py;
+    out.ry = arw * py - arx * pz + ary * pw + arz * px;
+    out.rz = arw * pz + arx * py - ary * px + arz * pw;
+    out.rw = arw * pw - arx * px - ary * py - arz * pz;
+    out.dx = arw * qx + arx * qw + ary * qz - arz * qy +
+      adw * px + adx * pw + ady * pz - adz * py;
+    out.dy = arw * qy - arx * qz + ary * qw + arz * qx +
+      adw * py - adx * pz + ady * pw + adz * px;
+    out.dz = arw * qz + arx * qy - ary * qx + arz * qw +
+      adw * pz + adx * py - ady * px + adz * pw;
+    out.dw = arw * qw - arx * qx - ary * qy - arz * qz +
+      adw * pw - adx * px - ady * py - adz * pz;
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Overridden methods inherited from Object
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Gets a string representation of this DualQuaternion for display purposes
+   *
+   * @return A string contains information about this DualQuaternion
+   */
+  @Override
+  public String toString() {
+    return String.format(
+      "DualQuaternion(%f, %f, %f, %f; %f, %f, %f, %f)",
+      this.rx, this.ry, this.rz, this.rw, this.dx, this.dy, this.dz, this.dw);
+  }
+
+  @Override
+  public boolean equals(Object another) {
+    if (this == another) {
+      return true;
+    }
+
+    if (!(another instanceof DualQuaternion)) {
+      return false;
+    }
+
+    DualQuaternion other = (DualQuaternion) another;
+    return Double.compare(other.rx, this.rx) == 0 &&
+      Double.compare(other.ry, this.ry) == 0 &&
+      Double.compare(other.rz, this.rz) == 0 &&
+      Double.compare(other.rw, this.rw) == 0 &&
+      Double.compare(other.dx, this.dx) == 0 &&
+      Double.compare(other.dy, this.dy) == 0 &&
+      Double.compare(other.dz, this.dz) == 0 &&
+      Double.compare(other.dw, this.dw) == 0;
+  }
+
+  @Override
+  public int hashCode() {
+    int prime = 31;
+    int result = 17;
+    long temp = Double.doubleToLongBits(this.rx);
+    result = prime * result + (int) (temp ^ (temp >>> 32));
+    temp = Double.doubleToLongBits(this.ry);
+    result = prime * result + (int) (temp ^ (temp >>> 32));
+    temp = Double.doubleToLongBits(this.rz);
+    result = prime * result + (int) (temp ^ (temp >>> 32));
+    temp = Double.doubleToLongBits(this.rw);
+    result = prime * result + (int) (temp ^ (temp >>> 32));
+    temp = Double.doubleToLongBits(this.dx);
+    result = prime * result + (int) (temp ^ (temp >>> 32));
+    temp = Double.doubleToLongBits(this.dy);
+    result = prime * result + (int) (temp ^ (temp >>> 32));
+    temp = Double.doubleToLongBits(this.dz);
+    result = prime * result + (int) (temp ^ (temp >>> 32));
+    temp = Double.doubleToLongBits(this.dw);
+    result = prime * result + (int) (temp ^ (temp >>> 32));
+    return result;
+  }
+}
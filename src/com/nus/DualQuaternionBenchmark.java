@@ -0,0 +1,107 @@
+package com.nus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of {@link DualQuaternion}: transforming {@code size} packed
+ * points in one pass against rotating them with a Quaternion then
+ * translating them in a second pass, and composing poses with and without
+ * allocation
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DualQuaternionBenchmark {
+  private static final int CHAIN = 1024;
+
+  @Param({"65536"})
+  public int size;
+
+  private double[] points;
+  private double[] out;
+  private Quaternion rotation;
+  private double[] translation;
+  private DualQuaternion pose;
+  private DualQuaternion[] chain;
+  private DualQuaternion accumulator;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(QuaternionBenchmark.SEED);
+    points = new double[3 * size];
+    for (int i = 0; i < points.length; ++i) {
+      points[i] = random.nextGaussian();
+    }
+    out = new double[3 * size];
+    rotation = QuaternionBenchmark.randomUnitQuaternion(random);
+    translation = new double[] {1.0, -2.0, 0.5};
+    pose = DualQuaternion.fromRotationTranslation(rotation, translation);
+    chain = new DualQuaternion[CHAIN];
+    for (int i = 0; i < CHAIN; ++i) {
+      chain[i] = DualQuaternion.fromRotationTranslation(
+        QuaternionBenchmark.randomUnitQuaternion(random),
+        new double[] {random.nextGaussian(), random.nextGaussian(),
+          random.nextGaussian()});
+    }
+    accumulator = new DualQuaternion();
+  }
+
+  @Benchmark
+  public double[] transform() {
+    pose.transform(points, 0, 3, out, 0, 3, size);
+    return out;
+  }
+
+  @Benchmark
+  public double[] rotateThenTranslate() {
+    rotation.rotate(points, 0, 3, out, 0, 3, size);
+    double tx = translation[0];
+    double ty = translation[1];
+    double tz = translation[2];
+    for (int i = 0; i < out.length; i += 3) {
+      out[i] += tx;
+      out[i + 1] += ty;
+      out[i + 2] += tz;
+    }
+    return out;
+  }
+
+  @Benchmark
+  public DualQuaternion composeInPlace() {
+    DualQuaternion result = accumulator;
+    result.set(chain[0]);
+    for (int i = 1; i < CHAIN; ++i) {
+      result.multiplyEq(chain[i]);
+    }
+    result.normalize();
+    return result;
+  }
+
+  @Benchmark
+  public DualQuaternion composeAllocating() {
+    DualQuaternion result = chain[0];
+    for (int i = 1; i < CHAIN; ++i) {
+      result = result.multiply(chain[i]);
+    }
+    result.normalize();
+    return result;
+  }
+}
@@ -0,0 +1,459 @@
+package com.nus;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Dual quaternion skinning of a mesh, following Kavan, Collins, Zara and
+ * O'Sullivan, "Skinning with Dual Quaternions" (2007). Every vertex is
+ * bound to {@code influences} bones with weights; its deformed position is
+ * its rest position transformed by the normalized weighted sum of the dual
+ * quaternions of its bones. Unlike blending matrices, this preserves
+ * volume around twisting joints. Each bone is flipped into the hemisphere of
+ * the first bone of the vertex before blending, since {@code q} and
+ * {@code -q} are the same transform.
+ *
+ * <p>The mesh is bound once at construction, validating every bone index so
+ * that the per-frame loop does not. The bone transforms, which take rest
+ * positions to posed positions (the bone pose times its inverse bind pose),
+ * are stored as structure-of-arrays and set before every frame. All buffers
+ * are allocated once: a frame skinned on a {@link ForkJoinPool} reuses the
+ * same tasks, each deforming a contiguous range of vertices.
+ *
+ * <p>Skinners are not thread-safe, apart from the parallel skinning they do
+ * themselves
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+public final class DualQuaternionSkinner {
+  public static final int MAX_INFLUENCES = 4;
+
+  public static final String INVALID_BONE_COUNT_MSG =
+    "Number of bones must be positive";
+  public static final String INVALID_INFLUENCES_MSG =
+    "Influences per vertex must be between 1 and " + MAX_INFLUENCES;
+  public static final String INVALID_MESH_MSG =
+    "Rest positions must hold 3 coordinates per vertex, and bone indices " +
+    "and weights one entry per influence of every vertex";
+  public static final String INVALID_BONE_INDEX_MSG =
+    "Bone indices must satisfy 0 <= bone < getBoneCount()";
+  public static final String INVALID_OUTPUT_MSG =
+    "Output must hold 3 coordinates per skinned vertex";
+  public static final String INVALID_TRANSLATIONS_MSG =
+    "Translations must hold 3 coordinates per bone";
+
+  // Chunks per worker of a parallel frame, to balance the load
+  private static final int CHUNKS_PER_WORKER = 4;
+  // Below this, a frame is not worth splitting
+  static final int MIN_PARALLEL_VERTICES = 4096;
+
+  private final int influences;
+  private final int vertexCount;
+  private final double[] rest;
+  private final int[] boneIndices;
+  private final double[] weights;
+
+  // Bone dual quaternions, real part r and dual part d
+  private final double[] rx;
+  private final double[] ry;
+  private final double[] rz;
+  private final double[] rw;
+  private final double[] dx;
+  private final double[] dy;
+  private final double[] dz;
+  private final double[] dw;
+
+  // Reused by setBone(int, DualQuaternion)
+  private final Quaternion scratch = new Quaternion();
+
+  // Reused across parallel frames
+  private double[] target;
+  private ChunkTask[] chunks;
+  private FrameTask frame;
+
+  /**
+   * Binds a mesh. The arrays are copied
+   *
+   * @param boneCount The number of bones
+   * @param influences The number of bones of every vertex
+   * @param restPositions The rest positions, packed as xyzxyz...
+   * @param boneIndices The bones of vertex {@code v} at
+   *                    {@code [v * influences, (v + 1) * influences)}
+   * @param weights The weights of the bones of every vertex, with the same
+   *                layout as {@code boneIndices}; they need not sum to 1
+   * @throws IllegalArgumentException if a count is invalid, an array has the
+   *                                  wrong length or a bone index is out of
+   *                                  range
+   */
+  public DualQuaternionSkinner(int boneCount, int influences,
+      final double[] restPositions, final int[] boneIndices,
+      final double[] weights) throws IllegalArgumentException {
+    if (boneCount <= 0) {
+      throw new IllegalArgumentException(INVALID_BONE_COUNT_MSG);
+    }
+    if (influences < 1 || influences > MAX_INFLUENCES) {
+      throw new IllegalArgumentException(INVALID_INFLUENCES_MSG);
+    }
+    int vertexCount = restPositions.length / 3;
+    long entries = (long) vertexCount * influences;
+    if (restPositions.length % 3 != 0 || boneIndices.length != entries ||
+        weights.length != entries) {
+      throw new IllegalArgumentException(INVALID_MESH_MSG);
+    }
+    for (int bone : boneIndices) {
+      if (bone < 0 || bone >= boneCount) {
+        throw new IllegalArgumentException(INVALID_BONE_INDEX_MSG);
+      }
+    }
+    this.influences = influences;
+    this.vertexCount = vertexCount;
+    this.rest = restPositions.clone();
+    this.boneIndices = boneIndices.clone();
+    this.weights = weights.clone();
+    this.rx = new double[boneCount];
+    this.ry = new double[boneCount];
+    this.rz = new double[boneCount];
+    this.rw = new double[boneCount];
+    this.dx = new double[boneCount];
+    this.dy = new double[boneCount];
+    this.dz = new double[boneCount];
+    this.dw = new double[boneCount];
+    Arrays.fill(this.rw, 1.0);
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Getters and bone setters
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Gets the number of bones
+   *
+   * @return The number of bones
+   */
+  public int getBoneCount() {
+    return rw.length;
+  }
+
+  /**
+   * Gets the number of vertices
+   *
+   * @return The number of vertices
+   */
+  public int getVertexCount() {
+    return vertexCount;
+  }
+
+  /**
+   * Gets the number of bones of every vertex
+   *
+   * @return The number of influences
+   */
+  public int getInfluences() {
+    return influences;
+  }
+
+  /**
+   * Sets the transform of a bone
+   *
+   * @param bone The bone index
+   * @param rotation The rotation, which is normalized
+   * @param tx The x-coordinate of the translation, applied after the rotation
+   * @param ty The y-coordinate of the translation
+   * @param tz The z-coordinate of the translation
+   * @throws IllegalArgumentException if {@code bone} is out of range or
+   *                                  {@code rotation} is zero
+   */
+  public void setBone(int bone, final Quaternion rotation, double tx,
+      double ty, double tz) throws IllegalArgumentException {
+    checkBone(bone);
+    setBone(bone, rotation.getX(), rotation.getY(), rotation.getZ(),
+      rotation.getW(), tx, ty, tz);
+  }
+
+  /**
+   * Sets the transform of a bone
+   *
+   * @param bone The bone index
+   * @param pose The transform, which is normalized
+   * @throws IllegalArgumentException if {@code bone} is out of range
+   * @throws ArithmeticException if the real part of {@code pose} is zero
+   */
+  public void setBone(int bone, final DualQuaternion pose)
+      throws IllegalArgumentException, ArithmeticException {
+    checkBone(bone);
+    pose.getReal(scratch);
+    double norm = scratch.norm();
+    if (!(norm > 0.0)) {
+      throw new ArithmeticException(DualQuaternion.ZERO_REAL_PART_MSG);
+    }
+    double invNorm = 1.0 / norm;
+    rx[bone] = scratch.getX() * invNorm;
+    ry[bone] = scratch.getY() * invNorm;
+    rz[bone] = scratch.getZ() * invNorm;
+    rw[bone] = scratch.getW() * invNorm;
+    pose.getDual(scratch);
+    dx[bone] = scratch.getX() * invNorm;
+    dy[bone] = scratch.getY() * invNorm;
+    dz[bone] = scratch.getZ() * invNorm;
+    dw[bone] = scratch.getW() * invNorm;
+  }
+
+  /**
+   * Sets the transforms of the bones {@code [fromBone, toBone)}: bone
+   * {@code b} rotates by {@code rotations[b - fromBone + rotationsOff]}, then
+   * translates by the 3 values of {@code translations} at
+   * {@code 3 * (b - fromBone)}
+   *
+   * @param rotations The rotations, which are normalized
+   * @param rotationsOff The index of the rotation of the first bone
+   * @param translations The translations, packed as xyzxyz...
+   * @param fromBone The first bone, inclusive
+   * @param toBone The last bone, exclusive
+   * @throws IllegalArgumentException if a range is invalid,
+   *                                  {@code translations} is too short or a
+   *                                  rotation is zero
+   */
+  public void setBones(final QuaternionArray rotations, int rotationsOff,
+      final double[] translations, int fromBone, int toBone)
+      throws IllegalArgumentException {
+    if (fromBone < 0 || fromBone > toBone || toBone > getBoneCount()) {
+      throw new IllegalArgumentException(INVALID_BONE_INDEX_MSG);
+    }
+    if (translations.length < 3L * (toBone - fromBone)) {
+      throw new IllegalArgumentException(INVALID_TRANSLATIONS_MSG);
+    }
+    rotations.checkRange(rotationsOff, rotationsOff + (toBone - fromBone));
+    for (int b = fromBone; b < toBone; ++b) {
+      int i = rotationsOff + b - fromBone;
+      int t = 3 * (b - fromBone);
+      setBone(b, rotations.x[i], rotations.y[i], rotations.z[i],
+        rotations.w[i], translations[t], translations[t + 1],
+        translations[t + 2]);
+    }
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Skinning
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Deforms all vertices on the calling thread
+   *
+   * @param out The array receiving the deformed positions, packed as
+   *            xyzxyz...
+   * @throws IllegalArgumentException if {@code out} is too short
+   */
+  public void skin(final double[] out) throws IllegalArgumentException {
+    skin(0, vertexCount, out);
+  }
+
+  /**
+   * Deforms the vertices {@code [fromVertex, toVertex)} on the calling
+   * thread, so that callers can split a frame across their own threads
+   *
+   * @param fromVertex The first vertex, inclusive
+   * @param toVertex The last vertex, exclusive
+   * @param out The array receiving the deformed positions, packed as
+   *            xyzxyz..., where vertex {@code v} is at {@code 3 * v}
+   * @throws IllegalArgumentException if the range is invalid or {@code out}
+   *                                  is too short
+   */
+  public void skin(int fromVertex, int toVertex, final double[] out)
+      throws IllegalArgumentException {
+    if (fromVertex < 0 || fromVertex > toVertex || toVertex > vertexCount) {
+      throw new IllegalArgumentException(
+        QuaternionArray.INVALID_INDEX_RANGE_MSG);
+    }
+    if (out.length < 3L * toVertex) {
+      throw new IllegalArgumentException(INVALID_OUTPUT_MSG);
+    }
+    skinRange(fromVertex, toVertex, out);
+  }
+
+  /**
+   * Deforms all vertices, split into ranges run by the workers of
+   * {@code pool}. Small meshes and single-worker pools are deformed on the
+   * calling thread
+   *
+   * @param out The array receiving the deformed positions, packed as
+   *            xyzxyz...
+   * @param pool The pool running the ranges
+   * @throws IllegalArgumentException if {@code out} is too short
+   */
+  public void skin(final double[] out, final ForkJoinPool pool)
+      throws IllegalArgumentException {
+    if (out.length < 3L * vertexCount) {
+      throw new IllegalArgumentException(INVALID_OUTPUT_MSG);
+    }
+    int parallelism = pool.getParallelism();
+    if (parallelism == 1 || vertexCount < MIN_PARALLEL_VERTICES) {
+      skinRange(0, vertexCount, out);
+      return;
+    }
+
+    int count = Math.min(parallelism * CHUNKS_PER_WORKER,
+      vertexCount / (MIN_PARALLEL_VERTICES / CHUNKS_PER_WORKER));
+    if (chunks == null || chunks.length != count) {
+      chunks = new ChunkTask[count];
+      for (int c = 0; c < count; ++c) {
+        chunks[c] = new ChunkTask((int) ((long) c * vertexCount / count),
+          (int) ((long) (c + 1) * vertexCount / count));
+      }
+      frame = new FrameTask();
+    } else {
+      for (ChunkTask chunk : chunks) {
+        chunk.reinitialize();
+      }
+      frame.reinitialize();
+    }
+    target = out;
+    try {
+      pool.invoke(frame);
+    } finally {
+      target = null;
+    }
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Private methods
+  //
+  /////////////////////////////////////////////////////////
+
+  private void checkBone(int bone) throws IllegalArgumentException {
+    if (bone < 0 || bone >= getBoneCount()) {
+      throw new IllegalArgumentException(INVALID_BONE_INDEX_MSG);
+    }
+  }
+
+  /**
+   * Stores the transform of a bone, d = (t, 0) * r / 2 with r normalized
+   */
+  private void setBone(int bone, double x, double y, double z, double w,
+      double tx, double ty, double tz) throws IllegalArgumentException {
+    double norm = Math.sqrt(x * x + y * y + z * z + w * w);
+    if (!(norm > 0.0)) {
+      throw new IllegalArgumentException(DualQuaternion.ZERO_REAL_PART_MSG);
+    }
+    x /= norm;
+    y /= norm;
+    z /= norm;
+    w /= norm;
+    rx[bone] = x;
+    ry[bone] = y;
+    rz[bone] = z;
+    rw[bone] = w;
+    dx[bone] = 0.5 * (tx * w + ty * z - tz * y);
+    dy[bone] = 0.5 * (-tx * z + ty * w + tz * x);
+    dz[bone] = 0.5 * (tx * y - ty * x + tz * w);
+    dw[bone] = -0.5 * (tx * x + ty * y + tz * z);
+  }
+
+  private void skinRange(int fromVertex, int toVertex, final double[] out) {
+    final int n = influences;
+    for (int v = fromVertex; v < toVertex; ++v) {
+      int base = v * n;
+      int first = boneIndices[base];
+      double fx = rx[first];
+      double fy = ry[first];
+      double fz = rz[first];
+      double fw = rw[first];
+      double weight = weights[base];
+      double bx = weight * fx;
+      double by = weight * fy;
+      double bz = weight * fz;
+      double bw = weight * fw;
+      double ex = weight * dx[first];
+      double ey = weight * dy[first];
+      double ez = weight * dz[first];
+      double ew = weight * dw[first];
+      for (int k = 1; k < n; ++k) {
+        int b = boneIndices[base + k];
+        weight = weights[base + k];
+        // Antipodality: blend in the hemisphere of the first bone
+        if (fx * rx[b] + fy * ry[b] + fz * rz[b] + fw * rw[b] < 0.0) {
+          weight = -weight;
+        }
+        bx += weight * rx[b];
+        by += weight * ry[b];
+        bz += weight * rz[b];
+        bw += weight * rw[b];
+        ex += weight * dx[b];
+        ey += weight * dy[b];
+        ez += weight * dz[b];
+        ew += weight * dw[b];
+      }
+
+      int p = 3 * v;
+      double px = rest[p];
+      double py = rest[p + 1];
+      double pz = rest[p + 2];
+      double norm2 = bx * bx + by * by + bz * bz + bw * bw;
+      if (!(norm2 > 0.0)) {
+        // No weight: the vertex stays at rest
+        out[p] = px;
+        out[p + 1] = py;
+        out[p + 2] = pz;
+        continue;
+      }
+      double invNorm = 1.0 / Math.sqrt(norm2);
+      bx *= invNorm;
+      by *= invNorm;
+      bz *= invNorm;
+      bw *= invNorm;
+      ex *= invNorm;
+      ey *= invNorm;
+      ez *= invNorm;
+      ew *= invNorm;
+
+      // Rotation: p + 2 b x (b x p + bw p)
+      double cx = by * pz - bz * py + bw * px;
+      double cy = bz * px - bx * pz + bw * py;
+      double cz = bx * py - by * px + bw * pz;
+      // Translation: 2 (bw e - ew b + b x e)
+      double tx = bw * ex - ew * bx + by * ez - bz * ey;
+      double ty = bw * ey - ew * by + bz * ex - bx * ez;
+      double tz = bw * ez - ew * bz + bx * ey - by * ex;
+      out[p] = px + 2.0 * (by * cz - bz * cy + tx);
+      out[p + 1] = py + 2.0 * (bz * cx - bx * cz + ty);
+      out[p + 2] = pz + 2.0 * (bx * cy - by * cx + tz);
+    }
+  }
+
+  /**
+   * Deforms one range of vertices of the current parallel frame
+   */
+  private final class ChunkTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final int from;
+    private final int to;
+
+    ChunkTask(int from, int to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      skinRange(from, to, target);
+    }
+  }
+
+  /**
+   * Runs all chunks of the current parallel frame
+   */
+  private final class FrameTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected void compute() {
+      invokeAll(chunks);
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package com.nus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of {@link DualQuaternionSkinner}: one frame of a mesh of
+ * {@code size} vertices with 4 influences each among {@code BONES} bones,
+ * skinned on the calling thread and on the common pool
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DualQuaternionSkinnerBenchmark {
+  private static final int BONES = 64;
+  private static final int INFLUENCES = 4;
+
+  @Param({"200000"})
+  public int size;
+
+  private DualQuaternionSkinner skinner;
+  private double[] out;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(QuaternionBenchmark.SEED);
+    double[] rest = new double[3 * size];
+    for (int i = 0; i < rest.length; ++i) {
+      rest[i] = random.nextGaussian();
+    }
+    int[] bones = new int[INFLUENCES * size];
+    double[] weights = new double[INFLUENCES * size];
+    for (int i = 0; i < bones.length; ++i) {
+      bones[i] = random.nextInt(BONES);
+      weights[i] = random.nextDouble();
+    }
+    skinner = new DualQuaternionSkinner(BONES, INFLUENCES, rest, bones,
+      weights);
+    for (int b = 0; b < BONES; ++b) {
+      skinner.setBone(b, QuaternionBenchmark.randomUnitQuaternion(random),
+        random.nextGaussian(), random.nextGaussian(), random.nextGaussian());
+    }
+    out = new double[3 * size];
+  }
+
+  @Benchmark
+  public double[] skinSequential() {
+    skinner.skin(out);
+    return out;
+  }
+
+  @Benchmark
+  public double[] skinParallel() {
+    skinner.skin(out, ForkJoinPool.commonPool());
+    return out;
+  }
+}
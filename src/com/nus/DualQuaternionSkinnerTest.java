@@ -0,0 +1,323 @@
+package com.nus;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import static com.nus.QuaternionTestUtils.randomRotation;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class DualQuaternionSkinnerTest {
+  private static final double EPSILON = 1e-12;
+  private static final int BONES = 16;
+  private static final int INFLUENCES = 4;
+
+  private static double[] randomValues(Random random, int length) {
+    double[] values = new double[length];
+    for (int i = 0; i < length; ++i) {
+      values[i] = random.nextGaussian();
+    }
+    return values;
+  }
+
+  private static int[] randomBones(Random random, int length) {
+    int[] bones = new int[length];
+    for (int i = 0; i < length; ++i) {
+      bones[i] = random.nextInt(BONES);
+    }
+    return bones;
+  }
+
+  private static double[] randomWeights(Random random, int length) {
+    double[] weights = new double[length];
+    for (int i = 0; i < length; ++i) {
+      weights[i] = random.nextDouble();
+    }
+    return weights;
+  }
+
+  private static DualQuaternion[] randomPoses(Random random) {
+    DualQuaternion[] poses = new DualQuaternion[BONES];
+    for (int b = 0; b < BONES; ++b) {
+      poses[b] = DualQuaternion.fromRotationTranslation(
+        randomRotation(random), randomValues(random, 3));
+    }
+    return poses;
+  }
+
+  /**
+   * Blends with DualQuaternion operations, one vertex at a time
+   */
+  private static double[] referenceSkin(DualQuaternion[] poses,
+      double[] rest, int[] bones, double[] weights) {
+    int vertexCount = rest.length / 3;
+    double[] out = new double[rest.length];
+    Quaternion first = new Quaternion();
+    Quaternion part = new Quaternion();
+    for (int v = 0; v < vertexCount; ++v) {
+      Quaternion real = new Quaternion(0, 0, 0, 0);
+      Quaternion dual = new Quaternion(0, 0, 0, 0);
+      poses[bones[v * INFLUENCES]].getReal(first);
+      for (int k = 0; k < INFLUENCES; ++k) {
+        DualQuaternion pose = poses[bones[v * INFLUENCES + k]];
+        double weight = weights[v * INFLUENCES + k];
+        pose.getReal(part);
+        if (part.dot(first) < 0.0) {
+          weight = -weight;
+        }
+        real.addEq(part.multiply(weight));
+        pose.getDual(part);
+        dual.addEq(part.multiply(weight));
+      }
+      DualQuaternion blend = new DualQuaternion(real, dual);
+      blend.normalize();
+      blend.transform(rest, 3 * v, out, 3 * v);
+    }
+    return out;
+  }
+
+  /**
+   * A single vertex bound to the second of two bones
+   */
+  private static DualQuaternionSkinner twoBoneSkinner() {
+    return new DualQuaternionSkinner(2, 1, new double[3], new int[] {1},
+      new double[1]);
+  }
+
+  @Test
+  public void testMatchesReference() {
+    Random random = new Random(1);
+    int vertexCount = 1000;
+    double[] rest = randomValues(random, 3 * vertexCount);
+    int[] bones = randomBones(random, INFLUENCES * vertexCount);
+    double[] weights = randomWeights(random, INFLUENCES * vertexCount);
+    DualQuaternionSkinner skinner =
+      new DualQuaternionSkinner(BONES, INFLUENCES, rest, bones, weights);
+    assertEquals(skinner.getVertexCount(), vertexCount);
+    assertEquals(skinner.getBoneCount(), BONES);
+    assertEquals(skinner.getInfluences(), INFLUENCES);
+
+    double[] out = new double[3 * vertexCount];
+    for (int frame = 0; frame < 3; ++frame) {
+      DualQuaternion[] poses = randomPoses(random);
+      for (int b = 0; b < BONES; ++b) {
+        skinner.setBone(b, poses[b]);
+      }
+      skinner.skin(out);
+      assertArrayEquals(out, referenceSkin(poses, rest, bones, weights),
+        EPSILON);
+    }
+  }
+
+  @Test
+  public void testRigidBinding() {
+    // With one bone per vertex, skinning is the bone transform
+    Random random = new Random(2);
+    int vertexCount = 50;
+    double[] rest = randomValues(random, 3 * vertexCount);
+    int[] bones = new int[vertexCount];
+    double[] weights = new double[vertexCount];
+    for (int v = 0; v < vertexCount; ++v) {
+      bones[v] = v % BONES;
+      weights[v] = 0.5 + random.nextDouble();
+    }
+    DualQuaternionSkinner skinner =
+      new DualQuaternionSkinner(BONES, 1, rest, bones, weights);
+    double[] out = new double[3 * vertexCount];
+    skinner.skin(out);
+    assertArrayEquals(out, rest, 0.0);
+
+    Quaternion[] rotations = new Quaternion[BONES];
+    double[] translations = randomValues(random, 3 * BONES);
+    for (int b = 0; b < BONES; ++b) {
+      rotations[b] = randomRotation(random);
+      skinner.setBone(b, rotations[b], translations[3 * b],
+        translations[3 * b + 1], translations[3 * b + 2]);
+    }
+    skinner.skin(out);
+    for (int v = 0; v < vertexCount; ++v) {
+      int b = bones[v];
+      double[] expected = rotations[b].rotate(
+        new double[] {rest[3 * v], rest[3 * v + 1], rest[3 * v + 2]});
+      for (int k = 0; k < 3; ++k) {
+        assertEquals(out[3 * v + k], expected[k] + translations[3 * b + k],
+          EPSILON);
+      }
+    }
+  }
+
+  @Test
+  public void testSetBones() {
+    Random random = new Random(3);
+    int vertexCount = 200;
+    double[] rest = randomValues(random, 3 * vertexCount);
+    int[] bones = randomBones(random, INFLUENCES * vertexCount);
+    double[] weights = randomWeights(random, INFLUENCES * vertexCount);
+    DualQuaternionSkinner bulk =
+      new DualQuaternionSkinner(BONES, INFLUENCES, rest, bones, weights);
+    DualQuaternionSkinner single =
+      new DualQuaternionSkinner(BONES, INFLUENCES, rest, bones, weights);
+
+    QuaternionArray rotations = new QuaternionArray(BONES + 2);
+    double[] translations = randomValues(random, 3 * BONES);
+    for (int b = 0; b < BONES; ++b) {
+      // Unnormalized on purpose
+      Quaternion q = randomRotation(random);
+      q.multiplyEq(2.0);
+      rotations.set(b + 2, q);
+      single.setBone(b, q, translations[3 * b], translations[3 * b + 1],
+        translations[3 * b + 2]);
+    }
+    bulk.setBones(rotations, 2, translations, 0, BONES);
+    double[] expected = new double[3 * vertexCount];
+    double[] actual = new double[3 * vertexCount];
+    single.skin(expected);
+    bulk.skin(actual);
+    assertArrayEquals(actual, expected, 0.0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSetBonesWithInvalidRange() {
+    twoBoneSkinner().setBones(new QuaternionArray(4), 3, new double[6], 0,
+      2);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSetBonesWithShortTranslations() {
+    twoBoneSkinner().setBones(new QuaternionArray(2), 0, new double[5], 0,
+      2);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSetBonesWithTooManyBones() {
+    twoBoneSkinner().setBones(new QuaternionArray(3), 0, new double[9], 0,
+      3);
+  }
+
+  @Test
+  public void testAntipodalBones() {
+    // Negating a bone's dual quaternion leaves the skin unchanged
+    Random random = new Random(4);
+    int vertexCount = 300;
+    double[] rest = randomValues(random, 3 * vertexCount);
+    int[] bones = randomBones(random, INFLUENCES * vertexCount);
+    double[] weights = randomWeights(random, INFLUENCES * vertexCount);
+    DualQuaternionSkinner skinner =
+      new DualQuaternionSkinner(BONES, INFLUENCES, rest, bones, weights);
+    DualQuaternion[] poses = randomPoses(random);
+    for (int b = 0; b < BONES; ++b) {
+      skinner.setBone(b, poses[b]);
+    }
+    double[] expected = new double[3 * vertexCount];
+    skinner.skin(expected);
+
+    Quaternion real = new Quaternion();
+    Quaternion dual = new Quaternion();
+    for (int b = 0; b < BONES; b += 2) {
+      poses[b].getReal(real);
+      poses[b].getDual(dual);
+      skinner.setBone(b, new DualQuaternion(real.multiply(-1.0),
+        dual.multiply(-1.0)));
+    }
+    double[] actual = new double[3 * vertexCount];
+    skinner.skin(actual);
+    assertArrayEquals(actual, expected, EPSILON);
+  }
+
+  @Test
+  public void testZeroWeightsKeepRest() {
+    double[] rest = {1.0, 2.0, 3.0, -1.0, 0.5, 2.0};
+    DualQuaternionSkinner skinner = new DualQuaternionSkinner(2, 2, rest,
+      new int[] {0, 1, 1, 0}, new double[] {0.0, 0.0, 1.0, 0.0});
+    skinner.setBone(1, new Quaternion(), 1.0, 0.0, 0.0);
+    double[] out = new double[6];
+    skinner.skin(out);
+    assertArrayEquals(out, new double[] {1.0, 2.0, 3.0, 0.0, 0.5, 2.0},
+      EPSILON);
+  }
+
+  @Test
+  public void testParallelMatchesSequential() {
+    Random random = new Random(5);
+    int vertexCount = 50001;
+    double[] rest = randomValues(random, 3 * vertexCount);
+    int[] bones = randomBones(random, INFLUENCES * vertexCount);
+    double[] weights = randomWeights(random, INFLUENCES * vertexCount);
+    DualQuaternionSkinner skinner =
+      new DualQuaternionSkinner(BONES, INFLUENCES, rest, bones, weights);
+    double[] expected = new double[3 * vertexCount];
+    double[] actual = new double[3 * vertexCount];
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      // Several frames, to exercise the reused tasks
+      for (int frame = 0; frame < 3; ++frame) {
+        DualQuaternion[] poses = randomPoses(random);
+        for (int b = 0; b < BONES; ++b) {
+          skinner.setBone(b, poses[b]);
+        }
+        skinner.skin(expected);
+        skinner.skin(actual, pool);
+        assertArrayEquals(actual, expected, 0.0);
+      }
+    } finally {
+      pool.shutdown();
+    }
+
+    // Ranges written by separate calls
+    double[] ranges = new double[3 * vertexCount];
+    skinner.skin(0, 1234, ranges);
+    skinner.skin(1234, vertexCount, ranges);
+    assertArrayEquals(ranges, expected, 0.0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructWithoutBones() {
+    new DualQuaternionSkinner(0, 1, new double[3], new int[] {0},
+      new double[1]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructWithTooManyInfluences() {
+    new DualQuaternionSkinner(1, 5, new double[3], new int[5], new double[5]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructWithShortBones() {
+    new DualQuaternionSkinner(1, 2, new double[3], new int[1], new double[2]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructWithInvalidRestPose() {
+    new DualQuaternionSkinner(1, 1, new double[4], new int[1], new double[1]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructWithInvalidBoneIndex() {
+    new DualQuaternionSkinner(2, 1, new double[3], new int[] {2},
+      new double[1]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSetBoneWithInvalidIndex() {
+    twoBoneSkinner().setBone(2, new Quaternion(), 0.0, 0.0, 0.0);
+  }
+
+  @Test(expected = ArithmeticException.class)
+  public void testSetBoneWithZeroRealPart() {
+    twoBoneSkinner().setBone(0, new DualQuaternion(new Quaternion(0, 0, 0, 0),
+      new Quaternion()));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSkinWithShortOutput() {
+    twoBoneSkinner().skin(new double[2]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSkinWithInvalidRange() {
+    twoBoneSkinner().skin(0, 2, new double[6]);
+  }
+}
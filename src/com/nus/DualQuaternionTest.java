@@ -0,0 +1,274 @@
+package com.nus;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import static com.nus.QuaternionTest.assertQuaternionEquals;
+import static com.nus.QuaternionTestUtils.randomRotation;
+
+import java.util.Random;
+
+public class DualQuaternionTest {
+  private static final double EPSILON = 1e-12;
+
+  private static double[] randomVector(Random random) {
+    return new double[] {random.nextGaussian(), random.nextGaussian(),
+      random.nextGaussian()};
+  }
+
+  private static DualQuaternion randomTransform(Random random) {
+    return DualQuaternion.fromRotationTranslation(randomRotation(random),
+      randomVector(random));
+  }
+
+  private static double[] apply(DualQuaternion a, double[] p) {
+    double[] out = new double[3];
+    a.transform(p, 0, out, 0);
+    return out;
+  }
+
+  @Test
+  public void testRotationTranslation() {
+    Random random = new Random(1);
+    for (int i = 0; i < 100; ++i) {
+      Quaternion rotation = randomRotation(random);
+      double[] translation = randomVector(random);
+      DualQuaternion a =
+        DualQuaternion.fromRotationTranslation(rotation, translation);
+      assertTrue(a.isUnit());
+
+      double[] p = randomVector(random);
+      double[] expected = rotation.rotate(p);
+      for (int k = 0; k < 3; ++k) {
+        expected[k] += translation[k];
+      }
+      assertArrayEquals(apply(a, p), expected, EPSILON);
+
+      Quaternion actualRotation = new Quaternion();
+      a.getRotation(actualRotation);
+      assertQuaternionEquals(actualRotation, rotation);
+      double[] actualTranslation = new double[3];
+      a.getTranslation(actualTranslation);
+      assertArrayEquals(actualTranslation, translation, EPSILON);
+    }
+  }
+
+  @Test
+  public void testIdentity() {
+    DualQuaternion identity = new DualQuaternion();
+    assertTrue(identity.isUnit());
+    double[] p = {1.0, -2.0, 3.0};
+    assertArrayEquals(apply(identity, p), p, 0.0);
+  }
+
+  @Test
+  public void testCompositionAppliesRightOperandFirst() {
+    Random random = new Random(2);
+    for (int i = 0; i < 100; ++i) {
+      DualQuaternion a = randomTransform(random);
+      DualQuaternion b = randomTransform(random);
+      double[] p = randomVector(random);
+      double[] expected = apply(a, apply(b, p));
+      assertArrayEquals(apply(a.multiply(b), p), expected, EPSILON);
+
+      // Output aliasing either operand
+      DualQuaternion c = new DualQuaternion(a);
+      DualQuaternion.multiply(c, b, c);
+      assertArrayEquals(apply(c, p), expected, EPSILON);
+      c = new DualQuaternion(b);
+      DualQuaternion.multiply(a, c, c);
+      assertArrayEquals(apply(c, p), expected, EPSILON);
+      c = new DualQuaternion(a);
+      c.multiplyEq(b);
+      assertEquals(c, a.multiply(b));
+    }
+  }
+
+  @Test
+  public void testRealPartIsQuaternionProduct() {
+    Random random = new Random(3);
+    Quaternion p = randomRotation(random);
+    Quaternion q = randomRotation(random);
+    DualQuaternion a = new DualQuaternion(p, new Quaternion(0, 0, 0, 0));
+    DualQuaternion b = new DualQuaternion(q, new Quaternion(0, 0, 0, 0));
+    Quaternion real = new Quaternion();
+    a.multiply(b).getReal(real);
+    assertQuaternionEquals(real, p.multiply(q));
+  }
+
+  @Test
+  public void testInverse() {
+    Random random = new Random(4);
+    double[] p = randomVector(random);
+    for (int i = 0; i < 100; ++i) {
+      DualQuaternion a = randomTransform(random);
+      assertArrayEquals(apply(a.multiply(a.inverse()), p), p, EPSILON);
+      assertArrayEquals(apply(a.inverse().multiply(a), p), p, EPSILON);
+      assertArrayEquals(apply(a.conjugate(), apply(a, p)), p, EPSILON);
+
+      // A non-unit dual quaternion has a true inverse too
+      DualQuaternion scaled = new DualQuaternion(
+        new Quaternion(1.0, 2.0, 3.0, 4.0), new Quaternion(0.5, 0.1, 0, 2));
+      DualQuaternion product = scaled.multiply(scaled.inverse());
+      Quaternion real = new Quaternion();
+      Quaternion dual = new Quaternion();
+      product.getReal(real);
+      product.getDual(dual);
+      assertQuaternionEquals(real, new Quaternion());
+      assertQuaternionEquals(dual, new Quaternion(0, 0, 0, 0));
+    }
+  }
+
+  @Test(expected = ArithmeticException.class)
+  public void testInverseWithZeroRealPart() {
+    new DualQuaternion(new Quaternion(0, 0, 0, 0), new Quaternion()).invert();
+  }
+
+  @Test
+  public void testNormalize() {
+    Random random = new Random(5);
+    for (int i = 0; i < 100; ++i) {
+      DualQuaternion a = randomTransform(random);
+      Quaternion real = new Quaternion();
+      Quaternion dual = new Quaternion();
+      a.getReal(real);
+      a.getDual(dual);
+      // Scale, then break the orthogonality of the parts
+      real.multiplyEq(3.0);
+      dual.multiplyEq(3.0);
+      dual.addEq(real.multiply(1e-3));
+      DualQuaternion drifted = new DualQuaternion(real, dual);
+      assertFalse(drifted.isUnit());
+      drifted.normalize();
+      assertTrue(drifted.isUnit());
+      double[] p = randomVector(random);
+      assertArrayEquals(apply(drifted, p), apply(a, p), EPSILON);
+    }
+  }
+
+  @Test
+  public void testSclerpEndPoints() {
+    Random random = new Random(6);
+    double[] p = randomVector(random);
+    for (int i = 0; i < 100; ++i) {
+      DualQuaternion from = randomTransform(random);
+      DualQuaternion to = randomTransform(random);
+      assertArrayEquals(apply(DualQuaternion.sclerp(from, to, 0.0), p),
+        apply(from, p), EPSILON);
+      assertArrayEquals(apply(DualQuaternion.sclerp(from, to, 1.0), p),
+        apply(to, p), 1e-10);
+      DualQuaternion middle = DualQuaternion.sclerp(from, to, 0.5);
+      assertTrue(middle.isUnit());
+
+      // The rotation follows slerp
+      Quaternion rotation = new Quaternion();
+      Quaternion fromRotation = new Quaternion();
+      Quaternion toRotation = new Quaternion();
+      middle.getRotation(rotation);
+      from.getRotation(fromRotation);
+      to.getRotation(toRotation);
+      Quaternion expected = Quaternion.slerp(fromRotation, toRotation, 0.5);
+      assertEquals(Math.abs(rotation.dot(expected)), 1.0, 1e-12);
+    }
+  }
+
+  @Test
+  public void testSclerpFollowsScrew() {
+    // Screw about the vertical axis through c, by 3 radians and a rise of 2
+    double[] c = {1.0, 2.0, 0.0};
+    double angle = 3.0;
+    double rise = 2.0;
+    Quaternion rotation = Quaternion.fromAxisAngleRad(
+      new double[] {0.0, 0.0, 1.0}, angle);
+    double[] rotated = rotation.rotate(c);
+    DualQuaternion to = DualQuaternion.fromRotationTranslation(rotation,
+      new double[] {c[0] - rotated[0], c[1] - rotated[1], rise});
+    DualQuaternion from = new DualQuaternion();
+    double[] p = {3.0, 2.0, 0.0};
+    for (int i = 0; i <= 10; ++i) {
+      double t = i / 10.0;
+      DualQuaternion middle = DualQuaternion.sclerp(from, to, t);
+      // Points on the axis only rise
+      assertArrayEquals(apply(middle, c), new double[] {1.0, 2.0, t * rise},
+        EPSILON);
+      // Other points turn about the axis at constant speed
+      double[] expected = {1.0 + 2.0 * Math.cos(t * angle),
+        2.0 + 2.0 * Math.sin(t * angle), t * rise};
+      assertArrayEquals(apply(middle, p), expected, EPSILON);
+    }
+  }
+
+  @Test
+  public void testSclerpPureTranslation() {
+    DualQuaternion from = DualQuaternion.fromRotationTranslation(
+      new Quaternion(), new double[] {1.0, 0.0, 0.0});
+    DualQuaternion to = DualQuaternion.fromRotationTranslation(
+      new Quaternion(), new double[] {1.0, 4.0, -2.0});
+    DualQuaternion out = new DualQuaternion();
+    DualQuaternion.sclerp(from, to, 0.25, out);
+    double[] translation = new double[3];
+    out.getTranslation(translation);
+    assertArrayEquals(translation, new double[] {1.0, 1.0, -0.5}, EPSILON);
+
+    // Output aliasing an input
+    DualQuaternion.sclerp(from, to, 0.25, from);
+    assertEquals(from, out);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSclerpWithInvalidParameter() {
+    DualQuaternion.sclerp(new DualQuaternion(), new DualQuaternion(), 1.5);
+  }
+
+  @Test
+  public void testBatchTransform() {
+    Random random = new Random(7);
+    DualQuaternion a = randomTransform(random);
+    int count = 37;
+    double[] points = new double[5 + 4 * count];
+    for (int i = 0; i < points.length; ++i) {
+      points[i] = random.nextGaussian();
+    }
+    double[] packed = new double[3 * count];
+    a.transform(points, 5, 4, packed, 0, 3, count);
+    for (int i = 0; i < count; ++i) {
+      double[] expected = new double[3];
+      a.transform(points, 5 + 4 * i, expected, 0);
+      assertArrayEquals(
+        new double[] {packed[3 * i], packed[3 * i + 1], packed[3 * i + 2]},
+        expected, 0.0);
+    }
+
+    // In place
+    double[] copy = points.clone();
+    a.transform(copy, 5, 4, copy, 5, 4, count);
+    for (int i = 0; i < count; ++i) {
+      for (int k = 0; k < 3; ++k) {
+        assertEquals(copy[5 + 4 * i + k], packed[3 * i + k], 0.0);
+      }
+      assertEquals(copy[5 + 4 * i + 3], points[5 + 4 * i + 3], 0.0);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBatchTransformOutOfRange() {
+    new DualQuaternion().transform(new double[13], 5, 4, new double[6], 1, 3,
+      2);
+  }
+
+  @Test
+  public void testEqualsAndHashCode() {
+    Random random = new Random(8);
+    DualQuaternion a = randomTransform(random);
+    DualQuaternion b = new DualQuaternion(a);
+    assertEquals(a, b);
+    assertEquals(a.hashCode(), b.hashCode());
+    b.conjugateEq();
+    assertFalse(a.equals(b));
+    assertFalse(a.equals(null));
+  }
+}
@@ -0,0 +1,361 @@
+package com.nus;
+
+/**
+ * Integrates body-frame angular velocity samples, such as the output of a
+ * gyroscope, into an orientation. The orientation {@code q} follows
+ * {@code dq/dt = q * (wx, wy, wz, 0) / 2}, so a rate measured in the body
+ * frame is applied on the right. Samples are in radians per second, and each
+ * one is the rate at the end of its time step.
+ *
+ * <p>The orientation is kept in four primitive fields and updated in place;
+ * updates do not allocate. The update rule is linear in {@code q}, so its
+ * norm only affects the scale of the stored quaternion: it is renormalized
+ * every {@code renormalizeInterval} samples to keep it near 1, and
+ * {@link #getOrientation(Quaternion)} always returns a unit quaternion.
+ *
+ * <p>An integrator is not thread-safe
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+public final class GyroIntegrator {
+  public static final int DEFAULT_RENORMALIZE_INTERVAL = 64;
+
+  public static final String INVALID_RENORMALIZE_INTERVAL_MSG =
+    "Renormalization interval must be positive";
+  public static final String INVALID_SAMPLE_RANGE_MSG =
+    "Sample range must lie within the rate array";
+  public static final String ZERO_QUATERNION_MSG =
+    "Orientation must not be the zero quaternion";
+
+  // Below this squared half angle, sin and cos are evaluated by their Taylor
+  // series, accurate to 1e-16
+  private static final double SERIES_HALF_ANGLE_SQUARED = 0.01;
+
+  /**
+   * Update rules, from the cheapest to the most accurate
+   */
+  public enum Method {
+    /**
+     * Explicit Euler step {@code q += dt * q * w / 2}, holding the sample
+     * constant over the step. The error per step is of order
+     * {@code (|w| dt)^2}
+     */
+    FIRST_ORDER,
+
+    /**
+     * Classical fourth-order Runge-Kutta step, interpolating the rate
+     * linearly from the previous sample to the current one. The first sample
+     * after a reset is held constant over its step. The interpolation makes
+     * the global error of order {@code dt^2} for smoothly varying rates,
+     * against {@code dt} for the methods holding the sample constant
+     */
+    RK4,
+
+    /**
+     * Exact rotation {@code q *= exp(w dt / 2)} for the sample held constant
+     * over the step, using a Taylor series for small angles
+     */
+    EXPONENTIAL
+  }
+
+  private final Method method;
+  private final int renormalizeInterval;
+
+  private double x;
+  private double y;
+  private double z;
+  private double w = 1.0;
+
+  // Previous rate sample, for RK4
+  private double lastWx;
+  private double lastWy;
+  private double lastWz;
+  private boolean hasLastRate;
+
+  private int untilRenormalize;
+  private long count;
+
+  /**
+   * Constructs an integrator starting at the identity orientation, which
+   * renormalizes every {@link #DEFAULT_RENORMALIZE_INTERVAL} samples
+   *
+   * @param method The update rule
+   */
+  public GyroIntegrator(final Method method) {
+    this(method, DEFAULT_RENORMALIZE_INTERVAL);
+  }
+
+  /**
+   * Constructs an integrator starting at the identity orientation
+   *
+   * @param method The update rule
+   * @param renormalizeInterval The number of samples between
+   *                            renormalizations of the orientation
+   * @throws IllegalArgumentException if {@code renormalizeInterval} is not
+   *                                  positive
+   */
+  public GyroIntegrator(final Method method, int renormalizeInterval)
+      throws IllegalArgumentException {
+    if (renormalizeInterval <= 0) {
+      throw new IllegalArgumentException(INVALID_RENORMALIZE_INTERVAL_MSG);
+    }
+    this.method = method;
+    this.renormalizeInterval = renormalizeInterval;
+    this.untilRenormalize = renormalizeInterval;
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Getters and setters
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Gets the update rule
+   *
+   * @return The update rule
+   */
+  public Method getMethod() {
+    return method;
+  }
+
+  /**
+   * Gets the number of samples integrated since construction or the last
+   * reset
+   *
+   * @return The number of samples
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Gets the current orientation
+   *
+   * @param out The Quaternion receiving the orientation, normalized
+   */
+  public void getOrientation(final Quaternion out) {
+    double invNorm = 1.0 / Math.sqrt(x * x + y * y + z * z + w * w);
+    out.set(x * invNorm, y * invNorm, z * invNorm, w * invNorm);
+  }
+
+  /**
+   * Restarts the integration from an orientation, forgetting the previous
+   * rate sample
+   *
+   * @param q The new orientation, which is normalized
+   * @throws IllegalArgumentException if {@code q} is zero
+   */
+  public void reset(final Quaternion q) throws IllegalArgumentException {
+    double norm = q.norm();
+    if (!(norm > 0.0)) {
+      throw new IllegalArgumentException(ZERO_QUATERNION_MSG);
+    }
+    double invNorm = 1.0 / norm;
+    restart(q.getX() * invNorm, q.getY() * invNorm, q.getZ() * invNorm,
+      q.getW() * invNorm);
+  }
+
+  /**
+   * Restarts the integration from the identity orientation
+   */
+  public void reset() {
+    restart(0.0, 0.0, 0.0, 1.0);
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Integration
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Integrates one sample
+   *
+   * @param wx The rate about the body x axis, in radians per second
+   * @param wy The rate about the body y axis, in radians per second
+   * @param wz The rate about the body z axis, in radians per second
+   * @param dt The time step, in seconds
+   */
+  public void update(double wx, double wy, double wz, double dt) {
+    switch (method) {
+      case FIRST_ORDER:
+        firstOrder(wx, wy, wz, dt);
+        break;
+      case RK4:
+        rk4(wx, wy, wz, dt);
+        break;
+      default:
+        exponential(wx, wy, wz, dt);
+        break;
+    }
+    lastWx = wx;
+    lastWy = wy;
+    lastWz = wz;
+    hasLastRate = true;
+
+    if (--untilRenormalize == 0) {
+      double invNorm = 1.0 / Math.sqrt(x * x + y * y + z * z + w * w);
+      x *= invNorm;
+      y *= invNorm;
+      z *= invNorm;
+      w *= invNorm;
+      untilRenormalize = renormalizeInterval;
+    }
+    ++count;
+  }
+
+  /**
+   * Integrates {@code count} samples taken at a fixed rate, stored as
+   * consecutive (wx, wy, wz) triples
+   *
+   * @param rates The rate samples
+   * @param ratesOff The index in {@code rates} of the first sample
+   * @param count The number of samples
+   * @param dt The time step, in seconds
+   * @param out The array receiving the orientation after each sample,
+   *            normalized, or null
+   * @param outOff The index in {@code out} of the first orientation
+   * @throws IllegalArgumentException if the samples are not all in
+   *                                  {@code rates} or {@code out} is too
+   *                                  short
+   */
+  public void update(final double[] rates, int ratesOff, int count,
+      double dt, final QuaternionArray out, int outOff)
+      throws IllegalArgumentException {
+    if (ratesOff < 0 || count < 0 || ratesOff > rates.length - 3L * count) {
+      throw new IllegalArgumentException(INVALID_SAMPLE_RANGE_MSG);
+    }
+    if (out != null) {
+      out.checkRange(outOff, outOff + count);
+    }
+
+    for (int i = 0, k = ratesOff; i < count; ++i, k += 3) {
+      update(rates[k], rates[k + 1], rates[k + 2], dt);
+      if (out != null) {
+        double invNorm = 1.0 / Math.sqrt(x * x + y * y + z * z + w * w);
+        out.x[outOff + i] = x * invNorm;
+        out.y[outOff + i] = y * invNorm;
+        out.z[outOff + i] = z * invNorm;
+        out.w[outOff + i] = w * invNorm;
+      }
+    }
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Private methods
+  //
+  /////////////////////////////////////////////////////////
+
+  private void restart(double x, double y, double z, double w) {
+    this.x = x;
+    this.y = y;
+    this.z = z;
+    this.w = w;
+    hasLastRate = false;
+    untilRenormalize = renormalizeInterval;
+    count = 0;
+  }
+
+  private void firstOrder(double wx, double wy, double wz, double dt) {
+    double hx = 0.5 * dt * wx;
+    double hy = 0.5 * dt * wy;
+    double hz = 0.5 * dt * wz;
+    double nx = x + w * hx + y * hz - z * hy;
+    double ny = y + w * hy - x * hz + z * hx;
+    double nz = z + w * hz + x * hy - y * hx;
+    double nw = w - x * hx - y * hy - z * hz;
+    x = nx;
+    y = ny;
+    z = nz;
+    w = nw;
+  }
+
+  private void rk4(double wx, double wy, double wz, double dt) {
+    double ax = hasLastRate ? lastWx : wx;
+    double ay = hasLastRate ? lastWy : wy;
+    double az = hasLastRate ? lastWz : wz;
+    // Half rates at the start, middle and end of the step
+    double sx = 0.5 * ax;
+    double sy = 0.5 * ay;
+    double sz = 0.5 * az;
+    double mx = 0.25 * (ax + wx);
+    double my = 0.25 * (ay + wy);
+    double mz = 0.25 * (az + wz);
+    double ex = 0.5 * wx;
+    double ey = 0.5 * wy;
+    double ez = 0.5 * wz;
+
+    // k = p * (hx, hy, hz, 0) for the stage quaternion p
+    double k1x = w * sx + y * sz - z * sy;
+    double k1y = w * sy - x * sz + z * sx;
+    double k1z = w * sz + x * sy - y * sx;
+    double k1w = -x * sx - y * sy - z * sz;
+
+    double h = 0.5 * dt;
+    double px = x + h * k1x;
+    double py = y + h * k1y;
+    double pz = z + h * k1z;
+    double pw = w + h * k1w;
+    double k2x = pw * mx + py * mz - pz * my;
+    double k2y = pw * my - px * mz + pz * mx;
+    double k2z = pw * mz + px * my - py * mx;
+    double k2w = -px * mx - py * my - pz * mz;
+
+    px = x + h * k2x;
+    py = y + h * k2y;
+    pz = z + h * k2z;
+    pw = w + h * k2w;
+    double k3x = pw * mx + py * mz - pz * my;
+    double k3y = pw * my - px * mz + pz * mx;
+    double k3z = pw * mz + px * my - py * mx;
+    double k3w = -px * mx - py * my - pz * mz;
+
+    px = x + dt * k3x;
+    py = y + dt * k3y;
+    pz = z + dt * k3z;
+    pw = w + dt * k3w;
+    double k4x = pw * ex + py * ez - pz * ey;
+    double k4y = pw * ey - px * ez + pz * ex;
+    double k4z = pw * ez + px * ey - py * ex;
+    double k4w = -px * ex - py * ey - pz * ez;
+
+    double s = dt / 6.0;
+    x += s * (k1x + 2.0 * (k2x + k3x) + k4x);
+    y += s * (k1y + 2.0 * (k2y + k3y) + k4y);
+    z += s * (k1z + 2.0 * (k2z + k3z) + k4z);
+    w += s * (k1w + 2.0 * (k2w + k3w) + k4w);
+  }
+
+  private void exponential(double wx, double wy, double wz, double dt) {
+    double hx = 0.5 * dt * wx;
+    double hy = 0.5 * dt * wy;
+    double hz = 0.5 * dt * wz;
+    // d = exp((hx, hy, hz, 0)) = (sin(a) / a * h, cos(a)) with a = |h|
+    double a2 = hx * hx + hy * hy + hz * hz;
+    double sinc;
+    double cos;
+    if (a2 < SERIES_HALF_ANGLE_SQUARED) {
+      sinc = 1.0 - a2 / 6.0 * (1.0 - a2 / 20.0 * (1.0 - a2 / 42.0 *
+        (1.0 - a2 / 72.0)));
+      cos = 1.0 - a2 / 2.0 * (1.0 - a2 / 12.0 * (1.0 - a2 / 30.0 *
+        (1.0 - a2 / 56.0)));
+    } else {
+      double a = Math.sqrt(a2);
+      sinc = Math.sin(a) / a;
+      cos = Math.cos(a);
+    }
+    double dx = sinc * hx;
+    double dy = sinc * hy;
+    double dz = sinc * hz;
+    double nx = w * dx + x * cos + y * dz - z * dy;
+    double ny = w * dy - x * dz + y * cos + z * dx;
+    double nz = w * dz + x * dy - y * dx + z * cos;
+    double nw = w * cos - x * dx - y * dy - z * dz;
+    x = nx;
+    y = ny;
+    z = nz;
+    w = nw;
+  }
+}
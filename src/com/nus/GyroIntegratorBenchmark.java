@@ -0,0 +1,77 @@
+package com.nus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of {@link GyroIntegrator} against building a Quaternion
+ * with {@link Quaternion#fromAxisAngleRad(double[], double)} per sample.
+ * Scores are per batch of {@code size} rate samples taken at 1 kHz
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GyroIntegratorBenchmark {
+  private static final double DT = 1e-3;
+
+  @Param({"65536"})
+  public int size;
+
+  @Param({"FIRST_ORDER", "RK4", "EXPONENTIAL"})
+  public GyroIntegrator.Method method;
+
+  private double[] rates;
+  private GyroIntegrator integrator;
+  private Quaternion orientation;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(QuaternionBenchmark.SEED);
+    rates = new double[3 * size];
+    for (int i = 0; i < rates.length; ++i) {
+      rates[i] = random.nextGaussian();
+    }
+    integrator = new GyroIntegrator(method);
+    orientation = new Quaternion();
+  }
+
+  @Benchmark
+  public Quaternion integrate() {
+    integrator.reset();
+    integrator.update(rates, 0, size, DT, null, 0);
+    integrator.getOrientation(orientation);
+    return orientation;
+  }
+
+  @Benchmark
+  public Quaternion fromAxisAngleReference() {
+    Quaternion q = new Quaternion();
+    double[] axis = new double[3];
+    for (int k = 0; k < rates.length; k += 3) {
+      axis[0] = rates[k];
+      axis[1] = rates[k + 1];
+      axis[2] = rates[k + 2];
+      double rate = Math.sqrt(axis[0] * axis[0] + axis[1] * axis[1] +
+        axis[2] * axis[2]);
+      q.multiplyEq(Quaternion.fromAxisAngleRad(axis, rate * DT));
+    }
+    return q;
+  }
+}
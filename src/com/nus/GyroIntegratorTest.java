@@ -0,0 +1,180 @@
+package com.nus;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import static com.nus.QuaternionTest.assertQuaternionEquals;
+import static com.nus.QuaternionTestUtils.angleBetween;
+
+import java.util.Random;
+
+public class GyroIntegratorTest {
+
+  /**
+   * Rate at time t of a body wobbling about a moving axis
+   */
+  private static void rate(double t, double[] out) {
+    out[0] = 2.0 * Math.sin(3.0 * t);
+    out[1] = 1.5 * Math.cos(2.0 * t);
+    out[2] = 0.5 + t;
+  }
+
+  /**
+   * Integrates {@link #rate} over {@code [0, duration]} with many exact
+   * exponential sub-steps of the midpoint rate
+   */
+  private static Quaternion reference(double duration, int steps) {
+    GyroIntegrator integrator =
+      new GyroIntegrator(GyroIntegrator.Method.EXPONENTIAL);
+    double[] r = new double[3];
+    double dt = duration / steps;
+    for (int i = 0; i < steps; ++i) {
+      rate((i + 0.5) * dt, r);
+      integrator.update(r[0], r[1], r[2], dt);
+    }
+    Quaternion q = new Quaternion();
+    integrator.getOrientation(q);
+    return q;
+  }
+
+  private static Quaternion integrate(GyroIntegrator.Method method,
+      double duration, int steps) {
+    GyroIntegrator integrator = new GyroIntegrator(method);
+    double[] r = new double[3];
+    double dt = duration / steps;
+    rate(0.0, r);
+    // Prime RK4 with the rate at the start of the first step
+    integrator.update(r[0], r[1], r[2], 0.0);
+    for (int i = 1; i <= steps; ++i) {
+      rate(i * dt, r);
+      integrator.update(r[0], r[1], r[2], dt);
+    }
+    Quaternion q = new Quaternion();
+    integrator.getOrientation(q);
+    return q;
+  }
+
+  @Test
+  public void testConstantRate() {
+    double[] axis = {2.0 / 3.0, -2.0 / 3.0, 1.0 / 3.0};
+    double rate = 3.0;
+    Quaternion expected =
+      Quaternion.fromAxisAngleRad(axis.clone(), rate * 2.0);
+    double[] tolerances = {1e-5, 1e-12, 1e-12};
+    for (GyroIntegrator.Method method : GyroIntegrator.Method.values()) {
+      GyroIntegrator integrator = new GyroIntegrator(method);
+      for (int i = 0; i < 2000; ++i) {
+        integrator.update(rate * axis[0], rate * axis[1], rate * axis[2],
+          1e-3);
+      }
+      Quaternion actual = new Quaternion();
+      integrator.getOrientation(actual);
+      assertTrue(method.toString(),
+        angleBetween(actual, expected) < tolerances[method.ordinal()]);
+      assertEquals(actual.norm(), 1.0, 1e-15);
+      assertEquals(integrator.getCount(), 2000L);
+    }
+  }
+
+  @Test
+  public void testLargeAndSmallAngles() {
+    // The Taylor series and the trigonometric branch agree with the
+    // axis-angle construction on both sides of their boundary
+    double[] axis = {0.0, 0.6, 0.8};
+    for (double angle : new double[] {1e-9, 1e-3, 0.19, 0.2, 0.21, 1.0, 3.0}) {
+      GyroIntegrator integrator =
+        new GyroIntegrator(GyroIntegrator.Method.EXPONENTIAL);
+      integrator.update(0.0, 0.6 * angle, 0.8 * angle, 1.0);
+      Quaternion actual = new Quaternion();
+      integrator.getOrientation(actual);
+      assertQuaternionEquals(actual,
+        Quaternion.fromAxisAngleRad(axis.clone(), angle));
+    }
+  }
+
+  @Test
+  public void testVaryingRateConvergence() {
+    Quaternion expected = reference(2.0, 200000);
+    double firstOrder =
+      angleBetween(integrate(GyroIntegrator.Method.FIRST_ORDER, 2.0, 2000),
+        expected);
+    double exponential =
+      angleBetween(integrate(GyroIntegrator.Method.EXPONENTIAL, 2.0, 2000),
+        expected);
+    double rk4 =
+      angleBetween(integrate(GyroIntegrator.Method.RK4, 2.0, 2000), expected);
+    assertTrue(firstOrder < 3e-3);
+    assertTrue(exponential < 3e-3);
+    assertTrue(rk4 < 3e-6);
+    assertTrue(rk4 < exponential / 1000);
+  }
+
+  @Test
+  public void testBatchUpdate() {
+    Random random = new Random(1);
+    int count = 500;
+    double[] rates = new double[3 * count + 2];
+    for (int i = 0; i < rates.length; ++i) {
+      rates[i] = random.nextGaussian();
+    }
+    for (GyroIntegrator.Method method : GyroIntegrator.Method.values()) {
+      GyroIntegrator single = new GyroIntegrator(method, 7);
+      GyroIntegrator batch = new GyroIntegrator(method, 7);
+      QuaternionArray out = new QuaternionArray(count + 1);
+      batch.update(rates, 2, count, 1e-3, out, 1);
+      Quaternion expected = new Quaternion();
+      for (int i = 0; i < count; ++i) {
+        single.update(rates[2 + 3 * i], rates[3 + 3 * i], rates[4 + 3 * i],
+          1e-3);
+        single.getOrientation(expected);
+        assertQuaternionEquals(out.get(1 + i), expected);
+      }
+      Quaternion actual = new Quaternion();
+      batch.getOrientation(actual);
+      assertQuaternionEquals(actual, expected);
+      batch.update(rates, 0, 0, 1e-3, null, 0);
+      assertEquals(batch.getCount(), (long) count);
+    }
+  }
+
+  @Test
+  public void testReset() {
+    GyroIntegrator integrator =
+      new GyroIntegrator(GyroIntegrator.Method.RK4);
+    integrator.update(1.0, 2.0, 3.0, 0.1);
+    Quaternion start = new Quaternion(0.0, 0.0, 2.0, 0.0);
+    integrator.reset(start);
+    assertEquals(integrator.getCount(), 0L);
+    Quaternion actual = new Quaternion();
+    integrator.getOrientation(actual);
+    assertQuaternionEquals(actual, new Quaternion(0.0, 0.0, 1.0, 0.0));
+    integrator.reset();
+    integrator.getOrientation(actual);
+    assertQuaternionEquals(actual, new Quaternion());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidRenormalizeInterval() {
+    new GyroIntegrator(GyroIntegrator.Method.RK4, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testResetWithZeroQuaternion() {
+    new GyroIntegrator(GyroIntegrator.Method.RK4).reset(
+      new Quaternion(0.0, 0.0, 0.0, 0.0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidSampleRange() {
+    new GyroIntegrator(GyroIntegrator.Method.RK4).update(new double[8], 0, 3,
+      1e-3, null, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testOutputTooShort() {
+    new GyroIntegrator(GyroIntegrator.Method.RK4).update(new double[9], 0, 3,
+      1e-3, new QuaternionArray(2), 0);
+  }
+}
@@ -0,0 +1,276 @@
+package com.nus;
+
+/**
+ * An animation track: a sequence of unit quaternion keyframes at strictly
+ * increasing times. Times live in a {@code double[]} and keys in a
+ * {@link QuaternionArray}, so sampling touches only primitive arrays and
+ * allocates nothing.
+ *
+ * <p>Sampling before the first key or after the last one clamps to that key.
+ * Between two keys the track interpolates along the shorter arc, either with
+ * {@link Quaternion#slerp} or with the cheaper {@link Quaternion#nlerp}.
+ *
+ * <p>Key lookup is a binary search, O(log n). For playback, where the sample
+ * time moves forward by small steps, every sampling method also accepts the
+ * key index returned by the previous call as a cursor: if the time still falls
+ * in that key or the next one, the lookup is O(1). A track holds no mutable
+ * state, so it can be shared between threads each owning their cursors
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+public class KeyframeTrack {
+  private final double[] times;
+  private final QuaternionArray keys;
+  private final boolean spherical;
+
+  public static final String EMPTY_TRACK_MSG =
+    "A keyframe track must have at least one key";
+  public static final String KEY_COUNT_MISMATCH_MSG =
+    "There must be exactly one key per keyframe time";
+  public static final String UNSORTED_TIMES_MSG =
+    "Keyframe times must be finite and strictly increasing";
+  public static final String TRACK_COUNT_MISMATCH_MSG =
+    "There must be one cursor and one output quaternion per track";
+
+  //////////////////////////////////////////////////////////
+  //
+  // Constructors and getters
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Constructs a track interpolating its keys with slerp. The inputs are
+   * copied
+   *
+   * @param times The keyframe times, finite and strictly increasing
+   * @param keys The unit quaternion keys, one per time
+   * @throws IllegalArgumentException if the track is empty, the number of
+   *                                  keys differs from the number of times or
+   *                                  the times are not strictly increasing
+   */
+  public KeyframeTrack(final double[] times, final QuaternionArray keys)
+      throws IllegalArgumentException {
+    this(times, keys, true);
+  }
+
+  /**
+   * Constructs a track. The inputs are copied
+   *
+   * @param times The keyframe times, finite and strictly increasing
+   * @param keys The unit quaternion keys, one per time
+   * @param spherical true to interpolate with slerp, false to interpolate
+   *                  with nlerp
+   * @throws IllegalArgumentException if the track is empty, the number of
+   *                                  keys differs from the number of times or
+   *                                  the times are not strictly increasing
+   */
+  public KeyframeTrack(final double[] times, final QuaternionArray keys,
+      boolean spherical) throws IllegalArgumentException {
+    checkTimes(times, keys.size());
+
+    int n = times.length;
+    this.times = times.clone();
+    this.keys = new QuaternionArray(n);
+    System.arraycopy(keys.x, 0, this.keys.x, 0, n);
+    System.arraycopy(keys.y, 0, this.keys.y, 0, n);
+    System.arraycopy(keys.z, 0, this.keys.z, 0, n);
+    System.arraycopy(keys.w, 0, this.keys.w, 0, n);
+    this.spherical = spherical;
+  }
+
+  /**
+   * Gets the number of keyframes
+   *
+   * @return The number of keyframes
+   */
+  public int size() {
+    return times.length;
+  }
+
+  /**
+   * Gets the time of the keyframe at {@code index}
+   *
+   * @param index The index of the keyframe
+   * @return The keyframe time
+   */
+  public double getTime(int index) {
+    return times[index];
+  }
+
+  /**
+   * Gets a copy of the key at {@code index}
+   *
+   * @param index The index of the keyframe
+   * @return A new Quaternion equal to the key
+   */
+  public Quaternion getKey(int index) {
+    return keys.get(index);
+  }
+
+  /**
+   * Gets the time of the first keyframe
+   *
+   * @return The start time of the track
+   */
+  public double getStartTime() {
+    return times[0];
+  }
+
+  /**
+   * Gets the time of the last keyframe
+   *
+   * @return The end time of the track
+   */
+  public double getEndTime() {
+    return times[times.length - 1];
+  }
+
+  /**
+   * Checks whether this track interpolates with slerp
+   *
+   * @return true for slerp, false for nlerp
+   */
+  public boolean isSpherical() {
+    return spherical;
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Key lookup
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Finds the keyframe segment containing {@code time}, that is the largest
+   * index {@code i} with {@code getTime(i) <= time}, or 0 if {@code time} is
+   * before the first key
+   *
+   * @param time The sample time
+   * @param cursor The index returned by a previous lookup on this track, used
+   *               as a hint; any value, such as 0, is accepted
+   * @return The index of the keyframe segment
+   */
+  public int findKey(double time, int cursor) {
+    return findKey(times, time, cursor);
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Sampling
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Samples the track at {@code time} into {@code out[outIndex]}
+   *
+   * @param time The sample time
+   * @param cursor The value returned by the previous call for this track, or
+   *               0 on the first call
+   * @param out The array receiving the result
+   * @param outIndex The index of the result in {@code out}
+   * @return The cursor to pass to the next call
+   */
+  public int sample(double time, int cursor, final QuaternionArray out,
+      int outIndex) {
+    int key = findKey(time, cursor);
+    if (key == times.length - 1 || time <= times[key]) {
+      out.x[outIndex] = keys.x[key];
+      out.y[outIndex] = keys.y[key];
+      out.z[outIndex] = keys.z[key];
+      out.w[outIndex] = keys.w[key];
+    } else {
+      double t = (time - times[key]) / (times[key + 1] - times[key]);
+      out.interpolate(outIndex, keys, key, keys, key + 1, t, spherical);
+    }
+    return key;
+  }
+
+  /**
+   * Samples the track at {@code time}. Unlike the other sampling methods this
+   * allocates the result
+   *
+   * @param time The sample time
+   * @return A new unit Quaternion
+   */
+  public Quaternion sample(double time) {
+    QuaternionArray out = new QuaternionArray(1);
+    sample(time, 0, out, 0);
+    return out.get(0);
+  }
+
+  /**
+   * Samples every track at the same {@code time}, writing the sample of
+   * {@code tracks[i]} to {@code out[i]} and updating {@code cursors[i]}.
+   * Cursors should start at 0 and be kept between frames
+   *
+   * @param tracks The tracks to be sampled
+   * @param time The sample time
+   * @param cursors One cursor per track, updated in place
+   * @param out The array receiving one quaternion per track
+   * @throws IllegalArgumentException if {@code cursors} or {@code out} do not
+   *                                  have one element per track
+   */
+  public static void sampleAll(final KeyframeTrack[] tracks, double time,
+      final int[] cursors, final QuaternionArray out)
+      throws IllegalArgumentException {
+    if (cursors.length != tracks.length || out.size() != tracks.length) {
+      throw new IllegalArgumentException(TRACK_COUNT_MISMATCH_MSG);
+    }
+    for (int i = 0; i < tracks.length; ++i) {
+      cursors[i] = tracks[i].sample(time, cursors[i], out, i);
+    }
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Package-private static methods
+  //
+  /////////////////////////////////////////////////////////
+
+  static void checkTimes(final double[] times, int keyCount)
+      throws IllegalArgumentException {
+    if (times.length == 0) {
+      throw new IllegalArgumentException(EMPTY_TRACK_MSG);
+    }
+    if (keyCount != times.length) {
+      throw new IllegalArgumentException(KEY_COUNT_MISMATCH_MSG);
+    }
+    for (int i = 0; i < times.length; ++i) {
+      // Written so that NaN fails as well
+      boolean valid = i == 0 ? !Double.isNaN(times[i])
+        : times[i] > times[i - 1];
+      if (!valid || Double.isInfinite(times[i])) {
+        throw new IllegalArgumentException(UNSORTED_TIMES_MSG);
+      }
+    }
+  }
+
+  /**
+   * Implements {@link #findKey(double, int)} over a sorted array of times
+   */
+  static int findKey(final double[] times, double time, int cursor) {
+    int last = times.length - 1;
+    if (cursor >= 0 && cursor <= last && times[cursor] <= time) {
+      if (cursor == last || time < times[cursor + 1]) {
+        return cursor;
+      }
+      if (cursor + 1 == last || time < times[cursor + 2]) {
+        return cursor + 1;
+      }
+    }
+
+    int low = 0;
+    int high = last;
+    // Invariant: times[low] <= time < times[high + 1], treating out-of-range
+    // times as clamped to the first key
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (times[mid] <= time) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+}
@@ -0,0 +1,125 @@
+package com.nus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of {@link KeyframeTrack} sampling. Each benchmark samples one
+ * frame of {@code tracks} tracks of {@code keys} keys, advancing the playback
+ * time by one sixtieth of a second per call. Scores are per frame.
+ *
+ * <p>{@code sampleAllWithCursors} is the intended playback loop,
+ * {@code sampleAllWithSearch} discards the cursors so every lookup is a binary
+ * search, and {@code lerpReference} is the hand-written loop over
+ * {@code Quaternion[]} and {@link Quaternion#lerp} the track replaces
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class KeyframeTrackBenchmark {
+  private static final double FRAME_TIME = 1.0 / 60.0;
+
+  @Param({"1000"})
+  public int tracks;
+
+  @Param({"16", "1024"})
+  public int keys;
+
+  private KeyframeTrack[] trackArray;
+  private double[][] times;
+  private Quaternion[][] keyArrays;
+  private int[] cursors;
+  private int[] searchCursors;
+  private QuaternionArray out;
+  private Quaternion[] outObjects;
+  private double duration;
+  private double time;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(QuaternionBenchmark.SEED);
+    trackArray = new KeyframeTrack[tracks];
+    times = new double[tracks][];
+    keyArrays = new Quaternion[tracks][];
+    for (int i = 0; i < tracks; ++i) {
+      times[i] = new double[keys];
+      keyArrays[i] = new Quaternion[keys];
+      double t = 0.0;
+      for (int k = 0; k < keys; ++k) {
+        // Roughly one key every 2 frames, jittered per track
+        t += FRAME_TIME * (1.0 + 2.0 * random.nextDouble());
+        times[i][k] = t;
+        keyArrays[i][k] = QuaternionBenchmark.randomUnitQuaternion(random);
+      }
+      trackArray[i] = new KeyframeTrack(times[i],
+        new QuaternionArray(keyArrays[i]));
+      duration = Math.max(duration, t);
+    }
+    cursors = new int[tracks];
+    searchCursors = new int[tracks];
+    out = new QuaternionArray(tracks);
+    outObjects = new Quaternion[tracks];
+  }
+
+  private double nextTime() {
+    time += FRAME_TIME;
+    if (time > duration) {
+      time = 0.0;
+    }
+    return time;
+  }
+
+  @Benchmark
+  public QuaternionArray sampleAllWithCursors() {
+    KeyframeTrack.sampleAll(trackArray, nextTime(), cursors, out);
+    return out;
+  }
+
+  @Benchmark
+  public QuaternionArray sampleAllWithSearch() {
+    // An out-of-range cursor forces a binary search
+    Arrays.fill(searchCursors, -1);
+    KeyframeTrack.sampleAll(trackArray, nextTime(), searchCursors, out);
+    return out;
+  }
+
+  @Benchmark
+  public Quaternion[] lerpReference() {
+    double now = nextTime();
+    for (int i = 0; i < tracks; ++i) {
+      double[] t = times[i];
+      Quaternion[] k = keyArrays[i];
+      int key = 0;
+      while (key < t.length - 1 && t[key + 1] <= now) {
+        ++key;
+      }
+      if (key == t.length - 1 || now <= t[key]) {
+        outObjects[i] = k[key];
+      } else {
+        double u = (now - t[key]) / (t[key + 1] - t[key]);
+        Quaternion q = Quaternion.lerp(k[key], k[key + 1], u);
+        q.normalize();
+        outObjects[i] = q;
+      }
+    }
+    return outObjects;
+  }
+}
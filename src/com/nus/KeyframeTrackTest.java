@@ -0,0 +1,143 @@
+package com.nus;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import static com.nus.QuaternionTest.assertQuaternionEquals;
+
+public class KeyframeTrackTest {
+  private static final double[] AXIS = {0.0, 0.0, 1.0};
+
+  // Keys at 0, 1, 3 and 4 seconds, rotating about z by 0, 90, 180 and 90
+  // degrees
+  private static KeyframeTrack sampleTrack(boolean spherical) {
+    double[] times = {0.0, 1.0, 3.0, 4.0};
+    QuaternionArray keys = new QuaternionArray(new Quaternion[] {
+      Quaternion.fromAxisAngle(AXIS, 0.0),
+      Quaternion.fromAxisAngle(AXIS, 90.0),
+      Quaternion.fromAxisAngle(AXIS, 180.0),
+      Quaternion.fromAxisAngle(AXIS, 90.0),
+    });
+    return new KeyframeTrack(times, keys, spherical);
+  }
+
+  @Test
+  public void testGetters() {
+    KeyframeTrack track = sampleTrack(true);
+    assertEquals(track.size(), 4);
+    assertEquals(track.getStartTime(), 0.0, 0.0);
+    assertEquals(track.getEndTime(), 4.0, 0.0);
+    assertEquals(track.getTime(2), 3.0, 0.0);
+    assertQuaternionEquals(track.getKey(1),
+      Quaternion.fromAxisAngle(AXIS, 90.0));
+    assertTrue(track.isSpherical());
+    assertFalse(sampleTrack(false).isSpherical());
+  }
+
+  @Test
+  public void testConstructorCopiesInputs() {
+    double[] times = {0.0, 1.0};
+    QuaternionArray keys = new QuaternionArray(2);
+    KeyframeTrack track = new KeyframeTrack(times, keys);
+    times[1] = 5.0;
+    keys.set(1, 1.0, 0.0, 0.0, 0.0);
+    assertEquals(track.getTime(1), 1.0, 0.0);
+    assertQuaternionEquals(track.getKey(1), Quaternion.getIdentity());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testEmptyTrack() throws Exception {
+    new KeyframeTrack(new double[0], new QuaternionArray(0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testKeyCountMismatch() throws Exception {
+    new KeyframeTrack(new double[] {0.0, 1.0}, new QuaternionArray(3));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnsortedTimes() throws Exception {
+    new KeyframeTrack(new double[] {0.0, 1.0, 1.0}, new QuaternionArray(3));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNaNTime() throws Exception {
+    new KeyframeTrack(new double[] {Double.NaN}, new QuaternionArray(1));
+  }
+
+  @Test
+  public void testFindKey() {
+    KeyframeTrack track = sampleTrack(true);
+    double[] times = {-1.0, 0.0, 0.5, 1.0, 2.9, 3.0, 3.5, 4.0, 10.0};
+    int[] expected = {0, 0, 0, 1, 1, 2, 2, 3, 3};
+    for (int i = 0; i < times.length; ++i) {
+      // Every cursor, including stale and out-of-range ones, gives the same
+      // answer as a fresh search
+      for (int cursor = -1; cursor <= track.size(); ++cursor) {
+        assertEquals(track.findKey(times[i], cursor), expected[i]);
+      }
+    }
+  }
+
+  @Test
+  public void testSample() {
+    KeyframeTrack track = sampleTrack(true);
+    assertQuaternionEquals(track.sample(-1.0), track.getKey(0));
+    assertQuaternionEquals(track.sample(1.0), track.getKey(1));
+    assertQuaternionEquals(track.sample(5.0), track.getKey(3));
+    assertQuaternionEquals(track.sample(0.5),
+      Quaternion.fromAxisAngle(AXIS, 45.0));
+    assertQuaternionEquals(track.sample(2.5),
+      Quaternion.fromAxisAngle(AXIS, 157.5));
+    assertQuaternionEquals(track.sample(3.25),
+      Quaternion.fromAxisAngle(AXIS, 157.5));
+  }
+
+  @Test
+  public void testSampleMatchesQuaternionInterpolation() {
+    KeyframeTrack slerpTrack = sampleTrack(true);
+    KeyframeTrack nlerpTrack = sampleTrack(false);
+    QuaternionArray out = new QuaternionArray(2);
+    int slerpCursor = 0;
+    int nlerpCursor = 0;
+    for (double time = 1.0; time < 3.0; time += 0.125) {
+      slerpCursor = slerpTrack.sample(time, slerpCursor, out, 0);
+      nlerpCursor = nlerpTrack.sample(time, nlerpCursor, out, 1);
+      assertEquals(slerpCursor, 1);
+      assertEquals(nlerpCursor, 1);
+
+      double t = (time - 1.0) / 2.0;
+      Quaternion from = slerpTrack.getKey(1);
+      Quaternion to = slerpTrack.getKey(2);
+      assertQuaternionEquals(out.get(0), Quaternion.slerp(from, to, t));
+      assertQuaternionEquals(out.get(1), Quaternion.nlerp(from, to, t));
+    }
+  }
+
+  @Test
+  public void testSampleAll() {
+    KeyframeTrack[] tracks = {
+      sampleTrack(true),
+      sampleTrack(false),
+      new KeyframeTrack(new double[] {2.0}, new QuaternionArray(1)),
+    };
+    int[] cursors = new int[tracks.length];
+    QuaternionArray out = new QuaternionArray(tracks.length);
+    for (double time = -0.5; time < 5.0; time += 0.25) {
+      KeyframeTrack.sampleAll(tracks, time, cursors, out);
+      for (int i = 0; i < tracks.length; ++i) {
+        assertEquals(cursors[i], tracks[i].findKey(time, 0));
+        assertQuaternionEquals(out.get(i), tracks[i].sample(time));
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSampleAllWithMismatchedCursors() throws Exception {
+    KeyframeTrack[] tracks = {sampleTrack(true), sampleTrack(true)};
+    KeyframeTrack.sampleAll(tracks, 0.0, new int[1], new QuaternionArray(2));
+  }
+}
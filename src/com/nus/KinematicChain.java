@@ -0,0 +1,452 @@
+package com.nus;
+
+/**
+ * Forward kinematics of a serial chain of revolute and prismatic joints,
+ * such as a robot arm. Joint {@code i} sits at a fixed offset (a rotation and
+ * a translation) from the frame of joint {@code i - 1}, or from the base for
+ * the first joint, and then rotates about or slides along its axis, given in
+ * its own frame. A fixed tool transform follows the last joint.
+ *
+ * <p>Joint axes are normalized once at construction. Every evaluation then
+ * computes the frames of all joints, the tool pose and optionally the
+ * geometric Jacobian in one pass, without allocating: the results are kept
+ * in the chain and read with the getters, or written to caller buffers by
+ * the batched {@link #forward(double[], int, int, QuaternionArray, double[],
+ * int, double[])}, which evaluates many configurations.
+ *
+ * <p>The Jacobian maps joint velocities to the linear then angular velocity
+ * of the tool, in the base frame. It is written row-major, 6 rows of
+ * {@link #getJointCount()} columns.
+ *
+ * <p>Chains are not thread-safe; use one chain per thread
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+public final class KinematicChain {
+  public static final String INVALID_CHAIN_MSG =
+    "Chains need at least one joint, with 3 axis and 3 offset coordinates " +
+    "and one offset rotation per joint";
+  public static final String ZERO_AXIS_MSG =
+    "Joint axes must not be the zero vector";
+  public static final String ZERO_QUATERNION_MSG =
+    "Rotation must not be the zero quaternion";
+  public static final String INVALID_CONFIGURATION_MSG =
+    "Buffers must hold the joint values and outputs of every configuration";
+
+  private final int jointCount;
+  private final boolean[] prismatic;
+  // Unit joint axes, in the joint frames
+  private final double[] axes;
+  // Offset of every joint from the previous frame
+  private final QuaternionArray offsetRotations;
+  private final double[] offsetTranslations;
+  // Tool transform from the frame of the last joint
+  private double toolX;
+  private double toolY;
+  private double toolZ;
+  private double toolW = 1.0;
+  private final double[] toolTranslation = new double[3];
+
+  // Results of the last evaluation: joint frames, in the base frame
+  private final QuaternionArray jointRotations;
+  private final double[] jointPositions;
+  // World axis and origin of every joint, kept for the Jacobian
+  private final double[] worldAxes;
+  private final double[] worldOrigins;
+  private double endX;
+  private double endY;
+  private double endZ;
+  private double endW = 1.0;
+  private final double[] endPosition = new double[3];
+
+  /**
+   * Constructs a chain of revolute joints without offset rotations
+   *
+   * @param axes The joint axes, packed as xyzxyz..., which need not be unit
+   * @param offsetTranslations The position of every joint in the frame of
+   *                           the previous one, packed as xyzxyz...
+   * @throws IllegalArgumentException if the lengths differ or an axis is
+   *                                  zero
+   */
+  public KinematicChain(final double[] axes,
+      final double[] offsetTranslations) throws IllegalArgumentException {
+    this(axes, new boolean[axes.length / 3],
+      new QuaternionArray(axes.length / 3), offsetTranslations);
+  }
+
+  /**
+   * Constructs a chain. The arguments are copied
+   *
+   * @param axes The joint axes, packed as xyzxyz..., which need not be unit
+   * @param prismatic Whether each joint slides along its axis instead of
+   *                  rotating about it
+   * @param offsetRotations The rotation of every joint frame relative to the
+   *                        previous one, which are normalized
+   * @param offsetTranslations The position of every joint in the frame of
+   *                           the previous one, packed as xyzxyz...
+   * @throws IllegalArgumentException if the lengths differ, or an axis or an
+   *                                  offset rotation is zero
+   */
+  public KinematicChain(final double[] axes, final boolean[] prismatic,
+      final QuaternionArray offsetRotations,
+      final double[] offsetTranslations) throws IllegalArgumentException {
+    int n = prismatic.length;
+    if (n == 0 || axes.length != 3 * n || offsetRotations.size() != n ||
+        offsetTranslations.length != 3 * n) {
+      throw new IllegalArgumentException(INVALID_CHAIN_MSG);
+    }
+    this.jointCount = n;
+    this.prismatic = prismatic.clone();
+    this.axes = new double[3 * n];
+    this.offsetRotations = new QuaternionArray(n);
+    for (int i = 0; i < n; ++i) {
+      int a = 3 * i;
+      double norm = Math.sqrt(axes[a] * axes[a] +
+        axes[a + 1] * axes[a + 1] + axes[a + 2] * axes[a + 2]);
+      if (!(norm > 0.0)) {
+        throw new IllegalArgumentException(ZERO_AXIS_MSG);
+      }
+      this.axes[a] = axes[a] / norm;
+      this.axes[a + 1] = axes[a + 1] / norm;
+      this.axes[a + 2] = axes[a + 2] / norm;
+
+      double x = offsetRotations.x[i];
+      double y = offsetRotations.y[i];
+      double z = offsetRotations.z[i];
+      double w = offsetRotations.w[i];
+      norm = Math.sqrt(x * x + y * y + z * z + w * w);
+      if (!(norm > 0.0)) {
+        throw new IllegalArgumentException(ZERO_QUATERNION_MSG);
+      }
+      this.offsetRotations.set(i, x / norm, y / norm, z / norm, w / norm);
+    }
+    this.offsetTranslations = offsetTranslations.clone();
+    this.jointRotations = new QuaternionArray(n);
+    this.jointPositions = new double[3 * n];
+    this.worldAxes = new double[3 * n];
+    this.worldOrigins = new double[3 * n];
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Setters and getters
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Gets the number of joints
+   *
+   * @return The number of joints
+   */
+  public int getJointCount() {
+    return jointCount;
+  }
+
+  /**
+   * Sets the tool transform, relative to the frame of the last joint. It is
+   * the identity by default
+   *
+   * @param rotation The tool rotation, which is normalized
+   * @param tx The x-coordinate of the tool position
+   * @param ty The y-coordinate of the tool position
+   * @param tz The z-coordinate of the tool position
+   * @throws IllegalArgumentException if {@code rotation} is zero
+   */
+  public void setTool(final Quaternion rotation, double tx, double ty,
+      double tz) throws IllegalArgumentException {
+    double norm = rotation.norm();
+    if (!(norm > 0.0)) {
+      throw new IllegalArgumentException(ZERO_QUATERNION_MSG);
+    }
+    toolX = rotation.getX() / norm;
+    toolY = rotation.getY() / norm;
+    toolZ = rotation.getZ() / norm;
+    toolW = rotation.getW() / norm;
+    toolTranslation[0] = tx;
+    toolTranslation[1] = ty;
+    toolTranslation[2] = tz;
+  }
+
+  /**
+   * Gets the rotation of a joint frame, in the base frame, as of the last
+   * evaluation
+   *
+   * @param joint The joint index
+   * @param out The quaternion receiving the rotation
+   */
+  public void getJointRotation(int joint, final Quaternion out) {
+    QuaternionArray a = jointRotations;
+    out.set(a.x[joint], a.y[joint], a.z[joint], a.w[joint]);
+  }
+
+  /**
+   * Gets the origin of a joint frame, in the base frame, as of the last
+   * evaluation
+   *
+   * @param joint The joint index
+   * @param out The array receiving the position at {@code outOff}
+   * @param outOff The index of the x-coordinate in {@code out}
+   */
+  public void getJointPosition(int joint, final double[] out, int outOff) {
+    System.arraycopy(jointPositions, 3 * joint, out, outOff, 3);
+  }
+
+  /**
+   * Gets the tool rotation, in the base frame, as of the last evaluation
+   *
+   * @param out The quaternion receiving the rotation
+   */
+  public void getToolRotation(final Quaternion out) {
+    out.set(endX, endY, endZ, endW);
+  }
+
+  /**
+   * Gets the tool position, in the base frame, as of the last evaluation
+   *
+   * @param out The array receiving the position at {@code outOff}
+   * @param outOff The index of the x-coordinate in {@code out}
+   */
+  public void getToolPosition(final double[] out, int outOff) {
+    System.arraycopy(endPosition, 0, out, outOff, 3);
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Evaluation
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Evaluates the frames of all joints and the tool pose
+   *
+   * @param joints The joint values: angles in radians for revolute joints,
+   *               distances for prismatic ones
+   * @param jointsOff The index of the value of the first joint
+   * @throws IllegalArgumentException if {@code joints} is too short
+   */
+  public void forward(final double[] joints, int jointsOff)
+      throws IllegalArgumentException {
+    forward(joints, jointsOff, null, 0);
+  }
+
+  /**
+   * Evaluates the frames of all joints, the tool pose and the geometric
+   * Jacobian
+   *
+   * @param joints The joint values: angles in radians for revolute joints,
+   *               distances for prismatic ones
+   * @param jointsOff The index of the value of the first joint
+   * @param jacobian The array receiving the 6 by {@link #getJointCount()}
+   *                 Jacobian, row-major, or null to skip it
+   * @param jacobianOff The index of the first Jacobian entry
+   * @throws IllegalArgumentException if an array is too short
+   */
+  public void forward(final double[] joints, int jointsOff,
+      final double[] jacobian, int jacobianOff)
+      throws IllegalArgumentException {
+    if (jointsOff < 0 || joints.length - jointsOff < jointCount ||
+        (jacobian != null && (jacobianOff < 0 ||
+        jacobian.length - jacobianOff < 6 * jointCount))) {
+      throw new IllegalArgumentException(INVALID_CONFIGURATION_MSG);
+    }
+    evaluate(joints, jointsOff);
+    if (jacobian != null) {
+      writeJacobian(jacobian, jacobianOff);
+    }
+  }
+
+  /**
+   * Evaluates the tool poses, and optionally the Jacobians, of
+   * {@code count} configurations, such as the samples of a motion planner.
+   * Configuration {@code k} reads its joint values at
+   * {@code configsOff + k * getJointCount()} and writes its tool rotation
+   * at {@code outOff + k} of {@code rotations}, its tool position at
+   * {@code 3 * (outOff + k)} of {@code positions} and its Jacobian at
+   * {@code 6 * getJointCount() * (outOff + k)} of {@code jacobians}. The
+   * joint frames of the last configuration remain readable with the getters
+   *
+   * @param configs The joint values of all configurations
+   * @param configsOff The index of the first joint value
+   * @param count The number of configurations
+   * @param rotations The array receiving the tool rotations
+   * @param positions The array receiving the tool positions, packed as
+   *                  xyzxyz...
+   * @param outOff The output index of the first configuration
+   * @param jacobians The array receiving the Jacobians, or null to skip them
+   * @throws IllegalArgumentException if a buffer is too short
+   */
+  public void forward(final double[] configs, int configsOff, int count,
+      final QuaternionArray rotations, final double[] positions, int outOff,
+      final double[] jacobians) throws IllegalArgumentException {
+    int n = jointCount;
+    if (count < 0 || configsOff < 0 || outOff < 0 ||
+        configs.length - configsOff < (long) n * count ||
+        positions.length < 3L * (outOff + count) ||
+        (jacobians != null && jacobians.length < 6L * n * (outOff + count))) {
+      throw new IllegalArgumentException(INVALID_CONFIGURATION_MSG);
+    }
+    rotations.checkRange(outOff, outOff + count);
+    for (int k = 0; k < count; ++k) {
+      int o = outOff + k;
+      evaluate(configs, configsOff + k * n);
+      rotations.x[o] = endX;
+      rotations.y[o] = endY;
+      rotations.z[o] = endZ;
+      rotations.w[o] = endW;
+      positions[3 * o] = endPosition[0];
+      positions[3 * o + 1] = endPosition[1];
+      positions[3 * o + 2] = endPosition[2];
+      if (jacobians != null) {
+        writeJacobian(jacobians, 6 * n * o);
+      }
+    }
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Private methods
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Walks the chain from the base, composing the offset and the joint
+   * motion of every joint
+   */
+  private void evaluate(final double[] joints, int jointsOff) {
+    final QuaternionArray offsets = offsetRotations;
+    final QuaternionArray frames = jointRotations;
+    // Current frame: rotation r, origin p
+    double rx = 0.0;
+    double ry = 0.0;
+    double rz = 0.0;
+    double rw = 1.0;
+    double px = 0.0;
+    double py = 0.0;
+    double pz = 0.0;
+    for (int i = 0; i < jointCount; ++i) {
+      int t = 3 * i;
+
+      // Joint origin: p + r o, with r o = o + 2 r x (r x o + rw o)
+      double ox = offsetTranslations[t];
+      double oy = offsetTranslations[t + 1];
+      double oz = offsetTranslations[t + 2];
+      double cx = ry * oz - rz * oy + rw * ox;
+      double cy = rz * ox - rx * oz + rw * oy;
+      double cz = rx * oy - ry * ox + rw * oz;
+      px += ox + 2.0 * (ry * cz - rz * cy);
+      py += oy + 2.0 * (rz * cx - rx * cz);
+      pz += oz + 2.0 * (rx * cy - ry * cx);
+
+      // r = r * offset
+      double qx = offsets.x[i];
+      double qy = offsets.y[i];
+      double qz = offsets.z[i];
+      double qw = offsets.w[i];
+      double nx = rw * qx + rx * qw + ry * qz - rz * qy;
+      double ny = rw * qy - rx * qz + ry * qw + rz * qx;
+      double nz = rw * qz + rx * qy - ry * qx + rz * qw;
+      rw = rw * qw - rx * qx - ry * qy - rz * qz;
+      rx = nx;
+      ry = ny;
+      rz = nz;
+
+      // World axis: r a, unchanged by the joint's own rotation
+      double ax = axes[t];
+      double ay = axes[t + 1];
+      double az = axes[t + 2];
+      cx = ry * az - rz * ay + rw * ax;
+      cy = rz * ax - rx * az + rw * ay;
+      cz = rx * ay - ry * ax + rw * az;
+      double wx = ax + 2.0 * (ry * cz - rz * cy);
+      double wy = ay + 2.0 * (rz * cx - rx * cz);
+      double wz = az + 2.0 * (rx * cy - ry * cx);
+      worldAxes[t] = wx;
+      worldAxes[t + 1] = wy;
+      worldAxes[t + 2] = wz;
+      worldOrigins[t] = px;
+      worldOrigins[t + 1] = py;
+      worldOrigins[t + 2] = pz;
+
+      double value = joints[jointsOff + i];
+      if (prismatic[i]) {
+        px += value * wx;
+        py += value * wy;
+        pz += value * wz;
+      } else {
+        // r = r * (a sin(value / 2), cos(value / 2))
+        double half = 0.5 * value;
+        double s = Math.sin(half);
+        double c = Math.cos(half);
+        qx = ax * s;
+        qy = ay * s;
+        qz = az * s;
+        nx = rw * qx + rx * c + ry * qz - rz * qy;
+        ny = rw * qy - rx * qz + ry * c + rz * qx;
+        nz = rw * qz + rx * qy - ry * qx + rz * c;
+        rw = rw * c - rx * qx - ry * qy - rz * qz;
+        rx = nx;
+        ry = ny;
+        rz = nz;
+      }
+      frames.x[i] = rx;
+      frames.y[i] = ry;
+      frames.z[i] = rz;
+      frames.w[i] = rw;
+      jointPositions[t] = px;
+      jointPositions[t + 1] = py;
+      jointPositions[t + 2] = pz;
+    }
+
+    // Tool: p + r tool, r * toolRotation
+    double ox = toolTranslation[0];
+    double oy = toolTranslation[1];
+    double oz = toolTranslation[2];
+    double cx = ry * oz - rz * oy + rw * ox;
+    double cy = rz * ox - rx * oz + rw * oy;
+    double cz = rx * oy - ry * ox + rw * oz;
+    endPosition[0] = px + ox + 2.0 * (ry * cz - rz * cy);
+    endPosition[1] = py + oy + 2.0 * (rz * cx - rx * cz);
+    endPosition[2] = pz + oz + 2.0 * (rx * cy - ry * cx);
+    endX = rw * toolX + rx * toolW + ry * toolZ - rz * toolY;
+    endY = rw * toolY - rx * toolZ + ry * toolW + rz * toolX;
+    endZ = rw * toolZ + rx * toolY - ry * toolX + rz * toolW;
+    endW = rw * toolW - rx * toolX - ry * toolY - rz * toolZ;
+  }
+
+  /**
+   * Writes the Jacobian of the last evaluation: column {@code i} is
+   * {@code (a x (e - o), a)} for a revolute joint with world axis a through
+   * o, and {@code (a, 0)} for a prismatic one, e being the tool position
+   */
+  private void writeJacobian(final double[] out, int off) {
+    int n = jointCount;
+    double ex = endPosition[0];
+    double ey = endPosition[1];
+    double ez = endPosition[2];
+    for (int i = 0; i < n; ++i) {
+      int t = 3 * i;
+      double ax = worldAxes[t];
+      double ay = worldAxes[t + 1];
+      double az = worldAxes[t + 2];
+      int c = off + i;
+      if (prismatic[i]) {
+        out[c] = ax;
+        out[c + n] = ay;
+        out[c + 2 * n] = az;
+        out[c + 3 * n] = 0.0;
+        out[c + 4 * n] = 0.0;
+        out[c + 5 * n] = 0.0;
+      } else {
+        double dx = ex - worldOrigins[t];
+        double dy = ey - worldOrigins[t + 1];
+        double dz = ez - worldOrigins[t + 2];
+        out[c] = ay * dz - az * dy;
+        out[c + n] = az * dx - ax * dz;
+        out[c + 2 * n] = ax * dy - ay * dx;
+        out[c + 3 * n] = ax;
+        out[c + 4 * n] = ay;
+        out[c + 5 * n] = az;
+      }
+    }
+  }
+}
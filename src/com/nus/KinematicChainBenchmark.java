@@ -0,0 +1,105 @@
+package com.nus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of {@link KinematicChain} on a 7-joint revolute arm: the
+ * tool pose with and without the Jacobian against composing
+ * {@link Quaternion#fromAxisAngleRad(double[], double)} and
+ * {@link Quaternion#multiply(Quaternion)} per joint, and a batch of
+ * {@code BATCH} configurations
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class KinematicChainBenchmark {
+  private static final int JOINTS = 7;
+  private static final int BATCH = 1024;
+
+  private double[] axes;
+  private double[] translations;
+  private KinematicChain chain;
+  private double[] joints;
+  private double[] jacobian;
+  private double[] configs;
+  private QuaternionArray rotations;
+  private double[] positions;
+  private Quaternion rotation;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(QuaternionBenchmark.SEED);
+    axes = new double[3 * JOINTS];
+    translations = new double[3 * JOINTS];
+    for (int i = 0; i < 3 * JOINTS; ++i) {
+      axes[i] = random.nextGaussian();
+      translations[i] = random.nextGaussian();
+    }
+    chain = new KinematicChain(axes, translations);
+    joints = new double[JOINTS];
+    for (int i = 0; i < JOINTS; ++i) {
+      joints[i] = random.nextGaussian();
+    }
+    jacobian = new double[6 * JOINTS];
+    configs = new double[JOINTS * BATCH];
+    for (int i = 0; i < configs.length; ++i) {
+      configs[i] = random.nextGaussian();
+    }
+    rotations = new QuaternionArray(BATCH);
+    positions = new double[3 * BATCH];
+    rotation = new Quaternion();
+  }
+
+  @Benchmark
+  public Quaternion forward() {
+    chain.forward(joints, 0);
+    chain.getToolRotation(rotation);
+    return rotation;
+  }
+
+  @Benchmark
+  public double[] forwardWithJacobian() {
+    chain.forward(joints, 0, jacobian, 0);
+    return jacobian;
+  }
+
+  @Benchmark
+  public double[] fromAxisAngleAndMultiply() {
+    Quaternion r = new Quaternion();
+    double[] p = new double[3];
+    double[] axis = new double[3];
+    for (int i = 0; i < JOINTS; ++i) {
+      double[] offset = r.rotate(new double[] {translations[3 * i],
+        translations[3 * i + 1], translations[3 * i + 2]});
+      for (int k = 0; k < 3; ++k) {
+        p[k] += offset[k];
+        axis[k] = axes[3 * i + k];
+      }
+      r = r.multiply(Quaternion.fromAxisAngleRad(axis, joints[i]));
+    }
+    return p;
+  }
+
+  @Benchmark
+  public QuaternionArray forwardBatch() {
+    chain.forward(configs, 0, BATCH, rotations, positions, 0, null);
+    return rotations;
+  }
+}
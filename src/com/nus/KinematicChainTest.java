@@ -0,0 +1,258 @@
+package com.nus;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import static com.nus.QuaternionTest.assertQuaternionEquals;
+import static com.nus.QuaternionTestUtils.randomRotation;
+
+import java.util.Random;
+
+public class KinematicChainTest {
+  private static final double EPSILON = 1e-12;
+  private static final int JOINTS = 7;
+
+  private static double[] randomValues(Random random, int length) {
+    double[] values = new double[length];
+    for (int i = 0; i < length; ++i) {
+      values[i] = random.nextGaussian();
+    }
+    return values;
+  }
+
+  private static final class Arm {
+    final double[] axes;
+    final boolean[] prismatic;
+    final Quaternion[] offsets;
+    final double[] translations;
+    final Quaternion tool;
+    final double[] toolTranslation;
+    final KinematicChain chain;
+
+    Arm(Random random) {
+      axes = randomValues(random, 3 * JOINTS);
+      prismatic = new boolean[JOINTS];
+      offsets = new Quaternion[JOINTS];
+      translations = randomValues(random, 3 * JOINTS);
+      for (int i = 0; i < JOINTS; ++i) {
+        prismatic[i] = i % 3 == 2;
+        offsets[i] = randomRotation(random);
+      }
+      tool = randomRotation(random);
+      toolTranslation = randomValues(random, 3);
+      chain = new KinematicChain(axes, prismatic,
+        new QuaternionArray(offsets), translations);
+      chain.setTool(tool, toolTranslation[0], toolTranslation[1],
+        toolTranslation[2]);
+    }
+
+    /**
+     * Composes the tool pose with Quaternion operations
+     */
+    void referencePose(double[] joints, Quaternion rotation,
+        double[] position) {
+      rotation.set(new Quaternion());
+      double[] p = new double[3];
+      for (int i = 0; i < JOINTS; ++i) {
+        double[] offset = rotation.rotate(new double[] {translations[3 * i],
+          translations[3 * i + 1], translations[3 * i + 2]});
+        rotation.multiplyEq(offsets[i]);
+        double[] axis = {axes[3 * i], axes[3 * i + 1], axes[3 * i + 2]};
+        double[] worldAxis = rotation.rotate(axis);
+        double axisNorm = Math.sqrt(axis[0] * axis[0] + axis[1] * axis[1] +
+          axis[2] * axis[2]);
+        for (int k = 0; k < 3; ++k) {
+          p[k] += offset[k];
+          if (prismatic[i]) {
+            p[k] += joints[i] * worldAxis[k] / axisNorm;
+          }
+        }
+        if (!prismatic[i]) {
+          rotation.multiplyEq(Quaternion.fromAxisAngleRad(axis, joints[i]));
+        }
+      }
+      double[] offset = rotation.rotate(toolTranslation);
+      for (int k = 0; k < 3; ++k) {
+        position[k] = p[k] + offset[k];
+      }
+      rotation.multiplyEq(tool);
+    }
+  }
+
+  /**
+   * A single revolute joint about x at the origin
+   */
+  private static KinematicChain singleJointChain() {
+    return new KinematicChain(new double[] {1.0, 0.0, 0.0}, new double[3]);
+  }
+
+  @Test
+  public void testMatchesReference() {
+    Random random = new Random(1);
+    Arm arm = new Arm(random);
+    assertEquals(arm.chain.getJointCount(), JOINTS);
+    double[] axesCopy = arm.axes.clone();
+    Quaternion expected = new Quaternion();
+    Quaternion actual = new Quaternion();
+    double[] expectedPosition = new double[3];
+    double[] actualPosition = new double[3];
+    for (int i = 0; i < 100; ++i) {
+      double[] joints = randomValues(random, JOINTS);
+      arm.chain.forward(joints, 0);
+      arm.referencePose(joints, expected, expectedPosition);
+      arm.chain.getToolRotation(actual);
+      assertQuaternionEquals(actual, expected);
+      arm.chain.getToolPosition(actualPosition, 0);
+      assertArrayEquals(actualPosition, expectedPosition, 1e-10);
+    }
+    // The axes of the caller are not normalized in place
+    assertArrayEquals(arm.axes, axesCopy, 0.0);
+  }
+
+  @Test
+  public void testPlanarArm() {
+    // Two links of length 1 and 2 turning about z
+    KinematicChain chain = new KinematicChain(
+      new double[] {0.0, 0.0, 1.0, 0.0, 0.0, 1.0},
+      new double[] {0.0, 0.0, 0.0, 1.0, 0.0, 0.0});
+    chain.setTool(new Quaternion(), 2.0, 0.0, 0.0);
+    double a = 0.3;
+    double b = -1.1;
+    double[] jacobian = new double[12];
+    chain.forward(new double[] {a, b}, 0, jacobian, 0);
+
+    double[] tip = new double[3];
+    chain.getToolPosition(tip, 0);
+    assertArrayEquals(tip, new double[] {
+      Math.cos(a) + 2.0 * Math.cos(a + b),
+      Math.sin(a) + 2.0 * Math.sin(a + b), 0.0}, EPSILON);
+    double[] elbow = new double[3];
+    chain.getJointPosition(1, elbow, 0);
+    assertArrayEquals(elbow, new double[] {Math.cos(a), Math.sin(a), 0.0},
+      EPSILON);
+    Quaternion rotation = new Quaternion();
+    chain.getJointRotation(1, rotation);
+    assertQuaternionEquals(rotation, Quaternion.fromAxisAngleRad(
+      new double[] {0.0, 0.0, 1.0}, a + b));
+
+    assertArrayEquals(jacobian, new double[] {
+      -tip[1], -2.0 * Math.sin(a + b),
+      tip[0], 2.0 * Math.cos(a + b),
+      0.0, 0.0,
+      0.0, 0.0,
+      0.0, 0.0,
+      1.0, 1.0}, EPSILON);
+  }
+
+  @Test
+  public void testJacobianMatchesFiniteDifferences() {
+    Random random = new Random(2);
+    Arm arm = new Arm(random);
+    double[] joints = randomValues(random, JOINTS);
+    double[] jacobian = new double[6 * JOINTS + 3];
+    arm.chain.forward(joints, 0, jacobian, 3);
+
+    double h = 1e-6;
+    Quaternion minus = new Quaternion();
+    Quaternion plus = new Quaternion();
+    double[] minusPosition = new double[3];
+    double[] plusPosition = new double[3];
+    for (int i = 0; i < JOINTS; ++i) {
+      double[] shifted = joints.clone();
+      shifted[i] = joints[i] - h;
+      arm.referencePose(shifted, minus, minusPosition);
+      shifted[i] = joints[i] + h;
+      arm.referencePose(shifted, plus, plusPosition);
+      // Angular velocity: the small rotation plus * minus^-1 has vector
+      // part sin(h |w|) w / |w|, that is h w up to O(h^3)
+      Quaternion delta = plus.multiply(minus.conjugate());
+      if (delta.getW() < 0.0) {
+        delta.multiplyEq(-1.0);
+      }
+      double[] omega = delta.getVectorPart();
+      for (int k = 0; k < 3; ++k) {
+        assertEquals(jacobian[3 + k * JOINTS + i],
+          (plusPosition[k] - minusPosition[k]) / (2 * h), 1e-6);
+        assertEquals(jacobian[3 + (k + 3) * JOINTS + i], omega[k] / h, 1e-6);
+      }
+    }
+  }
+
+  @Test
+  public void testBatchMatchesSingle() {
+    Random random = new Random(3);
+    Arm arm = new Arm(random);
+    int count = 20;
+    double[] configs = randomValues(random, 1 + JOINTS * count);
+    QuaternionArray rotations = new QuaternionArray(count + 2);
+    double[] positions = new double[3 * (count + 2)];
+    double[] jacobians = new double[6 * JOINTS * (count + 2)];
+    arm.chain.forward(configs, 1, count, rotations, positions, 2, jacobians);
+
+    Quaternion rotation = new Quaternion();
+    double[] position = new double[3];
+    double[] jacobian = new double[6 * JOINTS];
+    for (int k = 0; k < count; ++k) {
+      arm.chain.forward(configs, 1 + k * JOINTS, jacobian, 0);
+      arm.chain.getToolRotation(rotation);
+      arm.chain.getToolPosition(position, 0);
+      assertEquals(rotations.get(k + 2), rotation);
+      for (int c = 0; c < 3; ++c) {
+        assertEquals(positions[3 * (k + 2) + c], position[c], 0.0);
+      }
+      for (int c = 0; c < jacobian.length; ++c) {
+        assertEquals(jacobians[6 * JOINTS * (k + 2) + c], jacobian[c], 0.0);
+      }
+    }
+
+    // Without Jacobians
+    QuaternionArray others = new QuaternionArray(count);
+    arm.chain.forward(configs, 1, count, others, new double[3 * count], 0,
+      null);
+    assertEquals(others.get(count - 1), rotations.get(count + 1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBatchWithShortConfigurations() {
+    singleJointChain().forward(new double[2], 1, 2, new QuaternionArray(2),
+      new double[6], 0, null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBatchWithShortPositions() {
+    singleJointChain().forward(new double[2], 0, 2, new QuaternionArray(3),
+      new double[6], 1, null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructWithoutJoints() {
+    new KinematicChain(new double[0], new double[0]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructWithMismatchedTranslations() {
+    new KinematicChain(new double[3], new double[6]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructWithZeroAxis() {
+    new KinematicChain(new double[3], new double[3]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSetToolWithZeroQuaternion() {
+    singleJointChain().setTool(new Quaternion(0, 0, 0, 0), 0.0, 0.0, 0.0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testForwardWithShortConfiguration() {
+    singleJointChain().forward(new double[1], 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testForwardWithShortJacobian() {
+    singleJointChain().forward(new double[1], 0, new double[5], 0);
+  }
+}
@@ -0,0 +1,136 @@
+package com.nus;
+
+/**
+ * Madgwick's gradient descent orientation filter. Each step integrates the
+ * gyroscope rate, minus {@code beta} times the normalized gradient of the
+ * misalignment between the measured directions of gravity and of the
+ * magnetic field and their predictions from the current orientation. The
+ * magnetic reference direction is re-estimated at every step from the
+ * magnetometer sample, so only its inclination matters.
+ *
+ * <p>{@code beta} is the rate of convergence in radians per second, of the
+ * order of the gyroscope noise: Madgwick suggests
+ * {@code sqrt(3 / 4) * noise}, about 0.04 for typical MEMS gyroscopes
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+public final class MadgwickFilter extends OrientationFilter {
+  public static final double DEFAULT_BETA = 0.041;
+
+  private final double beta;
+
+  /**
+   * Constructs a bank of filters starting at the identity orientation
+   *
+   * @param size The number of devices
+   * @param beta The gain of the gradient step, in radians per second
+   * @throws IllegalArgumentException if {@code size} is not positive or
+   *                                  {@code beta} is negative
+   */
+  public MadgwickFilter(int size, double beta)
+      throws IllegalArgumentException {
+    super(size);
+    this.beta = checkGain(beta);
+  }
+
+  /**
+   * Gets the gain of the gradient step
+   *
+   * @return The gain, in radians per second
+   */
+  public double getBeta() {
+    return beta;
+  }
+
+  @Override
+  void doUpdate(int device, double gx, double gy, double gz, double ax,
+      double ay, double az, double mx, double my, double mz, double dt) {
+    double[] qx = orientations.x;
+    double[] qy = orientations.y;
+    double[] qz = orientations.z;
+    double[] qw = orientations.w;
+    double q0 = qw[device];
+    double q1 = qx[device];
+    double q2 = qy[device];
+    double q3 = qz[device];
+
+    // Quaternion derivative q * (gx, gy, gz, 0) / 2, in (w, x, y, z) order
+    double dot0 = 0.5 * (-q1 * gx - q2 * gy - q3 * gz);
+    double dot1 = 0.5 * (q0 * gx + q2 * gz - q3 * gy);
+    double dot2 = 0.5 * (q0 * gy - q1 * gz + q3 * gx);
+    double dot3 = 0.5 * (q0 * gz + q1 * gy - q2 * gx);
+
+    double aNorm2 = ax * ax + ay * ay + az * az;
+    if (aNorm2 > 0.0) {
+      double invA = 1.0 / Math.sqrt(aNorm2);
+      ax *= invA;
+      ay *= invA;
+      az *= invA;
+
+      // Gravity predicted in the sensor frame, minus the measurement
+      double f0 = 2.0 * (q1 * q3 - q0 * q2) - ax;
+      double f1 = 2.0 * (q0 * q1 + q2 * q3) - ay;
+      double f2 = 1.0 - 2.0 * (q1 * q1 + q2 * q2) - az;
+      // Gradient J^T f, in (w, x, y, z) order
+      double s0 = -2.0 * q2 * f0 + 2.0 * q1 * f1;
+      double s1 = 2.0 * q3 * f0 + 2.0 * q0 * f1 - 4.0 * q1 * f2;
+      double s2 = -2.0 * q0 * f0 + 2.0 * q3 * f1 - 4.0 * q2 * f2;
+      double s3 = 2.0 * q1 * f0 + 2.0 * q2 * f1;
+
+      double mNorm2 = mx * mx + my * my + mz * mz;
+      if (mNorm2 > 0.0) {
+        double invM = 1.0 / Math.sqrt(mNorm2);
+        mx *= invM;
+        my *= invM;
+        mz *= invM;
+
+        // Field in the earth frame, rotated about z into (bx, 0, bz)
+        double hx = (1.0 - 2.0 * (q2 * q2 + q3 * q3)) * mx +
+          2.0 * (q1 * q2 - q0 * q3) * my + 2.0 * (q1 * q3 + q0 * q2) * mz;
+        double hy = 2.0 * (q1 * q2 + q0 * q3) * mx +
+          (1.0 - 2.0 * (q1 * q1 + q3 * q3)) * my +
+          2.0 * (q2 * q3 - q0 * q1) * mz;
+        double bz = 2.0 * (q1 * q3 - q0 * q2) * mx +
+          2.0 * (q2 * q3 + q0 * q1) * my +
+          (1.0 - 2.0 * (q1 * q1 + q2 * q2)) * mz;
+        double bx = Math.sqrt(hx * hx + hy * hy);
+
+        // Field predicted in the sensor frame, minus the measurement
+        double g0 = bx * (1.0 - 2.0 * (q2 * q2 + q3 * q3)) +
+          2.0 * bz * (q1 * q3 - q0 * q2) - mx;
+        double g1 = 2.0 * bx * (q1 * q2 - q0 * q3) +
+          2.0 * bz * (q0 * q1 + q2 * q3) - my;
+        double g2 = 2.0 * bx * (q0 * q2 + q1 * q3) +
+          bz * (1.0 - 2.0 * (q1 * q1 + q2 * q2)) - mz;
+        s0 += -2.0 * bz * q2 * g0 + (-2.0 * bx * q3 + 2.0 * bz * q1) * g1 +
+          2.0 * bx * q2 * g2;
+        s1 += 2.0 * bz * q3 * g0 + (2.0 * bx * q2 + 2.0 * bz * q0) * g1 +
+          (2.0 * bx * q3 - 4.0 * bz * q1) * g2;
+        s2 += (-4.0 * bx * q2 - 2.0 * bz * q0) * g0 +
+          (2.0 * bx * q1 + 2.0 * bz * q3) * g1 +
+          (2.0 * bx * q0 - 4.0 * bz * q2) * g2;
+        s3 += (-4.0 * bx * q3 + 2.0 * bz * q1) * g0 +
+          (-2.0 * bx * q0 + 2.0 * bz * q2) * g1 + 2.0 * bx * q1 * g2;
+      }
+
+      double sNorm2 = s0 * s0 + s1 * s1 + s2 * s2 + s3 * s3;
+      if (sNorm2 > 0.0) {
+        double step = beta / Math.sqrt(sNorm2);
+        dot0 -= step * s0;
+        dot1 -= step * s1;
+        dot2 -= step * s2;
+        dot3 -= step * s3;
+      }
+    }
+
+    q0 += dot0 * dt;
+    q1 += dot1 * dt;
+    q2 += dot2 * dt;
+    q3 += dot3 * dt;
+    double invNorm = 1.0 / Math.sqrt(q0 * q0 + q1 * q1 + q2 * q2 + q3 * q3);
+    qw[device] = q0 * invNorm;
+    qx[device] = q1 * invNorm;
+    qy[device] = q2 * invNorm;
+    qz[device] = q3 * invNorm;
+  }
+}
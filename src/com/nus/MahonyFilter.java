@@ -0,0 +1,156 @@
+package com.nus;
+
+/**
+ * Mahony's nonlinear complementary filter. The error between the measured
+ * directions of gravity and of the magnetic field and their predictions from
+ * the current orientation is the sum of their cross products; it is fed back
+ * into the gyroscope rate through a proportional gain {@code kp} and an
+ * integral gain {@code ki}. The integral term estimates the gyroscope bias of
+ * every device
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+public final class MahonyFilter extends OrientationFilter {
+  public static final double DEFAULT_KP = 1.0;
+  public static final double DEFAULT_KI = 0.0;
+
+  private final double kp;
+  private final double ki;
+  // Integral of the error of every device, or null if ki is 0
+  private final double[] ix;
+  private final double[] iy;
+  private final double[] iz;
+
+  /**
+   * Constructs a bank of filters starting at the identity orientation
+   *
+   * @param size The number of devices
+   * @param kp The proportional gain, in radians per second
+   * @param ki The integral gain, in radians per second squared, or 0 to
+   *           disable bias estimation
+   * @throws IllegalArgumentException if {@code size} is not positive or a
+   *                                  gain is negative
+   */
+  public MahonyFilter(int size, double kp, double ki)
+      throws IllegalArgumentException {
+    super(size);
+    this.kp = checkGain(kp);
+    this.ki = checkGain(ki);
+    boolean integral = ki > 0.0;
+    this.ix = integral ? new double[size] : null;
+    this.iy = integral ? new double[size] : null;
+    this.iz = integral ? new double[size] : null;
+  }
+
+  /**
+   * Gets the proportional gain
+   *
+   * @return The proportional gain
+   */
+  public double getKp() {
+    return kp;
+  }
+
+  /**
+   * Gets the integral gain
+   *
+   * @return The integral gain
+   */
+  public double getKi() {
+    return ki;
+  }
+
+  /**
+   * Gets the gyroscope bias estimated for a device, which is subtracted from
+   * its rate samples
+   *
+   * @param device The device index
+   * @param out An array of size at least 3 receiving the bias about the
+   *            sensor x, y and z axes, 0 if {@code ki} is 0
+   * @throws IllegalArgumentException if {@code device} is not a device index
+   */
+  public void getGyroBias(int device, final double[] out)
+      throws IllegalArgumentException {
+    if (device < 0 || device >= size()) {
+      throw new IllegalArgumentException(INVALID_DEVICE_MSG);
+    }
+    out[0] = ix != null ? -ix[device] : 0.0;
+    out[1] = iy != null ? -iy[device] : 0.0;
+    out[2] = iz != null ? -iz[device] : 0.0;
+  }
+
+  @Override
+  void doReset(int device) {
+    if (ix != null) {
+      ix[device] = 0.0;
+      iy[device] = 0.0;
+      iz[device] = 0.0;
+    }
+  }
+
+  @Override
+  void doUpdate(int device, double gx, double gy, double gz, double ax,
+      double ay, double az, double mx, double my, double mz, double dt) {
+    double aNorm2 = ax * ax + ay * ay + az * az;
+    if (aNorm2 > 0.0) {
+      double q0 = orientations.w[device];
+      double q1 = orientations.x[device];
+      double q2 = orientations.y[device];
+      double q3 = orientations.z[device];
+      double invA = 1.0 / Math.sqrt(aNorm2);
+      ax *= invA;
+      ay *= invA;
+      az *= invA;
+
+      // Gravity predicted in the sensor frame
+      double vx = 2.0 * (q1 * q3 - q0 * q2);
+      double vy = 2.0 * (q0 * q1 + q2 * q3);
+      double vz = 1.0 - 2.0 * (q1 * q1 + q2 * q2);
+      double ex = ay * vz - az * vy;
+      double ey = az * vx - ax * vz;
+      double ez = ax * vy - ay * vx;
+
+      double mNorm2 = mx * mx + my * my + mz * mz;
+      if (mNorm2 > 0.0) {
+        double invM = 1.0 / Math.sqrt(mNorm2);
+        mx *= invM;
+        my *= invM;
+        mz *= invM;
+
+        // Field in the earth frame, rotated about z into (bx, 0, bz)
+        double hx = (1.0 - 2.0 * (q2 * q2 + q3 * q3)) * mx +
+          2.0 * (q1 * q2 - q0 * q3) * my + 2.0 * (q1 * q3 + q0 * q2) * mz;
+        double hy = 2.0 * (q1 * q2 + q0 * q3) * mx +
+          (1.0 - 2.0 * (q1 * q1 + q3 * q3)) * my +
+          2.0 * (q2 * q3 - q0 * q1) * mz;
+        double bz = vx * mx + vy * my + vz * mz;
+        double bx = Math.sqrt(hx * hx + hy * hy);
+
+        // Field predicted in the sensor frame
+        double wx = bx * (1.0 - 2.0 * (q2 * q2 + q3 * q3)) + bz * vx;
+        double wy = 2.0 * bx * (q1 * q2 - q0 * q3) + bz * vy;
+        double wz = 2.0 * bx * (q0 * q2 + q1 * q3) + bz * vz;
+        ex += my * wz - mz * wy;
+        ey += mz * wx - mx * wz;
+        ez += mx * wy - my * wx;
+      }
+
+      if (ix != null) {
+        ix[device] += ki * ex * dt;
+        iy[device] += ki * ey * dt;
+        iz[device] += ki * ez * dt;
+        gx += ix[device];
+        gy += iy[device];
+        gz += iz[device];
+      }
+      gx += kp * ex;
+      gy += kp * ey;
+      gz += kp * ez;
+    } else if (ix != null) {
+      gx += ix[device];
+      gy += iy[device];
+      gz += iz[device];
+    }
+    integrate(device, gx, gy, gz, dt);
+  }
+}
@@ -0,0 +1,300 @@
+package com.nus;
+
+/**
+ * A bank of independent orientation filters, one per device, fusing
+ * gyroscope, accelerometer and magnetometer samples. Each device has an
+ * orientation {@code q} taking its sensor frame to the earth frame, whose z
+ * axis points up: at rest, the accelerometer measures the earth z axis
+ * rotated into the sensor frame. The magnetometer fixes the heading; a zero
+ * magnetometer sample is ignored, and a zero accelerometer sample leaves
+ * only the gyroscope integration.
+ *
+ * <p>The state of all devices is stored as structure-of-arrays, and updates
+ * do not allocate. A single filter is a bank of size 1. The batch update
+ * reads one sample per device from structure-of-arrays inputs, so a fleet of
+ * devices is filtered in one pass over contiguous memory.
+ *
+ * <p>Filters are not thread-safe, but disjoint device ranges of a bank can be
+ * updated by different threads
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+public abstract class OrientationFilter {
+  public static final String INVALID_SIZE_MSG =
+    "Number of devices must be positive";
+  public static final String INVALID_DEVICE_MSG =
+    "Device index must satisfy 0 <= device < size()";
+  public static final String INVALID_DEVICE_RANGE_MSG =
+    "Device range must satisfy 0 <= fromDevice <= toDevice <= size()";
+  public static final String INVALID_GAIN_MSG =
+    "Filter gains must be non-negative and finite";
+  public static final String ZERO_QUATERNION_MSG =
+    "Orientation must not be the zero quaternion";
+
+  // Orientation of every device
+  final QuaternionArray orientations;
+
+  // Only the filters in this package can extend this class
+  OrientationFilter(int size) throws IllegalArgumentException {
+    if (size <= 0) {
+      throw new IllegalArgumentException(INVALID_SIZE_MSG);
+    }
+    this.orientations = new QuaternionArray(size);
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Getters and setters
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Gets the number of devices
+   *
+   * @return The number of devices
+   */
+  public final int size() {
+    return orientations.size();
+  }
+
+  /**
+   * Gets the orientation of a device
+   *
+   * @param device The device index
+   * @param out The Quaternion receiving the orientation
+   * @throws IllegalArgumentException if {@code device} is not a device index
+   */
+  public final void getOrientation(int device, final Quaternion out)
+      throws IllegalArgumentException {
+    checkDevice(device);
+    out.set(orientations.x[device], orientations.y[device],
+      orientations.z[device], orientations.w[device]);
+  }
+
+  /**
+   * Copies the orientations of the devices {@code [fromDevice, toDevice)} to
+   * {@code out}, starting at {@code outOff}
+   *
+   * @param fromDevice The first device, inclusive
+   * @param toDevice The last device, exclusive
+   * @param out The array receiving the orientations
+   * @param outOff The index in {@code out} of the first orientation
+   * @throws IllegalArgumentException if a range is invalid
+   */
+  public final void getOrientations(int fromDevice, int toDevice,
+      final QuaternionArray out, int outOff) throws IllegalArgumentException {
+    checkDevices(fromDevice, toDevice);
+    int length = toDevice - fromDevice;
+    out.checkRange(outOff, outOff + length);
+    System.arraycopy(orientations.x, fromDevice, out.x, outOff, length);
+    System.arraycopy(orientations.y, fromDevice, out.y, outOff, length);
+    System.arraycopy(orientations.z, fromDevice, out.z, outOff, length);
+    System.arraycopy(orientations.w, fromDevice, out.w, outOff, length);
+  }
+
+  /**
+   * Restarts the filter of a device from an orientation, clearing any other
+   * state it keeps
+   *
+   * @param device The device index
+   * @param q The new orientation, which is normalized
+   * @throws IllegalArgumentException if {@code device} is not a device index
+   *                                  or {@code q} is zero
+   */
+  public final void reset(int device, final Quaternion q)
+      throws IllegalArgumentException {
+    checkDevice(device);
+    double norm = q.norm();
+    if (!(norm > 0.0)) {
+      throw new IllegalArgumentException(ZERO_QUATERNION_MSG);
+    }
+    double invNorm = 1.0 / norm;
+    orientations.set(device, q.getX() * invNorm, q.getY() * invNorm,
+      q.getZ() * invNorm, q.getW() * invNorm);
+    doReset(device);
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Updates
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Updates the filter of a device with gyroscope and accelerometer samples
+   *
+   * @param device The device index
+   * @param gx The rate about the sensor x axis, in radians per second
+   * @param gy The rate about the sensor y axis, in radians per second
+   * @param gz The rate about the sensor z axis, in radians per second
+   * @param ax The accelerometer x component, in any unit
+   * @param ay The accelerometer y component
+   * @param az The accelerometer z component
+   * @param dt The time since the previous sample, in seconds
+   * @throws IllegalArgumentException if {@code device} is not a device index
+   */
+  public final void update(int device, double gx, double gy, double gz,
+      double ax, double ay, double az, double dt)
+      throws IllegalArgumentException {
+    checkDevice(device);
+    doUpdate(device, gx, gy, gz, ax, ay, az, 0.0, 0.0, 0.0, dt);
+  }
+
+  /**
+   * Updates the filter of a device with gyroscope, accelerometer and
+   * magnetometer samples
+   *
+   * @param device The device index
+   * @param gx The rate about the sensor x axis, in radians per second
+   * @param gy The rate about the sensor y axis, in radians per second
+   * @param gz The rate about the sensor z axis, in radians per second
+   * @param ax The accelerometer x component, in any unit
+   * @param ay The accelerometer y component
+   * @param az The accelerometer z component
+   * @param mx The magnetometer x component, in any unit
+   * @param my The magnetometer y component
+   * @param mz The magnetometer z component
+   * @param dt The time since the previous sample, in seconds
+   * @throws IllegalArgumentException if {@code device} is not a device index
+   */
+  public final void update(int device, double gx, double gy, double gz,
+      double ax, double ay, double az, double mx, double my, double mz,
+      double dt) throws IllegalArgumentException {
+    checkDevice(device);
+    doUpdate(device, gx, gy, gz, ax, ay, az, mx, my, mz, dt);
+  }
+
+  /**
+   * Updates the filters of the devices {@code [fromDevice, toDevice)} with
+   * one sample each: device {@code i} reads {@code gx[i]}, {@code gy[i]}, and
+   * so on
+   *
+   * @param gx The rates about the sensor x axes
+   * @param gy The rates about the sensor y axes
+   * @param gz The rates about the sensor z axes
+   * @param ax The accelerometer x components
+   * @param ay The accelerometer y components
+   * @param az The accelerometer z components
+   * @param mx The magnetometer x components, or null if the devices have no
+   *           magnetometer
+   * @param my The magnetometer y components, or null
+   * @param mz The magnetometer z components, or null
+   * @param fromDevice The first device, inclusive
+   * @param toDevice The last device, exclusive
+   * @param dt The time since the previous samples, in seconds
+   * @throws IllegalArgumentException if the device range is invalid or an
+   *                                  input array is too short
+   */
+  public final void update(final double[] gx, final double[] gy,
+      final double[] gz, final double[] ax, final double[] ay,
+      final double[] az, final double[] mx, final double[] my,
+      final double[] mz, int fromDevice, int toDevice, double dt)
+      throws IllegalArgumentException {
+    checkDevices(fromDevice, toDevice);
+    boolean hasMagnetometer = mx != null;
+    checkInput(gx, toDevice);
+    checkInput(gy, toDevice);
+    checkInput(gz, toDevice);
+    checkInput(ax, toDevice);
+    checkInput(ay, toDevice);
+    checkInput(az, toDevice);
+    if (hasMagnetometer) {
+      checkInput(mx, toDevice);
+      checkInput(my, toDevice);
+      checkInput(mz, toDevice);
+    }
+
+    for (int i = fromDevice; i < toDevice; ++i) {
+      if (hasMagnetometer) {
+        doUpdate(i, gx[i], gy[i], gz[i], ax[i], ay[i], az[i], mx[i], my[i],
+          mz[i], dt);
+      } else {
+        doUpdate(i, gx[i], gy[i], gz[i], ax[i], ay[i], az[i], 0.0, 0.0, 0.0,
+          dt);
+      }
+    }
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Filter steps
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Updates the orientation of {@code device}. A zero magnetometer or
+   * accelerometer sample must be ignored
+   */
+  abstract void doUpdate(int device, double gx, double gy, double gz,
+      double ax, double ay, double az, double mx, double my, double mz,
+      double dt);
+
+  /**
+   * Clears the state of {@code device} other than its orientation
+   */
+  void doReset(int device) {}
+
+  /**
+   * Checks a filter gain
+   */
+  static double checkGain(double gain) throws IllegalArgumentException {
+    if (!(gain >= 0.0 && gain < Double.POSITIVE_INFINITY)) {
+      throw new IllegalArgumentException(INVALID_GAIN_MSG);
+    }
+    return gain;
+  }
+
+  /**
+   * Integrates the rate (gx, gy, gz) over dt into the orientation of
+   * {@code device} with an Euler step, then normalizes it
+   */
+  final void integrate(int device, double gx, double gy, double gz,
+      double dt) {
+    double[] qx = orientations.x;
+    double[] qy = orientations.y;
+    double[] qz = orientations.z;
+    double[] qw = orientations.w;
+    double x = qx[device];
+    double y = qy[device];
+    double z = qz[device];
+    double w = qw[device];
+    double hx = 0.5 * dt * gx;
+    double hy = 0.5 * dt * gy;
+    double hz = 0.5 * dt * gz;
+    double nx = x + w * hx + y * hz - z * hy;
+    double ny = y + w * hy - x * hz + z * hx;
+    double nz = z + w * hz + x * hy - y * hx;
+    double nw = w - x * hx - y * hy - z * hz;
+    double invNorm = 1.0 / Math.sqrt(nx * nx + ny * ny + nz * nz + nw * nw);
+    qx[device] = nx * invNorm;
+    qy[device] = ny * invNorm;
+    qz[device] = nz * invNorm;
+    qw[device] = nw * invNorm;
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Private methods
+  //
+  /////////////////////////////////////////////////////////
+
+  private void checkDevice(int device) throws IllegalArgumentException {
+    if (device < 0 || device >= size()) {
+      throw new IllegalArgumentException(INVALID_DEVICE_MSG);
+    }
+  }
+
+  private void checkDevices(int fromDevice, int toDevice)
+      throws IllegalArgumentException {
+    if (fromDevice < 0 || fromDevice > toDevice || toDevice > size()) {
+      throw new IllegalArgumentException(INVALID_DEVICE_RANGE_MSG);
+    }
+  }
+
+  private static void checkInput(final double[] input, int toDevice)
+      throws IllegalArgumentException {
+    if (input.length < toDevice) {
+      throw new IllegalArgumentException(INVALID_DEVICE_RANGE_MSG);
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package com.nus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of the {@link OrientationFilter} implementations, updating
+ * a fleet of {@code size} devices with one nine-axis sample each, through
+ * the batch update and through one update call per device
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OrientationFilterBenchmark {
+  private static final double DT = 1e-2;
+
+  @Param({"4096"})
+  public int size;
+
+  @Param({"madgwick", "mahony", "complementary"})
+  public String filterName;
+
+  private double[][] samples;
+  private OrientationFilter filter;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(QuaternionBenchmark.SEED);
+    samples = new double[9][size];
+    for (int i = 0; i < size; ++i) {
+      samples[0][i] = 0.1 * random.nextGaussian();
+      samples[1][i] = 0.1 * random.nextGaussian();
+      samples[2][i] = 0.1 * random.nextGaussian();
+      samples[3][i] = 0.1 * random.nextGaussian();
+      samples[4][i] = 0.1 * random.nextGaussian();
+      samples[5][i] = 1.0 + 0.1 * random.nextGaussian();
+      samples[6][i] = 0.5 + 0.1 * random.nextGaussian();
+      samples[7][i] = 0.1 * random.nextGaussian();
+      samples[8][i] = -0.8 + 0.1 * random.nextGaussian();
+    }
+    switch (filterName) {
+      case "madgwick":
+        filter = new MadgwickFilter(size, MadgwickFilter.DEFAULT_BETA);
+        break;
+      case "mahony":
+        filter = new MahonyFilter(size, MahonyFilter.DEFAULT_KP, 0.1);
+        break;
+      default:
+        filter = new ComplementaryFilter(size,
+          ComplementaryFilter.DEFAULT_GAIN);
+        break;
+    }
+  }
+
+  @Benchmark
+  public OrientationFilter batchUpdate() {
+    double[][] s = samples;
+    filter.update(s[0], s[1], s[2], s[3], s[4], s[5], s[6], s[7], s[8], 0,
+      size, DT);
+    return filter;
+  }
+
+  @Benchmark
+  public OrientationFilter singleUpdates() {
+    double[][] s = samples;
+    for (int i = 0; i < size; ++i) {
+      filter.update(i, s[0][i], s[1][i], s[2][i], s[3][i], s[4][i], s[5][i],
+        s[6][i], s[7][i], s[8][i], DT);
+    }
+    return filter;
+  }
+}
@@ -0,0 +1,305 @@
+package com.nus;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import static com.nus.QuaternionTestUtils.angleBetween;
+
+import java.util.Random;
+
+public class OrientationFilterTest {
+  private static final double DT = 0.01;
+  // Earth magnetic field with an inclination of 60 degrees
+  private static final double[] FIELD = {0.5, 0.0, -Math.sqrt(0.75)};
+  private static final double[] GRAVITY = {0.0, 0.0, 1.0};
+
+  // Madgwick's normalized gradient step chatters around the optimum with an
+  // amplitude of the order of beta * DT
+  private static final double[] TOLERANCES = {8e-3, 1e-3, 1e-9};
+
+  private static OrientationFilter[] filters(int size) {
+    return new OrientationFilter[] {
+      new MadgwickFilter(size, 0.2),
+      new MahonyFilter(size, 2.0, 0.0),
+      new ComplementaryFilter(size, 0.05)
+    };
+  }
+
+  /**
+   * Returns a random rotation of at most {@code maxAngle} radians. The
+   * gradient of the Madgwick and Mahony corrections vanishes 180 degrees away
+   * from the true orientation, so they are tested from closer starts
+   */
+  private static Quaternion randomRotation(Random random, double maxAngle) {
+    double[] axis = {random.nextGaussian(), random.nextGaussian(),
+      random.nextGaussian()};
+    return Quaternion.fromAxisAngleRad(axis, maxAngle * random.nextDouble());
+  }
+
+  /**
+   * Writes the earth vector {@code v} seen from a sensor at orientation
+   * {@code q} to {@code out}
+   */
+  private static void measure(Quaternion q, double[] v, double[] out) {
+    q.conjugate().rotate(v, 0, out, 0);
+  }
+
+  private static Quaternion runStatic(OrientationFilter filter,
+      Quaternion truth, boolean magnetometer, int steps) {
+    double[] a = new double[3];
+    double[] m = new double[3];
+    measure(truth, GRAVITY, a);
+    measure(truth, FIELD, m);
+    for (int i = 0; i < steps; ++i) {
+      if (magnetometer) {
+        filter.update(0, 0.0, 0.0, 0.0, a[0], a[1], a[2], m[0], m[1], m[2],
+          DT);
+      } else {
+        filter.update(0, 0.0, 0.0, 0.0, a[0], a[1], a[2], DT);
+      }
+    }
+    Quaternion q = new Quaternion();
+    filter.getOrientation(0, q);
+    return q;
+  }
+
+  @Test
+  public void testConvergesToStaticOrientation() {
+    Random random = new Random(17);
+    for (int trial = 0; trial < 20; ++trial) {
+      Quaternion truth = randomRotation(random, 2.5);
+      OrientationFilter[] filters = filters(1);
+      for (int f = 0; f < filters.length; ++f) {
+        Quaternion q = runStatic(filters[f], truth, true, 4000);
+        String name = filters[f].getClass().getSimpleName();
+        assertTrue(name, angleBetween(q, truth) < TOLERANCES[f]);
+        assertEquals(q.norm(), 1.0, 1e-12);
+      }
+    }
+  }
+
+  @Test
+  public void testConvergesToTiltWithoutMagnetometer() {
+    Random random = new Random(18);
+    double[] expected = new double[3];
+    double[] actual = new double[3];
+    for (int trial = 0; trial < 20; ++trial) {
+      Quaternion truth = randomRotation(random, 2.5);
+      measure(truth, GRAVITY, expected);
+      OrientationFilter[] filters = filters(1);
+      for (int f = 0; f < filters.length; ++f) {
+        Quaternion q = runStatic(filters[f], truth, false, 4000);
+        // Only the direction of gravity is observable
+        measure(q, GRAVITY, actual);
+        assertArrayEquals(filters[f].getClass().getSimpleName(), actual,
+          expected, TOLERANCES[f]);
+      }
+    }
+  }
+
+  @Test
+  public void testComplementaryFilterRecoversFromUpsideDown() {
+    Quaternion truth = Quaternion.fromAxisAngleRad(
+      new double[] {1.0, 0.0, 0.0}, Math.PI);
+    OrientationFilter filter = new ComplementaryFilter(1, 0.1);
+    Quaternion q = runStatic(filter, truth, true, 500);
+    assertTrue(angleBetween(q, truth) < 1e-9);
+  }
+
+  @Test
+  public void testTracksRotationWithGyroscope() {
+    // Spin about the earth z axis: the gyroscope and the reference vectors
+    // agree, so the filters follow the true orientation. Madgwick and Mahony
+    // correct the orientation at the start of a step against samples taken
+    // at its end, so they lag by about one step
+    Quaternion start = Quaternion.fromAxisAngleRad(
+      new double[] {1.0, 2.0, 2.0}, 0.7);
+    double rate = 1.0;
+    double[] a = new double[3];
+    double[] m = new double[3];
+    double[] g = new double[3];
+    for (OrientationFilter filter : filters(1)) {
+      filter.reset(0, start);
+      Quaternion truth = new Quaternion(start);
+      for (int i = 1; i <= 1000; ++i) {
+        truth = Quaternion.fromAxisAngleRad(new double[] {0.0, 0.0, 1.0},
+          rate * i * DT).multiply(start);
+        measure(truth, GRAVITY, a);
+        measure(truth, FIELD, m);
+        measure(truth, new double[] {0.0, 0.0, rate}, g);
+        filter.update(0, g[0], g[1], g[2], a[0], a[1], a[2], m[0], m[1],
+          m[2], DT);
+      }
+      Quaternion q = new Quaternion();
+      filter.getOrientation(0, q);
+      assertTrue(filter.getClass().getSimpleName(),
+        angleBetween(q, truth) < 2.0 * rate * DT);
+    }
+  }
+
+  @Test
+  public void testZeroAccelerometerIntegratesGyroscope() {
+    double[] axis = {2.0 / 3.0, -2.0 / 3.0, 1.0 / 3.0};
+    double rate = 2.0;
+    Quaternion expected =
+      Quaternion.fromAxisAngleRad(axis.clone(), rate * 1000 * 1e-3);
+    for (OrientationFilter filter : filters(1)) {
+      for (int i = 0; i < 1000; ++i) {
+        filter.update(0, rate * axis[0], rate * axis[1], rate * axis[2],
+          0.0, 0.0, 0.0, 0.3, 0.2, 0.1, 1e-3);
+      }
+      Quaternion q = new Quaternion();
+      filter.getOrientation(0, q);
+      assertTrue(filter.getClass().getSimpleName(),
+        angleBetween(q, expected) < 1e-5);
+    }
+  }
+
+  @Test
+  public void testMahonyFilterEstimatesGyroscopeBias() {
+    Random random = new Random(19);
+    double[] bias = {0.02, -0.01, 0.03};
+    Quaternion truth = randomRotation(random, 2.5);
+    double[] a = new double[3];
+    double[] m = new double[3];
+    measure(truth, GRAVITY, a);
+    measure(truth, FIELD, m);
+    MahonyFilter filter = new MahonyFilter(1, 2.0, 0.5);
+    for (int i = 0; i < 10000; ++i) {
+      filter.update(0, bias[0], bias[1], bias[2], a[0], a[1], a[2], m[0],
+        m[1], m[2], DT);
+    }
+    double[] estimated = new double[3];
+    filter.getGyroBias(0, estimated);
+    assertArrayEquals(estimated, bias, 1e-6);
+    Quaternion q = new Quaternion();
+    filter.getOrientation(0, q);
+    assertTrue(angleBetween(q, truth) < 1e-6);
+
+    filter.reset(0, truth);
+    filter.getGyroBias(0, estimated);
+    assertArrayEquals(estimated, new double[3], 0.0);
+  }
+
+  @Test
+  public void testBatchUpdateMatchesSingleUpdates() {
+    Random random = new Random(20);
+    int size = 37;
+    double[][] in = new double[9][size];
+    OrientationFilter[] batch = filters(size);
+    OrientationFilter[] single = filters(size);
+    for (int step = 0; step < 50; ++step) {
+      for (double[] component : in) {
+        for (int i = 0; i < size; ++i) {
+          component[i] = random.nextGaussian();
+        }
+      }
+      // Some devices drop their accelerometer sample
+      in[3][step % size] = in[4][step % size] = in[5][step % size] = 0.0;
+      for (int f = 0; f < batch.length; ++f) {
+        boolean magnetometer = step % 2 == 0;
+        batch[f].update(in[0], in[1], in[2], in[3], in[4], in[5],
+          magnetometer ? in[6] : null, magnetometer ? in[7] : null,
+          magnetometer ? in[8] : null, 2, size - 1, DT);
+        for (int i = 2; i < size - 1; ++i) {
+          if (magnetometer) {
+            single[f].update(i, in[0][i], in[1][i], in[2][i], in[3][i],
+              in[4][i], in[5][i], in[6][i], in[7][i], in[8][i], DT);
+          } else {
+            single[f].update(i, in[0][i], in[1][i], in[2][i], in[3][i],
+              in[4][i], in[5][i], DT);
+          }
+        }
+      }
+    }
+
+    for (int f = 0; f < batch.length; ++f) {
+      QuaternionArray expected = new QuaternionArray(size);
+      QuaternionArray actual = new QuaternionArray(size + 3);
+      single[f].getOrientations(0, size, expected, 0);
+      batch[f].getOrientations(0, size, actual, 3);
+      for (int i = 0; i < size; ++i) {
+        Quaternion p = actual.get(i + 3);
+        Quaternion q = expected.get(i);
+        assertEquals(p.getX(), q.getX(), 0.0);
+        assertEquals(p.getY(), q.getY(), 0.0);
+        assertEquals(p.getZ(), q.getZ(), 0.0);
+        assertEquals(p.getW(), q.getW(), 0.0);
+        if (i < 2 || i == size - 1) {
+          assertTrue(p.isIdentity());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testResetNormalizes() {
+    for (OrientationFilter filter : filters(3)) {
+      filter.reset(1, new Quaternion(0.0, 0.0, 3.0, 4.0));
+      Quaternion q = new Quaternion();
+      filter.getOrientation(1, q);
+      QuaternionTest.assertQuaternionEquals(q,
+        new Quaternion(0.0, 0.0, 0.6, 0.8));
+      filter.getOrientation(2, q);
+      assertTrue(q.isIdentity());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testResetWithZeroQuaternion() {
+    new MadgwickFilter(2, 0.1).reset(1, new Quaternion(0.0, 0.0, 0.0, 0.0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructWithInvalidSize() {
+    new MadgwickFilter(0, 0.1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructWithNegativeGain() {
+    new MadgwickFilter(1, -0.1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructWithNaNGain() {
+    new MahonyFilter(1, 1.0, Double.NaN);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructWithInvalidFraction() {
+    new ComplementaryFilter(1, 1.5);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUpdateWithInvalidDevice() {
+    new MahonyFilter(4, 1.0, 0.1).update(4, 0.0, 0.0, 0.0, 0.0, 0.0, 1.0, DT);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetOrientationWithInvalidDevice() {
+    new MahonyFilter(4, 1.0, 0.1).getOrientation(-1, new Quaternion());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBatchUpdateWithShortInput() {
+    double[] input = new double[4];
+    new MahonyFilter(4, 1.0, 0.1).update(input, input, input, input, input,
+      new double[3], null, null, null, 0, 4, DT);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBatchUpdateWithInvalidRange() {
+    double[] input = new double[4];
+    new MahonyFilter(4, 1.0, 0.1).update(input, input, input, input, input,
+      input, null, null, null, 3, 2, DT);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetOrientationsWithShortOutput() {
+    new MahonyFilter(4, 1.0, 0.1).getOrientations(0, 4,
+      new QuaternionArray(3), 0);
+  }
+}
@@ -0,0 +1,430 @@
+package com.nus;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Immutable index over a set of rotations, answering nearest neighbor and
+ * within-angle queries in sub-linear time. The distance between two
+ * rotations is the angle of the rotation taking one to the other, so
+ * {@code q} and {@code -q} are the same point.
+ *
+ * <p>The index is a vantage point tree: every node splits its points into
+ * those closer to a vantage point than the median distance and the others,
+ * and queries skip subtrees ruled out by the triangle inequality. Internally
+ * the metric is the chordal distance {@code min(|p - q|, |p + q|)} between
+ * unit quaternions, which is a metric on rotations, increases with the
+ * rotation angle and is cheaper and more accurate than {@code acos}. The
+ * tree is stored in flat arrays: the points of a subtree are contiguous,
+ * with the vantage point first, followed by the inner then the outer
+ * subtree.
+ *
+ * <p>The index is built in one pass from an array, in O(n log n) time. It is
+ * never modified afterwards, so any number of threads can query it
+ * concurrently
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+public final class OrientationIndex {
+  public static final String EMPTY_INDEX_MSG =
+    "An orientation index must have at least one rotation";
+  public static final String ZERO_QUATERNION_MSG =
+    "Cannot index or query a zero quaternion";
+  public static final String INVALID_NEIGHBOR_COUNT_MSG =
+    "Number of neighbors must be positive and fit in the output arrays";
+
+  // Subtrees of at most this many points are scanned linearly
+  private static final int LEAF_SIZE = 8;
+
+  // Points in tree order, normalized
+  private final double[] x;
+  private final double[] y;
+  private final double[] z;
+  private final double[] w;
+  // Index in the source array of every point
+  private final int[] ids;
+  // Median distance to the vantage point of the subtree starting here
+  private final double[] radii;
+
+  /**
+   * Builds an index over the rotations {@code [from, to)} of an array. The
+   * array is copied and can be modified afterwards
+   *
+   * @param src The array of rotations, which need not be normalized
+   * @param from The first rotation, inclusive
+   * @param to The last rotation, exclusive
+   * @throws IllegalArgumentException if the range is invalid or empty, or a
+   *                                  rotation is zero
+   */
+  public OrientationIndex(final QuaternionArray src, int from, int to)
+      throws IllegalArgumentException {
+    src.checkRange(from, to);
+    int size = to - from;
+    if (size == 0) {
+      throw new IllegalArgumentException(EMPTY_INDEX_MSG);
+    }
+    x = new double[size];
+    y = new double[size];
+    z = new double[size];
+    w = new double[size];
+    ids = new int[size];
+    radii = new double[size];
+    for (int i = 0; i < size; ++i) {
+      double qx = src.x[from + i];
+      double qy = src.y[from + i];
+      double qz = src.z[from + i];
+      double qw = src.w[from + i];
+      double norm = Math.sqrt(qx * qx + qy * qy + qz * qz + qw * qw);
+      if (!(norm > 0.0)) {
+        throw new IllegalArgumentException(ZERO_QUATERNION_MSG);
+      }
+      x[i] = qx / norm;
+      y[i] = qy / norm;
+      z[i] = qz / norm;
+      w[i] = qw / norm;
+      ids[i] = from + i;
+    }
+    // Vantage points are random for balance, but the tree is reproducible
+    build(0, size, new double[size], new Random(size));
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Queries
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Gets the number of rotations in the index
+   *
+   * @return The number of rotations
+   */
+  public int size() {
+    return ids.length;
+  }
+
+  /**
+   * Finds the rotation closest to {@code query}
+   *
+   * @param query The query rotation, which need not be normalized
+   * @return The index in the source array of the closest rotation
+   * @throws IllegalArgumentException if {@code query} is zero
+   */
+  public int nearest(final Quaternion query) throws IllegalArgumentException {
+    Search search = new Search(query, 1, Double.POSITIVE_INFINITY);
+    search(search, 0, size());
+    return ids[search.heapPos[0]];
+  }
+
+  /**
+   * Finds the {@code k} rotations closest to {@code query}, or all of them
+   * if there are fewer than {@code k}, by increasing angle
+   *
+   * @param query The query rotation, which need not be normalized
+   * @param k The number of rotations to find
+   * @param indices The array receiving the indices in the source array of
+   *                the rotations found
+   * @param angles The array receiving the angles in radians between
+   *               {@code query} and the rotations found, or null
+   * @return The number of rotations found, {@code min(k, size())}
+   * @throws IllegalArgumentException if {@code query} is zero, or {@code k}
+   *                                  is not positive or larger than an
+   *                                  output array
+   */
+  public int nearest(final Quaternion query, int k, final int[] indices,
+      final double[] angles) throws IllegalArgumentException {
+    if (k <= 0 || k > indices.length ||
+        (angles != null && k > angles.length)) {
+      throw new IllegalArgumentException(INVALID_NEIGHBOR_COUNT_MSG);
+    }
+    Search search = new Search(query, Math.min(k, size()),
+      Double.POSITIVE_INFINITY);
+    search(search, 0, size());
+
+    // Pop the max-heap from the back to sort by increasing distance
+    int count = search.count;
+    for (int n = count - 1; n >= 0; --n) {
+      indices[n] = ids[search.heapPos[0]];
+      if (angles != null) {
+        angles[n] = toAngle(search.heapDist[0]);
+      }
+      search.pop();
+    }
+    return count;
+  }
+
+  /**
+   * Finds all rotations within an angle of {@code query}
+   *
+   * @param query The query rotation, which need not be normalized
+   * @param maxAngleRad The largest angle in radians between {@code query}
+   *                    and a rotation found
+   * @return The indices in the source array of the rotations found, in
+   *         increasing order
+   * @throws IllegalArgumentException if {@code query} is zero
+   */
+  public int[] withinAngle(final Quaternion query, double maxAngleRad)
+      throws IllegalArgumentException {
+    double angle = Math.min(Math.max(maxAngleRad, 0.0), Math.PI);
+    Search search = new Search(query, 0, 2.0 * Math.sin(0.25 * angle));
+    search(search, 0, size());
+    int[] found = Arrays.copyOf(search.heapPos, search.count);
+    for (int n = 0; n < found.length; ++n) {
+      found[n] = ids[found[n]];
+    }
+    Arrays.sort(found);
+    return found;
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Private methods
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Converts a chordal distance into a rotation angle
+   */
+  private static double toAngle(double chord) {
+    return 4.0 * Math.asin(Math.min(0.5 * chord, 1.0));
+  }
+
+  /**
+   * Chordal distance between points i and j
+   */
+  private double distance(int i, int j) {
+    return distance(i, x[j], y[j], z[j], w[j]);
+  }
+
+  /**
+   * Chordal distance between point i and the unit quaternion (qx, qy, qz,
+   * qw), computed from the differences to avoid the cancellation of
+   * {@code sqrt(2 - 2 * |dot|)}
+   */
+  private double distance(int i, double qx, double qy, double qz,
+      double qw) {
+    double px = x[i];
+    double py = y[i];
+    double pz = z[i];
+    double pw = w[i];
+    if (px * qx + py * qy + pz * qz + pw * qw < 0.0) {
+      qx = -qx;
+      qy = -qy;
+      qz = -qz;
+      qw = -qw;
+    }
+    double dx = px - qx;
+    double dy = py - qy;
+    double dz = pz - qz;
+    double dw = pw - qw;
+    return Math.sqrt(dx * dx + dy * dy + dz * dz + dw * dw);
+  }
+
+  /**
+   * Builds the subtree of the points [lo, hi), using {@code dist} as scratch
+   * space
+   */
+  private void build(int lo, int hi, final double[] dist,
+      final Random random) {
+    if (hi - lo <= LEAF_SIZE) {
+      return;
+    }
+    swap(lo, lo + random.nextInt(hi - lo), dist);
+    for (int i = lo + 1; i < hi; ++i) {
+      dist[i] = distance(lo, i);
+    }
+    int mid = (lo + 1 + hi) >>> 1;
+    select(lo + 1, hi, mid, dist);
+    radii[lo] = dist[mid];
+    build(lo + 1, mid, dist, random);
+    build(mid, hi, dist, random);
+  }
+
+  /**
+   * Permutes the points [lo, hi) so that point k has the distance it would
+   * have in sorted order, with no larger distance before it and no smaller
+   * one after it
+   */
+  private void select(int lo, int hi, int k, final double[] dist) {
+    --hi;
+    while (lo < hi) {
+      double pivot = dist[(lo + hi) >>> 1];
+      int i = lo;
+      int j = hi;
+      while (i <= j) {
+        while (dist[i] < pivot) {
+          ++i;
+        }
+        while (dist[j] > pivot) {
+          --j;
+        }
+        if (i <= j) {
+          swap(i++, j--, dist);
+        }
+      }
+      if (k <= j) {
+        hi = j;
+      } else if (k >= i) {
+        lo = i;
+      } else {
+        return;
+      }
+    }
+  }
+
+  private void swap(int i, int j, final double[] dist) {
+    double t = x[i];
+    x[i] = x[j];
+    x[j] = t;
+    t = y[i];
+    y[i] = y[j];
+    y[j] = t;
+    t = z[i];
+    z[i] = z[j];
+    z[j] = t;
+    t = w[i];
+    w[i] = w[j];
+    w[j] = t;
+    t = dist[i];
+    dist[i] = dist[j];
+    dist[j] = t;
+    int id = ids[i];
+    ids[i] = ids[j];
+    ids[j] = id;
+  }
+
+  /**
+   * Visits the points of the subtree [lo, hi) that may be closer to the
+   * query than {@link Search#tau}
+   */
+  private void search(final Search search, int lo, int hi) {
+    if (hi - lo <= LEAF_SIZE) {
+      for (int i = lo; i < hi; ++i) {
+        search.offer(i, distance(i, search.qx, search.qy, search.qz,
+          search.qw));
+      }
+      return;
+    }
+    double d = distance(lo, search.qx, search.qy, search.qz, search.qw);
+    search.offer(lo, d);
+    double radius = radii[lo];
+    int mid = (lo + 1 + hi) >>> 1;
+    // Visit first the side containing the query, which tightens tau sooner
+    if (d < radius) {
+      if (d - search.tau <= radius) {
+        search(search, lo + 1, mid);
+      }
+      if (d + search.tau >= radius) {
+        search(search, mid, hi);
+      }
+    } else {
+      if (d + search.tau >= radius) {
+        search(search, mid, hi);
+      }
+      if (d - search.tau <= radius) {
+        search(search, lo + 1, mid);
+      }
+    }
+  }
+
+  /**
+   * State of one query. With {@code k > 0}, keeps the k closest points in a
+   * max-heap and {@code tau} is the distance of the farthest of them once k
+   * points are found. With {@code k == 0}, collects all points within the
+   * fixed distance {@code tau}
+   */
+  private static final class Search {
+    final double qx;
+    final double qy;
+    final double qz;
+    final double qw;
+    final int k;
+    double tau;
+    int count;
+    int[] heapPos;
+    double[] heapDist;
+
+    Search(final Quaternion query, int k, double tau)
+        throws IllegalArgumentException {
+      double norm = query.norm();
+      if (!(norm > 0.0)) {
+        throw new IllegalArgumentException(ZERO_QUATERNION_MSG);
+      }
+      this.qx = query.getX() / norm;
+      this.qy = query.getY() / norm;
+      this.qz = query.getZ() / norm;
+      this.qw = query.getW() / norm;
+      this.k = k;
+      this.tau = tau;
+      this.heapPos = new int[k > 0 ? k : LEAF_SIZE];
+      this.heapDist = new double[k > 0 ? k : 0];
+    }
+
+    void offer(int pos, double dist) {
+      if (k == 0) {
+        if (dist <= tau) {
+          if (count == heapPos.length) {
+            heapPos = Arrays.copyOf(heapPos, 2 * count);
+          }
+          heapPos[count++] = pos;
+        }
+        return;
+      }
+      if (count < k) {
+        // Sift up
+        int i = count++;
+        while (i > 0) {
+          int parent = (i - 1) >>> 1;
+          if (heapDist[parent] >= dist) {
+            break;
+          }
+          heapPos[i] = heapPos[parent];
+          heapDist[i] = heapDist[parent];
+          i = parent;
+        }
+        heapPos[i] = pos;
+        heapDist[i] = dist;
+        if (count == k) {
+          tau = heapDist[0];
+        }
+      } else if (dist < heapDist[0]) {
+        siftDown(pos, dist, count);
+        tau = heapDist[0];
+      }
+    }
+
+    /**
+     * Removes the root of the heap
+     */
+    void pop() {
+      --count;
+      if (count > 0) {
+        siftDown(heapPos[count], heapDist[count], count);
+      }
+    }
+
+    /**
+     * Replaces the root of the heap of the given size by (pos, dist)
+     */
+    private void siftDown(int pos, double dist, int size) {
+      int i = 0;
+      while (true) {
+        int child = 2 * i + 1;
+        if (child >= size) {
+          break;
+        }
+        if (child + 1 < size && heapDist[child + 1] > heapDist[child]) {
+          ++child;
+        }
+        if (heapDist[child] <= dist) {
+          break;
+        }
+        heapPos[i] = heapPos[child];
+        heapDist[i] = heapDist[child];
+        i = child;
+      }
+      heapPos[i] = pos;
+      heapDist[i] = dist;
+    }
+  }
+}
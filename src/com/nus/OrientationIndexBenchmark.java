@@ -0,0 +1,119 @@
+package com.nus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of {@link OrientationIndex} queries against a linear scan
+ * for the largest {@code |dot|}, over a library of {@code size} random
+ * rotations. Every operation answers a batch of {@code QUERIES} queries near
+ * library rotations, as when matching observed poses
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OrientationIndexBenchmark {
+  private static final int QUERIES = 64;
+  private static final double NOISE = 0.01;
+
+  @Param({"10000", "1000000"})
+  public int size;
+
+  private QuaternionArray library;
+  private OrientationIndex index;
+  private Quaternion[] queries;
+  private int[] indices;
+  private double[] angles;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(QuaternionBenchmark.SEED);
+    library = new QuaternionArray(size);
+    for (int i = 0; i < size; ++i) {
+      library.set(i, QuaternionBenchmark.randomUnitQuaternion(random));
+    }
+    index = new OrientationIndex(library, 0, size);
+    queries = new Quaternion[QUERIES];
+    for (int i = 0; i < QUERIES; ++i) {
+      Quaternion q = library.get(random.nextInt(size));
+      q.addEq(new Quaternion(NOISE * random.nextGaussian(),
+        NOISE * random.nextGaussian(), NOISE * random.nextGaussian(),
+        NOISE * random.nextGaussian()));
+      q.normalize();
+      queries[i] = q;
+    }
+    indices = new int[10];
+    angles = new double[10];
+  }
+
+  @Benchmark
+  public int nearest() {
+    int sum = 0;
+    for (Quaternion q : queries) {
+      sum += index.nearest(q);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public int nearest10() {
+    int sum = 0;
+    for (Quaternion q : queries) {
+      index.nearest(q, 10, indices, angles);
+      sum += indices[9];
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public int withinAngle() {
+    int sum = 0;
+    for (Quaternion q : queries) {
+      sum += index.withinAngle(q, 0.05).length;
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public int bruteForceNearest() {
+    double[] x = library.x;
+    double[] y = library.y;
+    double[] z = library.z;
+    double[] w = library.w;
+    int sum = 0;
+    for (Quaternion q : queries) {
+      double qx = q.getX();
+      double qy = q.getY();
+      double qz = q.getZ();
+      double qw = q.getW();
+      int best = 0;
+      double bestDot = -1.0;
+      for (int i = 0; i < size; ++i) {
+        double dot = Math.abs(x[i] * qx + y[i] * qy + z[i] * qz + w[i] * qw);
+        if (dot > bestDot) {
+          bestDot = dot;
+          best = i;
+        }
+      }
+      sum += best;
+    }
+    return sum;
+  }
+}
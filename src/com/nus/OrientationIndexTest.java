@@ -0,0 +1,227 @@
+package com.nus;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import static com.nus.QuaternionTestUtils.angleBetween;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+public class OrientationIndexTest {
+
+  private static QuaternionArray randomArray(Random random, int size) {
+    QuaternionArray array = new QuaternionArray(size);
+    for (int i = 0; i < size; ++i) {
+      // Neither normalized nor sign-canonical
+      array.set(i, random.nextGaussian(), random.nextGaussian(),
+        random.nextGaussian(), random.nextGaussian());
+    }
+    return array;
+  }
+
+  private static Quaternion randomQuaternion(Random random) {
+    return new Quaternion(random.nextGaussian(), random.nextGaussian(),
+      random.nextGaussian(), random.nextGaussian());
+  }
+
+  private static Integer[] sortedByAngle(QuaternionArray array,
+      Quaternion query) {
+    Integer[] order = new Integer[array.size()];
+    double[] angles = new double[array.size()];
+    for (int i = 0; i < order.length; ++i) {
+      order[i] = i;
+      angles[i] = angleBetween(array.get(i), query);
+    }
+    Arrays.sort(order, (i, j) -> Double.compare(angles[i], angles[j]));
+    return order;
+  }
+
+  @Test
+  public void testNearestMatchesBruteForce() {
+    Random random = new Random(1);
+    for (int size : new int[] {1, 5, 8, 9, 100, 5000}) {
+      QuaternionArray array = randomArray(random, size);
+      OrientationIndex index = new OrientationIndex(array, 0, size);
+      assertEquals(index.size(), size);
+      for (int query = 0; query < 50; ++query) {
+        Quaternion q = randomQuaternion(random);
+        Integer[] expected = sortedByAngle(array, q);
+        int found = index.nearest(q);
+        assertEquals(angleBetween(array.get(found), q),
+          angleBetween(array.get(expected[0]), q), 1e-12);
+      }
+    }
+  }
+
+  @Test
+  public void testKNearestMatchesBruteForce() {
+    Random random = new Random(2);
+    int size = 3000;
+    QuaternionArray array = randomArray(random, size + 10);
+    OrientationIndex index = new OrientationIndex(array, 10, size + 10);
+    QuaternionArray slice = new QuaternionArray(size);
+    for (int i = 0; i < size; ++i) {
+      slice.set(i, array.get(i + 10));
+    }
+    int[] indices = new int[20];
+    double[] angles = new double[20];
+    for (int query = 0; query < 50; ++query) {
+      Quaternion q = randomQuaternion(random);
+      Integer[] expected = sortedByAngle(slice, q);
+      assertEquals(index.nearest(q, 20, indices, angles), 20);
+      for (int n = 0; n < 20; ++n) {
+        assertTrue(indices[n] >= 10 && indices[n] < size + 10);
+        double expectedAngle = angleBetween(slice.get(expected[n]), q);
+        assertEquals(angles[n], expectedAngle, 1e-12);
+        assertEquals(angleBetween(array.get(indices[n]), q), expectedAngle,
+          1e-12);
+      }
+    }
+  }
+
+  @Test
+  public void testKLargerThanSize() {
+    Random random = new Random(3);
+    QuaternionArray array = randomArray(random, 6);
+    OrientationIndex index = new OrientationIndex(array, 0, 6);
+    int[] indices = new int[10];
+    Quaternion q = randomQuaternion(random);
+    assertEquals(index.nearest(q, 10, indices, null), 6);
+    Integer[] expected = sortedByAngle(array, q);
+    for (int n = 0; n < 6; ++n) {
+      assertEquals(indices[n], (int) expected[n]);
+    }
+  }
+
+  @Test
+  public void testAntipodalQuaternionsAreTheSameRotation() {
+    Random random = new Random(4);
+    QuaternionArray array = randomArray(random, 1000);
+    OrientationIndex index = new OrientationIndex(array, 0, 1000);
+    int[] indices = new int[1];
+    double[] angles = new double[1];
+    for (int i = 0; i < 1000; i += 7) {
+      Quaternion q = array.get(i).multiply(-3.0);
+      index.nearest(q, 1, indices, angles);
+      assertEquals(indices[0], i);
+      assertEquals(angles[0], 0.0, 1e-7);
+    }
+  }
+
+  @Test
+  public void testWithinAngleMatchesBruteForce() {
+    Random random = new Random(5);
+    int size = 4000;
+    QuaternionArray array = randomArray(random, size);
+    OrientationIndex index = new OrientationIndex(array, 0, size);
+    for (double radius : new double[] {0.0, 0.1, 0.5, 1.0, 3.0, 4.0}) {
+      for (int query = 0; query < 10; ++query) {
+        Quaternion q = randomQuaternion(random);
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < size; ++i) {
+          if (angleBetween(array.get(i), q) <= radius) {
+            expected.add(i);
+          }
+        }
+        int[] actual = index.withinAngle(q, radius);
+        assertArrayEquals(actual,
+          expected.stream().mapToInt(Integer::intValue).toArray());
+      }
+    }
+    assertEquals(index.withinAngle(new Quaternion(), Math.PI).length, size);
+  }
+
+  @Test
+  public void testDuplicates() {
+    QuaternionArray array = new QuaternionArray(100);
+    for (int i = 0; i < 100; ++i) {
+      array.set(i, 0.0, 0.0, i % 2 == 0 ? 1.0 : -1.0, 0.0);
+    }
+    OrientationIndex index = new OrientationIndex(array, 0, 100);
+    int[] found = index.withinAngle(new Quaternion(0.0, 0.0, 1.0, 1e-9),
+      1e-6);
+    assertEquals(found.length, 100);
+    int[] indices = new int[100];
+    assertEquals(index.nearest(new Quaternion(), 100, indices, null), 100);
+    Arrays.sort(indices);
+    for (int i = 0; i < 100; ++i) {
+      assertEquals(indices[i], i);
+    }
+  }
+
+  @Test
+  public void testConcurrentQueries() throws Exception {
+    Random random = new Random(6);
+    int size = 2000;
+    QuaternionArray array = randomArray(random, size);
+    OrientationIndex index = new OrientationIndex(array, 0, size);
+    Quaternion[] queries = new Quaternion[400];
+    int[] expected = new int[queries.length];
+    for (int i = 0; i < queries.length; ++i) {
+      queries[i] = randomQuaternion(random);
+      expected[i] = index.nearest(queries[i]);
+    }
+    int[] actual = new int[queries.length];
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[4];
+      for (int t = 0; t < 4; ++t) {
+        int first = t;
+        tasks[t] = pool.submit(() -> {
+          for (int i = first; i < queries.length; i += 4) {
+            actual[i] = index.nearest(queries[i]);
+          }
+        });
+      }
+      for (ForkJoinTask<?> task : tasks) {
+        task.get();
+      }
+    } finally {
+      pool.shutdown();
+    }
+    assertArrayEquals(actual, expected);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructWithEmptyRange() {
+    new OrientationIndex(new QuaternionArray(4), 2, 2);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructWithInvalidRange() {
+    new OrientationIndex(new QuaternionArray(4), 0, 5);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructWithZeroQuaternion() {
+    QuaternionArray array = new QuaternionArray(4);
+    array.set(3, 0.0, 0.0, 0.0, 0.0);
+    new OrientationIndex(array, 0, 4);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNearestWithZeroQuaternion() {
+    OrientationIndex index = new OrientationIndex(new QuaternionArray(3), 0, 3);
+    index.nearest(new Quaternion(0.0, 0.0, 0.0, 0.0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNearestWithInvalidCount() {
+    OrientationIndex index = new OrientationIndex(new QuaternionArray(3), 0, 3);
+    index.nearest(new Quaternion(), 0, new int[1], null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNearestWithShortDistances() {
+    OrientationIndex index = new OrientationIndex(new QuaternionArray(3), 0, 3);
+    index.nearest(new Quaternion(), 2, new int[2], new double[1]);
+  }
+}
@@ -0,0 +1,344 @@
+package com.nus;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * Hash map from rotations to values, bucketing rotations at a fixed angular
+ * resolution, for caching results computed per orientation. The key of a
+ * rotation is its encoding by a {@link QuaternionQuantizer}, which is the
+ * same for {@code q}, {@code -q} and any multiple of them, and for all
+ * rotations in the same quantization cell. Two rotations sharing a key are
+ * within the resolution of each other; rotations much closer than the
+ * resolution can still get different keys when they straddle a cell border.
+ *
+ * <p>Keys are {@code long} values stored in an open addressing table with
+ * linear probing, so lookups neither box keys nor allocate. Null values are
+ * not allowed. Maps are not thread-safe
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ * @param <V> The type of the values
+ */
+public final class OrientationMap<V> {
+  public static final String NULL_VALUE_MSG =
+    "Orientation maps cannot hold null values";
+  public static final String ZERO_QUATERNION_MSG =
+    "A zero quaternion is not a rotation";
+  public static final String INVALID_CAPACITY_MSG =
+    "Expected size must be non-negative and at most 2^29";
+
+  private static final int MIN_CAPACITY = 16;
+  private static final int MAX_EXPECTED_SIZE = 1 << 29;
+
+  private final QuaternionQuantizer quantizer;
+  private long[] keys;
+  // A slot is empty if and only if its value is null
+  private Object[] values;
+  private int size;
+
+  /**
+   * Constructs an empty map
+   *
+   * @param resolutionRad The largest angle in radians between two rotations
+   *                      sharing a key
+   * @throws IllegalArgumentException if {@code resolutionRad} is not
+   *                                  achievable by a quantizer
+   * @see QuaternionQuantizer#forResolution(double)
+   */
+  public OrientationMap(double resolutionRad)
+      throws IllegalArgumentException {
+    this(QuaternionQuantizer.forResolution(resolutionRad), 0);
+  }
+
+  /**
+   * Constructs an empty map
+   *
+   * @param quantizer The quantizer computing the keys
+   * @param expectedSize The number of entries the map holds without resizing
+   * @throws IllegalArgumentException if {@code expectedSize} is negative or
+   *                                  too large
+   */
+  public OrientationMap(final QuaternionQuantizer quantizer,
+      int expectedSize) throws IllegalArgumentException {
+    if (expectedSize < 0 || expectedSize > MAX_EXPECTED_SIZE) {
+      throw new IllegalArgumentException(INVALID_CAPACITY_MSG);
+    }
+    this.quantizer = quantizer;
+    int capacity = MIN_CAPACITY;
+    // Keeps the load factor at most 1/2
+    while (capacity < 2 * expectedSize) {
+      capacity <<= 1;
+    }
+    this.keys = new long[capacity];
+    this.values = new Object[capacity];
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Getters
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Gets the quantizer computing the keys
+   *
+   * @return The quantizer
+   */
+  public QuaternionQuantizer getQuantizer() {
+    return quantizer;
+  }
+
+  /**
+   * Gets the number of entries
+   *
+   * @return The number of entries
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Checks if the map has no entries
+   *
+   * @return true if the map has no entries
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Computes the key of a rotation
+   *
+   * @param q The rotation, which need not be normalized
+   * @return The key, which is the same for {@code q} and {@code -q}
+   * @throws IllegalArgumentException if {@code q} is zero
+   */
+  public long key(final Quaternion q) throws IllegalArgumentException {
+    if (!(q.squaredNorm() > 0.0)) {
+      throw new IllegalArgumentException(ZERO_QUATERNION_MSG);
+    }
+    return quantizer.encode(q);
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Map operations
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Gets the value of the cell of a rotation
+   *
+   * @param q The rotation
+   * @return The value, or null if the cell has none
+   * @throws IllegalArgumentException if {@code q} is zero
+   */
+  public V get(final Quaternion q) throws IllegalArgumentException {
+    return get(key(q));
+  }
+
+  /**
+   * Gets the value of a key
+   *
+   * @param key A key returned by {@link #key(Quaternion)}
+   * @return The value, or null if the key has none
+   */
+  @SuppressWarnings("unchecked")
+  public V get(long key) {
+    int slot = find(key);
+    return slot >= 0 ? (V) values[slot] : null;
+  }
+
+  /**
+   * Checks if the cell of a rotation has a value
+   *
+   * @param q The rotation
+   * @return true if the cell has a value
+   * @throws IllegalArgumentException if {@code q} is zero
+   */
+  public boolean containsKey(final Quaternion q)
+      throws IllegalArgumentException {
+    return find(key(q)) >= 0;
+  }
+
+  /**
+   * Sets the value of the cell of a rotation
+   *
+   * @param q The rotation
+   * @param value The new value
+   * @return The previous value, or null if the cell had none
+   * @throws IllegalArgumentException if {@code q} is zero or {@code value}
+   *                                  is null
+   */
+  public V put(final Quaternion q, final V value)
+      throws IllegalArgumentException {
+    return put(key(q), value);
+  }
+
+  /**
+   * Sets the value of a key
+   *
+   * @param key A key returned by {@link #key(Quaternion)}
+   * @param value The new value
+   * @return The previous value, or null if the key had none
+   * @throws IllegalArgumentException if {@code value} is null
+   */
+  @SuppressWarnings("unchecked")
+  public V put(long key, final V value) throws IllegalArgumentException {
+    if (value == null) {
+      throw new IllegalArgumentException(NULL_VALUE_MSG);
+    }
+    int slot = find(key);
+    if (slot >= 0) {
+      V previous = (V) values[slot];
+      values[slot] = value;
+      return previous;
+    }
+    insert(~slot, key, value);
+    return null;
+  }
+
+  /**
+   * Gets the value of the cell of a rotation, computing and storing it first
+   * if the cell has none. The function receives the center of the cell
+   * rather than {@code q}, so the value does not depend on which rotation of
+   * the cell is looked up first
+   *
+   * @param q The rotation
+   * @param function The function computing the value of a cell from its
+   *                 center, as a unit quaternion
+   * @return The value of the cell
+   * @throws IllegalArgumentException if {@code q} is zero or
+   *                                  {@code function} returns null
+   */
+  @SuppressWarnings("unchecked")
+  public V computeIfAbsent(final Quaternion q,
+      final Function<? super Quaternion, ? extends V> function)
+      throws IllegalArgumentException {
+    long key = key(q);
+    int slot = find(key);
+    if (slot >= 0) {
+      return (V) values[slot];
+    }
+    Quaternion center = new Quaternion();
+    quantizer.decode(key, center);
+    V value = function.apply(center);
+    if (value == null) {
+      throw new IllegalArgumentException(NULL_VALUE_MSG);
+    }
+    // The function may have modified the map
+    slot = find(key);
+    if (slot >= 0) {
+      values[slot] = value;
+    } else {
+      insert(~slot, key, value);
+    }
+    return value;
+  }
+
+  /**
+   * Removes the value of the cell of a rotation
+   *
+   * @param q The rotation
+   * @return The removed value, or null if the cell had none
+   * @throws IllegalArgumentException if {@code q} is zero
+   */
+  public V remove(final Quaternion q) throws IllegalArgumentException {
+    return remove(key(q));
+  }
+
+  /**
+   * Removes the value of a key
+   *
+   * @param key A key returned by {@link #key(Quaternion)}
+   * @return The removed value, or null if the key had none
+   */
+  @SuppressWarnings("unchecked")
+  public V remove(long key) {
+    int slot = find(key);
+    if (slot < 0) {
+      return null;
+    }
+    V previous = (V) values[slot];
+    // Backward shift deletion: moves back the entries of the probe sequence
+    // after the slot, so that lookups never need tombstones
+    int mask = keys.length - 1;
+    int hole = slot;
+    for (int i = (slot + 1) & mask; values[i] != null; i = (i + 1) & mask) {
+      int home = hash(keys[i]) & mask;
+      // Moves entry i to the hole if its home is not in (hole, i]
+      if (((i - home) & mask) >= ((i - hole) & mask)) {
+        keys[hole] = keys[i];
+        values[hole] = values[i];
+        hole = i;
+      }
+    }
+    values[hole] = null;
+    --size;
+    return previous;
+  }
+
+  /**
+   * Removes all entries
+   */
+  public void clear() {
+    Arrays.fill(values, null);
+    size = 0;
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Private methods
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Mixes the bits of a key, with the finalizer of MurmurHash3
+   */
+  private static int hash(long key) {
+    key ^= key >>> 33;
+    key *= 0xff51afd7ed558ccdL;
+    key ^= key >>> 33;
+    key *= 0xc4ceb9fe1a85ec53L;
+    key ^= key >>> 33;
+    return (int) key;
+  }
+
+  /**
+   * Returns the slot of a key, or {@code ~slot} for the empty slot where it
+   * would be inserted
+   */
+  private int find(long key) {
+    int mask = keys.length - 1;
+    int i = hash(key) & mask;
+    while (values[i] != null) {
+      if (keys[i] == key) {
+        return i;
+      }
+      i = (i + 1) & mask;
+    }
+    return ~i;
+  }
+
+  private void insert(int slot, long key, final Object value) {
+    keys[slot] = key;
+    values[slot] = value;
+    if (++size > keys.length / 2) {
+      resize();
+    }
+  }
+
+  private void resize() {
+    long[] oldKeys = keys;
+    Object[] oldValues = values;
+    keys = new long[2 * oldKeys.length];
+    values = new Object[2 * oldValues.length];
+    for (int i = 0; i < oldKeys.length; ++i) {
+      if (oldValues[i] != null) {
+        int slot = ~find(oldKeys[i]);
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+      }
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package com.nus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of {@link OrientationMap} lookups against a
+ * {@link HashMap} with boxed quantized keys, and of
+ * {@link Quaternion#hashCode()}. Every operation looks up {@code QUERIES}
+ * rotations, each near one of {@code size} cached rotations
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OrientationMapBenchmark {
+  private static final int QUERIES = 4096;
+  private static final double RESOLUTION = 0.01;
+
+  @Param({"100000"})
+  public int size;
+
+  private Quaternion[] queries;
+  private OrientationMap<Integer> map;
+  private Map<Long, Integer> hashMap;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(QuaternionBenchmark.SEED);
+    map = new OrientationMap<>(RESOLUTION);
+    hashMap = new HashMap<>();
+    Quaternion[] cached = new Quaternion[size];
+    for (int i = 0; i < size; ++i) {
+      cached[i] = QuaternionBenchmark.randomUnitQuaternion(random);
+      map.put(cached[i], i);
+      hashMap.put(map.key(cached[i]), i);
+    }
+    queries = new Quaternion[QUERIES];
+    for (int i = 0; i < QUERIES; ++i) {
+      Quaternion q = new Quaternion(cached[random.nextInt(size)]);
+      q.multiplyEq(random.nextBoolean() ? -1.0 : 1.0);
+      queries[i] = q;
+    }
+  }
+
+  @Benchmark
+  public int orientationMapGet() {
+    int sum = 0;
+    for (Quaternion q : queries) {
+      sum += map.get(q);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public int hashMapGet() {
+    int sum = 0;
+    for (Quaternion q : queries) {
+      sum += hashMap.get(map.key(q));
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public int quaternionHashCode() {
+    int sum = 0;
+    for (Quaternion q : queries) {
+      sum += q.hashCode();
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,178 @@
+package com.nus;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import static com.nus.QuaternionTestUtils.angleBetween;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class OrientationMapTest {
+
+  private static Quaternion randomQuaternion(Random random) {
+    return new Quaternion(random.nextGaussian(), random.nextGaussian(),
+      random.nextGaussian(), random.nextGaussian());
+  }
+
+  @Test
+  public void testEquivalentQuaternionsShareKeys() {
+    Random random = new Random(1);
+    OrientationMap<String> map = new OrientationMap<>(1e-3);
+    for (int i = 0; i < 1000; ++i) {
+      Quaternion q = randomQuaternion(random);
+      long key = map.key(q);
+      assertEquals(map.key(q.multiply(-1.0)), key);
+      assertEquals(map.key(q.multiply(7.5)), key);
+    }
+  }
+
+  @Test
+  public void testKeysBucketAtResolution() {
+    Random random = new Random(2);
+    double resolution = 0.01;
+    OrientationMap<String> map = new OrientationMap<>(resolution);
+    int shared = 0;
+    for (int i = 0; i < 10000; ++i) {
+      Quaternion p = randomQuaternion(random);
+      double[] axis = {random.nextGaussian(), random.nextGaussian(),
+        random.nextGaussian()};
+      Quaternion q = p.multiply(Quaternion.fromAxisAngleRad(axis,
+        0.01 * resolution));
+      if (map.key(p) == map.key(q)) {
+        ++shared;
+      }
+    }
+    // Only rotations straddling a cell border get different keys
+    assertTrue(shared > 9000);
+
+    // Rotations sharing a key are within the resolution
+    for (int i = 0; i < 10000; ++i) {
+      Quaternion p = randomQuaternion(random);
+      Quaternion center = new Quaternion();
+      map.getQuantizer().decode(map.key(p), center);
+      assertTrue(angleBetween(p, center) <= resolution / 2.0);
+    }
+  }
+
+  @Test
+  public void testMatchesHashMap() {
+    Random random = new Random(3);
+    OrientationMap<Integer> map =
+      new OrientationMap<>(QuaternionQuantizer.BITS_32, 0);
+    Map<Long, Integer> expected = new HashMap<>();
+    // Few distinct rotations, so that operations often hit existing keys
+    Quaternion[] rotations = new Quaternion[500];
+    for (int i = 0; i < rotations.length; ++i) {
+      rotations[i] = randomQuaternion(random);
+    }
+    for (int step = 0; step < 20000; ++step) {
+      Quaternion q = rotations[random.nextInt(rotations.length)];
+      long key = map.key(q);
+      switch (random.nextInt(3)) {
+        case 0:
+          assertEquals(map.put(q, step), expected.put(key, step));
+          break;
+        case 1:
+          assertEquals(map.remove(q), expected.remove(key));
+          break;
+        default:
+          assertEquals(map.get(q), expected.get(key));
+          assertEquals(map.containsKey(q), expected.containsKey(key));
+          break;
+      }
+      assertEquals(map.size(), expected.size());
+    }
+    for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+      assertEquals(map.get(entry.getKey()), entry.getValue());
+    }
+
+    map.clear();
+    assertTrue(map.isEmpty());
+    for (Quaternion q : rotations) {
+      assertNull(map.get(q));
+    }
+  }
+
+  @Test
+  public void testComputeIfAbsentMemoizesPerCell() {
+    OrientationMap<Quaternion> map = new OrientationMap<>(0.02);
+    int[] calls = new int[1];
+    Quaternion q = new Quaternion(0.1, 0.2, 0.3, 0.9);
+    Quaternion first = map.computeIfAbsent(q, center -> {
+      ++calls[0];
+      return new Quaternion(center);
+    });
+    assertEquals(calls[0], 1);
+    assertTrue(angleBetween(first, q) <= 0.01);
+    assertEquals(first.norm(), 1.0, 1e-6);
+
+    // Same cell: no new call, and the cached value is returned
+    Quaternion again = map.computeIfAbsent(q.multiply(-2.0), center -> {
+      ++calls[0];
+      return center;
+    });
+    assertEquals(calls[0], 1);
+    assertSame(again, first);
+    assertEquals(map.size(), 1);
+  }
+
+  @Test
+  public void testGrowth() {
+    Random random = new Random(4);
+    OrientationMap<Integer> map =
+      new OrientationMap<>(QuaternionQuantizer.BITS_64, 0);
+    Quaternion[] rotations = new Quaternion[10000];
+    for (int i = 0; i < rotations.length; ++i) {
+      rotations[i] = randomQuaternion(random);
+      map.put(rotations[i], i);
+    }
+    assertEquals(map.size(), rotations.length);
+    for (int i = 0; i < rotations.length; ++i) {
+      assertEquals(map.get(rotations[i]), Integer.valueOf(i));
+    }
+    for (int i = 0; i < rotations.length; i += 2) {
+      assertEquals(map.remove(rotations[i]), Integer.valueOf(i));
+    }
+    for (int i = 0; i < rotations.length; ++i) {
+      assertEquals(map.containsKey(rotations[i]), i % 2 == 1);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPutWithNullValue() {
+    new OrientationMap<String>(0.01).put(new Quaternion(), null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testComputeIfAbsentWithNullValue() {
+    OrientationMap<String> map = new OrientationMap<>(0.01);
+    try {
+      map.computeIfAbsent(new Quaternion(), center -> null);
+    } finally {
+      // Nothing is inserted for the rejected value
+      assertFalse(map.containsKey(new Quaternion()));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetWithZeroQuaternion() {
+    new OrientationMap<String>(0.01).get(new Quaternion(0.0, 0.0, 0.0, 0.0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructWithNegativeCapacity() {
+    new OrientationMap<String>(QuaternionQuantizer.BITS_32, -1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructWithInvalidResolution() {
+    new OrientationMap<String>(0.0);
+  }
+}
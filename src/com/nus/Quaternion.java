@@ -23,6 +23,16 @@ public class Quaternion implements Serializable {
     "Logarithm of zero quaternion is undefined";
   public static final String INVALID_INTERPOLATION_PARAM =
     "Interpolation parameter must be between 0 and 1 inclusively";
+  /**
+   * When the cosine of the angle between the two end points of a slerp
+   * exceeds this value, the interpolation falls back to normalized linear
+   * interpolation, which is indistinguishable at that range and avoids
+   * dividing by a vanishing sine
+   */
+  public static final double SLERP_LINEAR_THRESHOLD = 0.9995;
+  public static final String INVALID_BATCH_RANGE_MSG =
+    "Batch range must have a non-negative count, a stride of at least 3 " +
+    "and fit inside the array";
 
   //////////////////////////////////////////////////////////
   //
@@ -100,6 +110,30 @@ public class Quaternion implements Serializable {
     return w;
   }
 
+  /**
+   * Sets all components of this quaternion
+   *
+   * @param x the x coordinate
+   * @param y the y coordinate
+   * @param z the z coordinate
+   * @param w the scalar component
+   */
+  public final void set(double x, double y, double z, double w) {
+    this.x = x;
+    this.y = y;
+    this.z = z;
+    this.w = w;
+  }
+
+  /**
+   * Sets this quaternion to a copy of the input quaternion
+   *
+   * @param another the Quaternion to be copied
+   */
+  public final void set(final Quaternion another) {
+    this.set(another.x, another.y, another.z, another.w);
+  }
+
   /**
    * Gets the vector component (x, y, z) of this quaternion
    *
@@ -268,6 +302,19 @@ public class Quaternion implements Serializable {
   //
   /////////////////////////////////////////////////////////
 
+  /**
+   * Computes the dot product of this quaternion and the input quaternion, that
+   * is the sum of the products of corresponding components. For unit
+   * quaternions it is the cosine of half the angle between the two rotations,
+   * up to sign
+   *
+   * @param another The other quaternion involving in the dot product
+   * @return The dot product
+   */
+  public final double dot(final Quaternion another) {
+    return x * another.x + y * another.y + z * another.z + w * another.w;
+  }
+
   /**
    * Gets the conjugate of this quaternion
    *
@@ -519,17 +566,177 @@ public class Quaternion implements Serializable {
       throw new IllegalArgumentException("Input must be an array of size 3");
     }
 
-    double[][] rotationMat = this.getRotationMatrix();
     double[] imageVector = new double[3];
+    this.rotate(vector, 0, imageVector, 0);
+    return imageVector;
+  }
 
-    for (int r = 0; r < 3; r++) {
-      imageVector[r] = 0.0;
-      for (int c = 0; c < 3; c++) {
-        imageVector[r] += rotationMat[r][c] * vector[c];
-      }
+  /**
+   * Rotates the 3D vector stored at {@code in[inOff .. inOff + 2]} by the
+   * rotation represented by the normalized version of this quaternion, and
+   * writes the image to {@code out[outOff .. outOff + 2]}. No temporary
+   * objects are allocated. {@code in} and {@code out} may be the same array,
+   * even with overlapping offsets
+   *
+   * @param in The array containing the input vector
+   * @param inOff The index of the x-coordinate of the input vector
+   * @param out The array receiving the image vector
+   * @param outOff The index at which the x-coordinate of the image is written
+   * @throws ArrayIndexOutOfBoundsException if either array does not hold 3
+   *         elements from the given offset
+   */
+  public final void rotate(
+      final double[] in, int inOff, final double[] out, int outOff) {
+    rotateScaled(in, inOff, out, outOff, 2.0 / this.squaredNorm());
+  }
+
+  /**
+   * Same as {@link #rotate(double[], int, double[], int)}, but assumes this
+   * quaternion is a unit quaternion and skips the division by its squared
+   * norm. The result is not a pure rotation if this quaternion is not unit
+   *
+   * @param in The array containing the input vector
+   * @param inOff The index of the x-coordinate of the input vector
+   * @param out The array receiving the image vector
+   * @param outOff The index at which the x-coordinate of the image is written
+   * @throws ArrayIndexOutOfBoundsException if either array does not hold 3
+   *         elements from the given offset
+   *
+   * @see #isUnit()
+   */
+  public final void rotateUnit(
+      final double[] in, int inOff, final double[] out, int outOff) {
+    rotateScaled(in, inOff, out, outOff, 2.0);
+  }
+
+  /**
+   * Rotates {@code count} 3D vectors packed in {@code in} by the rotation
+   * represented by the normalized version of this quaternion, and writes the
+   * images to {@code out}. Vector {@code i} is read from
+   * {@code in[inOff + i * inStride .. inOff + i * inStride + 2]} and written
+   * to {@code out[outOff + i * outStride .. outOff + i * outStride + 2]}, so a
+   * tightly packed xyzxyz... array has a stride of 3.
+   *
+   * <p>The rotation matrix is computed once per call and no objects are
+   * allocated, which makes this suitable for arrays of millions of points.
+   * {@code in} and {@code out} may be the same array provided that the
+   * offsets and strides are the same as well
+   *
+   * @param in The array containing the input vectors
+   * @param inOff The index of the x-coordinate of the first input vector
+   * @param inStride The distance between two consecutive input vectors
+   * @param out The array receiving the image vectors
+   * @param outOff The index of the x-coordinate of the first image vector
+   * @param outStride The distance between two consecutive image vectors
+   * @param count The number of vectors to rotate
+   * @throws IllegalArgumentException if {@code count} is negative, a stride
+   *         is less than 3, or a range does not fit inside its array
+   */
+  public final void rotate(final double[] in, int inOff, int inStride,
+      final double[] out, int outOff, int outStride, int count)
+      throws IllegalArgumentException {
+    checkBatchRange(in.length, inOff, inStride, count);
+    checkBatchRange(out.length, outOff, outStride, count);
+
+    double s = 2.0 / this.squaredNorm();
+    double xx = x * x;
+    double yy = y * y;
+    double zz = z * z;
+    double m00 = 1.0 - s * (yy + zz);
+    double m01 = s * (x * y - z * w);
+    double m02 = s * (x * z + y * w);
+    double m10 = s * (x * y + z * w);
+    double m11 = 1.0 - s * (xx + zz);
+    double m12 = s * (y * z - x * w);
+    double m20 = s * (x * z - y * w);
+    double m21 = s * (y * z + x * w);
+    double m22 = 1.0 - s * (xx + yy);
+
+    for (int i = 0; i < count; ++i) {
+      int src = inOff + i * inStride;
+      int dst = outOff + i * outStride;
+      double vx = in[src];
+      double vy = in[src + 1];
+      double vz = in[src + 2];
+      out[dst] = m00 * vx + m01 * vy + m02 * vz;
+      out[dst + 1] = m10 * vx + m11 * vy + m12 * vz;
+      out[dst + 2] = m20 * vx + m21 * vy + m22 * vz;
     }
+  }
 
-    return imageVector;
+  /**
+   * Single-precision version of
+   * {@link #rotate(double[], int, int, double[], int, int, int)}. The rotation
+   * matrix is computed in double precision and rounded to float once
+   *
+   * @param in The array containing the input vectors
+   * @param inOff The index of the x-coordinate of the first input vector
+   * @param inStride The distance between two consecutive input vectors
+   * @param out The array receiving the image vectors
+   * @param outOff The index of the x-coordinate of the first image vector
+   * @param outStride The distance between two consecutive image vectors
+   * @param count The number of vectors to rotate
+   * @throws IllegalArgumentException if {@code count} is negative, a stride
+   *         is less than 3, or a range does not fit inside its array
+   */
+  public final void rotate(final float[] in, int inOff, int inStride,
+      final float[] out, int outOff, int outStride, int count)
+      throws IllegalArgumentException {
+    checkBatchRange(in.length, inOff, inStride, count);
+    checkBatchRange(out.length, outOff, outStride, count);
+
+    double s = 2.0 / this.squaredNorm();
+    double xx = x * x;
+    double yy = y * y;
+    double zz = z * z;
+    float m00 = (float) (1.0 - s * (yy + zz));
+    float m01 = (float) (s * (x * y - z * w));
+    float m02 = (float) (s * (x * z + y * w));
+    float m10 = (float) (s * (x * y + z * w));
+    float m11 = (float) (1.0 - s * (xx + zz));
+    float m12 = (float) (s * (y * z - x * w));
+    float m20 = (float) (s * (x * z - y * w));
+    float m21 = (float) (s * (y * z + x * w));
+    float m22 = (float) (1.0 - s * (xx + yy));
+
+    for (int i = 0; i < count; ++i) {
+      int src = inOff + i * inStride;
+      int dst = outOff + i * outStride;
+      float vx = in[src];
+      float vy = in[src + 1];
+      float vz = in[src + 2];
+      out[dst] = m00 * vx + m01 * vy + m02 * vz;
+      out[dst + 1] = m10 * vx + m11 * vy + m12 * vz;
+      out[dst + 2] = m20 * vx + m21 * vy + m22 * vz;
+    }
+  }
+
+  /**
+   * Applies the rotation matrix of this quaternion, whose entries are
+   * expanded as {@code I + s * (...)} with {@code s = 2 / squaredNorm()}
+   */
+  private void rotateScaled(final double[] in, int inOff,
+      final double[] out, int outOff, double s) {
+    double vx = in[inOff];
+    double vy = in[inOff + 1];
+    double vz = in[inOff + 2];
+
+    double xx = x * x;
+    double yy = y * y;
+    double zz = z * z;
+    double xy = x * y;
+    double xz = x * z;
+    double yz = y * z;
+    double xw = x * w;
+    double yw = y * w;
+    double zw = z * w;
+
+    out[outOff] = (1.0 - s * (yy + zz)) * vx + s * (xy - zw) * vy +
+      s * (xz + yw) * vz;
+    out[outOff + 1] = s * (xy + zw) * vx + (1.0 - s * (xx + zz)) * vy +
+      s * (yz - xw) * vz;
+    out[outOff + 2] = s * (xz - yw) * vx + s * (yz + xw) * vy +
+      (1.0 - s * (xx + yy)) * vz;
   }
 
   //////////////////////////////////////////////////////////
@@ -584,21 +791,17 @@ public class Quaternion implements Serializable {
       throw new IllegalArgumentException(Quaternion.VECTOR_INVALID_LENGTH_MSG);
     }
 
-    // Normalize the input vector
+    // Normalize the input vector, leaving the caller's array untouched
     double vNorm = vectorNorm(axis);
     if (vNorm < EPSILON) {
       return new Quaternion();    // Identity Quaternion
     }
 
-    axis[0] /= vNorm;
-    axis[1] /= vNorm;
-    axis[2] /= vNorm;
-
     double halfAngle = angleInRad / 2.0;
     double sinTerm = Math.sin(halfAngle);
-    double x = axis[0] * sinTerm;
-    double y = axis[1] * sinTerm;
-    double z = axis[2] * sinTerm;
+    double x = axis[0] / vNorm * sinTerm;
+    double y = axis[1] / vNorm * sinTerm;
+    double z = axis[2] / vNorm * sinTerm;
     double w = Math.cos(halfAngle);
     return new Quaternion(x, y, z, w);
   }
@@ -655,20 +858,193 @@ public class Quaternion implements Serializable {
    */
   public static Quaternion lerp(Quaternion from, Quaternion to, double t)
       throws IllegalArgumentException {
-    if (t < -EPSILON || t > 1.0 + EPSILON) {
-      throw new IllegalArgumentException(
-        Quaternion.INVALID_INTERPOLATION_PARAM);
-    }
+    checkInterpolationParam(t);
 
     return from.multiply(1 - t).add(to.multiply(t));
   }
 
+  /**
+   * Interpolates spherically between the unit quaternions {@code from} and
+   * {@code to}, at constant angular velocity along the shorter of the two
+   * arcs between the rotations they represent. When the end points are
+   * nearly parallel (see {@link #SLERP_LINEAR_THRESHOLD}), normalized linear
+   * interpolation is used instead
+   *
+   * @param from The first Quaternion
+   * @param to The second Quaternion
+   * @param t Value indicating how far to interpolate between the two
+   *          Quaternions
+   * @return The resulting unit Quaternion for spherical interpolation
+   * @throws IllegalArgumentException if {@code t} is not between 0 and 1
+   *                                  inclusively
+   */
+  public static Quaternion slerp(Quaternion from, Quaternion to, double t)
+      throws IllegalArgumentException {
+    Quaternion result = new Quaternion();
+    slerp(from, to, t, result);
+    return result;
+  }
+
+  /**
+   * Same as {@link #slerp(Quaternion, Quaternion, double)}, but writes the
+   * result to {@code out} instead of allocating a new Quaternion. {@code out}
+   * may be {@code from} or {@code to}
+   *
+   * @param from The first Quaternion
+   * @param to The second Quaternion
+   * @param t Value indicating how far to interpolate between the two
+   *          Quaternions
+   * @param out The Quaternion receiving the result
+   * @throws IllegalArgumentException if {@code t} is not between 0 and 1
+   *                                  inclusively
+   */
+  public static void slerp(Quaternion from, Quaternion to, double t,
+      Quaternion out) throws IllegalArgumentException {
+    checkInterpolationParam(t);
+
+    double cos = from.dot(to);
+    // q and -q are the same rotation; take the shorter arc
+    double sign = 1.0;
+    if (cos < 0.0) {
+      cos = -cos;
+      sign = -1.0;
+    }
+
+    if (cos > SLERP_LINEAR_THRESHOLD) {
+      blend(from, to, 1.0 - t, sign * t, out);
+      return;
+    }
+
+    double theta = Math.acos(cos);
+    double invSin = 1.0 / Math.sin(theta);
+    blend(from, to, Math.sin((1.0 - t) * theta) * invSin,
+      sign * Math.sin(t * theta) * invSin, out);
+  }
+
+  /**
+   * Interpolates linearly between {@code from} and {@code to} along the
+   * shorter arc, and normalizes the result. This is cheaper than
+   * {@link #slerp(Quaternion, Quaternion, double)} and follows the same path,
+   * but not at constant angular velocity
+   *
+   * @param from The first Quaternion
+   * @param to The second Quaternion
+   * @param t Value indicating how far to interpolate between the two
+   *          Quaternions
+   * @return The resulting unit Quaternion for normalized linear interpolation
+   * @throws IllegalArgumentException if {@code t} is not between 0 and 1
+   *                                  inclusively
+   */
+  public static Quaternion nlerp(Quaternion from, Quaternion to, double t)
+      throws IllegalArgumentException {
+    Quaternion result = new Quaternion();
+    nlerp(from, to, t, result);
+    return result;
+  }
+
+  /**
+   * Same as {@link #nlerp(Quaternion, Quaternion, double)}, but writes the
+   * result to {@code out} instead of allocating a new Quaternion. {@code out}
+   * may be {@code from} or {@code to}
+   *
+   * @param from The first Quaternion
+   * @param to The second Quaternion
+   * @param t Value indicating how far to interpolate between the two
+   *          Quaternions
+   * @param out The Quaternion receiving the result
+   * @throws IllegalArgumentException if {@code t} is not between 0 and 1
+   *                                  inclusively
+   */
+  public static void nlerp(Quaternion from, Quaternion to, double t,
+      Quaternion out) throws IllegalArgumentException {
+    checkInterpolationParam(t);
+    double sign = from.dot(to) < 0.0 ? -1.0 : 1.0;
+    blend(from, to, 1.0 - t, sign * t, out);
+  }
+
+  /**
+   * Approximates {@link #slerp(Quaternion, Quaternion, double)} without any
+   * trigonometric function, by correcting the parameter of
+   * {@link #nlerp(Quaternion, Quaternion, double)} with a polynomial fitted
+   * to the slerp curve. Between unit quaternions the result deviates from
+   * slerp by less than 0.001 radian, which suits animation blending
+   *
+   * @param from The first Quaternion
+   * @param to The second Quaternion
+   * @param t Value indicating how far to interpolate between the two
+   *          Quaternions
+   * @return The resulting unit Quaternion
+   * @throws IllegalArgumentException if {@code t} is not between 0 and 1
+   *                                  inclusively
+   */
+  public static Quaternion slerpApprox(
+      Quaternion from, Quaternion to, double t)
+      throws IllegalArgumentException {
+    Quaternion result = new Quaternion();
+    slerpApprox(from, to, t, result);
+    return result;
+  }
+
+  /**
+   * Same as {@link #slerpApprox(Quaternion, Quaternion, double)}, but writes
+   * the result to {@code out} instead of allocating a new Quaternion.
+   * {@code out} may be {@code from} or {@code to}
+   *
+   * @param from The first Quaternion
+   * @param to The second Quaternion
+   * @param t Value indicating how far to interpolate between the two
+   *          Quaternions
+   * @param out The Quaternion receiving the result
+   * @throws IllegalArgumentException if {@code t} is not between 0 and 1
+   *                                  inclusively
+   */
+  public static void slerpApprox(Quaternion from, Quaternion to, double t,
+      Quaternion out) throws IllegalArgumentException {
+    checkInterpolationParam(t);
+
+    double cos = from.dot(to);
+    double sign = 1.0;
+    if (cos < 0.0) {
+      cos = -cos;
+      sign = -1.0;
+    }
+
+    // Polynomial fit of the slerp parameter as a function of the nlerp one,
+    // after "Approximating slerp" by A. Kapoulkine
+    double a = 1.0904 + cos * (-3.2452 + cos * (3.55645 - cos * 1.43519));
+    double b = 0.848013 + cos * (-1.06021 + cos * 0.215638);
+    double k = a * (t - 0.5) * (t - 0.5) + b;
+    double adjusted = t + t * (t - 0.5) * (t - 1.0) * k;
+    blend(from, to, 1.0 - adjusted, sign * adjusted, out);
+  }
+
   //////////////////////////////////////////////////////////
   //
   // Private static methods
   //
   /////////////////////////////////////////////////////////
 
+  static void checkInterpolationParam(double t)
+      throws IllegalArgumentException {
+    if (t < -EPSILON || t > 1.0 + EPSILON) {
+      throw new IllegalArgumentException(
+        Quaternion.INVALID_INTERPOLATION_PARAM);
+    }
+  }
+
+  /**
+   * Writes the normalized version of {@code wa * a + wb * b} to {@code out}
+   */
+  private static void blend(final Quaternion a, final Quaternion b,
+      double wa, double wb, final Quaternion out) {
+    double rx = wa * a.x + wb * b.x;
+    double ry = wa * a.y + wb * b.y;
+    double rz = wa * a.z + wb * b.z;
+    double rw = wa * a.w + wb * b.w;
+    double invNorm = 1.0 / Math.sqrt(rx * rx + ry * ry + rz * rz + rw * rw);
+    out.set(rx * invNorm, ry * invNorm, rz * invNorm, rw * invNorm);
+  }
+
   private static double degreeToRadian(double degree) {
     return Math.PI * degree / 180;
   }
@@ -677,6 +1053,24 @@ public class Quaternion implements Serializable {
     return radian / Math.PI * 180;
   }
 
+  /**
+   * Checks that {@code count} vectors of 3 elements, starting at {@code off}
+   * and {@code stride} elements apart, fit in an array of {@code length}
+   */
+  static void checkBatchRange(int length, int off, int stride, int count)
+      throws IllegalArgumentException {
+    if (count < 0 || stride < 3) {
+      throw new IllegalArgumentException(Quaternion.INVALID_BATCH_RANGE_MSG);
+    }
+    if (count == 0) {
+      return;
+    }
+    long last = (long) off + (long) (count - 1) * stride + 3;
+    if (off < 0 || last > length) {
+      throw new IllegalArgumentException(Quaternion.INVALID_BATCH_RANGE_MSG);
+    }
+  }
+
   private static double vectorNorm(final double[] vector) {
     double result = 0.0;
     for (int i = 0; i < vector.length; ++i) {
@@ -729,11 +1123,14 @@ public class Quaternion implements Serializable {
     int prime = 31;
     int result = 13;
 
-    double[] fields = new double[] {this.x, this.y, this.z, this.w};
-    for (int i = 0; i < fields.length; ++i) {
-      long temp = Double.doubleToLongBits(fields[i]);
-      result = prime * result + (int) (temp ^ (temp >>> 32));
-    }
+    long temp = Double.doubleToLongBits(this.x);
+    result = prime * result + (int) (temp ^ (temp >>> 32));
+    temp = Double.doubleToLongBits(this.y);
+    result = prime * result + (int) (temp ^ (temp >>> 32));
+    temp = Double.doubleToLongBits(this.z);
+    result = prime * result + (int) (temp ^ (temp >>> 32));
+    temp = Double.doubleToLongBits(this.w);
+    result = prime * result + (int) (temp ^ (temp >>> 32));
 
     return result;
   }
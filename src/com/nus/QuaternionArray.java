@@ -0,0 +1,484 @@
+package com.nus;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size array of quaternions stored as structure-of-arrays: the x, y,
+ * z and w components live in four separate primitive {@code double[]}
+ * arrays. This avoids the per-object overhead of {@code Quaternion[]} and lets
+ * bulk operations run as tight loops over contiguous memory.
+ *
+ * <p>Every bulk operation works on a half-open index range
+ * {@code [fromIndex, toIndex)} and produces exactly the same result as
+ * applying the corresponding {@link Quaternion} method to each element,
+ * which remains the reference implementation
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+public class QuaternionArray {
+  // Package-private so that the bulk kernels can work on the raw arrays
+  final double[] x;
+  final double[] y;
+  final double[] z;
+  final double[] w;
+
+  public static final String INVALID_INDEX_RANGE_MSG =
+    "Index range must satisfy 0 <= fromIndex <= toIndex <= size()";
+  public static final String SIZE_MISMATCH_MSG =
+    "Quaternion arrays must have the same size";
+
+  //////////////////////////////////////////////////////////
+  //
+  // Constructors, setters and getters
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Constructs an array of {@code size} identity quaternions
+   *
+   * @param size The number of quaternions
+   */
+  public QuaternionArray(int size) {
+    this.x = new double[size];
+    this.y = new double[size];
+    this.z = new double[size];
+    this.w = new double[size];
+    Arrays.fill(this.w, 1.0);
+  }
+
+  /**
+   * Constructs an array holding copies of the input quaternions
+   *
+   * @param quaternions The quaternions to be copied
+   */
+  public QuaternionArray(final Quaternion[] quaternions) {
+    this(quaternions.length);
+    for (int i = 0; i < quaternions.length; ++i) {
+      this.set(i, quaternions[i]);
+    }
+  }
+
+  /**
+   * Gets the number of quaternions in this array
+   *
+   * @return The number of quaternions
+   */
+  public int size() {
+    return w.length;
+  }
+
+  /**
+   * Gets the x-coordinate of the quaternion at {@code index}
+   *
+   * @param index The index of the quaternion
+   * @return The x-coordinate
+   */
+  public double getX(int index) {
+    return x[index];
+  }
+
+  /**
+   * Gets the y-coordinate of the quaternion at {@code index}
+   *
+   * @param index The index of the quaternion
+   * @return The y-coordinate
+   */
+  public double getY(int index) {
+    return y[index];
+  }
+
+  /**
+   * Gets the z-coordinate of the quaternion at {@code index}
+   *
+   * @param index The index of the quaternion
+   * @return The z-coordinate
+   */
+  public double getZ(int index) {
+    return z[index];
+  }
+
+  /**
+   * Gets the w-component (scalar component) of the quaternion at
+   * {@code index}
+   *
+   * @param index The index of the quaternion
+   * @return The w-component
+   */
+  public double getW(int index) {
+    return w[index];
+  }
+
+  /**
+   * Gets a copy of the quaternion at {@code index}
+   *
+   * @param index The index of the quaternion
+   * @return A new Quaternion equal to the element at {@code index}
+   */
+  public Quaternion get(int index) {
+    return new Quaternion(x[index], y[index], z[index], w[index]);
+  }
+
+  /**
+   * Sets the quaternion at {@code index}
+   *
+   * @param index The index of the quaternion
+   * @param x the x coordinate
+   * @param y the y coordinate
+   * @param z the z coordinate
+   * @param w the scalar component
+   */
+  public void set(int index, double x, double y, double z, double w) {
+    this.x[index] = x;
+    this.y[index] = y;
+    this.z[index] = z;
+    this.w[index] = w;
+  }
+
+  /**
+   * Sets the quaternion at {@code index} to a copy of the input quaternion
+   *
+   * @param index The index of the quaternion
+   * @param q The quaternion to be copied
+   */
+  public void set(int index, final Quaternion q) {
+    this.set(index, q.getX(), q.getY(), q.getZ(), q.getW());
+  }
+
+  /**
+   * Converts this array to an array of Quaternion objects
+   *
+   * @return A new array with a copy of every quaternion in this array
+   */
+  public Quaternion[] toArray() {
+    Quaternion[] result = new Quaternion[this.size()];
+    for (int i = 0; i < result.length; ++i) {
+      result[i] = this.get(i);
+    }
+    return result;
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Bulk normalization
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Computes the norm of every quaternion in {@code [fromIndex, toIndex)}.
+   * The norm of element {@code i} is written to
+   * {@code out[outOff + i - fromIndex]}
+   *
+   * @param out The array receiving the norms
+   * @param outOff The index at which the first norm is written
+   * @param fromIndex The index of the first quaternion, inclusive
+   * @param toIndex The index of the last quaternion, exclusive
+   * @throws IllegalArgumentException if the index range is invalid
+   *
+   * @see Quaternion#norm()
+   */
+  public void norm(final double[] out, int outOff, int fromIndex, int toIndex)
+      throws IllegalArgumentException {
+    checkRange(fromIndex, toIndex);
+    for (int i = fromIndex; i < toIndex; ++i) {
+      out[outOff + i - fromIndex] =
+        Math.sqrt(x[i] * x[i] + y[i] * y[i] + z[i] * z[i] + w[i] * w[i]);
+    }
+  }
+
+  /**
+   * Normalizes every quaternion in {@code [fromIndex, toIndex)} so that it
+   * has norm 1
+   *
+   * @param fromIndex The index of the first quaternion, inclusive
+   * @param toIndex The index of the last quaternion, exclusive
+   * @throws IllegalArgumentException if the index range is invalid
+   *
+   * @see Quaternion#normalize()
+   */
+  public void normalize(int fromIndex, int toIndex)
+      throws IllegalArgumentException {
+    checkRange(fromIndex, toIndex);
+    for (int i = fromIndex; i < toIndex; ++i) {
+      double qNorm =
+        Math.sqrt(x[i] * x[i] + y[i] * y[i] + z[i] * z[i] + w[i] * w[i]);
+      x[i] /= qNorm;
+      y[i] /= qNorm;
+      z[i] /= qNorm;
+      w[i] /= qNorm;
+    }
+  }
+
+  /**
+   * Normalizes every quaternion in this array so that it has norm 1
+   */
+  public void normalize() {
+    this.normalize(0, this.size());
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Bulk arithmetics
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Replaces every quaternion in {@code [fromIndex, toIndex)} by its
+   * conjugate
+   *
+   * @param fromIndex The index of the first quaternion, inclusive
+   * @param toIndex The index of the last quaternion, exclusive
+   * @throws IllegalArgumentException if the index range is invalid
+   *
+   * @see Quaternion#conjugateEq()
+   */
+  public void conjugateEq(int fromIndex, int toIndex)
+      throws IllegalArgumentException {
+    checkRange(fromIndex, toIndex);
+    for (int i = fromIndex; i < toIndex; ++i) {
+      x[i] = -x[i];
+      y[i] = -y[i];
+      z[i] = -z[i];
+    }
+  }
+
+  /**
+   * Replaces every quaternion in this array by its conjugate
+   */
+  public void conjugateEq() {
+    this.conjugateEq(0, this.size());
+  }
+
+  /**
+   * Inverts every quaternion in {@code [fromIndex, toIndex)}
+   *
+   * @param fromIndex The index of the first quaternion, inclusive
+   * @param toIndex The index of the last quaternion, exclusive
+   * @throws IllegalArgumentException if the index range is invalid
+   *
+   * @see Quaternion#invert()
+   */
+  public void invert(int fromIndex, int toIndex)
+      throws IllegalArgumentException {
+    checkRange(fromIndex, toIndex);
+    for (int i = fromIndex; i < toIndex; ++i) {
+      double factor =
+        1.0 / (x[i] * x[i] + y[i] * y[i] + z[i] * z[i] + w[i] * w[i]);
+      x[i] = -x[i] * factor;
+      y[i] = -y[i] * factor;
+      z[i] = -z[i] * factor;
+      w[i] = w[i] * factor;
+    }
+  }
+
+  /**
+   * Inverts every quaternion in this array
+   */
+  public void invert() {
+    this.invert(0, this.size());
+  }
+
+  /**
+   * Multiplies every quaternion in {@code [fromIndex, toIndex)} with the
+   * quaternion at the same index of {@code another}, that is
+   * {@code this[i] = this[i] * another[i]}
+   *
+   * @param another The right-hand operands of the multiplications
+   * @param fromIndex The index of the first quaternion, inclusive
+   * @param toIndex The index of the last quaternion, exclusive
+   * @throws IllegalArgumentException if the index range is invalid for
+   *         either array
+   *
+   * @see Quaternion#multiplyEq(Quaternion)
+   */
+  public void multiplyEq(
+      final QuaternionArray another, int fromIndex, int toIndex)
+      throws IllegalArgumentException {
+    checkRange(fromIndex, toIndex);
+    another.checkRange(fromIndex, toIndex);
+    double[] ax = another.x;
+    double[] ay = another.y;
+    double[] az = another.z;
+    double[] aw = another.w;
+    for (int i = fromIndex; i < toIndex; ++i) {
+      double newW = aw[i] * w[i] - ax[i] * x[i] - ay[i] * y[i] - az[i] * z[i];
+      double newX = aw[i] * x[i] + ax[i] * w[i] - ay[i] * z[i] + az[i] * y[i];
+      double newY = aw[i] * y[i] + ax[i] * z[i] + ay[i] * w[i] - az[i] * x[i];
+      double newZ = aw[i] * z[i] - ax[i] * y[i] + ay[i] * x[i] + az[i] * w[i];
+      w[i] = newW;
+      x[i] = newX;
+      y[i] = newY;
+      z[i] = newZ;
+    }
+  }
+
+  /**
+   * Multiplies every quaternion in this array with the quaternion at the
+   * same index of {@code another}
+   *
+   * @param another The right-hand operands of the multiplications
+   * @throws IllegalArgumentException if the arrays differ in size
+   */
+  public void multiplyEq(final QuaternionArray another)
+      throws IllegalArgumentException {
+    if (another.size() != this.size()) {
+      throw new IllegalArgumentException(SIZE_MISMATCH_MSG);
+    }
+    this.multiplyEq(another, 0, this.size());
+  }
+
+  /**
+   * Multiplies every quaternion in {@code [fromIndex, toIndex)} with the
+   * input quaternion, that is {@code this[i] = this[i] * another}
+   *
+   * @param another The right-hand operand of the multiplications
+   * @param fromIndex The index of the first quaternion, inclusive
+   * @param toIndex The index of the last quaternion, exclusive
+   * @throws IllegalArgumentException if the index range is invalid
+   *
+   * @see Quaternion#multiplyEq(Quaternion)
+   */
+  public void multiplyEq(final Quaternion another, int fromIndex, int toIndex)
+      throws IllegalArgumentException {
+    checkRange(fromIndex, toIndex);
+    double ax = another.getX();
+    double ay = another.getY();
+    double az = another.getZ();
+    double aw = another.getW();
+    for (int i = fromIndex; i < toIndex; ++i) {
+      double newW = aw * w[i] - ax * x[i] - ay * y[i] - az * z[i];
+      double newX = aw * x[i] + ax * w[i] - ay * z[i] + az * y[i];
+      double newY = aw * y[i] + ax * z[i] + ay * w[i] - az * x[i];
+      double newZ = aw * z[i] - ax * y[i] + ay * x[i] + az * w[i];
+      w[i] = newW;
+      x[i] = newX;
+      y[i] = newY;
+      z[i] = newZ;
+    }
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Bulk rotation
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Rotates one 3D vector per quaternion in {@code [fromIndex, toIndex)}:
+   * the vector at {@code in[inOff + k * inStride]} is rotated by quaternion
+   * {@code fromIndex + k} and its image is written to
+   * {@code out[outOff + k * outStride]}. No objects are allocated
+   *
+   * @param in The array containing the input vectors
+   * @param inOff The index of the x-coordinate of the first input vector
+   * @param inStride The distance between two consecutive input vectors
+   * @param out The array receiving the image vectors
+   * @param outOff The index of the x-coordinate of the first image vector
+   * @param outStride The distance between two consecutive image vectors
+   * @param fromIndex The index of the first quaternion, inclusive
+   * @param toIndex The index of the last quaternion, exclusive
+   * @throws IllegalArgumentException if the index range is invalid, or the
+   *         vector ranges do not fit inside their arrays
+   *
+   * @see Quaternion#rotate(double[], int, double[], int)
+   */
+  public void rotate(final double[] in, int inOff, int inStride,
+      final double[] out, int outOff, int outStride,
+      int fromIndex, int toIndex) throws IllegalArgumentException {
+    checkRange(fromIndex, toIndex);
+    int count = toIndex - fromIndex;
+    Quaternion.checkBatchRange(in.length, inOff, inStride, count);
+    Quaternion.checkBatchRange(out.length, outOff, outStride, count);
+
+    for (int k = 0; k < count; ++k) {
+      int i = fromIndex + k;
+      int src = inOff + k * inStride;
+      int dst = outOff + k * outStride;
+      double qx = x[i];
+      double qy = y[i];
+      double qz = z[i];
+      double qw = w[i];
+      double s = 2.0 / (qx * qx + qy * qy + qz * qz + qw * qw);
+      double xx = qx * qx;
+      double yy = qy * qy;
+      double zz = qz * qz;
+      double xy = qx * qy;
+      double xz = qx * qz;
+      double yz = qy * qz;
+      double xw = qx * qw;
+      double yw = qy * qw;
+      double zw = qz * qw;
+
+      double vx = in[src];
+      double vy = in[src + 1];
+      double vz = in[src + 2];
+      out[dst] = (1.0 - s * (yy + zz)) * vx + s * (xy - zw) * vy +
+        s * (xz + yw) * vz;
+      out[dst + 1] = s * (xy + zw) * vx + (1.0 - s * (xx + zz)) * vy +
+        s * (yz - xw) * vz;
+      out[dst + 2] = s * (xz - yw) * vx + s * (yz + xw) * vy +
+        (1.0 - s * (xx + yy)) * vz;
+    }
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Package-private methods
+  //
+  /////////////////////////////////////////////////////////
+
+  void checkRange(int fromIndex, int toIndex)
+      throws IllegalArgumentException {
+    if (fromIndex < 0 || fromIndex > toIndex || toIndex > this.size()) {
+      throw new IllegalArgumentException(INVALID_INDEX_RANGE_MSG);
+    }
+  }
+
+  /**
+   * Sets the quaternion at {@code index} to the interpolation between
+   * {@code a[aIndex]} and {@code b[bIndex]}, taken along the shorter arc and
+   * normalized. With {@code spherical} the interpolation is slerp, with the
+   * same linear fallback as {@link Quaternion#slerp}, otherwise it is nlerp.
+   * The operands may be this array, even at {@code index}
+   */
+  void interpolate(int index, final QuaternionArray a, int aIndex,
+      final QuaternionArray b, int bIndex, double t, boolean spherical) {
+    double ax = a.x[aIndex];
+    double ay = a.y[aIndex];
+    double az = a.z[aIndex];
+    double aw = a.w[aIndex];
+    double bx = b.x[bIndex];
+    double by = b.y[bIndex];
+    double bz = b.z[bIndex];
+    double bw = b.w[bIndex];
+
+    double cos = ax * bx + ay * by + az * bz + aw * bw;
+    // q and -q are the same rotation; take the shorter arc
+    double sign = 1.0;
+    if (cos < 0.0) {
+      cos = -cos;
+      sign = -1.0;
+    }
+
+    double wa;
+    double wb;
+    if (!spherical || cos > Quaternion.SLERP_LINEAR_THRESHOLD) {
+      wa = 1.0 - t;
+      wb = sign * t;
+    } else {
+      double theta = Math.acos(cos);
+      double invSin = 1.0 / Math.sin(theta);
+      wa = Math.sin((1.0 - t) * theta) * invSin;
+      wb = sign * Math.sin(t * theta) * invSin;
+    }
+
+    double rx = wa * ax + wb * bx;
+    double ry = wa * ay + wb * by;
+    double rz = wa * az + wb * bz;
+    double rw = wa * aw + wb * bw;
+    double invNorm = 1.0 / Math.sqrt(rx * rx + ry * ry + rz * rz + rw * rw);
+    this.x[index] = rx * invNorm;
+    this.y[index] = ry * invNorm;
+    this.z[index] = rz * invNorm;
+    this.w[index] = rw * invNorm;
+  }
+}
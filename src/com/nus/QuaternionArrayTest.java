@@ -0,0 +1,152 @@
+package com.nus;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import static com.nus.QuaternionTest.EPSILON;
+import static com.nus.QuaternionTest.assertQuaternionEquals;
+
+public class QuaternionArrayTest {
+
+  private static Quaternion[] sampleQuaternions() {
+    return new Quaternion[] {
+      new Quaternion(0.0, 1.0, 0.0, 1.0),
+      new Quaternion(0.5, 0.5, 0.75, 1.0),
+      new Quaternion(2.0, -1.0, -3.0, 0.0),
+      new Quaternion(1.23, 5.12, 124, -1231.0),
+      new Quaternion(),
+    };
+  }
+
+  @Test
+  public void testConstructorWithSize() {
+    QuaternionArray array = new QuaternionArray(3);
+    assertEquals(array.size(), 3);
+    for (int i = 0; i < array.size(); ++i) {
+      assertQuaternionEquals(array.get(i), Quaternion.getIdentity());
+    }
+  }
+
+  @Test
+  public void testConversions() {
+    Quaternion[] quaternions = sampleQuaternions();
+    QuaternionArray array = new QuaternionArray(quaternions);
+    assertEquals(array.size(), quaternions.length);
+
+    Quaternion[] copies = array.toArray();
+    for (int i = 0; i < quaternions.length; ++i) {
+      assertQuaternionEquals(copies[i], quaternions[i]);
+      assertEquals(array.getX(i), quaternions[i].getX(), EPSILON);
+      assertEquals(array.getY(i), quaternions[i].getY(), EPSILON);
+      assertEquals(array.getZ(i), quaternions[i].getZ(), EPSILON);
+      assertEquals(array.getW(i), quaternions[i].getW(), EPSILON);
+    }
+
+    array.set(1, 1.0, 2.0, 3.0, 4.0);
+    assertQuaternionEquals(array.get(1), new Quaternion(1.0, 2.0, 3.0, 4.0));
+  }
+
+  @Test
+  public void testNorm() {
+    Quaternion[] quaternions = sampleQuaternions();
+    QuaternionArray array = new QuaternionArray(quaternions);
+    double[] norms = new double[quaternions.length + 1];
+    array.norm(norms, 1, 0, quaternions.length);
+    assertEquals(norms[0], 0.0, EPSILON);
+    for (int i = 0; i < quaternions.length; ++i) {
+      assertEquals(norms[i + 1], quaternions[i].norm(), EPSILON);
+    }
+  }
+
+  @Test
+  public void testNormalize() {
+    Quaternion[] quaternions = sampleQuaternions();
+    QuaternionArray array = new QuaternionArray(quaternions);
+    array.normalize(1, 3);
+    assertQuaternionEquals(array.get(0), quaternions[0]);
+    for (int i = 1; i < 3; ++i) {
+      quaternions[i].normalize();
+      assertQuaternionEquals(array.get(i), quaternions[i]);
+    }
+    assertQuaternionEquals(array.get(3), quaternions[3]);
+
+    array.normalize();
+    for (int i = 0; i < array.size(); ++i) {
+      assertEquals(array.get(i).norm(), 1.0, EPSILON);
+    }
+  }
+
+  @Test
+  public void testConjugateEq() {
+    Quaternion[] quaternions = sampleQuaternions();
+    QuaternionArray array = new QuaternionArray(quaternions);
+    array.conjugateEq();
+    for (int i = 0; i < quaternions.length; ++i) {
+      assertQuaternionEquals(array.get(i), quaternions[i].conjugate());
+    }
+  }
+
+  @Test
+  public void testInvert() {
+    Quaternion[] quaternions = sampleQuaternions();
+    QuaternionArray array = new QuaternionArray(quaternions);
+    array.invert();
+    for (int i = 0; i < quaternions.length; ++i) {
+      assertQuaternionEquals(array.get(i), quaternions[i].inverse());
+    }
+  }
+
+  @Test
+  public void testMultiplyEq() {
+    Quaternion[] quaternions = sampleQuaternions();
+    Quaternion[] others = new Quaternion[quaternions.length];
+    for (int i = 0; i < others.length; ++i) {
+      others[i] = new Quaternion(0.1 * i, -0.2, 0.3 * i, 1.0 + i);
+    }
+    QuaternionArray array = new QuaternionArray(quaternions);
+    array.multiplyEq(new QuaternionArray(others));
+    for (int i = 0; i < quaternions.length; ++i) {
+      assertQuaternionEquals(
+        array.get(i), quaternions[i].multiply(others[i]));
+    }
+
+    Quaternion q = new Quaternion(0.5, 0.5, 0.75, 1.0);
+    array = new QuaternionArray(quaternions);
+    array.multiplyEq(q, 0, 2);
+    for (int i = 0; i < 2; ++i) {
+      assertQuaternionEquals(array.get(i), quaternions[i].multiply(q));
+    }
+    assertQuaternionEquals(array.get(2), quaternions[2]);
+  }
+
+  @Test
+  public void testRotate() {
+    Quaternion[] quaternions = sampleQuaternions();
+    QuaternionArray array = new QuaternionArray(quaternions);
+    double[] in = new double[] {
+      1.0, 1.0, 1.0, 1.5, -2.0, 0.25, 0.0, 0.0, -3.0};
+    double[] out = new double[9];
+    array.rotate(in, 0, 3, out, 0, 3, 1, 4);
+
+    for (int k = 0; k < 3; ++k) {
+      double[] vector = new double[] {in[k * 3], in[k * 3 + 1], in[k * 3 + 2]};
+      double[] image = new double[] {
+        out[k * 3], out[k * 3 + 1], out[k * 3 + 2]};
+      assertArrayEquals(image, quaternions[k + 1].rotate(vector), EPSILON);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidRange() {
+    QuaternionArray array = new QuaternionArray(3);
+    array.normalize(2, 4);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMultiplyEqWithSizeMismatch() {
+    QuaternionArray array = new QuaternionArray(3);
+    array.multiplyEq(new QuaternionArray(2));
+  }
+}
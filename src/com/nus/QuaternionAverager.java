@@ -0,0 +1,318 @@
+package com.nus;
+
+/**
+ * Streaming weighted average of rotations, following Markley, Cheng,
+ * Crassidis and Oshman, "Averaging Quaternions" (2007). The average is the
+ * unit quaternion maximizing the weighted sum of squared dot products with
+ * the samples, which is the dominant eigenvector of the accumulated matrix
+ * {@code M = sum(w * q * q^T)}. Since {@code q * q^T} is the same for
+ * {@code q} and {@code -q}, the result does not depend on the signs of the
+ * samples, unlike component-wise averages and {@code lerp}.
+ *
+ * <p>Adding a sample costs O(1) and only updates the 10 distinct entries of
+ * the symmetric matrix {@code M}. Averagers built over disjoint parts of a
+ * data set, possibly by different threads, can be merged by adding their
+ * matrices. The eigenvector is only computed by {@link #average(Quaternion)},
+ * with Jacobi rotations on the 4x4 matrix, which converge even when the
+ * dominant eigenvalue is close to the others.
+ *
+ * <p>Averagers are not thread-safe
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+public final class QuaternionAverager {
+  public static final String INVALID_WEIGHT_MSG =
+    "Weights must be non-negative and finite";
+  public static final String ZERO_QUATERNION_MSG =
+    "Cannot average a zero quaternion";
+  public static final String EMPTY_AVERAGE_MSG =
+    "The average of samples with a zero total weight is undefined";
+
+  private static final int MAX_SWEEPS = 32;
+
+  // Upper triangle of M, in (x, y, z, w) order
+  private double mxx, mxy, mxz, mxw, myy, myz, myw, mzz, mzw, mww;
+  private double totalWeight;
+  private long count;
+
+  // Scratch space of the eigen solver, in row-major order
+  private final double[] a = new double[16];
+  private final double[] v = new double[16];
+
+  /**
+   * Constructs an averager with no samples
+   */
+  public QuaternionAverager() {
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Getters
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Gets the number of samples added, including those of merged averagers
+   *
+   * @return The number of samples
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Gets the sum of the weights of the samples
+   *
+   * @return The total weight
+   */
+  public double getTotalWeight() {
+    return totalWeight;
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Accumulation
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Adds a sample of weight 1
+   *
+   * @param q The sample, which is normalized before being added
+   * @throws IllegalArgumentException if {@code q} is zero
+   */
+  public void add(final Quaternion q) throws IllegalArgumentException {
+    add(q.getX(), q.getY(), q.getZ(), q.getW(), 1.0);
+  }
+
+  /**
+   * Adds a weighted sample
+   *
+   * @param q The sample, which is normalized before being added
+   * @param weight The weight of the sample
+   * @throws IllegalArgumentException if {@code q} is zero or {@code weight}
+   *                                  is negative or not finite
+   */
+  public void add(final Quaternion q, double weight)
+      throws IllegalArgumentException {
+    add(q.getX(), q.getY(), q.getZ(), q.getW(), weight);
+  }
+
+  /**
+   * Adds the samples {@code [from, to)} of an array, each of weight 1
+   *
+   * @param src The array of samples, which are normalized before being added
+   * @param from The first sample, inclusive
+   * @param to The last sample, exclusive
+   * @throws IllegalArgumentException if the range is invalid or a sample is
+   *                                  zero
+   */
+  public void add(final QuaternionArray src, int from, int to)
+      throws IllegalArgumentException {
+    src.checkRange(from, to);
+    for (int i = from; i < to; ++i) {
+      add(src.x[i], src.y[i], src.z[i], src.w[i], 1.0);
+    }
+  }
+
+  /**
+   * Adds the samples {@code [from, to)} of an array, where sample {@code i}
+   * has weight {@code weights[weightsOff + i - from]}
+   *
+   * @param src The array of samples, which are normalized before being added
+   * @param from The first sample, inclusive
+   * @param to The last sample, exclusive
+   * @param weights The array of weights
+   * @param weightsOff The index of the weight of the first sample
+   * @throws IllegalArgumentException if a range is invalid, a sample is zero
+   *                                  or a weight is negative or not finite
+   */
+  public void add(final QuaternionArray src, int from, int to,
+      final double[] weights, int weightsOff)
+      throws IllegalArgumentException {
+    src.checkRange(from, to);
+    if (weightsOff < 0 || weightsOff > weights.length - (to - from)) {
+      throw new IllegalArgumentException(
+        QuaternionArray.INVALID_INDEX_RANGE_MSG);
+    }
+    for (int i = from; i < to; ++i) {
+      add(src.x[i], src.y[i], src.z[i], src.w[i],
+        weights[weightsOff + i - from]);
+    }
+  }
+
+  /**
+   * Adds the samples of another averager to this one. The other averager is
+   * not modified
+   *
+   * @param other The averager to merge
+   */
+  public void merge(final QuaternionAverager other) {
+    mxx += other.mxx;
+    mxy += other.mxy;
+    mxz += other.mxz;
+    mxw += other.mxw;
+    myy += other.myy;
+    myz += other.myz;
+    myw += other.myw;
+    mzz += other.mzz;
+    mzw += other.mzw;
+    mww += other.mww;
+    totalWeight += other.totalWeight;
+    count += other.count;
+  }
+
+  /**
+   * Removes all samples
+   */
+  public void reset() {
+    mxx = mxy = mxz = mxw = myy = myz = myw = mzz = mzw = mww = 0.0;
+    totalWeight = 0.0;
+    count = 0;
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Average
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Computes the weighted average of the samples. Of the two opposite unit
+   * quaternions representing the average rotation, the one with a
+   * non-negative scalar part is returned
+   *
+   * @param out The Quaternion receiving the average
+   * @return The dominant eigenvalue of {@code M} over the total weight, which
+   *         is the weighted mean of the squared cosines of the half angles
+   *         between the samples and the average: 1 if all samples are the
+   *         same rotation, and at least 0.25
+   * @throws ArithmeticException if the total weight is 0
+   */
+  public double average(final Quaternion out) throws ArithmeticException {
+    if (!(totalWeight > 0.0)) {
+      throw new ArithmeticException(EMPTY_AVERAGE_MSG);
+    }
+    double[] a = this.a;
+    double[] v = this.v;
+    a[0] = mxx;
+    a[1] = a[4] = mxy;
+    a[2] = a[8] = mxz;
+    a[3] = a[12] = mxw;
+    a[5] = myy;
+    a[6] = a[9] = myz;
+    a[7] = a[13] = myw;
+    a[10] = mzz;
+    a[11] = a[14] = mzw;
+    a[15] = mww;
+    for (int i = 0; i < 16; ++i) {
+      v[i] = (i % 5 == 0) ? 1.0 : 0.0;
+    }
+    jacobi(a, v);
+
+    int best = 0;
+    for (int k = 1; k < 4; ++k) {
+      if (a[5 * k] > a[5 * best]) {
+        best = k;
+      }
+    }
+    // Column best of v, in (x, y, z, w) order
+    double x = v[best];
+    double y = v[4 + best];
+    double z = v[8 + best];
+    double w = v[12 + best];
+    double sign = w < 0.0 ? -1.0 : 1.0;
+    double invNorm = sign / Math.sqrt(x * x + y * y + z * z + w * w);
+    out.set(x * invNorm, y * invNorm, z * invNorm, w * invNorm);
+    return Math.min(a[5 * best] / totalWeight, 1.0);
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Private methods
+  //
+  /////////////////////////////////////////////////////////
+
+  private void add(double x, double y, double z, double w, double weight)
+      throws IllegalArgumentException {
+    if (!(weight >= 0.0 && weight < Double.POSITIVE_INFINITY)) {
+      throw new IllegalArgumentException(INVALID_WEIGHT_MSG);
+    }
+    double squaredNorm = x * x + y * y + z * z + w * w;
+    if (!(squaredNorm > 0.0)) {
+      throw new IllegalArgumentException(ZERO_QUATERNION_MSG);
+    }
+    double s = weight / squaredNorm;
+    double sx = s * x;
+    double sy = s * y;
+    double sz = s * z;
+    double sw = s * w;
+    mxx += sx * x;
+    mxy += sx * y;
+    mxz += sx * z;
+    mxw += sx * w;
+    myy += sy * y;
+    myz += sy * z;
+    myw += sy * w;
+    mzz += sz * z;
+    mzw += sz * w;
+    mww += sw * w;
+    totalWeight += weight;
+    ++count;
+  }
+
+  /**
+   * Diagonalizes the symmetric 4x4 matrix {@code a} in place with cyclic
+   * Jacobi rotations, accumulating the rotations into {@code v}, whose
+   * columns end up being the eigenvectors of the diagonal entries of
+   * {@code a}
+   */
+  private static void jacobi(final double[] a, final double[] v) {
+    for (int sweep = 0; sweep < MAX_SWEEPS; ++sweep) {
+      double off = 0.0;
+      double diagonal = 0.0;
+      for (int p = 0; p < 4; ++p) {
+        diagonal += a[5 * p] * a[5 * p];
+        for (int q = p + 1; q < 4; ++q) {
+          off += a[4 * p + q] * a[4 * p + q];
+        }
+      }
+      if (off <= 1e-30 * diagonal) {
+        return;
+      }
+
+      for (int p = 0; p < 3; ++p) {
+        for (int q = p + 1; q < 4; ++q) {
+          double apq = a[4 * p + q];
+          if (apq == 0.0) {
+            continue;
+          }
+          // Rotation zeroing a[p][q], as in Numerical Recipes
+          double theta = (a[5 * q] - a[5 * p]) / (2.0 * apq);
+          double t = (theta >= 0.0 ? 1.0 : -1.0) /
+            (Math.abs(theta) + Math.sqrt(theta * theta + 1.0));
+          double c = 1.0 / Math.sqrt(t * t + 1.0);
+          double s = t * c;
+          for (int k = 0; k < 4; ++k) {
+            double akp = a[4 * k + p];
+            double akq = a[4 * k + q];
+            a[4 * k + p] = c * akp - s * akq;
+            a[4 * k + q] = s * akp + c * akq;
+          }
+          for (int k = 0; k < 4; ++k) {
+            double apk = a[4 * p + k];
+            double aqk = a[4 * q + k];
+            a[4 * p + k] = c * apk - s * aqk;
+            a[4 * q + k] = s * apk + c * aqk;
+          }
+          for (int k = 0; k < 4; ++k) {
+            double vkp = v[4 * k + p];
+            double vkq = v[4 * k + q];
+            v[4 * k + p] = c * vkp - s * vkq;
+            v[4 * k + q] = s * vkp + c * vkq;
+          }
+        }
+      }
+    }
+  }
+}
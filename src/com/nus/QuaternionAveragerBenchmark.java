@@ -0,0 +1,63 @@
+package com.nus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of {@link QuaternionAverager}: accumulating {@code size}
+ * samples, and solving for the average of an accumulated set
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class QuaternionAveragerBenchmark {
+  @Param({"65536"})
+  public int size;
+
+  private QuaternionArray samples;
+  private QuaternionAverager accumulated;
+  private Quaternion average;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(QuaternionBenchmark.SEED);
+    samples = new QuaternionArray(size);
+    for (int i = 0; i < size; ++i) {
+      samples.set(i, QuaternionBenchmark.randomUnitQuaternion(random));
+    }
+    accumulated = new QuaternionAverager();
+    accumulated.add(samples, 0, size);
+    average = new Quaternion();
+  }
+
+  @Benchmark
+  public Quaternion accumulateAndAverage() {
+    QuaternionAverager averager = new QuaternionAverager();
+    averager.add(samples, 0, size);
+    averager.average(average);
+    return average;
+  }
+
+  @Benchmark
+  public Quaternion averageOnly() {
+    accumulated.average(average);
+    return average;
+  }
+}
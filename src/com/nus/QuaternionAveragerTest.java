@@ -0,0 +1,197 @@
+package com.nus;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import static com.nus.QuaternionTest.assertQuaternionEquals;
+import static com.nus.QuaternionTestUtils.randomRotation;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+public class QuaternionAveragerTest {
+
+  private static Quaternion smallRotation(Random random, double maxAngle) {
+    double[] axis = {random.nextGaussian(), random.nextGaussian(),
+      random.nextGaussian()};
+    return Quaternion.fromAxisAngleRad(axis, maxAngle * random.nextDouble());
+  }
+
+  private static double objective(QuaternionArray samples, Quaternion q) {
+    double sum = 0.0;
+    for (int i = 0; i < samples.size(); ++i) {
+      double dot = samples.get(i).dot(q);
+      sum += dot * dot;
+    }
+    return sum;
+  }
+
+  @Test
+  public void testIdenticalSamples() {
+    Quaternion q = new Quaternion(0.5, -0.5, 0.5, -0.5);
+    QuaternionAverager averager = new QuaternionAverager();
+    for (int i = 0; i < 10; ++i) {
+      // Scale and sign do not matter
+      averager.add(q.multiply(i % 2 == 0 ? 2.0 : -0.5));
+    }
+    Quaternion average = new Quaternion();
+    assertEquals(averager.average(average), 1.0, 1e-12);
+    assertQuaternionEquals(average, q.multiply(-1.0));
+    assertEquals(averager.getCount(), 10);
+    assertEquals(averager.getTotalWeight(), 10.0, 0.0);
+  }
+
+  @Test
+  public void testSymmetricSamplesAverageToCenter() {
+    Random random = new Random(1);
+    for (int trial = 0; trial < 20; ++trial) {
+      Quaternion center = randomRotation(random);
+      QuaternionAverager averager = new QuaternionAverager();
+      for (int i = 0; i < 50; ++i) {
+        Quaternion delta = smallRotation(random, 1.0);
+        Quaternion p = center.multiply(delta);
+        Quaternion q = center.multiply(delta.conjugate());
+        averager.add(random.nextBoolean() ? p : p.multiply(-1.0));
+        averager.add(random.nextBoolean() ? q : q.multiply(-1.0));
+      }
+      Quaternion average = new Quaternion();
+      double concentration = averager.average(average);
+      assertTrue(concentration > 0.25 && concentration < 1.0);
+      assertEquals(Math.abs(average.dot(center)), 1.0, 1e-12);
+      assertTrue(average.getW() >= 0.0);
+    }
+  }
+
+  @Test
+  public void testAverageMaximizesObjective() {
+    Random random = new Random(2);
+    QuaternionArray samples = new QuaternionArray(200);
+    Quaternion center = randomRotation(random);
+    for (int i = 0; i < samples.size(); ++i) {
+      samples.set(i, center.multiply(smallRotation(random, 2.0)));
+    }
+    QuaternionAverager averager = new QuaternionAverager();
+    averager.add(samples, 0, samples.size());
+    Quaternion average = new Quaternion();
+    double concentration = averager.average(average);
+    double best = objective(samples, average);
+    assertEquals(concentration, best / samples.size(), 1e-12);
+    for (int i = 0; i < 1000; ++i) {
+      Quaternion other = average.multiply(smallRotation(random, 0.1));
+      assertTrue(objective(samples, other) <= best);
+    }
+  }
+
+  @Test
+  public void testWeights() {
+    Random random = new Random(3);
+    QuaternionArray samples = new QuaternionArray(20);
+    double[] weights = new double[23];
+    QuaternionAverager repeated = new QuaternionAverager();
+    for (int i = 0; i < samples.size(); ++i) {
+      samples.set(i, randomRotation(random));
+      weights[i + 3] = i % 4;
+      for (int k = 0; k < i % 4; ++k) {
+        repeated.add(samples.get(i));
+      }
+    }
+    QuaternionAverager weighted = new QuaternionAverager();
+    weighted.add(samples, 0, samples.size(), weights, 3);
+    Quaternion expected = new Quaternion();
+    Quaternion actual = new Quaternion();
+    assertEquals(weighted.average(actual), repeated.average(expected), 1e-12);
+    assertQuaternionEquals(actual, expected);
+    assertEquals(weighted.getTotalWeight(), repeated.getTotalWeight(), 0.0);
+    assertEquals(weighted.getCount(), 20);
+  }
+
+  @Test
+  public void testMergeMatchesSequential() throws Exception {
+    Random random = new Random(4);
+    int size = 10000;
+    QuaternionArray samples = new QuaternionArray(size);
+    Quaternion center = randomRotation(random);
+    for (int i = 0; i < size; ++i) {
+      Quaternion q = center.multiply(smallRotation(random, 1.5));
+      samples.set(i, random.nextBoolean() ? q : q.multiply(-1.0));
+    }
+    QuaternionAverager sequential = new QuaternionAverager();
+    sequential.add(samples, 0, size);
+
+    // Shards averaged by different threads, then merged
+    int shards = 8;
+    QuaternionAverager[] partial = new QuaternionAverager[shards];
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[shards];
+      for (int s = 0; s < shards; ++s) {
+        int from = s * size / shards;
+        int to = (s + 1) * size / shards;
+        QuaternionAverager averager = new QuaternionAverager();
+        partial[s] = averager;
+        tasks[s] = pool.submit(() -> averager.add(samples, from, to));
+      }
+      for (ForkJoinTask<?> task : tasks) {
+        task.get();
+      }
+    } finally {
+      pool.shutdown();
+    }
+    QuaternionAverager merged = new QuaternionAverager();
+    for (QuaternionAverager averager : partial) {
+      merged.merge(averager);
+    }
+
+    Quaternion expected = new Quaternion();
+    Quaternion actual = new Quaternion();
+    assertEquals(merged.average(actual), sequential.average(expected),
+      1e-12);
+    assertQuaternionEquals(actual, expected);
+    assertEquals(merged.getCount(), size);
+
+    merged.reset();
+    assertEquals(merged.getCount(), 0);
+    assertEquals(merged.getTotalWeight(), 0.0, 0.0);
+  }
+
+  @Test(expected = ArithmeticException.class)
+  public void testAverageWithoutSamples() {
+    new QuaternionAverager().average(new Quaternion());
+  }
+
+  @Test(expected = ArithmeticException.class)
+  public void testAverageWithZeroTotalWeight() {
+    QuaternionAverager averager = new QuaternionAverager();
+    averager.add(new Quaternion(), 0.0);
+    averager.average(new Quaternion());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testAddWithNegativeWeight() {
+    new QuaternionAverager().add(new Quaternion(), -1.0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testAddWithNaNWeight() {
+    new QuaternionAverager().add(new Quaternion(), Double.NaN);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testAddWithZeroQuaternion() {
+    new QuaternionAverager().add(new Quaternion(0.0, 0.0, 0.0, 0.0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testAddWithShortWeights() {
+    new QuaternionAverager().add(new QuaternionArray(4), 0, 4,
+      new double[3], 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testAddWithInvalidRange() {
+    new QuaternionAverager().add(new QuaternionArray(4), 2, 5);
+  }
+}
@@ -0,0 +1,484 @@
+package com.nus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks for every public operation of {@link Quaternion}, in both the
+ * allocating form and the in-place ({@code *Eq}) form where one exists.
+ *
+ * <p>Inputs are drawn from a {@link Random} with the fixed seed {@link #SEED},
+ * so two runs of the suite measure exactly the same operands and their results
+ * can be compared for regressions. Running {@link #main(String[])} attaches
+ * the GC profiler, which reports the bytes allocated per operation
+ * ({@code gc.alloc.rate.norm}) next to the ns/op score.
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class QuaternionBenchmark {
+  public static final long SEED = 0x5eed134L;
+
+  // Power of two so that the operand index can be computed with a mask
+  private static final int POOL_SIZE = 1024;
+  private static final int POOL_MASK = POOL_SIZE - 1;
+
+  private Quaternion[] sources;
+  private Quaternion[] operands;
+  private Quaternion[] targets;
+  private double[][] vectors;
+  private double[][] axes;
+  private double[] angles;
+  private double[] scalars;
+  private double[] params;
+  private final double[] output = new double[3];
+  private final double[] points = new double[POOL_SIZE * 3];
+  private final double[] pointImages = new double[POOL_SIZE * 3];
+  private final float[] floatPoints = new float[POOL_SIZE * 3];
+  private final float[] floatPointImages = new float[POOL_SIZE * 3];
+  private int index;
+
+  //////////////////////////////////////////////////////////
+  //
+  // Fixtures
+  //
+  /////////////////////////////////////////////////////////
+
+  @Setup(Level.Trial)
+  public void setUpTrial() {
+    Random random = new Random(SEED);
+    sources = new Quaternion[POOL_SIZE];
+    operands = new Quaternion[POOL_SIZE];
+    vectors = new double[POOL_SIZE][];
+    axes = new double[POOL_SIZE][];
+    angles = new double[POOL_SIZE];
+    scalars = new double[POOL_SIZE];
+    params = new double[POOL_SIZE];
+
+    for (int i = 0; i < POOL_SIZE; ++i) {
+      sources[i] = randomUnitQuaternion(random);
+      operands[i] = randomUnitQuaternion(random);
+      vectors[i] = randomVector(random);
+      axes[i] = randomVector(random);
+      angles[i] = (random.nextDouble() * 2.0 - 1.0) * Math.PI;
+      // Unit-magnitude scalars keep repeated in-place scaling bounded
+      scalars[i] = random.nextBoolean() ? 1.0 : -1.0;
+      params[i] = random.nextDouble();
+    }
+    for (int i = 0; i < points.length; ++i) {
+      points[i] = random.nextDouble() * 2.0 - 1.0;
+      floatPoints[i] = (float) points[i];
+    }
+  }
+
+  /**
+   * Restores the in-place targets before every iteration, so that all
+   * iterations of an {@code *Eq} benchmark start from the same operands
+   */
+  @Setup(Level.Iteration)
+  public void setUpIteration() {
+    targets = new Quaternion[POOL_SIZE];
+    for (int i = 0; i < POOL_SIZE; ++i) {
+      targets[i] = new Quaternion(sources[i]);
+    }
+    index = 0;
+  }
+
+  private int next() {
+    return index++ & POOL_MASK;
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Getters
+  //
+  /////////////////////////////////////////////////////////
+
+  @Benchmark
+  public double components() {
+    Quaternion q = sources[next()];
+    return q.getX() + q.getY() + q.getZ() + q.getW() + q.getScalarPart();
+  }
+
+  @Benchmark
+  public double[] getVectorPart() {
+    return sources[next()].getVectorPart();
+  }
+
+  @Benchmark
+  public double getAngle() {
+    return sources[next()].getAngle();
+  }
+
+  @Benchmark
+  public double getAngleRad() {
+    return sources[next()].getAngleRad();
+  }
+
+  @Benchmark
+  public double[] getRotationAxis() {
+    return sources[next()].getRotationAxis();
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Truth methods
+  //
+  /////////////////////////////////////////////////////////
+
+  @Benchmark
+  public boolean isIdentity() {
+    return sources[next()].isIdentity();
+  }
+
+  @Benchmark
+  public boolean isUnit() {
+    return sources[next()].isUnit();
+  }
+
+  @Benchmark
+  public boolean equalsWithThreshold() {
+    int i = next();
+    return sources[i].equals(operands[i], Quaternion.EPSILON);
+  }
+
+  @Benchmark
+  public boolean equalsObject() {
+    int i = next();
+    return sources[i].equals((Object) operands[i]);
+  }
+
+  @Benchmark
+  public int hashCodeOf() {
+    return sources[next()].hashCode();
+  }
+
+  @Benchmark
+  public String toStringOf() {
+    return sources[next()].toString();
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Normalization
+  //
+  /////////////////////////////////////////////////////////
+
+  @Benchmark
+  public double norm() {
+    return sources[next()].norm();
+  }
+
+  @Benchmark
+  public double squaredNorm() {
+    return sources[next()].squaredNorm();
+  }
+
+  @Benchmark
+  public Quaternion normalize() {
+    Quaternion q = targets[next()];
+    q.normalize();
+    return q;
+  }
+
+  @Benchmark
+  public Quaternion toUnit() {
+    Quaternion q = targets[next()];
+    q.toUnit();
+    return q;
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Arithmetics
+  //
+  /////////////////////////////////////////////////////////
+
+  @Benchmark
+  public Quaternion conjugate() {
+    return sources[next()].conjugate();
+  }
+
+  @Benchmark
+  public Quaternion conjugateEq() {
+    Quaternion q = targets[next()];
+    q.conjugateEq();
+    return q;
+  }
+
+  @Benchmark
+  public Quaternion add() {
+    int i = next();
+    return sources[i].add(operands[i]);
+  }
+
+  @Benchmark
+  public Quaternion addEq() {
+    int i = next();
+    Quaternion q = targets[i];
+    q.addEq(operands[i]);
+    return q;
+  }
+
+  @Benchmark
+  public Quaternion multiply() {
+    int i = next();
+    return sources[i].multiply(operands[i]);
+  }
+
+  @Benchmark
+  public Quaternion multiplyEq() {
+    int i = next();
+    Quaternion q = targets[i];
+    q.multiplyEq(operands[i]);
+    return q;
+  }
+
+  @Benchmark
+  public Quaternion multiplyScalar() {
+    int i = next();
+    return sources[i].multiply(scalars[i]);
+  }
+
+  @Benchmark
+  public Quaternion multiplyScalarEq() {
+    int i = next();
+    Quaternion q = targets[i];
+    q.multiplyEq(scalars[i]);
+    return q;
+  }
+
+  @Benchmark
+  public Quaternion inverse() {
+    return sources[next()].inverse();
+  }
+
+  @Benchmark
+  public Quaternion inverseEq() {
+    Quaternion q = targets[next()];
+    q.inverseEq();
+    return q;
+  }
+
+  @Benchmark
+  public Quaternion invert() {
+    Quaternion q = targets[next()];
+    q.invert();
+    return q;
+  }
+
+  @Benchmark
+  public Quaternion divide() {
+    int i = next();
+    return sources[i].divide(operands[i]);
+  }
+
+  @Benchmark
+  public Quaternion divideEq() {
+    int i = next();
+    Quaternion q = targets[i];
+    q.divideEq(operands[i]);
+    return q;
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Transcendental functions
+  //
+  /////////////////////////////////////////////////////////
+
+  @Benchmark
+  public Quaternion exp() {
+    return sources[next()].exp();
+  }
+
+  @Benchmark
+  public Quaternion log() {
+    return sources[next()].log();
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Rotation
+  //
+  /////////////////////////////////////////////////////////
+
+  @Benchmark
+  public double[][] getRotationMatrix() {
+    return sources[next()].getRotationMatrix();
+  }
+
+  @Benchmark
+  public double[] rotate() {
+    int i = next();
+    return sources[i].rotate(vectors[i]);
+  }
+
+  @Benchmark
+  public double[] rotateInto() {
+    int i = next();
+    double[] v = vectors[i];
+    sources[i].rotate(v, 0, output, 0);
+    return output;
+  }
+
+  @Benchmark
+  public double[] rotateUnitInto() {
+    int i = next();
+    double[] v = vectors[i];
+    sources[i].rotateUnit(v, 0, output, 0);
+    return output;
+  }
+
+  @Benchmark
+  public double[] rotatePerPoint() {
+    Quaternion q = sources[next()];
+    for (int i = 0; i < POOL_SIZE; ++i) {
+      q.rotate(points, i * 3, pointImages, i * 3);
+    }
+    return pointImages;
+  }
+
+  @Benchmark
+  public double[] rotateBatch() {
+    sources[next()].rotate(points, 0, 3, pointImages, 0, 3, POOL_SIZE);
+    return pointImages;
+  }
+
+  @Benchmark
+  public float[] rotateBatchFloat() {
+    sources[next()].rotate(
+      floatPoints, 0, 3, floatPointImages, 0, 3, POOL_SIZE);
+    return floatPointImages;
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Factories and interpolation
+  //
+  /////////////////////////////////////////////////////////
+
+  @Benchmark
+  public Quaternion getIdentity() {
+    return Quaternion.getIdentity();
+  }
+
+  @Benchmark
+  public Quaternion fromAxisAngle() {
+    int i = next();
+    return Quaternion.fromAxisAngle(axes[i], angles[i]);
+  }
+
+  @Benchmark
+  public Quaternion fromAxisAngleRad() {
+    int i = next();
+    return Quaternion.fromAxisAngleRad(axes[i], angles[i]);
+  }
+
+  @Benchmark
+  public Quaternion fromEulerAngles() {
+    int i = next();
+    double[] v = vectors[i];
+    return Quaternion.fromEulerAngles(v[0], v[1], v[2]);
+  }
+
+  @Benchmark
+  public Quaternion lerp() {
+    int i = next();
+    return Quaternion.lerp(sources[i], operands[i], params[i]);
+  }
+
+  @Benchmark
+  public Quaternion slerp() {
+    int i = next();
+    return Quaternion.slerp(sources[i], operands[i], params[i]);
+  }
+
+  @Benchmark
+  public Quaternion slerpInto() {
+    int i = next();
+    Quaternion.slerp(sources[i], operands[i], params[i], targets[i]);
+    return targets[i];
+  }
+
+  @Benchmark
+  public Quaternion nlerpInto() {
+    int i = next();
+    Quaternion.nlerp(sources[i], operands[i], params[i], targets[i]);
+    return targets[i];
+  }
+
+  @Benchmark
+  public Quaternion slerpApproxInto() {
+    int i = next();
+    Quaternion.slerpApprox(sources[i], operands[i], params[i], targets[i]);
+    return targets[i];
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Helpers shared by the benchmark suites
+  //
+  /////////////////////////////////////////////////////////
+
+  static Quaternion randomUnitQuaternion(Random random) {
+    Quaternion q = new Quaternion(
+      random.nextGaussian(), random.nextGaussian(),
+      random.nextGaussian(), random.nextGaussian());
+    q.normalize();
+    return q;
+  }
+
+  static double[] randomVector(Random random) {
+    return new double[] {
+      random.nextDouble() * 2.0 - 1.0,
+      random.nextDouble() * 2.0 - 1.0,
+      random.nextDouble() * 2.0 - 1.0,
+    };
+  }
+
+  /**
+   * Runs the benchmark suites with the GC profiler attached. Any standard JMH
+   * command line option (e.g. a benchmark name filter, {@code -rf json}) is
+   * honoured
+   *
+   * @param args JMH command line options
+   * @throws CommandLineOptionException if the options cannot be parsed
+   * @throws RunnerException if a benchmark fails to run
+   */
+  public static void main(String[] args)
+      throws CommandLineOptionException, RunnerException {
+    CommandLineOptions cmdOptions = new CommandLineOptions(args);
+    OptionsBuilder builder = new OptionsBuilder();
+    builder.parent(cmdOptions);
+    if (cmdOptions.getIncludes().isEmpty()) {
+      builder.include("com\\.nus\\..*Benchmark");
+    }
+    Options options = builder.addProfiler(GCProfiler.class).build();
+    new Runner(options).run();
+  }
+}
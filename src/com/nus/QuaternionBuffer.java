@@ -0,0 +1,456 @@
+package com.nus;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A fixed-capacity array of quaternions stored off the Java heap in a direct
+ * {@link ByteBuffer}. Each slot holds the four components (x, y, z, w) as
+ * consecutive doubles in native byte order, so a slot is {@link #SLOT_BYTES}
+ * bytes and slot {@code i} starts at byte offset {@code i * SLOT_BYTES}.
+ *
+ * <p>The heap cost of a QuaternionBuffer does not depend on its capacity. The
+ * backing memory can be handed to native code through
+ * {@link #asByteBuffer()} (e.g. {@code GetDirectBufferAddress} in JNI), and
+ * memory allocated by native code can be used in place through
+ * {@link #wrap(ByteBuffer)}, without copying in either direction.
+ *
+ * <p>The arithmetic methods mirror those of {@link Quaternion} and work on
+ * indexed slots without allocating. Concurrent reads are safe; concurrent
+ * writes to the same slot must be synchronized by the caller
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+public class QuaternionBuffer {
+  public static final int SLOT_BYTES = 4 * 8;
+  public static final int MAX_CAPACITY = Integer.MAX_VALUE / SLOT_BYTES;
+
+  public static final String INVALID_CAPACITY_MSG =
+    "Capacity must be between 0 and " + MAX_CAPACITY;
+  public static final String INVALID_BUFFER_MSG =
+    "Buffer must be direct and hold a whole number of quaternions";
+
+  private static final int X = 0;
+  private static final int Y = 8;
+  private static final int Z = 16;
+  private static final int W = 24;
+
+  private final ByteBuffer buffer;
+  private final int capacity;
+
+  //////////////////////////////////////////////////////////
+  //
+  // Constructors, setters and getters
+  //
+  /////////////////////////////////////////////////////////
+
+  private QuaternionBuffer(final ByteBuffer buffer) {
+    this.buffer = buffer;
+    this.capacity = buffer.capacity() / SLOT_BYTES;
+  }
+
+  /**
+   * Allocates off-heap memory for {@code capacity} quaternions, all of which
+   * are initialized to identity quaternions
+   *
+   * @param capacity The number of quaternions
+   * @return A new QuaternionBuffer
+   * @throws IllegalArgumentException if {@code capacity} is negative or
+   *         greater than {@link #MAX_CAPACITY}
+   */
+  public static QuaternionBuffer allocate(int capacity)
+      throws IllegalArgumentException {
+    if (capacity < 0 || capacity > MAX_CAPACITY) {
+      throw new IllegalArgumentException(INVALID_CAPACITY_MSG);
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocateDirect(capacity * SLOT_BYTES)
+      .order(ByteOrder.nativeOrder());
+    QuaternionBuffer result = new QuaternionBuffer(buffer);
+    for (int i = 0; i < capacity; ++i) {
+      result.set(i, 0.0, 0.0, 0.0, 1.0);
+    }
+    return result;
+  }
+
+  /**
+   * Uses existing off-heap memory, e.g. allocated by native code, as a
+   * QuaternionBuffer. No data is copied: changes made through either object
+   * are visible through the other. The memory is read in native byte order
+   * starting at position 0 of {@code buffer}
+   *
+   * @param buffer A direct buffer whose capacity is a multiple of
+   *               {@link #SLOT_BYTES}
+   * @return A QuaternionBuffer sharing the memory of {@code buffer}
+   * @throws IllegalArgumentException if {@code buffer} is not direct, or its
+   *         capacity is not a multiple of {@link #SLOT_BYTES}
+   */
+  public static QuaternionBuffer wrap(final ByteBuffer buffer)
+      throws IllegalArgumentException {
+    if (!buffer.isDirect() || buffer.capacity() % SLOT_BYTES != 0) {
+      throw new IllegalArgumentException(INVALID_BUFFER_MSG);
+    }
+    ByteBuffer view = buffer.duplicate();
+    view.clear();
+    view.order(ByteOrder.nativeOrder());
+    return new QuaternionBuffer(view);
+  }
+
+  /**
+   * Gets a view of the off-heap memory of this buffer. The view shares the
+   * memory of this buffer, has its own position and limit, and uses native
+   * byte order
+   *
+   * @return A direct ByteBuffer sharing the memory of this buffer
+   */
+  public ByteBuffer asByteBuffer() {
+    return buffer.duplicate().order(ByteOrder.nativeOrder());
+  }
+
+  /**
+   * Gets the number of quaternions in this buffer
+   *
+   * @return The number of quaternions
+   */
+  public int capacity() {
+    return capacity;
+  }
+
+  /**
+   * Gets the x-coordinate of the quaternion at {@code index}
+   *
+   * @param index The index of the quaternion
+   * @return The x-coordinate
+   */
+  public double getX(int index) {
+    return buffer.getDouble(offset(index) + X);
+  }
+
+  /**
+   * Gets the y-coordinate of the quaternion at {@code index}
+   *
+   * @param index The index of the quaternion
+   * @return The y-coordinate
+   */
+  public double getY(int index) {
+    return buffer.getDouble(offset(index) + Y);
+  }
+
+  /**
+   * Gets the z-coordinate of the quaternion at {@code index}
+   *
+   * @param index The index of the quaternion
+   * @return The z-coordinate
+   */
+  public double getZ(int index) {
+    return buffer.getDouble(offset(index) + Z);
+  }
+
+  /**
+   * Gets the w-component (scalar component) of the quaternion at
+   * {@code index}
+   *
+   * @param index The index of the quaternion
+   * @return The w-component
+   */
+  public double getW(int index) {
+    return buffer.getDouble(offset(index) + W);
+  }
+
+  /**
+   * Gets a copy of the quaternion at {@code index}
+   *
+   * @param index The index of the quaternion
+   * @return A new Quaternion equal to the element at {@code index}
+   */
+  public Quaternion get(int index) {
+    int off = offset(index);
+    return new Quaternion(buffer.getDouble(off + X),
+      buffer.getDouble(off + Y), buffer.getDouble(off + Z),
+      buffer.getDouble(off + W));
+  }
+
+  /**
+   * Sets the quaternion at {@code index}
+   *
+   * @param index The index of the quaternion
+   * @param x the x coordinate
+   * @param y the y coordinate
+   * @param z the z coordinate
+   * @param w the scalar component
+   */
+  public void set(int index, double x, double y, double z, double w) {
+    int off = offset(index);
+    buffer.putDouble(off + X, x);
+    buffer.putDouble(off + Y, y);
+    buffer.putDouble(off + Z, z);
+    buffer.putDouble(off + W, w);
+  }
+
+  /**
+   * Sets the quaternion at {@code index} to a copy of the input quaternion
+   *
+   * @param index The index of the quaternion
+   * @param q The quaternion to be copied
+   */
+  public void set(int index, final Quaternion q) {
+    this.set(index, q.getX(), q.getY(), q.getZ(), q.getW());
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Normalization
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Computes the norm of the quaternion at {@code index}
+   *
+   * @param index The index of the quaternion
+   * @return The norm of the quaternion
+   *
+   * @see Quaternion#norm()
+   */
+  public double norm(int index) {
+    int off = offset(index);
+    double x = buffer.getDouble(off + X);
+    double y = buffer.getDouble(off + Y);
+    double z = buffer.getDouble(off + Z);
+    double w = buffer.getDouble(off + W);
+    return Math.sqrt(x * x + y * y + z * z + w * w);
+  }
+
+  /**
+   * Normalizes the quaternion at {@code index} so that it has norm 1
+   *
+   * @param index The index of the quaternion
+   *
+   * @see Quaternion#normalize()
+   */
+  public void normalize(int index) {
+    double qNorm = this.norm(index);
+    int off = offset(index);
+    buffer.putDouble(off + X, buffer.getDouble(off + X) / qNorm);
+    buffer.putDouble(off + Y, buffer.getDouble(off + Y) / qNorm);
+    buffer.putDouble(off + Z, buffer.getDouble(off + Z) / qNorm);
+    buffer.putDouble(off + W, buffer.getDouble(off + W) / qNorm);
+  }
+
+  /**
+   * Normalizes every quaternion in {@code [fromIndex, toIndex)}
+   *
+   * @param fromIndex The index of the first quaternion, inclusive
+   * @param toIndex The index of the last quaternion, exclusive
+   * @throws IllegalArgumentException if the index range is invalid
+   */
+  public void normalize(int fromIndex, int toIndex)
+      throws IllegalArgumentException {
+    if (fromIndex < 0 || fromIndex > toIndex || toIndex > capacity) {
+      throw new IllegalArgumentException(
+        QuaternionArray.INVALID_INDEX_RANGE_MSG);
+    }
+    for (int i = fromIndex; i < toIndex; ++i) {
+      this.normalize(i);
+    }
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Arithmetics
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Replaces the quaternion at {@code index} by its conjugate
+   *
+   * @param index The index of the quaternion
+   *
+   * @see Quaternion#conjugateEq()
+   */
+  public void conjugateEq(int index) {
+    int off = offset(index);
+    buffer.putDouble(off + X, -buffer.getDouble(off + X));
+    buffer.putDouble(off + Y, -buffer.getDouble(off + Y));
+    buffer.putDouble(off + Z, -buffer.getDouble(off + Z));
+  }
+
+  /**
+   * Inverts the quaternion at {@code index}
+   *
+   * @param index The index of the quaternion
+   *
+   * @see Quaternion#invert()
+   */
+  public void invert(int index) {
+    int off = offset(index);
+    double x = buffer.getDouble(off + X);
+    double y = buffer.getDouble(off + Y);
+    double z = buffer.getDouble(off + Z);
+    double w = buffer.getDouble(off + W);
+    double factor = 1.0 / (x * x + y * y + z * z + w * w);
+    this.set(index, -x * factor, -y * factor, -z * factor, w * factor);
+  }
+
+  /**
+   * Multiplies the quaternions at {@code left} and {@code right} and stores
+   * the product at {@code dst}, that is {@code dst = left * right}. Any of
+   * the three indices may be the same
+   *
+   * @param dst The index receiving the product
+   * @param left The index of the left-hand operand
+   * @param right The index of the right-hand operand
+   *
+   * @see Quaternion#multiplyEq(Quaternion)
+   */
+  public void multiply(int dst, int left, int right) {
+    int off = offset(right);
+    this.multiply(dst, left, buffer.getDouble(off + X),
+      buffer.getDouble(off + Y), buffer.getDouble(off + Z),
+      buffer.getDouble(off + W));
+  }
+
+  /**
+   * Multiplies the quaternion at {@code index} with the input quaternion and
+   * stores the product back at {@code index}, that is
+   * {@code this[index] = this[index] * another}
+   *
+   * @param index The index of the quaternion
+   * @param another The right-hand operand
+   *
+   * @see Quaternion#multiplyEq(Quaternion)
+   */
+  public void multiplyEq(int index, final Quaternion another) {
+    this.multiply(index, index, another.getX(), another.getY(),
+      another.getZ(), another.getW());
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Transcendental functions
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Computes the exponential of the quaternion at {@code src} and stores it
+   * at {@code dst}, which may be the same index
+   *
+   * @param dst The index receiving the exponential
+   * @param src The index of the quaternion
+   *
+   * @see Quaternion#exp()
+   */
+  public void exp(int dst, int src) {
+    int off = offset(src);
+    double x = buffer.getDouble(off + X);
+    double y = buffer.getDouble(off + Y);
+    double z = buffer.getDouble(off + Z);
+    double w = buffer.getDouble(off + W);
+    double vNorm = Math.sqrt(x * x + y * y + z * z);
+    double expW = Math.exp(w);
+
+    if (vNorm < Quaternion.EPSILON) {
+      this.set(dst, 0.0, 0.0, 0.0, expW);
+      return;
+    }
+
+    double scalar = Math.sin(vNorm) / vNorm;
+    this.set(dst, x * scalar * expW, y * scalar * expW, z * scalar * expW,
+      Math.cos(vNorm) * expW);
+  }
+
+  /**
+   * Computes the natural logarithm of the quaternion at {@code src} and
+   * stores it at {@code dst}, which may be the same index
+   *
+   * @param dst The index receiving the logarithm
+   * @param src The index of the quaternion
+   * @throws ArithmeticException if the quaternion has norm approaching 0,
+   *         that is the norm is less than {@link Quaternion#EPSILON}
+   *
+   * @see Quaternion#log()
+   */
+  public void log(int dst, int src) throws ArithmeticException {
+    int off = offset(src);
+    double x = buffer.getDouble(off + X);
+    double y = buffer.getDouble(off + Y);
+    double z = buffer.getDouble(off + Z);
+    double w = buffer.getDouble(off + W);
+    double qNorm = Math.sqrt(x * x + y * y + z * z + w * w);
+    if (qNorm < Quaternion.EPSILON) {
+      throw new ArithmeticException(
+        Quaternion.UNDEFINED_LOG_ZERO_QUATERNION_MSG);
+    }
+
+    double vNorm = Math.sqrt(x * x + y * y + z * z);
+    double factor = 0.0;
+    if (!(vNorm < Quaternion.EPSILON)) {
+      factor = Math.acos(w / qNorm) / vNorm;
+    }
+    this.set(dst, x * factor, y * factor, z * factor, Math.log(qNorm));
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Rotation
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Rotates a 3D vector by the rotation represented by the normalized
+   * version of the quaternion at {@code index}
+   *
+   * @param index The index of the quaternion
+   * @param in The array containing the input vector
+   * @param inOff The index of the x-coordinate of the input vector
+   * @param out The array receiving the image vector
+   * @param outOff The index at which the x-coordinate of the image is written
+   *
+   * @see Quaternion#rotate(double[], int, double[], int)
+   */
+  public void rotate(int index, final double[] in, int inOff,
+      final double[] out, int outOff) {
+    int off = offset(index);
+    double x = buffer.getDouble(off + X);
+    double y = buffer.getDouble(off + Y);
+    double z = buffer.getDouble(off + Z);
+    double w = buffer.getDouble(off + W);
+    double s = 2.0 / (x * x + y * y + z * z + w * w);
+    double vx = in[inOff];
+    double vy = in[inOff + 1];
+    double vz = in[inOff + 2];
+
+    out[outOff] = (1.0 - s * (y * y + z * z)) * vx +
+      s * (x * y - z * w) * vy + s * (x * z + y * w) * vz;
+    out[outOff + 1] = s * (x * y + z * w) * vx +
+      (1.0 - s * (x * x + z * z)) * vy + s * (y * z - x * w) * vz;
+    out[outOff + 2] = s * (x * z - y * w) * vx +
+      s * (y * z + x * w) * vy + (1.0 - s * (x * x + y * y)) * vz;
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Private methods
+  //
+  /////////////////////////////////////////////////////////
+
+  private int offset(int index) {
+    if (index < 0 || index >= capacity) {
+      throw new IndexOutOfBoundsException(String.valueOf(index));
+    }
+    return index * SLOT_BYTES;
+  }
+
+  private void multiply(
+      int dst, int left, double ax, double ay, double az, double aw) {
+    int off = offset(left);
+    double x = buffer.getDouble(off + X);
+    double y = buffer.getDouble(off + Y);
+    double z = buffer.getDouble(off + Z);
+    double w = buffer.getDouble(off + W);
+    double newW = aw * w - ax * x - ay * y - az * z;
+    double newX = aw * x + ax * w - ay * z + az * y;
+    double newY = aw * y + ax * z + ay * w - az * x;
+    double newZ = aw * z - ax * y + ay * x + az * w;
+    this.set(dst, newX, newY, newZ, newW);
+  }
+}
@@ -0,0 +1,126 @@
+package com.nus;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import static com.nus.QuaternionTest.EPSILON;
+import static com.nus.QuaternionTest.assertQuaternionEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class QuaternionBufferTest {
+
+  @Test
+  public void testAllocate() {
+    QuaternionBuffer buffer = QuaternionBuffer.allocate(4);
+    assertEquals(buffer.capacity(), 4);
+    assertTrue(buffer.asByteBuffer().isDirect());
+    for (int i = 0; i < buffer.capacity(); ++i) {
+      assertQuaternionEquals(buffer.get(i), Quaternion.getIdentity());
+    }
+
+    buffer.set(2, new Quaternion(1.23, 5.12, 124, -1231.0));
+    assertEquals(buffer.getX(2), 1.23, EPSILON);
+    assertEquals(buffer.getY(2), 5.12, EPSILON);
+    assertEquals(buffer.getZ(2), 124.0, EPSILON);
+    assertEquals(buffer.getW(2), -1231.0, EPSILON);
+  }
+
+  @Test
+  public void testSharedMemory() {
+    ByteBuffer memory = ByteBuffer.allocateDirect(
+      2 * QuaternionBuffer.SLOT_BYTES).order(ByteOrder.nativeOrder());
+    QuaternionBuffer buffer = QuaternionBuffer.wrap(memory);
+    assertEquals(buffer.capacity(), 2);
+
+    buffer.set(1, 1.0, 2.0, 3.0, 4.0);
+    assertEquals(memory.getDouble(QuaternionBuffer.SLOT_BYTES), 1.0, EPSILON);
+    memory.putDouble(3 * 8, 9.0);
+    assertEquals(buffer.getW(0), 9.0, EPSILON);
+    assertEquals(buffer.asByteBuffer().getDouble(3 * 8), 9.0, EPSILON);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWrapHeapBuffer() {
+    QuaternionBuffer.wrap(ByteBuffer.allocate(QuaternionBuffer.SLOT_BYTES));
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testIndexOutOfBounds() {
+    QuaternionBuffer.allocate(2).get(2);
+  }
+
+  @Test
+  public void testArithmetics() {
+    Quaternion p = new Quaternion(0.0, 1.0, 0.0, 1.0);
+    Quaternion q = new Quaternion(0.5, 0.5, 0.75, 1.0);
+    QuaternionBuffer buffer = QuaternionBuffer.allocate(3);
+    buffer.set(0, p);
+    buffer.set(1, q);
+
+    buffer.multiply(2, 0, 1);
+    assertQuaternionEquals(buffer.get(2), p.multiply(q));
+    buffer.multiply(0, 0, 0);
+    assertQuaternionEquals(buffer.get(0), p.multiply(p));
+    buffer.multiplyEq(1, p);
+    assertQuaternionEquals(buffer.get(1), q.multiply(p));
+
+    buffer.set(0, q);
+    buffer.conjugateEq(0);
+    assertQuaternionEquals(buffer.get(0), q.conjugate());
+
+    buffer.set(0, q);
+    buffer.invert(0);
+    assertQuaternionEquals(buffer.get(0), q.inverse());
+
+    buffer.set(0, q);
+    assertEquals(buffer.norm(0), q.norm(), EPSILON);
+    buffer.normalize(0, 1);
+    q.normalize();
+    assertQuaternionEquals(buffer.get(0), q);
+  }
+
+  @Test
+  public void testTranscendentalFunctions() {
+    Quaternion[] quaternions = new Quaternion[] {
+      new Quaternion(1.0, 1.0, 1.0, 1.0),
+      new Quaternion(0.0, 0.0, 0.0, 0.0),
+      new Quaternion(1.5, 1.2, 2, 3.0),
+    };
+    QuaternionBuffer buffer = QuaternionBuffer.allocate(2);
+    for (Quaternion q : quaternions) {
+      buffer.set(0, q);
+      buffer.exp(1, 0);
+      assertQuaternionEquals(buffer.get(1), q.exp());
+      buffer.exp(0, 0);
+      assertQuaternionEquals(buffer.get(0), q.exp());
+
+      Quaternion e = q.exp();
+      buffer.set(0, e);
+      buffer.log(1, 0);
+      assertQuaternionEquals(buffer.get(1), e.log());
+    }
+  }
+
+  @Test(expected = ArithmeticException.class)
+  public void testLogWithZeroQuaternion() {
+    QuaternionBuffer buffer = QuaternionBuffer.allocate(1);
+    buffer.set(0, 0.0, 0.0, 0.0, 0.0);
+    buffer.log(0, 0);
+  }
+
+  @Test
+  public void testRotate() {
+    Quaternion q = new Quaternion(2.0, -1.0, -3.0, 0.0);
+    QuaternionBuffer buffer = QuaternionBuffer.allocate(1);
+    buffer.set(0, q);
+    double[] v = new double[] {1.0, 1.0, 1.0};
+    double[] out = new double[3];
+    buffer.rotate(0, v, 0, out, 0);
+    assertArrayEquals(out, q.rotate(v), EPSILON);
+  }
+}
@@ -0,0 +1,461 @@
+package com.nus;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A compact binary encoding of quaternions, as an alternative to Java
+ * serialization. A quaternion is encoded as its four components x, y, z, w
+ * in little-endian byte order, either as doubles ({@link #DOUBLE}, 32 bytes)
+ * or as floats ({@link #FLOAT}, 16 bytes, rounding each component to the
+ * nearest float).
+ *
+ * <p>A stream of quaternions starts with a {@link #HEADER_BYTES}-byte header:
+ *
+ * <pre>
+ * offset  size  content
+ *      0     4  magic number {@link #MAGIC}
+ *      4     2  format version {@link #VERSION}
+ *      6     1  bytes per component, 8 or 4
+ *      7     1  reserved, 0
+ *      8     8  number of quaternions that follow
+ * </pre>
+ *
+ * <p>The {@link ByteBuffer} methods read and write at the buffer position and
+ * advance it, like the relative get and put methods of ByteBuffer. The byte
+ * order of the buffer is ignored and left unchanged. A codec has no mutable
+ * state and can be shared between threads
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+public final class QuaternionCodec {
+  public static final int MAGIC = 0x54415551; // "QUAT" in little-endian
+  public static final short VERSION = 1;
+  public static final int HEADER_BYTES = 16;
+
+  public static final String INVALID_HEADER_MSG =
+    "Input does not start with a quaternion stream header";
+  public static final String UNSUPPORTED_VERSION_MSG =
+    "Unsupported quaternion stream version";
+  public static final String PRECISION_MISMATCH_MSG =
+    "Quaternion stream precision does not match the codec";
+  public static final String INVALID_COUNT_MSG =
+    "Quaternion count must be non-negative and fit the destination";
+  public static final String SCRATCH_TOO_SMALL_MSG =
+    "Scratch buffer must hold a header and a quaternion";
+
+  // Quaternions allocated before the first payload batch of a channel read.
+  // The array then doubles as batches arrive, so a corrupt header announcing
+  // a huge count cannot make the read allocate memory it never fills
+  private static final int INITIAL_READ_CAPACITY = 1 << 12;
+
+  /**
+   * Encodes components as 8-byte doubles, without loss
+   */
+  public static final QuaternionCodec DOUBLE = new QuaternionCodec(8);
+
+  /**
+   * Encodes components as 4-byte floats, rounding them to the nearest float
+   */
+  public static final QuaternionCodec FLOAT = new QuaternionCodec(4);
+
+  private final int componentBytes;
+
+  private QuaternionCodec(int componentBytes) {
+    this.componentBytes = componentBytes;
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Getters
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Gets the number of bytes of one encoded quaternion
+   *
+   * @return 32 for {@link #DOUBLE}, 16 for {@link #FLOAT}
+   */
+  public int getQuaternionBytes() {
+    return 4 * componentBytes;
+  }
+
+  /**
+   * Gets the codec of the stream whose header starts at the position of
+   * {@code src}, without moving the position
+   *
+   * @param src The buffer holding the header
+   * @return {@link #DOUBLE} or {@link #FLOAT}
+   * @throws BufferUnderflowException if fewer than {@link #HEADER_BYTES}
+   *                                  bytes remain
+   * @throws IllegalArgumentException if the header is invalid or of an
+   *                                  unsupported version
+   */
+  public static QuaternionCodec forHeader(final ByteBuffer src)
+      throws BufferUnderflowException, IllegalArgumentException {
+    ByteOrder order = src.order();
+    src.order(ByteOrder.LITTLE_ENDIAN);
+    try {
+      int position = src.position();
+      checkHeader(src, position);
+      return src.get(position + 6) == 4 ? FLOAT : DOUBLE;
+    } finally {
+      src.order(order);
+    }
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // ByteBuffer encoding and decoding
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Writes a stream header announcing {@code count} quaternions in the
+   * precision of this codec
+   *
+   * @param count The number of quaternions that will follow
+   * @param dst The destination buffer
+   * @throws BufferOverflowException if fewer than {@link #HEADER_BYTES} bytes
+   *                                 remain
+   * @throws IllegalArgumentException if {@code count} is negative
+   */
+  public void writeHeader(long count, final ByteBuffer dst)
+      throws BufferOverflowException, IllegalArgumentException {
+    if (count < 0) {
+      throw new IllegalArgumentException(INVALID_COUNT_MSG);
+    }
+    if (dst.remaining() < HEADER_BYTES) {
+      throw new BufferOverflowException();
+    }
+
+    ByteOrder order = dst.order();
+    dst.order(ByteOrder.LITTLE_ENDIAN);
+    dst.putInt(MAGIC);
+    dst.putShort(VERSION);
+    dst.put((byte) componentBytes);
+    dst.put((byte) 0);
+    dst.putLong(count);
+    dst.order(order);
+  }
+
+  /**
+   * Reads a stream header written by this codec
+   *
+   * @param src The source buffer
+   * @return The number of quaternions that follow the header
+   * @throws BufferUnderflowException if fewer than {@link #HEADER_BYTES}
+   *                                  bytes remain
+   * @throws IllegalArgumentException if the header is invalid, of an
+   *                                  unsupported version, or written in
+   *                                  another precision
+   */
+  public long readHeader(final ByteBuffer src)
+      throws BufferUnderflowException, IllegalArgumentException {
+    ByteOrder order = src.order();
+    src.order(ByteOrder.LITTLE_ENDIAN);
+    try {
+      int position = src.position();
+      checkHeader(src, position);
+      if (src.get(position + 6) != componentBytes) {
+        throw new IllegalArgumentException(PRECISION_MISMATCH_MSG);
+      }
+      long count = src.getLong(position + 8);
+      if (count < 0) {
+        throw new IllegalArgumentException(INVALID_COUNT_MSG);
+      }
+      src.position(position + HEADER_BYTES);
+      return count;
+    } finally {
+      src.order(order);
+    }
+  }
+
+  /**
+   * Encodes a quaternion
+   *
+   * @param q The quaternion to be encoded
+   * @param dst The destination buffer
+   * @throws BufferOverflowException if fewer than
+   *                                 {@link #getQuaternionBytes()} bytes
+   *                                 remain
+   */
+  public void encode(final Quaternion q, final ByteBuffer dst)
+      throws BufferOverflowException {
+    if (dst.remaining() < getQuaternionBytes()) {
+      throw new BufferOverflowException();
+    }
+
+    ByteOrder order = dst.order();
+    dst.order(ByteOrder.LITTLE_ENDIAN);
+    int position = dst.position();
+    put(dst, position, q.getX(), q.getY(), q.getZ(), q.getW());
+    dst.position(position + getQuaternionBytes());
+    dst.order(order);
+  }
+
+  /**
+   * Decodes a quaternion
+   *
+   * @param src The source buffer
+   * @param out The Quaternion receiving the decoded value
+   * @throws BufferUnderflowException if fewer than
+   *                                  {@link #getQuaternionBytes()} bytes
+   *                                  remain
+   */
+  public void decode(final ByteBuffer src, final Quaternion out)
+      throws BufferUnderflowException {
+    if (src.remaining() < getQuaternionBytes()) {
+      throw new BufferUnderflowException();
+    }
+
+    ByteOrder order = src.order();
+    src.order(ByteOrder.LITTLE_ENDIAN);
+    int position = src.position();
+    out.set(get(src, position), get(src, position + componentBytes),
+      get(src, position + 2 * componentBytes),
+      get(src, position + 3 * componentBytes));
+    src.position(position + getQuaternionBytes());
+    src.order(order);
+  }
+
+  /**
+   * Encodes the quaternions {@code src[fromIndex, toIndex)}, without header
+   *
+   * @param src The quaternions to be encoded
+   * @param fromIndex The index of the first quaternion, inclusive
+   * @param toIndex The index of the last quaternion, exclusive
+   * @param dst The destination buffer
+   * @throws IllegalArgumentException if the index range is invalid
+   * @throws BufferOverflowException if {@code dst} cannot hold all the
+   *                                 quaternions; nothing is written then
+   */
+  public void encode(final QuaternionArray src, int fromIndex, int toIndex,
+      final ByteBuffer dst)
+      throws IllegalArgumentException, BufferOverflowException {
+    src.checkRange(fromIndex, toIndex);
+    long bytes = (long) (toIndex - fromIndex) * getQuaternionBytes();
+    if (dst.remaining() < bytes) {
+      throw new BufferOverflowException();
+    }
+
+    ByteOrder order = dst.order();
+    dst.order(ByteOrder.LITTLE_ENDIAN);
+    int position = dst.position();
+    int stride = getQuaternionBytes();
+    for (int i = fromIndex; i < toIndex; ++i, position += stride) {
+      put(dst, position, src.x[i], src.y[i], src.z[i], src.w[i]);
+    }
+    dst.position(position);
+    dst.order(order);
+  }
+
+  /**
+   * Decodes quaternions into {@code dst[fromIndex, toIndex)}, without header
+   *
+   * @param src The source buffer
+   * @param dst The array receiving the decoded quaternions
+   * @param fromIndex The index of the first quaternion, inclusive
+   * @param toIndex The index of the last quaternion, exclusive
+   * @throws IllegalArgumentException if the index range is invalid
+   * @throws BufferUnderflowException if {@code src} does not hold enough
+   *                                  quaternions; nothing is read then
+   */
+  public void decode(final ByteBuffer src, final QuaternionArray dst,
+      int fromIndex, int toIndex)
+      throws IllegalArgumentException, BufferUnderflowException {
+    dst.checkRange(fromIndex, toIndex);
+    long bytes = (long) (toIndex - fromIndex) * getQuaternionBytes();
+    if (src.remaining() < bytes) {
+      throw new BufferUnderflowException();
+    }
+
+    ByteOrder order = src.order();
+    src.order(ByteOrder.LITTLE_ENDIAN);
+    int position = src.position();
+    int stride = getQuaternionBytes();
+    for (int i = fromIndex; i < toIndex; ++i, position += stride) {
+      dst.x[i] = get(src, position);
+      dst.y[i] = get(src, position + componentBytes);
+      dst.z[i] = get(src, position + 2 * componentBytes);
+      dst.w[i] = get(src, position + 3 * componentBytes);
+    }
+    src.position(position);
+    src.order(order);
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Channel encoding and decoding
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Writes a header followed by the quaternions {@code src[fromIndex,
+   * toIndex)} to a channel, staging the bytes in {@code scratch}
+   *
+   * @param src The quaternions to be written
+   * @param fromIndex The index of the first quaternion, inclusive
+   * @param toIndex The index of the last quaternion, exclusive
+   * @param channel The destination channel
+   * @param scratch A buffer of at least 32 bytes, whose content is
+   *                overwritten; a direct buffer avoids a copy in most
+   *                channels
+   * @throws IOException if the channel fails
+   * @throws IllegalArgumentException if the index range is invalid or
+   *                                  {@code scratch} is too small
+   */
+  public void write(final QuaternionArray src, int fromIndex, int toIndex,
+      final WritableByteChannel channel, final ByteBuffer scratch)
+      throws IOException, IllegalArgumentException {
+    src.checkRange(fromIndex, toIndex);
+    checkScratch(scratch);
+
+    scratch.clear();
+    writeHeader(toIndex - fromIndex, scratch);
+    int i = fromIndex;
+    do {
+      int end = Math.min(toIndex, i + (scratch.remaining() /
+        getQuaternionBytes()));
+      encode(src, i, end, scratch);
+      i = end;
+      scratch.flip();
+      while (scratch.hasRemaining()) {
+        channel.write(scratch);
+      }
+      scratch.clear();
+    } while (i < toIndex);
+  }
+
+  /**
+   * Reads a header and the quaternions that follow it from a channel,
+   * staging the bytes in {@code scratch}
+   *
+   * @param channel The source channel, positioned at a header
+   * @param scratch A buffer of at least 32 bytes, whose content is
+   *                overwritten
+   * @return A new QuaternionArray holding the decoded quaternions
+   * @throws EOFException if the channel ends before the announced number of
+   *                      quaternions
+   * @throws IOException if the channel fails
+   * @throws IllegalArgumentException if the header is invalid, of another
+   *                                  precision, announces more than
+   *                                  {@code Integer.MAX_VALUE} quaternions, or
+   *                                  {@code scratch} is too small
+   */
+  public QuaternionArray read(final ReadableByteChannel channel,
+      final ByteBuffer scratch) throws IOException, IllegalArgumentException {
+    checkScratch(scratch);
+
+    scratch.clear();
+    scratch.limit(HEADER_BYTES);
+    fill(channel, scratch);
+    scratch.flip();
+    long count = readHeader(scratch);
+    if (count > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException(INVALID_COUNT_MSG);
+    }
+
+    int size = (int) count;
+    QuaternionArray result =
+      new QuaternionArray(Math.min(size, INITIAL_READ_CAPACITY));
+    int batch = scratch.capacity() / getQuaternionBytes();
+    for (int i = 0; i < size; ) {
+      int end = (int) Math.min(size, (long) i + batch);
+      if (end > result.size()) {
+        result = grow(result, i, (int) Math.min(size,
+          Math.max((long) end, 2L * result.size())));
+      }
+      scratch.clear();
+      scratch.limit((end - i) * getQuaternionBytes());
+      fill(channel, scratch);
+      scratch.flip();
+      decode(scratch, result, i, end);
+      i = end;
+    }
+    return result;
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Private methods
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Copies the first {@code length} quaternions of an array into a new array
+   * of {@code capacity} quaternions
+   */
+  private static QuaternionArray grow(final QuaternionArray array,
+      int length, int capacity) {
+    QuaternionArray grown = new QuaternionArray(capacity);
+    System.arraycopy(array.x, 0, grown.x, 0, length);
+    System.arraycopy(array.y, 0, grown.y, 0, length);
+    System.arraycopy(array.z, 0, grown.z, 0, length);
+    System.arraycopy(array.w, 0, grown.w, 0, length);
+    return grown;
+  }
+
+  /**
+   * Writes one quaternion at an absolute position of a little-endian buffer
+   */
+  private void put(final ByteBuffer dst, int position,
+      double x, double y, double z, double w) {
+    if (componentBytes == 8) {
+      dst.putDouble(position, x);
+      dst.putDouble(position + 8, y);
+      dst.putDouble(position + 16, z);
+      dst.putDouble(position + 24, w);
+    } else {
+      dst.putFloat(position, (float) x);
+      dst.putFloat(position + 4, (float) y);
+      dst.putFloat(position + 8, (float) z);
+      dst.putFloat(position + 12, (float) w);
+    }
+  }
+
+  /**
+   * Reads one component at an absolute position of a little-endian buffer
+   */
+  private double get(final ByteBuffer src, int position) {
+    return componentBytes == 8 ? src.getDouble(position)
+      : src.getFloat(position);
+  }
+
+  private static void checkHeader(final ByteBuffer src, int position)
+      throws BufferUnderflowException, IllegalArgumentException {
+    if (src.remaining() < HEADER_BYTES) {
+      throw new BufferUnderflowException();
+    }
+    byte componentBytes = src.get(position + 6);
+    if (src.getInt(position) != MAGIC ||
+        (componentBytes != 8 && componentBytes != 4)) {
+      throw new IllegalArgumentException(INVALID_HEADER_MSG);
+    }
+    if (src.getShort(position + 4) != VERSION) {
+      throw new IllegalArgumentException(UNSUPPORTED_VERSION_MSG);
+    }
+  }
+
+  private void checkScratch(final ByteBuffer scratch)
+      throws IllegalArgumentException {
+    if (scratch.capacity() < Math.max(HEADER_BYTES, getQuaternionBytes())) {
+      throw new IllegalArgumentException(SCRATCH_TOO_SMALL_MSG);
+    }
+  }
+
+  private static void fill(final ReadableByteChannel channel,
+      final ByteBuffer dst) throws IOException {
+    while (dst.hasRemaining()) {
+      if (channel.read(dst) < 0) {
+        throw new EOFException();
+      }
+    }
+  }
+}
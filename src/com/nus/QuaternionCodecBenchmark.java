@@ -0,0 +1,114 @@
+package com.nus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of {@link QuaternionCodec} against Java serialization of a
+ * {@code Quaternion[]}. Scores are per batch of {@code size} quaternions
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class QuaternionCodecBenchmark {
+
+  @Param({"1024"})
+  public int size;
+
+  private Quaternion[] quaternions;
+  private QuaternionArray array;
+  private QuaternionArray decoded;
+  private ByteBuffer doubleBuffer;
+  private ByteBuffer floatBuffer;
+  private byte[] serialized;
+
+  @Setup
+  public void setUp() throws IOException {
+    Random random = new Random(QuaternionBenchmark.SEED);
+    quaternions = new Quaternion[size];
+    for (int i = 0; i < size; ++i) {
+      quaternions[i] = QuaternionBenchmark.randomUnitQuaternion(random);
+    }
+    array = new QuaternionArray(quaternions);
+    decoded = new QuaternionArray(size);
+
+    doubleBuffer = ByteBuffer.allocateDirect(
+      QuaternionCodec.HEADER_BYTES + size * 32);
+    floatBuffer = ByteBuffer.allocateDirect(
+      QuaternionCodec.HEADER_BYTES + size * 16);
+    encodeDouble();
+    encodeFloat();
+    serialized = serialize().toByteArray();
+  }
+
+  @Benchmark
+  public ByteBuffer encodeDouble() {
+    doubleBuffer.clear();
+    QuaternionCodec.DOUBLE.writeHeader(size, doubleBuffer);
+    QuaternionCodec.DOUBLE.encode(array, 0, size, doubleBuffer);
+    return doubleBuffer;
+  }
+
+  @Benchmark
+  public ByteBuffer encodeFloat() {
+    floatBuffer.clear();
+    QuaternionCodec.FLOAT.writeHeader(size, floatBuffer);
+    QuaternionCodec.FLOAT.encode(array, 0, size, floatBuffer);
+    return floatBuffer;
+  }
+
+  @Benchmark
+  public QuaternionArray decodeDouble() {
+    doubleBuffer.rewind();
+    int count = (int) QuaternionCodec.DOUBLE.readHeader(doubleBuffer);
+    QuaternionCodec.DOUBLE.decode(doubleBuffer, decoded, 0, count);
+    return decoded;
+  }
+
+  @Benchmark
+  public QuaternionArray decodeFloat() {
+    floatBuffer.rewind();
+    int count = (int) QuaternionCodec.FLOAT.readHeader(floatBuffer);
+    QuaternionCodec.FLOAT.decode(floatBuffer, decoded, 0, count);
+    return decoded;
+  }
+
+  @Benchmark
+  public ByteArrayOutputStream serialize() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(quaternions);
+    out.close();
+    return bytes;
+  }
+
+  @Benchmark
+  public Object deserialize() throws IOException, ClassNotFoundException {
+    ObjectInputStream in = new ObjectInputStream(
+      new ByteArrayInputStream(serialized));
+    return in.readObject();
+  }
+}
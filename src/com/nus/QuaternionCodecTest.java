@@ -0,0 +1,254 @@
+package com.nus;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import static com.nus.QuaternionTest.assertQuaternionEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.ObjectOutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+
+public class QuaternionCodecTest {
+
+  private static QuaternionArray sampleArray() {
+    return new QuaternionArray(new Quaternion[] {
+      new Quaternion(0.0, 1.0, 0.0, 1.0),
+      new Quaternion(0.5, 0.5, 0.75, 1.0),
+      new Quaternion(2.0, -1.0, -3.0, 0.0),
+      new Quaternion(1.23, 5.12, 124, -1231.0),
+      new Quaternion(),
+    });
+  }
+
+  @Test
+  public void testLayout() {
+    ByteBuffer buffer = ByteBuffer.allocate(64).order(ByteOrder.BIG_ENDIAN);
+    QuaternionCodec.DOUBLE.writeHeader(3, buffer);
+    QuaternionCodec.DOUBLE.encode(new Quaternion(1.0, 2.0, 3.0, 4.0), buffer);
+    assertEquals(buffer.position(), 48);
+    assertSame(buffer.order(), ByteOrder.BIG_ENDIAN);
+
+    ByteBuffer le = ByteBuffer.wrap(buffer.array())
+      .order(ByteOrder.LITTLE_ENDIAN);
+    assertEquals(le.get(0), 'Q');
+    assertEquals(le.get(3), 'T');
+    assertEquals(le.getShort(4), QuaternionCodec.VERSION);
+    assertEquals(le.get(6), 8);
+    assertEquals(le.getLong(8), 3L);
+    assertEquals(le.getDouble(16), 1.0, 0.0);
+    assertEquals(le.getDouble(40), 4.0, 0.0);
+
+    buffer.clear();
+    QuaternionCodec.FLOAT.encode(new Quaternion(1.0, 2.0, 3.0, 4.0), buffer);
+    assertEquals(buffer.position(), 16);
+    assertEquals(le.getFloat(0), 1.0f, 0.0f);
+    assertEquals(le.getFloat(12), 4.0f, 0.0f);
+  }
+
+  @Test
+  public void testSingleRoundTrip() {
+    Quaternion q = new Quaternion(0.1, -0.2, 0.3, 0.9);
+    ByteBuffer buffer = ByteBuffer.allocate(32);
+    QuaternionCodec.DOUBLE.encode(q, buffer);
+    buffer.flip();
+    Quaternion decoded = new Quaternion();
+    QuaternionCodec.DOUBLE.decode(buffer, decoded);
+    assertEquals(decoded, q);
+    assertEquals(buffer.remaining(), 0);
+
+    buffer.clear();
+    QuaternionCodec.FLOAT.encode(q, buffer);
+    buffer.flip();
+    QuaternionCodec.FLOAT.decode(buffer, decoded);
+    assertEquals(decoded.getX(), 0.1, 1e-7);
+    assertEquals(decoded.getY(), -0.2, 1e-7);
+    assertEquals(decoded.getZ(), 0.3, 1e-7);
+    assertEquals(decoded.getW(), 0.9, 1e-7);
+  }
+
+  @Test
+  public void testBulkRoundTrip() {
+    QuaternionArray array = sampleArray();
+    ByteBuffer buffer = ByteBuffer.allocateDirect(256);
+    QuaternionCodec.DOUBLE.writeHeader(3, buffer);
+    QuaternionCodec.DOUBLE.encode(array, 1, 4, buffer);
+    assertEquals(buffer.position(),
+      QuaternionCodec.HEADER_BYTES + 3 * 32);
+
+    buffer.flip();
+    assertSame(QuaternionCodec.forHeader(buffer), QuaternionCodec.DOUBLE);
+    assertEquals(buffer.position(), 0);
+    assertEquals(QuaternionCodec.DOUBLE.readHeader(buffer), 3L);
+    QuaternionArray decoded = new QuaternionArray(5);
+    QuaternionCodec.DOUBLE.decode(buffer, decoded, 2, 5);
+    assertQuaternionEquals(decoded.get(0), Quaternion.getIdentity());
+    for (int i = 2; i < 5; ++i) {
+      assertEquals(decoded.get(i), array.get(i - 1));
+    }
+  }
+
+  @Test
+  public void testSmallerThanSerialization() throws Exception {
+    int size = 1024;
+    Quaternion[] quaternions = new Quaternion[size];
+    for (int i = 0; i < size; ++i) {
+      quaternions[i] = new Quaternion(i, -i, 0.5 * i, 1.0);
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(quaternions);
+    out.close();
+
+    ByteBuffer buffer = ByteBuffer.allocate(QuaternionCodec.HEADER_BYTES +
+      size * 32);
+    QuaternionCodec.DOUBLE.writeHeader(size, buffer);
+    QuaternionCodec.DOUBLE.encode(new QuaternionArray(quaternions), 0, size,
+      buffer);
+    assertEquals(buffer.position(), QuaternionCodec.HEADER_BYTES + size * 32);
+    // Java serialization adds per-object headers on top of the four doubles
+    assertTrue(bytes.size() > buffer.position());
+  }
+
+  @Test(expected = BufferOverflowException.class)
+  public void testEncodeOverflow() throws Exception {
+    ByteBuffer buffer = ByteBuffer.allocate(100);
+    try {
+      QuaternionCodec.DOUBLE.encode(sampleArray(), 0, 5, buffer);
+    } finally {
+      assertEquals(buffer.position(), 0);
+    }
+  }
+
+  @Test(expected = BufferUnderflowException.class)
+  public void testDecodeUnderflow() throws Exception {
+    ByteBuffer buffer = ByteBuffer.allocate(31);
+    QuaternionCodec.DOUBLE.decode(buffer, new Quaternion());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidMagic() throws Exception {
+    QuaternionCodec.DOUBLE.readHeader(ByteBuffer.allocate(16));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnsupportedVersion() throws Exception {
+    ByteBuffer buffer = ByteBuffer.allocate(16);
+    QuaternionCodec.DOUBLE.writeHeader(0, buffer);
+    buffer.order(ByteOrder.LITTLE_ENDIAN).putShort(4, (short) 99);
+    buffer.flip();
+    QuaternionCodec.DOUBLE.readHeader(buffer);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPrecisionMismatch() throws Exception {
+    ByteBuffer buffer = ByteBuffer.allocate(16);
+    QuaternionCodec.FLOAT.writeHeader(0, buffer);
+    buffer.flip();
+    assertSame(QuaternionCodec.forHeader(buffer), QuaternionCodec.FLOAT);
+    QuaternionCodec.DOUBLE.readHeader(buffer);
+  }
+
+  @Test
+  public void testChannelRoundTrip() throws Exception {
+    int size = 1000;
+    QuaternionArray array = new QuaternionArray(size);
+    for (int i = 0; i < size; ++i) {
+      array.set(i, i, -i, 0.5 * i, 1.0 / (i + 1));
+    }
+
+    for (QuaternionCodec codec :
+        new QuaternionCodec[] {QuaternionCodec.DOUBLE, QuaternionCodec.FLOAT}) {
+      // A scratch buffer that is not a multiple of the element size
+      ByteBuffer scratch = ByteBuffer.allocate(100);
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      codec.write(array, 0, size, Channels.newChannel(bytes), scratch);
+      assertEquals(bytes.size(),
+        QuaternionCodec.HEADER_BYTES + size * codec.getQuaternionBytes());
+
+      QuaternionArray decoded = codec.read(Channels.newChannel(
+        new ByteArrayInputStream(bytes.toByteArray())), scratch);
+      assertEquals(decoded.size(), size);
+      for (int i = 0; i < size; ++i) {
+        Quaternion expected = array.get(i);
+        if (codec == QuaternionCodec.FLOAT) {
+          expected = new Quaternion((float) expected.getX(),
+            (float) expected.getY(), (float) expected.getZ(),
+            (float) expected.getW());
+        }
+        assertEquals(decoded.get(i), expected);
+      }
+    }
+  }
+
+  @Test
+  public void testChannelEmptyArray() throws Exception {
+    ByteBuffer scratch = ByteBuffer.allocate(32);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    QuaternionCodec.DOUBLE.write(new QuaternionArray(0), 0, 0,
+      Channels.newChannel(bytes), scratch);
+    assertEquals(bytes.size(), QuaternionCodec.HEADER_BYTES);
+    QuaternionArray decoded = QuaternionCodec.DOUBLE.read(Channels.newChannel(
+      new ByteArrayInputStream(bytes.toByteArray())), scratch);
+    assertEquals(decoded.size(), 0);
+  }
+
+  @Test(expected = EOFException.class)
+  public void testChannelTruncated() throws Exception {
+    ByteBuffer scratch = ByteBuffer.allocate(64);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    QuaternionCodec.DOUBLE.write(sampleArray(), 0, 5,
+      Channels.newChannel(bytes), scratch);
+    byte[] truncated = java.util.Arrays.copyOf(bytes.toByteArray(),
+      bytes.size() - 1);
+    QuaternionCodec.DOUBLE.read(Channels.newChannel(
+      new ByteArrayInputStream(truncated)), scratch);
+  }
+
+  @Test(expected = EOFException.class)
+  public void testChannelTruncatedWithHugeCount() throws Exception {
+    // A corrupt header announcing Integer.MAX_VALUE quaternions, followed by
+    // only two: the read must fail on the payload, not on allocation
+    ByteBuffer stream = ByteBuffer.allocate(QuaternionCodec.HEADER_BYTES +
+      2 * QuaternionCodec.DOUBLE.getQuaternionBytes());
+    QuaternionCodec.DOUBLE.writeHeader(Integer.MAX_VALUE, stream);
+    QuaternionCodec.DOUBLE.encode(sampleArray(), 0, 2, stream);
+    QuaternionCodec.DOUBLE.read(Channels.newChannel(
+      new ByteArrayInputStream(stream.array())), ByteBuffer.allocate(64));
+  }
+
+  @Test
+  public void testChannelGrowsPastInitialCapacity() throws Exception {
+    int size = 10000;
+    QuaternionArray array = new QuaternionArray(size);
+    for (int i = 0; i < size; ++i) {
+      array.set(i, i, 1.0, -i, 0.25);
+    }
+    ByteBuffer scratch = ByteBuffer.allocate(1000);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    QuaternionCodec.DOUBLE.write(array, 0, size, Channels.newChannel(bytes),
+      scratch);
+    QuaternionArray decoded = QuaternionCodec.DOUBLE.read(Channels.newChannel(
+      new ByteArrayInputStream(bytes.toByteArray())), scratch);
+    assertEquals(decoded.size(), size);
+    for (int i = 0; i < size; ++i) {
+      assertEquals(decoded.get(i), array.get(i));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testScratchTooSmall() throws Exception {
+    QuaternionCodec.DOUBLE.write(sampleArray(), 0, 5,
+      Channels.newChannel(new ByteArrayOutputStream()),
+      ByteBuffer.allocate(16));
+  }
+}
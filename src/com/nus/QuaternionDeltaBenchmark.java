@@ -0,0 +1,109 @@
+package com.nus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of {@link QuaternionDeltaEncoder} and
+ * {@link QuaternionDeltaDecoder} against the uncompressed
+ * {@link QuaternionCodec#DOUBLE} encoding, on a stream of {@code size}
+ * orientations sampled at 1 kHz while rotating at about 1 radian per second.
+ * The compression ratio is checked by {@code QuaternionDeltaEncoderTest}
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class QuaternionDeltaBenchmark {
+
+  @Param({"65536"})
+  public int size;
+
+  @Param({"1e-4"})
+  public double step;
+
+  private QuaternionArray array;
+  private QuaternionArray decoded;
+  private ByteBuffer deltaBuffer;
+  private int deltaBytes;
+  private ByteBuffer doubleBuffer;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(QuaternionBenchmark.SEED);
+    array = new QuaternionArray(size);
+    decoded = new QuaternionArray(size);
+    Quaternion q = QuaternionBenchmark.randomUnitQuaternion(random);
+    Quaternion rotation = new Quaternion();
+    double dt = 1e-3;
+    for (int i = 0; i < size; ++i) {
+      array.set(i, q);
+      double wx = 0.6 + 0.1 * random.nextGaussian();
+      double wy = -0.5 + 0.1 * random.nextGaussian();
+      double wz = 0.6 + 0.1 * random.nextGaussian();
+      rotation.set(wx * dt / 2, wy * dt / 2, wz * dt / 2, 1.0);
+      rotation.normalize();
+      q.multiplyEq(rotation);
+      q.normalize();
+    }
+
+    deltaBuffer = ByteBuffer.allocateDirect(
+      QuaternionDeltaEncoder.HEADER_BYTES +
+      size * QuaternionDeltaEncoder.MAX_SAMPLE_BYTES);
+    doubleBuffer = ByteBuffer.allocateDirect(
+      QuaternionCodec.HEADER_BYTES + size * 32);
+    deltaBytes = encodeDelta().position();
+    encodeDouble();
+  }
+
+  @Benchmark
+  public ByteBuffer encodeDelta() {
+    deltaBuffer.clear();
+    QuaternionDeltaEncoder encoder = new QuaternionDeltaEncoder(step, 256);
+    encoder.writeHeader(deltaBuffer);
+    encoder.encode(array, 0, size, deltaBuffer);
+    return deltaBuffer;
+  }
+
+  @Benchmark
+  public QuaternionArray decodeDelta() {
+    deltaBuffer.clear().limit(deltaBytes);
+    QuaternionDeltaDecoder decoder =
+      QuaternionDeltaDecoder.readHeader(deltaBuffer);
+    decoder.decode(deltaBuffer, decoded, 0, size);
+    return decoded;
+  }
+
+  @Benchmark
+  public ByteBuffer encodeDouble() {
+    doubleBuffer.clear();
+    QuaternionCodec.DOUBLE.writeHeader(size, doubleBuffer);
+    QuaternionCodec.DOUBLE.encode(array, 0, size, doubleBuffer);
+    return doubleBuffer;
+  }
+
+  @Benchmark
+  public QuaternionArray decodeDouble() {
+    doubleBuffer.rewind();
+    int count = (int) QuaternionCodec.DOUBLE.readHeader(doubleBuffer);
+    QuaternionCodec.DOUBLE.decode(doubleBuffer, decoded, 0, count);
+    return decoded;
+  }
+}
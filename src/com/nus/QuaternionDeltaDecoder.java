@@ -0,0 +1,314 @@
+package com.nus;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Decompressor for the streams written by {@link QuaternionDeltaEncoder}.
+ * Decoding a delta sample is a few byte loads, a square root and a quaternion
+ * product, with no division or trigonometry.
+ *
+ * <p>Samples are decoded in order from a keyframe. To start elsewhere than at
+ * the first sample, position the buffer at the offset of a keyframe, as
+ * recorded by {@link QuaternionDeltaEncoder#getKeyframeOffsets()}, and call
+ * {@link #seekToKeyframe(long)}. A decoder is not thread-safe and does not
+ * allocate
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+public final class QuaternionDeltaDecoder {
+  public static final String INVALID_HEADER_MSG =
+    "Input does not start with a delta stream header";
+  public static final String UNSUPPORTED_VERSION_MSG =
+    "Unsupported delta stream version";
+  public static final String INVALID_KEYFRAME_MSG =
+    "Keyframe index must be non-negative";
+
+  private final double step;
+  private final int keyframeInterval;
+  // The last decoded sample
+  private final Quaternion last = new Quaternion();
+  private long count;
+  // Number of delta samples before the next keyframe
+  private int untilKeyframe;
+
+  /**
+   * Constructs a decoder for a stream encoded with the same parameters
+   *
+   * @param step The quantization step of the encoder
+   * @param keyframeInterval The keyframe interval of the encoder
+   * @throws IllegalArgumentException if the parameters are not valid encoder
+   *                                  parameters
+   */
+  public QuaternionDeltaDecoder(double step, int keyframeInterval)
+      throws IllegalArgumentException {
+    if (!(step >= QuaternionDeltaEncoder.MIN_STEP &&
+        step <= QuaternionDeltaEncoder.MAX_STEP)) {
+      throw new IllegalArgumentException(
+        QuaternionDeltaEncoder.INVALID_STEP_MSG);
+    }
+    if (keyframeInterval <= 0) {
+      throw new IllegalArgumentException(
+        QuaternionDeltaEncoder.INVALID_INTERVAL_MSG);
+    }
+    this.step = step;
+    this.keyframeInterval = keyframeInterval;
+  }
+
+  /**
+   * Reads a stream header and constructs a decoder for the samples after it
+   *
+   * @param src The source buffer, positioned at the header; its position is
+   *            advanced past the header
+   * @return A new decoder
+   * @throws BufferUnderflowException if the header is truncated
+   * @throws IllegalArgumentException if the header is invalid or of an
+   *                                  unsupported version
+   */
+  public static QuaternionDeltaDecoder readHeader(final ByteBuffer src)
+      throws BufferUnderflowException, IllegalArgumentException {
+    if (src.remaining() < QuaternionDeltaEncoder.HEADER_BYTES) {
+      throw new BufferUnderflowException();
+    }
+    ByteOrder order = src.order();
+    src.order(ByteOrder.LITTLE_ENDIAN);
+    try {
+      int position = src.position();
+      if (src.getInt(position) != QuaternionDeltaEncoder.MAGIC) {
+        throw new IllegalArgumentException(INVALID_HEADER_MSG);
+      }
+      if (src.getShort(position + 4) != QuaternionDeltaEncoder.VERSION) {
+        throw new IllegalArgumentException(UNSUPPORTED_VERSION_MSG);
+      }
+      int keyframeInterval = src.getInt(position + 8);
+      double step = src.getDouble(position + 16);
+      QuaternionDeltaDecoder decoder;
+      try {
+        decoder = new QuaternionDeltaDecoder(step, keyframeInterval);
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException(INVALID_HEADER_MSG, e);
+      }
+      src.position(position + QuaternionDeltaEncoder.HEADER_BYTES);
+      return decoder;
+    } finally {
+      src.order(order);
+    }
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Getters
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Gets the quantization step
+   *
+   * @return The quantization step
+   */
+  public double getStep() {
+    return step;
+  }
+
+  /**
+   * Gets the keyframe interval
+   *
+   * @return The number of samples from one keyframe to the next
+   */
+  public int getKeyframeInterval() {
+    return keyframeInterval;
+  }
+
+  /**
+   * Gets the index of the next sample to be decoded
+   *
+   * @return The sample index
+   */
+  public long getCount() {
+    return count;
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Decoding
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Makes keyframe {@code keyframe}, which is sample
+   * {@code keyframe * getKeyframeInterval()}, the next sample to be decoded.
+   * The source buffer must be positioned at its offset
+   *
+   * @param keyframe The keyframe index
+   * @throws IllegalArgumentException if {@code keyframe} is negative
+   */
+  public void seekToKeyframe(long keyframe) throws IllegalArgumentException {
+    if (keyframe < 0) {
+      throw new IllegalArgumentException(INVALID_KEYFRAME_MSG);
+    }
+    count = keyframe * keyframeInterval;
+    untilKeyframe = 0;
+  }
+
+  /**
+   * Decodes the next sample
+   *
+   * @param src The source buffer
+   * @param out The Quaternion receiving the sample
+   * @throws BufferUnderflowException if the buffer ends within the sample;
+   *                                  the decoder cannot be used afterwards
+   */
+  public void decode(final ByteBuffer src, final Quaternion out)
+      throws BufferUnderflowException {
+    ByteOrder order = src.order();
+    src.order(ByteOrder.LITTLE_ENDIAN);
+    try {
+      decodeNext(src);
+    } finally {
+      src.order(order);
+    }
+    out.set(last);
+  }
+
+  /**
+   * Decodes the next samples into {@code dst[fromIndex, toIndex)}, stopping
+   * early if the buffer is exhausted
+   *
+   * @param src The source buffer
+   * @param dst The array receiving the samples
+   * @param fromIndex The index of the first quaternion, inclusive
+   * @param toIndex The index of the last quaternion, exclusive
+   * @return The index of the first quaternion not written, which is less
+   *         than {@code toIndex} if the buffer was exhausted
+   * @throws IllegalArgumentException if the index range is invalid
+   * @throws BufferUnderflowException if the buffer ends within a sample; the
+   *                                  decoder cannot be used afterwards
+   */
+  public int decode(final ByteBuffer src, final QuaternionArray dst,
+      int fromIndex, int toIndex)
+      throws IllegalArgumentException, BufferUnderflowException {
+    dst.checkRange(fromIndex, toIndex);
+    ByteOrder order = src.order();
+    src.order(ByteOrder.LITTLE_ENDIAN);
+    int i = fromIndex;
+    try {
+      // Fast path for whole samples whose deltas all fit in one byte each,
+      // the common case, reading at absolute indices
+      int position = src.position();
+      int fastLimit = src.limit() - QuaternionDeltaEncoder.MAX_SAMPLE_BYTES;
+      for (; i < toIndex && position <= fastLimit; ++i) {
+        int bx = src.get(position);
+        int by = src.get(position + 1);
+        int bz = src.get(position + 2);
+        if (untilKeyframe != 0 && (bx | by | bz) >= 0) {
+          applyDelta(last, (bx >>> 1) ^ -(bx & 1), (by >>> 1) ^ -(by & 1),
+            (bz >>> 1) ^ -(bz & 1), step);
+          position += 3;
+          --untilKeyframe;
+          ++count;
+        } else {
+          src.position(position);
+          decodeNext(src);
+          position = src.position();
+        }
+        dst.x[i] = last.getX();
+        dst.y[i] = last.getY();
+        dst.z[i] = last.getZ();
+        dst.w[i] = last.getW();
+      }
+      src.position(position);
+
+      for (; i < toIndex && src.hasRemaining(); ++i) {
+        decodeNext(src);
+        dst.x[i] = last.getX();
+        dst.y[i] = last.getY();
+        dst.z[i] = last.getZ();
+        dst.w[i] = last.getW();
+      }
+    } finally {
+      src.order(order);
+    }
+    return i;
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Package-private static methods
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Replaces {@code q} with {@code q * d}, for the unit quaternion {@code d}
+   * whose vector part is {@code (kx, ky, kz) * step} and whose scalar part is
+   * non-negative. A vector part longer than 1, which quantization can produce
+   * for a delta near 180 degrees, is scaled to length 1. The encoder calls
+   * this method to track the decoded values exactly
+   */
+  static void applyDelta(final Quaternion q, long kx, long ky, long kz,
+      double step) {
+    double dx = kx * step;
+    double dy = ky * step;
+    double dz = kz * step;
+    double squaredNorm = dx * dx + dy * dy + dz * dz;
+    double dw;
+    if (squaredNorm <= 1.0) {
+      dw = Math.sqrt(1.0 - squaredNorm);
+    } else {
+      double invNorm = 1.0 / Math.sqrt(squaredNorm);
+      dx *= invNorm;
+      dy *= invNorm;
+      dz *= invNorm;
+      dw = 0.0;
+    }
+
+    double x = q.getX();
+    double y = q.getY();
+    double z = q.getZ();
+    double w = q.getW();
+    q.set(w * dx + x * dw + y * dz - z * dy,
+      w * dy - x * dz + y * dw + z * dx,
+      w * dz + x * dy - y * dx + z * dw,
+      w * dw - x * dx - y * dy - z * dz);
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Private methods
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Decodes the next sample into {@code last}, reading {@code src} in
+   * little-endian order
+   */
+  private void decodeNext(final ByteBuffer src)
+      throws BufferUnderflowException {
+    if (untilKeyframe == 0) {
+      last.set(src.getDouble(), src.getDouble(), src.getDouble(),
+        src.getDouble());
+      untilKeyframe = keyframeInterval;
+    } else {
+      long kx = getVarLong(src);
+      long ky = getVarLong(src);
+      long kz = getVarLong(src);
+      applyDelta(last, kx, ky, kz, step);
+    }
+    --untilKeyframe;
+    ++count;
+  }
+
+  /**
+   * Reads a value written by {@code QuaternionDeltaEncoder.putVarLong}
+   */
+  private static long getVarLong(final ByteBuffer src)
+      throws BufferUnderflowException {
+    long b = src.get();
+    long zigzag = b & 0x7f;
+    for (int shift = 7; b < 0; shift += 7) {
+      b = src.get();
+      zigzag |= (b & 0x7f) << shift;
+    }
+    return (zigzag >>> 1) ^ -(zigzag & 1);
+  }
+}
@@ -0,0 +1,287 @@
+package com.nus;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Streaming compressor for sequences of unit quaternions that change slowly,
+ * such as orientation sensor logs. Every {@code keyframeInterval}-th sample is
+ * stored in full as a keyframe; each other sample is stored as the rotation
+ * {@code d = r^-1 q} from the previously decoded sample {@code r}.
+ *
+ * <p>A small rotation {@code d}, with its scalar part made non-negative, is
+ * determined by its vector part, whose components are close to 0. They are
+ * quantized to multiples of {@code step} and written as zigzag variable
+ * length integers, one byte each while below {@code 64 * step}, so a sample
+ * typically costs 3 bytes instead of 32. The encoder tracks the value the
+ * decoder will reconstruct and encodes deltas from it, so quantization errors
+ * do not accumulate: the rotation angle between each decoded sample and its
+ * input is about {@code sqrt(3) * step} at most, for deltas of a few degrees.
+ *
+ * <p>All values are little-endian. A stream starts with a
+ * {@link #HEADER_BYTES}-byte header, written by
+ * {@link #writeHeader(ByteBuffer)}:
+ *
+ * <pre>
+ * offset  size  content
+ *      0     4  magic number {@link #MAGIC}
+ *      4     2  format version {@link #VERSION}
+ *      6     2  reserved, 0
+ *      8     4  keyframe interval
+ *     12     4  reserved, 0
+ *     16     8  quantization step
+ * </pre>
+ *
+ * <p>The samples follow the header. A keyframe is the four components as
+ * doubles, a delta is three variable length integers. The byte offset of
+ * every keyframe is
+ * recorded by {@link #getKeyframeOffsets()}, which lets
+ * {@link QuaternionDeltaDecoder#seekToKeyframe(long)} start decoding at any
+ * keyframe.
+ *
+ * <p>An encoder is not thread-safe and does not allocate while encoding,
+ * except to grow its keyframe table
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+public final class QuaternionDeltaEncoder {
+  public static final int MAGIC = 0x544c4451; // "QDLT" in little-endian
+  public static final short VERSION = 1;
+  public static final int HEADER_BYTES = 24;
+
+  /**
+   * Upper bound of the number of bytes of an encoded sample
+   */
+  public static final int MAX_SAMPLE_BYTES = 4 * 8;
+
+  public static final double MIN_STEP = 1e-9;
+  public static final double MAX_STEP = 0.01;
+
+  public static final String INVALID_STEP_MSG =
+    "Quantization step must be in [1e-9, 0.01]";
+  public static final String INVALID_INTERVAL_MSG =
+    "Keyframe interval must be positive";
+
+  private final double step;
+  private final double invStep;
+  private final int keyframeInterval;
+  // Reconstructed value of the last sample, as the decoder will see it
+  private final Quaternion last = new Quaternion();
+  private long count;
+  // Number of delta samples before the next keyframe
+  private int untilKeyframe;
+  private long bytes;
+  private long[] keyframeOffsets = new long[16];
+
+  /**
+   * Constructs an encoder
+   *
+   * @param step The quantization step of the delta components; the angular
+   *             error is about {@code sqrt(3) * step} radians
+   * @param keyframeInterval The number of samples from one keyframe to the
+   *                         next
+   * @throws IllegalArgumentException if {@code step} is not in
+   *                                  [{@link #MIN_STEP}, {@link #MAX_STEP}] or
+   *                                  {@code keyframeInterval} is not positive
+   */
+  public QuaternionDeltaEncoder(double step, int keyframeInterval)
+      throws IllegalArgumentException {
+    if (!(step >= MIN_STEP && step <= MAX_STEP)) {
+      throw new IllegalArgumentException(INVALID_STEP_MSG);
+    }
+    if (keyframeInterval <= 0) {
+      throw new IllegalArgumentException(INVALID_INTERVAL_MSG);
+    }
+    this.step = step;
+    this.invStep = 1.0 / step;
+    this.keyframeInterval = keyframeInterval;
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Getters
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Gets the quantization step
+   *
+   * @return The quantization step
+   */
+  public double getStep() {
+    return step;
+  }
+
+  /**
+   * Gets the keyframe interval
+   *
+   * @return The number of samples from one keyframe to the next
+   */
+  public int getKeyframeInterval() {
+    return keyframeInterval;
+  }
+
+  /**
+   * Gets the number of samples encoded so far
+   *
+   * @return The number of samples
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Gets the number of sample bytes written so far, excluding the header
+   *
+   * @return The number of bytes
+   */
+  public long getEncodedBytes() {
+    return bytes;
+  }
+
+  /**
+   * Gets the byte offset of every keyframe written so far, relative to the
+   * end of the header. Keyframe {@code k} is sample
+   * {@code k * getKeyframeInterval()}
+   *
+   * @return A new array of keyframe offsets
+   */
+  public long[] getKeyframeOffsets() {
+    int keyframes = (int) ((count + keyframeInterval - 1) / keyframeInterval);
+    return Arrays.copyOf(keyframeOffsets, keyframes);
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Encoding
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Writes the stream header, holding the step and keyframe interval
+   *
+   * @param dst The destination buffer
+   * @throws BufferOverflowException if fewer than {@link #HEADER_BYTES} bytes
+   *                                 remain
+   */
+  public void writeHeader(final ByteBuffer dst)
+      throws BufferOverflowException {
+    if (dst.remaining() < HEADER_BYTES) {
+      throw new BufferOverflowException();
+    }
+    ByteOrder order = dst.order();
+    dst.order(ByteOrder.LITTLE_ENDIAN);
+    dst.putInt(MAGIC);
+    dst.putShort(VERSION);
+    dst.putShort((short) 0);
+    dst.putInt(keyframeInterval);
+    dst.putInt(0);
+    dst.putDouble(step);
+    dst.order(order);
+  }
+
+  /**
+   * Encodes a sample
+   *
+   * @param q The unit quaternion to be encoded
+   * @param dst The destination buffer
+   * @throws BufferOverflowException if fewer than {@link #MAX_SAMPLE_BYTES}
+   *                                 bytes remain; nothing is written then
+   */
+  public void encode(final Quaternion q, final ByteBuffer dst)
+      throws BufferOverflowException {
+    encode(q.getX(), q.getY(), q.getZ(), q.getW(), dst);
+  }
+
+  /**
+   * Encodes the samples {@code src[fromIndex, toIndex)}
+   *
+   * @param src The unit quaternions to be encoded
+   * @param fromIndex The index of the first quaternion, inclusive
+   * @param toIndex The index of the last quaternion, exclusive
+   * @param dst The destination buffer
+   * @return The index of the first sample not encoded, which is less than
+   *         {@code toIndex} if fewer than {@link #MAX_SAMPLE_BYTES} bytes
+   *         remained for it
+   * @throws IllegalArgumentException if the index range is invalid
+   */
+  public int encode(final QuaternionArray src, int fromIndex, int toIndex,
+      final ByteBuffer dst) throws IllegalArgumentException {
+    src.checkRange(fromIndex, toIndex);
+    int i = fromIndex;
+    for (; i < toIndex && dst.remaining() >= MAX_SAMPLE_BYTES; ++i) {
+      encode(src.x[i], src.y[i], src.z[i], src.w[i], dst);
+    }
+    return i;
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Private methods
+  //
+  /////////////////////////////////////////////////////////
+
+  private void encode(double x, double y, double z, double w,
+      final ByteBuffer dst) throws BufferOverflowException {
+    if (dst.remaining() < MAX_SAMPLE_BYTES) {
+      throw new BufferOverflowException();
+    }
+
+    int start = dst.position();
+    if (untilKeyframe == 0) {
+      int keyframe = (int) (count / keyframeInterval);
+      if (keyframe == keyframeOffsets.length) {
+        keyframeOffsets = Arrays.copyOf(keyframeOffsets, 2 * keyframe);
+      }
+      keyframeOffsets[keyframe] = bytes;
+
+      ByteOrder order = dst.order();
+      dst.order(ByteOrder.LITTLE_ENDIAN);
+      dst.putDouble(x).putDouble(y).putDouble(z).putDouble(w);
+      dst.order(order);
+      last.set(x, y, z, w);
+      untilKeyframe = keyframeInterval;
+    } else {
+      // d = conj(last) * q, for a unit last
+      double lx = last.getX();
+      double ly = last.getY();
+      double lz = last.getZ();
+      double lw = last.getW();
+      double dw = lw * w + lx * x + ly * y + lz * z;
+      double dx = lw * x - lx * w - ly * z + lz * y;
+      double dy = lw * y + lx * z - ly * w - lz * x;
+      double dz = lw * z - lx * y + ly * x - lz * w;
+      if (dw < 0.0) {
+        dx = -dx;
+        dy = -dy;
+        dz = -dz;
+      }
+
+      long kx = Math.round(dx * invStep);
+      long ky = Math.round(dy * invStep);
+      long kz = Math.round(dz * invStep);
+      putVarLong(dst, kx);
+      putVarLong(dst, ky);
+      putVarLong(dst, kz);
+      QuaternionDeltaDecoder.applyDelta(last, kx, ky, kz, step);
+    }
+    bytes += dst.position() - start;
+    --untilKeyframe;
+    ++count;
+  }
+
+  /**
+   * Writes a signed value as a zigzag-encoded, little-endian base-128
+   * integer: 7 bits per byte, with the high bit set on all but the last byte
+   */
+  private static void putVarLong(final ByteBuffer dst, long value) {
+    long zigzag = (value << 1) ^ (value >> 63);
+    while ((zigzag & ~0x7fL) != 0) {
+      dst.put((byte) ((zigzag & 0x7f) | 0x80));
+      zigzag >>>= 7;
+    }
+    dst.put((byte) zigzag);
+  }
+}
@@ -0,0 +1,213 @@
+package com.nus;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import static com.nus.QuaternionTestUtils.angleBetween;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+public class QuaternionDeltaEncoderTest {
+  private static final double STEP = 1e-4;
+  private static final int INTERVAL = 256;
+
+  /**
+   * Integrates a random angular velocity of about {@code rate} radians per
+   * second sampled every millisecond, like a gyroscope log
+   */
+  static QuaternionArray randomWalk(Random random, int size, double rate) {
+    QuaternionArray array = new QuaternionArray(size);
+    Quaternion q = new Quaternion(random.nextGaussian(),
+      random.nextGaussian(), random.nextGaussian(), random.nextGaussian());
+    q.normalize();
+    double wx = 0.0;
+    double wy = 0.0;
+    double wz = 0.0;
+    double dt = 1e-3;
+    for (int i = 0; i < size; ++i) {
+      array.set(i, q.getX(), q.getY(), q.getZ(), q.getW());
+      wx = 0.99 * wx + 0.1 * rate * random.nextGaussian();
+      wy = 0.99 * wy + 0.1 * rate * random.nextGaussian();
+      wz = 0.99 * wz + 0.1 * rate * random.nextGaussian();
+      double angle = Math.sqrt(wx * wx + wy * wy + wz * wz) * dt;
+      double s = angle > 0.0 ? Math.sin(angle / 2) / (angle / dt) : 0.0;
+      q.multiplyEq(new Quaternion(wx * s, wy * s, wz * s,
+        Math.cos(angle / 2)));
+      q.normalize();
+    }
+    return array;
+  }
+
+  private static ByteBuffer encode(QuaternionDeltaEncoder encoder,
+      QuaternionArray src) {
+    ByteBuffer buffer = ByteBuffer.allocate(QuaternionDeltaEncoder.HEADER_BYTES
+      + src.size() * QuaternionDeltaEncoder.MAX_SAMPLE_BYTES);
+    encoder.writeHeader(buffer);
+    assertEquals(encoder.encode(src, 0, src.size(), buffer), src.size());
+    buffer.flip();
+    return buffer;
+  }
+
+  @Test
+  public void testRoundTripErrorAndSize() {
+    Random random = new Random(11);
+    int size = 10000;
+    QuaternionArray src = randomWalk(random, size, 1.0);
+    QuaternionDeltaEncoder encoder = new QuaternionDeltaEncoder(STEP, INTERVAL);
+    ByteBuffer buffer = encode(encoder, src);
+    assertEquals(encoder.getCount(), size);
+    assertEquals(buffer.remaining(),
+      QuaternionDeltaEncoder.HEADER_BYTES + encoder.getEncodedBytes());
+
+    // At least 8 times smaller than 32 bytes per sample
+    assertTrue(encoder.getEncodedBytes() * 8 < size * 32L);
+
+    QuaternionDeltaDecoder decoder = QuaternionDeltaDecoder.readHeader(buffer);
+    assertEquals(decoder.getStep(), STEP, 0.0);
+    assertEquals(decoder.getKeyframeInterval(), INTERVAL);
+    QuaternionArray dst = new QuaternionArray(size);
+    assertEquals(decoder.decode(buffer, dst, 0, size), size);
+    assertEquals(buffer.remaining(), 0);
+
+    // Errors are bounded and do not accumulate between keyframes
+    double bound = Math.sqrt(3.0) * STEP * 1.01;
+    for (int i = 0; i < size; ++i) {
+      Quaternion p = src.get(i);
+      Quaternion q = dst.get(i);
+      assertTrue(angleBetween(p, q) <= bound);
+      assertEquals(q.norm(), 1.0, 1e-12);
+      if (i % INTERVAL == 0) {
+        assertQuaternionExact(p, q);
+      }
+    }
+  }
+
+  @Test
+  public void testSeekToKeyframe() {
+    Random random = new Random(12);
+    int size = 1000;
+    int interval = 100;
+    QuaternionArray src = randomWalk(random, size, 2.0);
+    QuaternionDeltaEncoder encoder = new QuaternionDeltaEncoder(STEP, interval);
+    ByteBuffer buffer = encode(encoder, src);
+    long[] offsets = encoder.getKeyframeOffsets();
+    assertEquals(offsets.length, 10);
+    assertEquals(offsets[0], 0L);
+
+    QuaternionDeltaDecoder decoder = QuaternionDeltaDecoder.readHeader(buffer);
+    QuaternionArray all = new QuaternionArray(size);
+    decoder.decode(buffer, all, 0, size);
+
+    Quaternion actual = new Quaternion();
+    for (int keyframe = offsets.length - 1; keyframe >= 0; --keyframe) {
+      buffer.position(QuaternionDeltaEncoder.HEADER_BYTES +
+        (int) offsets[keyframe]);
+      decoder.seekToKeyframe(keyframe);
+      assertEquals(decoder.getCount(), (long) keyframe * interval);
+      for (int i = keyframe * interval; i < (keyframe + 1) * interval; ++i) {
+        decoder.decode(buffer, actual);
+        assertQuaternionExact(actual, all.get(i));
+      }
+    }
+  }
+
+  @Test
+  public void testLargeDeltas() {
+    // Deltas of any angle round-trip, at a larger cost and error
+    Random random = new Random(13);
+    int size = 500;
+    QuaternionArray src = new QuaternionArray(size);
+    for (int i = 0; i < size; ++i) {
+      src.set(i, random.nextGaussian(), random.nextGaussian(),
+        random.nextGaussian(), random.nextGaussian());
+    }
+    src.normalize();
+    QuaternionDeltaEncoder encoder = new QuaternionDeltaEncoder(1e-3, 64);
+    ByteBuffer buffer = encode(encoder, src);
+    QuaternionDeltaDecoder decoder = QuaternionDeltaDecoder.readHeader(buffer);
+    Quaternion q = new Quaternion();
+    for (int i = 0; i < size; ++i) {
+      decoder.decode(buffer, q);
+      assertTrue(angleBetween(src.get(i), q) < 0.1);
+      assertEquals(q.norm(), 1.0, 1e-12);
+    }
+  }
+
+  @Test
+  public void testBufferByteOrderIsRestored() {
+    QuaternionArray src = randomWalk(new Random(14), 10, 1.0);
+    ByteBuffer buffer = ByteBuffer.allocate(1024).order(ByteOrder.BIG_ENDIAN);
+    QuaternionDeltaEncoder encoder = new QuaternionDeltaEncoder(STEP, 4);
+    encoder.writeHeader(buffer);
+    encoder.encode(src, 0, 10, buffer);
+    assertEquals(buffer.order(), ByteOrder.BIG_ENDIAN);
+    buffer.flip();
+    QuaternionDeltaDecoder decoder = QuaternionDeltaDecoder.readHeader(buffer);
+    QuaternionArray dst = new QuaternionArray(20);
+    assertEquals(decoder.decode(buffer, dst, 5, 20), 15);
+    assertEquals(buffer.order(), ByteOrder.BIG_ENDIAN);
+  }
+
+  @Test
+  public void testPartialEncode() {
+    QuaternionArray src = randomWalk(new Random(15), 100, 1.0);
+    QuaternionDeltaEncoder encoder = new QuaternionDeltaEncoder(STEP, 50);
+    ByteBuffer buffer = ByteBuffer.allocate(64);
+    int next = encoder.encode(src, 0, 100, buffer);
+    assertTrue(next > 1 && next < 100);
+    assertEquals(encoder.getCount(), next);
+    assertTrue(buffer.remaining() < QuaternionDeltaEncoder.MAX_SAMPLE_BYTES);
+  }
+
+  @Test(expected = BufferOverflowException.class)
+  public void testEncodeOverflow() {
+    new QuaternionDeltaEncoder(STEP, 8).encode(new Quaternion(),
+      ByteBuffer.allocate(QuaternionDeltaEncoder.MAX_SAMPLE_BYTES - 1));
+  }
+
+  @Test(expected = BufferUnderflowException.class)
+  public void testDecodeTruncated() {
+    ByteBuffer buffer = ByteBuffer.allocate(16);
+    new QuaternionDeltaDecoder(STEP, 8).decode(buffer, new Quaternion());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidStep() {
+    new QuaternionDeltaEncoder(0.1, 8);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidInterval() {
+    new QuaternionDeltaDecoder(STEP, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidHeader() {
+    QuaternionDeltaDecoder.readHeader(
+      ByteBuffer.allocate(QuaternionDeltaEncoder.HEADER_BYTES));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidHeaderParameters() {
+    ByteBuffer buffer =
+      ByteBuffer.allocate(QuaternionDeltaEncoder.HEADER_BYTES);
+    new QuaternionDeltaEncoder(STEP, 8).writeHeader(buffer);
+    buffer.order(ByteOrder.LITTLE_ENDIAN).putInt(8, -1);
+    buffer.flip();
+    QuaternionDeltaDecoder.readHeader(buffer);
+  }
+
+  private static void assertQuaternionExact(Quaternion actual,
+      Quaternion expected) {
+    assertEquals(actual.getX(), expected.getX(), 0.0);
+    assertEquals(actual.getY(), expected.getY(), 0.0);
+    assertEquals(actual.getZ(), expected.getZ(), 0.0);
+    assertEquals(actual.getW(), expected.getW(), 0.0);
+  }
+}
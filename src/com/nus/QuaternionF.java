@@ -0,0 +1,766 @@
+package com.nus;
+
+import java.io.Serializable;
+
+/**
+ * Single-precision counterpart of {@link Quaternion}. The API mirrors that of
+ * Quaternion with {@code float} in place of {@code double}, and halves the
+ * memory and bandwidth needed per quaternion, which is usually enough
+ * precision for animation and rendering. Trigonometric functions are
+ * evaluated in double precision and rounded once.
+ *
+ * <p>Use {@link #QuaternionF(Quaternion)} and {@link #toQuaternion()} to
+ * convert between the two precisions
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+public class QuaternionF implements Serializable {
+  private float x;
+  private float y;
+  private float z;
+  private float w;
+
+  private static final long serialVersionUID = 1L;
+
+  public static final float EPSILON = 0.000001f;
+
+  //////////////////////////////////////////////////////////
+  //
+  // Constructors, setters and getters
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Default Constructor. Constructs an identity QuaternionF
+   * (0.0, 0.0, 0.0, 1.0)
+   */
+  public QuaternionF() {
+    this(0.0f, 0.0f, 0.0f, 1.0f);
+  }
+
+  /**
+   * Constructs and initializes a QuaternionF with 4 input parameters
+   *
+   * @param x the x coordinate
+   * @param y the y coordinate
+   * @param z the z coordinate
+   * @param w the scalar component
+   */
+  public QuaternionF(float x, float y, float z, float w) {
+    this.x = x;
+    this.y = y;
+    this.z = z;
+    this.w = w;
+  }
+
+  /**
+   * Copy constructor
+   *
+   * @param another the QuaternionF to be copied
+   */
+  public QuaternionF(final QuaternionF another) {
+    this.x = another.x;
+    this.y = another.y;
+    this.z = another.z;
+    this.w = another.w;
+  }
+
+  /**
+   * Constructs a QuaternionF by rounding each component of a double-precision
+   * Quaternion to the nearest float
+   *
+   * @param another the Quaternion to be converted
+   */
+  public QuaternionF(final Quaternion another) {
+    this.x = (float) another.getX();
+    this.y = (float) another.getY();
+    this.z = (float) another.getZ();
+    this.w = (float) another.getW();
+  }
+
+  /**
+   * Converts this QuaternionF to a double-precision Quaternion. The
+   * conversion is exact
+   *
+   * @return A new Quaternion with the components of this QuaternionF
+   */
+  public Quaternion toQuaternion() {
+    return new Quaternion(x, y, z, w);
+  }
+
+  /**
+   * Gets x-coordinate of this quaternion
+   *
+   * @return The x-coordinate of this quaternion
+   */
+  public float getX() {
+    return x;
+  }
+
+  /**
+   * Gets y-coordinate of this quaternion
+   *
+   * @return The y-coordinate of this quaternion
+   */
+  public float getY() {
+    return y;
+  }
+
+  /**
+   * Gets z-coordinate of this quaternion
+   *
+   * @return The z-coordinate of this quaternion
+   */
+  public float getZ() {
+    return z;
+  }
+
+  /**
+   * Gets w-component (scalar component) of this quaternion
+   *
+   * @return The w-component of this quaternion
+   */
+  public float getW() {
+    return w;
+  }
+
+  /**
+   * Gets the vector component (x, y, z) of this quaternion
+   *
+   * @return An array of size 3 representing the vector (x, y, z)
+   */
+  public float[] getVectorPart() {
+    return new float[] {this.x, this.y, this.z};
+  }
+
+  /**
+   * Get scalar component (w-component) of this quaternion
+   *
+   * @return The scalar component (w-component) of this quaternion
+   *
+   * @see #getW()
+   */
+  public float getScalarPart() {
+    return w;
+  }
+
+  /**
+   * Gets the angle (in degree) in the angle-axis representation of the rotation
+   * that this QuaternionF represents
+   *
+   * @return The angle (in degree) of the rotation
+   */
+  public float getAngle() {
+    return (float) Math.toDegrees(this.getAngleRad());
+  }
+
+  /**
+   * Gets the angle (in radian) in the angle-axis representation of the rotation
+   * that this QuaternionF represents
+   *
+   * @return The angle (in radian) of the rotation
+   */
+  public float getAngleRad() {
+    double vNorm = Math.sqrt(x * x + y * y + z * z);
+    return (float) (2 * Math.atan2(vNorm, w));
+  }
+
+  /**
+   * Gets the vector axis in the angle-axis representation of the rotation that
+   * this QuaternionF represents
+   *
+   * @return A unit vector for the rotation axis, or a zero vector in
+   *         degenerate case
+   */
+  public float[] getRotationAxis() {
+    float[] axis = new float[] {0.0f, 0.0f, 0.0f};
+    double vNorm = Math.sqrt(x * x + y * y + z * z);
+    if (vNorm > EPSILON * this.norm()) {
+      axis[0] = (float) (x / vNorm);
+      axis[1] = (float) (y / vNorm);
+      axis[2] = (float) (z / vNorm);
+    }
+    return axis;
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Truth methods for QuaternionF
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Checks if this QuaternionF is an identity quaternion (0.0, 0.0, 0.0, 1.0)
+   *
+   * @return {@code true} if this QuaternionF is an identity quaternion, or
+   * {@code false} otherwise
+   */
+  public boolean isIdentity() {
+    return Math.abs(this.squaredNorm() - 1.0f) < EPSILON &&
+      Math.abs(this.w - 1.0f) < EPSILON;
+  }
+
+  /**
+   * Checks if this QuaternionF is a unit quaternion
+   * @return {@code true} if this QuaternionF is a unit quaternion, or
+   * {@code false} otherwise
+   */
+  public boolean isUnit() {
+    return Math.abs(this.norm() - 1.0f) < EPSILON;
+  }
+
+  /**
+   * Checks if this QuaternionF equals to the input QuaternionF within the
+   * specified tolerance threshold
+   *
+   * @param another Another QuaternionF for comparison
+   * @param threshold A tolerance threshold value
+   * @return {@code true} if two QuaternionFs are equal within the tolerance
+   *         threshold (that means corresponding components are equal within
+   *         the tolerance threshold); {@code false} otherwise
+   */
+  public boolean equals(final QuaternionF another, float threshold) {
+    if (another == null) {
+      return false;
+    }
+
+    return Math.abs(another.x - this.x) < threshold &&
+      Math.abs(another.y - this.y) < threshold &&
+      Math.abs(another.z - this.z) < threshold &&
+      Math.abs(another.w - this.w) < threshold;
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // QuaternionF normalization
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Computes the norm of this quaternion
+   *
+   * @return the norm of this quaternion
+   */
+  public final float norm() {
+    return (float) Math.sqrt(x * x + y * y + z * z + w * w);
+  }
+
+  /**
+   * Computes the square of the norm of this quaternion
+   *
+   * @return the square of the norm
+   */
+  public final float squaredNorm() {
+    return x * x + y * y + z * z + w * w;
+  }
+
+  /**
+   * Normalizes the quaternion so that it has norm 1
+   */
+  public final void normalize() {
+    float qNorm = this.norm();
+    this.x /= qNorm;
+    this.y /= qNorm;
+    this.z /= qNorm;
+    this.w /= qNorm;
+  }
+
+  /**
+   * Normalizes the quaternion so that it has norm 1
+   *
+   * @see #normalize()
+   */
+  public final void toUnit() {
+    this.normalize();
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // QuaternionF Arithmetics
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Gets the conjugate of this quaternion
+   *
+   * @return the conjugate quaternion
+   */
+  public final QuaternionF conjugate() {
+    return new QuaternionF(-this.x, -this.y, -this.z, this.w);
+  }
+
+  /**
+   * Gets the conjugate of this quaternion and assigns it to this object
+   */
+  public final void conjugateEq() {
+    this.x = -this.x;
+    this.y = -this.y;
+    this.z = -this.z;
+  }
+
+  /**
+   * Performs addition of two quaternions
+   *
+   * @param another The other quaternion involving in the addition
+   * @return The quaternion which is the sum result
+   */
+  public final QuaternionF add(final QuaternionF another) {
+    QuaternionF result = new QuaternionF(this);
+    result.addEq(another);
+    return result;
+  }
+
+  /**
+   * Performs addition of two quaternions and assigns the result to this object
+   *
+   * @param another The other quaternion involving in the addition
+   */
+  public final void addEq(final QuaternionF another) {
+    this.x += another.x;
+    this.y += another.y;
+    this.z += another.z;
+    this.w += another.w;
+  }
+
+  /**
+   * Performs multiplication of this quaternion with the input quaternion,
+   * that is {@code this * another}
+   *
+   * @param another The other quaternion involving in the multiplication
+   * @return The quaternion which is the multiplication result
+   */
+  public final QuaternionF multiply(final QuaternionF another) {
+    QuaternionF result = new QuaternionF(this);
+    result.multiplyEq(another);
+    return result;
+  }
+
+  /**
+   * Performs scalar multiplication of this quaternion and the input number
+   *
+   * @param scalar A constant factor
+   * @return The quaternion which is the multiplication result
+   */
+  public final QuaternionF multiply(float scalar) {
+    QuaternionF result = new QuaternionF(this);
+    result.multiplyEq(scalar);
+    return result;
+  }
+
+  /**
+   * Performs multiplication of this quaternion with the input quaternion,
+   * that is {@code this * another}. Assigns the result to this object
+   *
+   * @param another The other quaternion involving in the multiplication
+   */
+  public final void multiplyEq(final QuaternionF another) {
+    float newW = another.w * this.w - another.x * this.x -
+      another.y * this.y - another.z * this.z;
+    float newX = another.w * this.x + another.x * this.w -
+      another.y * this.z + another.z * this.y;
+    float newY = another.w * this.y + another.x * this.z +
+      another.y * this.w - another.z * this.x;
+    float newZ = another.w * this.z - another.x * this.y +
+      another.y * this.x + another.z * this.w;
+    this.w = newW;
+    this.x = newX;
+    this.y = newY;
+    this.z = newZ;
+  }
+
+  /**
+   * Performs scalar multiplication of this quaternion and the input number.
+   * Assigns the result to this object
+   *
+   * @param scalar A constant factor
+   */
+  public final void multiplyEq(float scalar) {
+    this.x *= scalar;
+    this.y *= scalar;
+    this.z *= scalar;
+    this.w *= scalar;
+  }
+
+  /**
+   * Gets the inverse (reciprocal) of this quaternion
+   *
+   * @return The inverse quaternion
+   */
+  public final QuaternionF inverse() {
+    QuaternionF result = new QuaternionF(this);
+    result.invert();
+    return result;
+  }
+
+  /**
+   * Inverts this quaternion
+   *
+   * @see #invert()
+   */
+  public final void inverseEq() {
+    this.invert();
+  }
+
+  /**
+   * Inverts this quaternion
+   */
+  public final void invert() {
+    float sqNorm = this.squaredNorm();
+    this.conjugateEq();
+    this.multiplyEq(1.0f / sqNorm);
+  }
+
+  /**
+   * Performs division of this quaternion with the input quaternion, that is
+   * {@code this / another}
+   *
+   * @param another The other quaternion involving in the division
+   * @return The quaternion which is the division result
+   */
+  public final QuaternionF divide(final QuaternionF another) {
+    QuaternionF result = new QuaternionF(this);
+    result.divideEq(another);
+    return result;
+  }
+
+  /**
+   * Performs division of this quaternion with the input quaternion, that is
+   * {@code this / another}. Assigns the result to this object
+   *
+   * @param another The other quaternion involving in the division
+   */
+  public final void divideEq(final QuaternionF another) {
+    this.multiplyEq(another.inverse());
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // QuaternionF Transcendental Functions
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Gets the exponential of this QuaternionF
+   *
+   * @return The exponential QuaternionF
+   */
+  public final QuaternionF exp() {
+    double vNorm = Math.sqrt(x * x + y * y + z * z);
+    double expW = Math.exp(this.w);
+
+    if (vNorm < EPSILON) {
+      return new QuaternionF(0.0f, 0.0f, 0.0f, (float) expW);
+    }
+
+    double scalar = Math.sin(vNorm) / vNorm * expW;
+    return new QuaternionF((float) (x * scalar), (float) (y * scalar),
+      (float) (z * scalar), (float) (Math.cos(vNorm) * expW));
+  }
+
+  /**
+   * Gets the natural logarithm of this QuaternionF
+   *
+   * @return The logarithm QuaternionF
+   * @throws ArithmeticException if the QuaternionF has norm approaching 0,
+   *         that is the norm is less than {@link QuaternionF#EPSILON}
+   */
+  public final QuaternionF log() throws ArithmeticException {
+    double qNorm = Math.sqrt(x * x + y * y + z * z + w * w);
+    if (qNorm < EPSILON) {
+      throw new ArithmeticException(
+        Quaternion.UNDEFINED_LOG_ZERO_QUATERNION_MSG);
+    }
+
+    double vNorm = Math.sqrt(x * x + y * y + z * z);
+    double factor = 0.0;
+    if (!(vNorm < EPSILON)) {
+      factor = Math.acos(this.w / qNorm) / vNorm;
+    }
+
+    return new QuaternionF((float) (x * factor), (float) (y * factor),
+      (float) (z * factor), (float) Math.log(qNorm));
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // QuaternionF functions related to Rotation
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Returns the rotation matrix represented by the normalized version of
+   * this quaternion
+   *
+   * @return A 3 x 3 rotation matrix
+   */
+  public final float[][] getRotationMatrix() {
+    float s = 2.0f / this.squaredNorm();
+    return new float[][] {
+      {1.0f - s * (y * y + z * z), s * (x * y - z * w), s * (x * z + y * w)},
+      {s * (x * y + z * w), 1.0f - s * (x * x + z * z), s * (y * z - x * w)},
+      {s * (x * z - y * w), s * (y * z + x * w), 1.0f - s * (x * x + y * y)},
+    };
+  }
+
+  /**
+   * Rotates a 3D vector by the rotation represented by this quaternion
+   *
+   * @param vector An array of size 3 representing a 3D vector
+   * @return The image of the input vector after the rotation
+   * @throws IllegalArgumentException if input vector is not an array of size 3
+   */
+  public final float[] rotate(final float[] vector)
+      throws IllegalArgumentException {
+    if (vector.length != 3) {
+      throw new IllegalArgumentException(Quaternion.VECTOR_INVALID_LENGTH_MSG);
+    }
+
+    float[] imageVector = new float[3];
+    this.rotate(vector, 0, imageVector, 0);
+    return imageVector;
+  }
+
+  /**
+   * Rotates the 3D vector stored at {@code in[inOff .. inOff + 2]} and writes
+   * the image to {@code out[outOff .. outOff + 2]} without allocating
+   *
+   * @param in The array containing the input vector
+   * @param inOff The index of the x-coordinate of the input vector
+   * @param out The array receiving the image vector
+   * @param outOff The index at which the x-coordinate of the image is written
+   * @throws IllegalArgumentException if either array does not hold 3
+   *         elements from the given offset
+   *
+   * @see Quaternion#rotate(double[], int, double[], int)
+   */
+  public final void rotate(
+      final float[] in, int inOff, final float[] out, int outOff)
+      throws IllegalArgumentException {
+    this.rotate(in, inOff, 3, out, outOff, 3, 1);
+  }
+
+  /**
+   * Same as {@link #rotate(float[], int, float[], int)}, but assumes this
+   * quaternion is a unit quaternion and skips the division by its squared
+   * norm
+   *
+   * @param in The array containing the input vector
+   * @param inOff The index of the x-coordinate of the input vector
+   * @param out The array receiving the image vector
+   * @param outOff The index at which the x-coordinate of the image is written
+   *
+   * @see Quaternion#rotateUnit(double[], int, double[], int)
+   */
+  public final void rotateUnit(
+      final float[] in, int inOff, final float[] out, int outOff) {
+    float vx = in[inOff];
+    float vy = in[inOff + 1];
+    float vz = in[inOff + 2];
+    out[outOff] = (1.0f - 2.0f * (y * y + z * z)) * vx +
+      2.0f * (x * y - z * w) * vy + 2.0f * (x * z + y * w) * vz;
+    out[outOff + 1] = 2.0f * (x * y + z * w) * vx +
+      (1.0f - 2.0f * (x * x + z * z)) * vy + 2.0f * (y * z - x * w) * vz;
+    out[outOff + 2] = 2.0f * (x * z - y * w) * vx +
+      2.0f * (y * z + x * w) * vy + (1.0f - 2.0f * (x * x + y * y)) * vz;
+  }
+
+  /**
+   * Rotates {@code count} 3D vectors packed in {@code in} and writes the
+   * images to {@code out}, computing the rotation matrix once
+   *
+   * @param in The array containing the input vectors
+   * @param inOff The index of the x-coordinate of the first input vector
+   * @param inStride The distance between two consecutive input vectors
+   * @param out The array receiving the image vectors
+   * @param outOff The index of the x-coordinate of the first image vector
+   * @param outStride The distance between two consecutive image vectors
+   * @param count The number of vectors to rotate
+   * @throws IllegalArgumentException if {@code count} is negative, a stride
+   *         is less than 3, or a range does not fit inside its array
+   *
+   * @see Quaternion#rotate(float[], int, int, float[], int, int, int)
+   */
+  public final void rotate(final float[] in, int inOff, int inStride,
+      final float[] out, int outOff, int outStride, int count)
+      throws IllegalArgumentException {
+    Quaternion.checkBatchRange(in.length, inOff, inStride, count);
+    Quaternion.checkBatchRange(out.length, outOff, outStride, count);
+
+    float s = 2.0f / this.squaredNorm();
+    float m00 = 1.0f - s * (y * y + z * z);
+    float m01 = s * (x * y - z * w);
+    float m02 = s * (x * z + y * w);
+    float m10 = s * (x * y + z * w);
+    float m11 = 1.0f - s * (x * x + z * z);
+    float m12 = s * (y * z - x * w);
+    float m20 = s * (x * z - y * w);
+    float m21 = s * (y * z + x * w);
+    float m22 = 1.0f - s * (x * x + y * y);
+
+    for (int i = 0; i < count; ++i) {
+      int src = inOff + i * inStride;
+      int dst = outOff + i * outStride;
+      float vx = in[src];
+      float vy = in[src + 1];
+      float vz = in[src + 2];
+      out[dst] = m00 * vx + m01 * vy + m02 * vz;
+      out[dst + 1] = m10 * vx + m11 * vy + m12 * vz;
+      out[dst + 2] = m20 * vx + m21 * vy + m22 * vz;
+    }
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Public static methods to create QuaternionF
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Gets an identity QuaternionF (0.0, 0.0, 0.0, 1.0)
+   * @return An identity QuaternionF
+   */
+  public static QuaternionF getIdentity() {
+    return new QuaternionF();
+  }
+
+  /**
+   * Gets the unit QuaternionF of a rotation which is given by the input axis,
+   * and angle (in degrees)
+   *
+   * @param axis An array of size 3 representing the vector (x, y, z)
+   * @param angleInDeg The angle (in degrees) of the rotation
+   * @return The unit QuaternionF of the rotation. If the norm of input axis
+   *         vector is less than {@link QuaternionF#EPSILON}, an identity
+   *         QuaternionF is returned
+   * @throws IllegalArgumentException if input vector is not an array of size 3
+   */
+  public static QuaternionF fromAxisAngle(final float[] axis, float angleInDeg)
+      throws IllegalArgumentException {
+    return fromAxisAngleRad(axis, (float) Math.toRadians(angleInDeg));
+  }
+
+  /**
+   * Gets the unit QuaternionF of a rotation which is given by the input axis,
+   * and angle (in radians)
+   *
+   * @param axis An array of size 3 representing the vector (x, y, z)
+   * @param angleInRad The angle (in radians) of the rotation
+   * @return The unit QuaternionF of the rotation. If the norm of input axis
+   *         vector is less than {@link QuaternionF#EPSILON}, an identity
+   *         QuaternionF is returned
+   * @throws IllegalArgumentException if input vector is not an array of size 3
+   */
+  public static QuaternionF fromAxisAngleRad(
+      final float[] axis, float angleInRad) throws IllegalArgumentException {
+    if (axis.length != 3) {
+      throw new IllegalArgumentException(Quaternion.VECTOR_INVALID_LENGTH_MSG);
+    }
+
+    double vNorm = Math.sqrt(
+      axis[0] * axis[0] + axis[1] * axis[1] + axis[2] * axis[2]);
+    if (vNorm < EPSILON) {
+      return new QuaternionF();    // Identity QuaternionF
+    }
+
+    double halfAngle = angleInRad / 2.0;
+    double factor = Math.sin(halfAngle) / vNorm;
+    return new QuaternionF((float) (axis[0] * factor),
+      (float) (axis[1] * factor), (float) (axis[2] * factor),
+      (float) Math.cos(halfAngle));
+  }
+
+  /**
+   * Gets the unit QuaternionF of a rotation specified by Euler angles. The
+   * order of rotation is applying yaw, then pitch, then roll
+   * (that is z -&gt; y -&gt; x)
+   *
+   * @param roll The roll angle (in radians)
+   * @param pitch The pitch angle (in radians)
+   * @param yaw The yaw angle (in radians)
+   * @return The unit QuaternionF of a rotation specified by {@code roll},
+   *         {@code pitch}, {@code yaw} angles
+   *
+   * @see Quaternion#fromEulerAngles(double, double, double)
+   */
+  public static QuaternionF fromEulerAngles(
+      float roll, float pitch, float yaw) {
+    return new QuaternionF(Quaternion.fromEulerAngles(roll, pitch, yaw));
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Public static methods for interpolation
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Interpolates linearly between {@code from} and {@code to} QuaternionF
+   *
+   * @param from The first QuaternionF
+   * @param to The second QuaternionF
+   * @param t Value indicating how far to interpolate between the two
+   *          QuaternionFs
+   * @return The resulting QuaternionF for linear interpolation
+   * @throws IllegalArgumentException if {@code t} is not between 0 and 1
+   *                                  inclusively
+   *
+   * @see Quaternion#lerp(Quaternion, Quaternion, double)
+   */
+  public static QuaternionF lerp(QuaternionF from, QuaternionF to, float t)
+      throws IllegalArgumentException {
+    if (t < -EPSILON || t > 1.0f + EPSILON) {
+      throw new IllegalArgumentException(
+        Quaternion.INVALID_INTERPOLATION_PARAM);
+    }
+
+    float s = 1.0f - t;
+    return new QuaternionF(s * from.x + t * to.x, s * from.y + t * to.y,
+      s * from.z + t * to.z, s * from.w + t * to.w);
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Overridden methods inherited from Object
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Gets a string representation of this QuaternionF for display purposes
+   *
+   * @return A string contains information about this QuaternionF
+   */
+  @Override
+  public String toString() {
+    return String.format("QuaternionF(%f, %f, %f, %f)",
+      this.x, this.y, this.z, this.w);
+  }
+
+  @Override
+  public boolean equals(Object another) {
+    // Self comparison
+    if (this == another) {
+      return true;
+    }
+
+    if (!(another instanceof QuaternionF)) {
+      return false;
+    }
+
+    QuaternionF anotherQ = (QuaternionF) another;
+    return Float.compare(anotherQ.w, this.w) == 0 &&
+      Float.compare(anotherQ.x, this.x) == 0 &&
+      Float.compare(anotherQ.y, this.y) == 0 &&
+      Float.compare(anotherQ.z, this.z) == 0;
+  }
+
+  @Override
+  public int hashCode() {
+    int prime = 31;
+    int result = 13;
+    result = prime * result + Float.floatToIntBits(this.x);
+    result = prime * result + Float.floatToIntBits(this.y);
+    result = prime * result + Float.floatToIntBits(this.z);
+    result = prime * result + Float.floatToIntBits(this.w);
+    return result;
+  }
+}
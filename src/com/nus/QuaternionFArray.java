@@ -0,0 +1,458 @@
+package com.nus;
+
+import java.util.Arrays;
+
+/**
+ * Single-precision counterpart of {@link QuaternionArray}: a fixed-size array
+ * of quaternions whose x, y, z and w components live in four separate
+ * primitive {@code float[]} arrays, using half the memory of a
+ * QuaternionArray of the same size.
+ *
+ * <p>Every bulk operation works on a half-open index range
+ * {@code [fromIndex, toIndex)} and produces exactly the same result as
+ * applying the corresponding {@link QuaternionF} method to each element,
+ * which remains the reference implementation
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+public class QuaternionFArray {
+  private final float[] x;
+  private final float[] y;
+  private final float[] z;
+  private final float[] w;
+
+  //////////////////////////////////////////////////////////
+  //
+  // Constructors, setters and getters
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Constructs an array of {@code size} identity quaternions
+   *
+   * @param size The number of quaternions
+   */
+  public QuaternionFArray(int size) {
+    this.x = new float[size];
+    this.y = new float[size];
+    this.z = new float[size];
+    this.w = new float[size];
+    Arrays.fill(this.w, 1.0f);
+  }
+
+  /**
+   * Constructs an array holding copies of the input quaternions
+   *
+   * @param quaternions The quaternions to be copied
+   */
+  public QuaternionFArray(final QuaternionF[] quaternions) {
+    this(quaternions.length);
+    for (int i = 0; i < quaternions.length; ++i) {
+      this.set(i, quaternions[i]);
+    }
+  }
+
+  /**
+   * Constructs an array by rounding every component of a double-precision
+   * QuaternionArray to the nearest float
+   *
+   * @param another The QuaternionArray to be converted
+   */
+  public QuaternionFArray(final QuaternionArray another) {
+    this(another.size());
+    for (int i = 0; i < another.size(); ++i) {
+      this.set(i, (float) another.x[i], (float) another.y[i],
+        (float) another.z[i], (float) another.w[i]);
+    }
+  }
+
+  /**
+   * Converts this array to a double-precision QuaternionArray. The
+   * conversion is exact
+   *
+   * @return A new QuaternionArray with the components of this array
+   */
+  public QuaternionArray toQuaternionArray() {
+    QuaternionArray result = new QuaternionArray(this.size());
+    for (int i = 0; i < this.size(); ++i) {
+      result.set(i, x[i], y[i], z[i], w[i]);
+    }
+    return result;
+  }
+
+  /**
+   * Gets the number of quaternions in this array
+   *
+   * @return The number of quaternions
+   */
+  public int size() {
+    return w.length;
+  }
+
+  /**
+   * Gets the x-coordinate of the quaternion at {@code index}
+   *
+   * @param index The index of the quaternion
+   * @return The x-coordinate
+   */
+  public float getX(int index) {
+    return x[index];
+  }
+
+  /**
+   * Gets the y-coordinate of the quaternion at {@code index}
+   *
+   * @param index The index of the quaternion
+   * @return The y-coordinate
+   */
+  public float getY(int index) {
+    return y[index];
+  }
+
+  /**
+   * Gets the z-coordinate of the quaternion at {@code index}
+   *
+   * @param index The index of the quaternion
+   * @return The z-coordinate
+   */
+  public float getZ(int index) {
+    return z[index];
+  }
+
+  /**
+   * Gets the w-component (scalar component) of the quaternion at
+   * {@code index}
+   *
+   * @param index The index of the quaternion
+   * @return The w-component
+   */
+  public float getW(int index) {
+    return w[index];
+  }
+
+  /**
+   * Gets a copy of the quaternion at {@code index}
+   *
+   * @param index The index of the quaternion
+   * @return A new QuaternionF equal to the element at {@code index}
+   */
+  public QuaternionF get(int index) {
+    return new QuaternionF(x[index], y[index], z[index], w[index]);
+  }
+
+  /**
+   * Sets the quaternion at {@code index}
+   *
+   * @param index The index of the quaternion
+   * @param x the x coordinate
+   * @param y the y coordinate
+   * @param z the z coordinate
+   * @param w the scalar component
+   */
+  public void set(int index, float x, float y, float z, float w) {
+    this.x[index] = x;
+    this.y[index] = y;
+    this.z[index] = z;
+    this.w[index] = w;
+  }
+
+  /**
+   * Sets the quaternion at {@code index} to a copy of the input quaternion
+   *
+   * @param index The index of the quaternion
+   * @param q The quaternion to be copied
+   */
+  public void set(int index, final QuaternionF q) {
+    this.set(index, q.getX(), q.getY(), q.getZ(), q.getW());
+  }
+
+  /**
+   * Converts this array to an array of QuaternionF objects
+   *
+   * @return A new array with a copy of every quaternion in this array
+   */
+  public QuaternionF[] toArray() {
+    QuaternionF[] result = new QuaternionF[this.size()];
+    for (int i = 0; i < result.length; ++i) {
+      result[i] = this.get(i);
+    }
+    return result;
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Bulk normalization
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Computes the norm of every quaternion in {@code [fromIndex, toIndex)}.
+   * The norm of element {@code i} is written to
+   * {@code out[outOff + i - fromIndex]}
+   *
+   * @param out The array receiving the norms
+   * @param outOff The index at which the first norm is written
+   * @param fromIndex The index of the first quaternion, inclusive
+   * @param toIndex The index of the last quaternion, exclusive
+   * @throws IllegalArgumentException if the index range is invalid
+   *
+   * @see QuaternionF#norm()
+   */
+  public void norm(final float[] out, int outOff, int fromIndex, int toIndex)
+      throws IllegalArgumentException {
+    checkRange(fromIndex, toIndex);
+    for (int i = fromIndex; i < toIndex; ++i) {
+      out[outOff + i - fromIndex] = (float) Math.sqrt(
+        x[i] * x[i] + y[i] * y[i] + z[i] * z[i] + w[i] * w[i]);
+    }
+  }
+
+  /**
+   * Normalizes every quaternion in {@code [fromIndex, toIndex)} so that it
+   * has norm 1
+   *
+   * @param fromIndex The index of the first quaternion, inclusive
+   * @param toIndex The index of the last quaternion, exclusive
+   * @throws IllegalArgumentException if the index range is invalid
+   *
+   * @see QuaternionF#normalize()
+   */
+  public void normalize(int fromIndex, int toIndex)
+      throws IllegalArgumentException {
+    checkRange(fromIndex, toIndex);
+    for (int i = fromIndex; i < toIndex; ++i) {
+      float qNorm = (float) Math.sqrt(
+        x[i] * x[i] + y[i] * y[i] + z[i] * z[i] + w[i] * w[i]);
+      x[i] /= qNorm;
+      y[i] /= qNorm;
+      z[i] /= qNorm;
+      w[i] /= qNorm;
+    }
+  }
+
+  /**
+   * Normalizes every quaternion in this array so that it has norm 1
+   */
+  public void normalize() {
+    this.normalize(0, this.size());
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Bulk arithmetics
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Replaces every quaternion in {@code [fromIndex, toIndex)} by its
+   * conjugate
+   *
+   * @param fromIndex The index of the first quaternion, inclusive
+   * @param toIndex The index of the last quaternion, exclusive
+   * @throws IllegalArgumentException if the index range is invalid
+   *
+   * @see QuaternionF#conjugateEq()
+   */
+  public void conjugateEq(int fromIndex, int toIndex)
+      throws IllegalArgumentException {
+    checkRange(fromIndex, toIndex);
+    for (int i = fromIndex; i < toIndex; ++i) {
+      x[i] = -x[i];
+      y[i] = -y[i];
+      z[i] = -z[i];
+    }
+  }
+
+  /**
+   * Replaces every quaternion in this array by its conjugate
+   */
+  public void conjugateEq() {
+    this.conjugateEq(0, this.size());
+  }
+
+  /**
+   * Inverts every quaternion in {@code [fromIndex, toIndex)}
+   *
+   * @param fromIndex The index of the first quaternion, inclusive
+   * @param toIndex The index of the last quaternion, exclusive
+   * @throws IllegalArgumentException if the index range is invalid
+   *
+   * @see QuaternionF#invert()
+   */
+  public void invert(int fromIndex, int toIndex)
+      throws IllegalArgumentException {
+    checkRange(fromIndex, toIndex);
+    for (int i = fromIndex; i < toIndex; ++i) {
+      float factor =
+        1.0f / (x[i] * x[i] + y[i] * y[i] + z[i] * z[i] + w[i] * w[i]);
+      x[i] = -x[i] * factor;
+      y[i] = -y[i] * factor;
+      z[i] = -z[i] * factor;
+      w[i] = w[i] * factor;
+    }
+  }
+
+  /**
+   * Inverts every quaternion in this array
+   */
+  public void invert() {
+    this.invert(0, this.size());
+  }
+
+  /**
+   * Multiplies every quaternion in {@code [fromIndex, toIndex)} with the
+   * quaternion at the same index of {@code another}, that is
+   * {@code this[i] = this[i] * another[i]}
+   *
+   * @param another The right-hand operands of the multiplications
+   * @param fromIndex The index of the first quaternion, inclusive
+   * @param toIndex The index of the last quaternion, exclusive
+   * @throws IllegalArgumentException if the index range is invalid for
+   *         either array
+   *
+   * @see QuaternionF#multiplyEq(QuaternionF)
+   */
+  public void multiplyEq(
+      final QuaternionFArray another, int fromIndex, int toIndex)
+      throws IllegalArgumentException {
+    checkRange(fromIndex, toIndex);
+    another.checkRange(fromIndex, toIndex);
+    float[] ax = another.x;
+    float[] ay = another.y;
+    float[] az = another.z;
+    float[] aw = another.w;
+    for (int i = fromIndex; i < toIndex; ++i) {
+      float newW = aw[i] * w[i] - ax[i] * x[i] - ay[i] * y[i] - az[i] * z[i];
+      float newX = aw[i] * x[i] + ax[i] * w[i] - ay[i] * z[i] + az[i] * y[i];
+      float newY = aw[i] * y[i] + ax[i] * z[i] + ay[i] * w[i] - az[i] * x[i];
+      float newZ = aw[i] * z[i] - ax[i] * y[i] + ay[i] * x[i] + az[i] * w[i];
+      w[i] = newW;
+      x[i] = newX;
+      y[i] = newY;
+      z[i] = newZ;
+    }
+  }
+
+  /**
+   * Multiplies every quaternion in this array with the quaternion at the
+   * same index of {@code another}
+   *
+   * @param another The right-hand operands of the multiplications
+   * @throws IllegalArgumentException if the arrays differ in size
+   */
+  public void multiplyEq(final QuaternionFArray another)
+      throws IllegalArgumentException {
+    if (another.size() != this.size()) {
+      throw new IllegalArgumentException(QuaternionArray.SIZE_MISMATCH_MSG);
+    }
+    this.multiplyEq(another, 0, this.size());
+  }
+
+  /**
+   * Multiplies every quaternion in {@code [fromIndex, toIndex)} with the
+   * input quaternion, that is {@code this[i] = this[i] * another}
+   *
+   * @param another The right-hand operand of the multiplications
+   * @param fromIndex The index of the first quaternion, inclusive
+   * @param toIndex The index of the last quaternion, exclusive
+   * @throws IllegalArgumentException if the index range is invalid
+   *
+   * @see QuaternionF#multiplyEq(QuaternionF)
+   */
+  public void multiplyEq(final QuaternionF another, int fromIndex, int toIndex)
+      throws IllegalArgumentException {
+    checkRange(fromIndex, toIndex);
+    float ax = another.getX();
+    float ay = another.getY();
+    float az = another.getZ();
+    float aw = another.getW();
+    for (int i = fromIndex; i < toIndex; ++i) {
+      float newW = aw * w[i] - ax * x[i] - ay * y[i] - az * z[i];
+      float newX = aw * x[i] + ax * w[i] - ay * z[i] + az * y[i];
+      float newY = aw * y[i] + ax * z[i] + ay * w[i] - az * x[i];
+      float newZ = aw * z[i] - ax * y[i] + ay * x[i] + az * w[i];
+      w[i] = newW;
+      x[i] = newX;
+      y[i] = newY;
+      z[i] = newZ;
+    }
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Bulk rotation
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Rotates one 3D vector per quaternion in {@code [fromIndex, toIndex)}:
+   * the vector at {@code in[inOff + k * inStride]} is rotated by quaternion
+   * {@code fromIndex + k} and its image is written to
+   * {@code out[outOff + k * outStride]}. No objects are allocated
+   *
+   * @param in The array containing the input vectors
+   * @param inOff The index of the x-coordinate of the first input vector
+   * @param inStride The distance between two consecutive input vectors
+   * @param out The array receiving the image vectors
+   * @param outOff The index of the x-coordinate of the first image vector
+   * @param outStride The distance between two consecutive image vectors
+   * @param fromIndex The index of the first quaternion, inclusive
+   * @param toIndex The index of the last quaternion, exclusive
+   * @throws IllegalArgumentException if the index range is invalid, or the
+   *         vector ranges do not fit inside their arrays
+   *
+   * @see QuaternionF#rotate(float[], int, float[], int)
+   */
+  public void rotate(final float[] in, int inOff, int inStride,
+      final float[] out, int outOff, int outStride,
+      int fromIndex, int toIndex) throws IllegalArgumentException {
+    checkRange(fromIndex, toIndex);
+    int count = toIndex - fromIndex;
+    Quaternion.checkBatchRange(in.length, inOff, inStride, count);
+    Quaternion.checkBatchRange(out.length, outOff, outStride, count);
+
+    for (int k = 0; k < count; ++k) {
+      int i = fromIndex + k;
+      int src = inOff + k * inStride;
+      int dst = outOff + k * outStride;
+      float qx = x[i];
+      float qy = y[i];
+      float qz = z[i];
+      float qw = w[i];
+      float s = 2.0f / (qx * qx + qy * qy + qz * qz + qw * qw);
+      float xx = qx * qx;
+      float yy = qy * qy;
+      float zz = qz * qz;
+      float xy = qx * qy;
+      float xz = qx * qz;
+      float yz = qy * qz;
+      float xw = qx * qw;
+      float yw = qy * qw;
+      float zw = qz * qw;
+
+      float vx = in[src];
+      float vy = in[src + 1];
+      float vz = in[src + 2];
+      out[dst] = (1.0f - s * (yy + zz)) * vx + s * (xy - zw) * vy +
+        s * (xz + yw) * vz;
+      out[dst + 1] = s * (xy + zw) * vx + (1.0f - s * (xx + zz)) * vy +
+        s * (yz - xw) * vz;
+      out[dst + 2] = s * (xz - yw) * vx + s * (yz + xw) * vy +
+        (1.0f - s * (xx + yy)) * vz;
+    }
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Private methods
+  //
+  /////////////////////////////////////////////////////////
+
+  private void checkRange(int fromIndex, int toIndex)
+      throws IllegalArgumentException {
+    if (fromIndex < 0 || fromIndex > toIndex || toIndex > this.size()) {
+      throw new IllegalArgumentException(
+        QuaternionArray.INVALID_INDEX_RANGE_MSG);
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package com.nus;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+import static com.nus.QuaternionFTest.EPSILON;
+import static com.nus.QuaternionFTest.assertQuaternionFEquals;
+
+public class QuaternionFArrayTest {
+
+  private static QuaternionF[] sampleQuaternions() {
+    return new QuaternionF[] {
+      new QuaternionF(0.0f, 1.0f, 0.0f, 1.0f),
+      new QuaternionF(0.5f, 0.5f, 0.75f, 1.0f),
+      new QuaternionF(2.0f, -1.0f, -3.0f, 0.0f),
+      new QuaternionF(),
+    };
+  }
+
+  @Test
+  public void testConversions() {
+    QuaternionF[] quaternions = sampleQuaternions();
+    QuaternionFArray array = new QuaternionFArray(quaternions);
+    QuaternionF[] copies = array.toArray();
+    for (int i = 0; i < quaternions.length; ++i) {
+      assertQuaternionFEquals(copies[i], quaternions[i]);
+    }
+
+    QuaternionArray doubles = array.toQuaternionArray();
+    QuaternionFArray roundTrip = new QuaternionFArray(doubles);
+    for (int i = 0; i < quaternions.length; ++i) {
+      assertEquals(doubles.get(i), quaternions[i].toQuaternion());
+      assertEquals(roundTrip.get(i), quaternions[i]);
+    }
+  }
+
+  @Test
+  public void testBulkOperations() {
+    QuaternionF[] quaternions = sampleQuaternions();
+    QuaternionFArray array = new QuaternionFArray(quaternions);
+    QuaternionF q = new QuaternionF(0.5f, 0.5f, 0.75f, 1.0f);
+
+    array.multiplyEq(q, 0, array.size());
+    for (int i = 0; i < quaternions.length; ++i) {
+      assertQuaternionFEquals(array.get(i), quaternions[i].multiply(q));
+    }
+
+    array = new QuaternionFArray(quaternions);
+    array.conjugateEq();
+    array.invert();
+    array.normalize();
+    float[] norms = new float[quaternions.length];
+    array.norm(norms, 0, 0, quaternions.length);
+    for (int i = 0; i < quaternions.length; ++i) {
+      QuaternionF expected = quaternions[i].conjugate().inverse();
+      expected.normalize();
+      assertQuaternionFEquals(array.get(i), expected);
+      assertEquals(norms[i], 1.0f, EPSILON);
+    }
+
+    array = new QuaternionFArray(quaternions);
+    float[] in = new float[] {1.0f, 1.0f, 1.0f, 0.5f, -2.0f, 0.25f};
+    float[] out = new float[6];
+    array.rotate(in, 0, 3, out, 0, 3, 1, 3);
+    for (int k = 0; k < 2; ++k) {
+      float[] image = quaternions[k + 1].rotate(
+        new float[] {in[k * 3], in[k * 3 + 1], in[k * 3 + 2]});
+      for (int j = 0; j < 3; ++j) {
+        assertEquals(out[k * 3 + j], image[j], EPSILON);
+      }
+    }
+  }
+}
@@ -0,0 +1,140 @@
+package com.nus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of {@link QuaternionF} against {@link Quaternion}. Scores are
+ * per batch of {@code size} elements.
+ *
+ * <p>The {@code allocate*} benchmarks measure memory rather than time: with
+ * the GC profiler attached, their {@code gc.alloc.rate.norm} is the heap
+ * footprint of {@code size} quaternions in each representation
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class QuaternionFBenchmark {
+
+  @Param({"1024", "1048576"})
+  public int size;
+
+  private Quaternion rotation;
+  private QuaternionF rotationF;
+  private QuaternionArray array;
+  private QuaternionArray operandArray;
+  private QuaternionFArray arrayF;
+  private QuaternionFArray operandArrayF;
+  private double[] points;
+  private double[] images;
+  private float[] pointsF;
+  private float[] imagesF;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(QuaternionBenchmark.SEED);
+    rotation = QuaternionBenchmark.randomUnitQuaternion(random);
+    rotationF = new QuaternionF(rotation);
+
+    Quaternion[] quaternions = new Quaternion[size];
+    Quaternion[] operands = new Quaternion[size];
+    for (int i = 0; i < size; ++i) {
+      quaternions[i] = QuaternionBenchmark.randomUnitQuaternion(random);
+      operands[i] = QuaternionBenchmark.randomUnitQuaternion(random);
+    }
+    array = new QuaternionArray(quaternions);
+    operandArray = new QuaternionArray(operands);
+    arrayF = new QuaternionFArray(array);
+    operandArrayF = new QuaternionFArray(operandArray);
+
+    points = new double[size * 3];
+    images = new double[size * 3];
+    pointsF = new float[size * 3];
+    imagesF = new float[size * 3];
+    for (int i = 0; i < points.length; ++i) {
+      points[i] = random.nextDouble() * 2.0 - 1.0;
+      pointsF[i] = (float) points[i];
+    }
+  }
+
+  @Benchmark
+  public QuaternionArray multiplyEqDouble() {
+    array.multiplyEq(operandArray, 0, size);
+    return array;
+  }
+
+  @Benchmark
+  public QuaternionFArray multiplyEqFloat() {
+    arrayF.multiplyEq(operandArrayF, 0, size);
+    return arrayF;
+  }
+
+  @Benchmark
+  public QuaternionArray normalizeDouble() {
+    array.normalize(0, size);
+    return array;
+  }
+
+  @Benchmark
+  public QuaternionFArray normalizeFloat() {
+    arrayF.normalize(0, size);
+    return arrayF;
+  }
+
+  @Benchmark
+  public double[] rotateBatchDouble() {
+    rotation.rotate(points, 0, 3, images, 0, 3, size);
+    return images;
+  }
+
+  @Benchmark
+  public float[] rotateBatchFloat() {
+    rotationF.rotate(pointsF, 0, 3, imagesF, 0, 3, size);
+    return imagesF;
+  }
+
+  @Benchmark
+  public Quaternion[] allocateQuaternions() {
+    Quaternion[] result = new Quaternion[size];
+    for (int i = 0; i < size; ++i) {
+      result[i] = new Quaternion();
+    }
+    return result;
+  }
+
+  @Benchmark
+  public QuaternionF[] allocateQuaternionFs() {
+    QuaternionF[] result = new QuaternionF[size];
+    for (int i = 0; i < size; ++i) {
+      result[i] = new QuaternionF();
+    }
+    return result;
+  }
+
+  @Benchmark
+  public QuaternionArray allocateQuaternionArray() {
+    return new QuaternionArray(size);
+  }
+
+  @Benchmark
+  public QuaternionFArray allocateQuaternionFArray() {
+    return new QuaternionFArray(size);
+  }
+}
@@ -0,0 +1,171 @@
+package com.nus;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import static com.nus.QuaternionTestUtils.randomRotation;
+
+import java.util.Random;
+
+public class QuaternionFTest {
+
+  public static final float EPSILON = 0.00001f;
+
+  // Worst-case error of single-precision results against double precision,
+  // for unit quaternions and vectors of norm at most 1
+  public static final double MULTIPLY_ERROR_BOUND = 0.000001;
+  public static final double ROTATE_ERROR_BOUND = 0.000002;
+
+  public static void assertQuaternionFEquals(QuaternionF p, QuaternionF q) {
+    assertEquals(p.getX(), q.getX(), EPSILON);
+    assertEquals(p.getY(), q.getY(), EPSILON);
+    assertEquals(p.getZ(), q.getZ(), EPSILON);
+    assertEquals(p.getW(), q.getW(), EPSILON);
+  }
+
+  @Test
+  public void testConstructors() {
+    QuaternionF q = new QuaternionF();
+    assertTrue(q.isIdentity());
+
+    q = new QuaternionF(1.23f, 5.12f, 124f, -1231.0f);
+    assertEquals(q.getX(), 1.23f, EPSILON);
+    assertEquals(q.getW(), -1231.0f, EPSILON);
+    assertEquals(q.getScalarPart(), -1231.0f, EPSILON);
+    assertArrayEquals(q.getVectorPart(),
+      new float[] {1.23f, 5.12f, 124f}, EPSILON);
+    assertEquals(new QuaternionF(q), q);
+  }
+
+  @Test
+  public void testConversions() {
+    Quaternion p = new Quaternion(0.1, 0.2, 0.3, 0.4);
+    QuaternionF q = new QuaternionF(p);
+    assertEquals(q, new QuaternionF(0.1f, 0.2f, 0.3f, 0.4f));
+    assertEquals(q.toQuaternion().getX(), 0.1f, 0.0);
+    assertTrue(q.toQuaternion().equals(p, EPSILON));
+  }
+
+  @Test
+  public void testArithmetics() {
+    QuaternionF p = new QuaternionF(0.0f, 1.0f, 0.0f, 1.0f);
+    QuaternionF q = new QuaternionF(0.5f, 0.5f, 0.75f, 1.0f);
+
+    assertQuaternionFEquals(p.multiply(q),
+      new QuaternionF(1.25f, 1.5f, 0.25f, 0.5f));
+    assertQuaternionFEquals(q.multiply(p),
+      new QuaternionF(-0.25f, 1.5f, 1.25f, 0.5f));
+    assertQuaternionFEquals(p.add(q),
+      new QuaternionF(0.5f, 1.5f, 0.75f, 2.0f));
+    assertQuaternionFEquals(p.multiply(2.0f),
+      new QuaternionF(0.0f, 2.0f, 0.0f, 2.0f));
+    assertQuaternionFEquals(p.conjugate(),
+      new QuaternionF(0.0f, -1.0f, 0.0f, 1.0f));
+    assertQuaternionFEquals(p.inverse(),
+      new QuaternionF(0.0f, -0.5f, 0.0f, 0.5f));
+    assertQuaternionFEquals(q.divide(p),
+      new QuaternionF(0.625f, -0.25f, 0.125f, 0.75f));
+
+    p.normalize();
+    assertTrue(p.isUnit());
+    assertEquals(q.norm(), (float) q.toQuaternion().norm(), EPSILON);
+  }
+
+  @Test
+  public void testTranscendentalFunctions() {
+    QuaternionF q = new QuaternionF(1.0f, 1.0f, 1.0f, 1.0f);
+    assertQuaternionFEquals(q.exp(), new QuaternionF(q.toQuaternion().exp()));
+    assertQuaternionFEquals(q.log(), new QuaternionF(q.toQuaternion().log()));
+    assertQuaternionFEquals(q.exp().log(), q);
+  }
+
+  @Test(expected = ArithmeticException.class)
+  public void testLogWithZeroQuaternion() {
+    new QuaternionF(0.0f, 0.0f, 0.0f, 0.0f).log();
+  }
+
+  @Test
+  public void testRotation() {
+    QuaternionF q = QuaternionF.fromAxisAngle(
+      new float[] {0.0f, 0.0f, 2.0f}, 90.0f);
+    assertEquals(q.getAngle(), 90.0f, EPSILON);
+    assertArrayEquals(q.getRotationAxis(),
+      new float[] {0.0f, 0.0f, 1.0f}, EPSILON);
+    assertArrayEquals(q.rotate(new float[] {1.0f, 0.0f, 0.0f}),
+      new float[] {0.0f, 1.0f, 0.0f}, EPSILON);
+
+    float[] out = new float[3];
+    q.rotateUnit(new float[] {1.0f, 0.0f, 0.0f}, 0, out, 0);
+    assertArrayEquals(out, new float[] {0.0f, 1.0f, 0.0f}, EPSILON);
+
+    float[][] mat = q.getRotationMatrix();
+    double[][] expected = q.toQuaternion().getRotationMatrix();
+    for (int r = 0; r < 3; ++r) {
+      for (int c = 0; c < 3; ++c) {
+        assertEquals(mat[r][c], expected[r][c], EPSILON);
+      }
+    }
+
+    QuaternionF euler = QuaternionF.fromEulerAngles(0.0f, 0.1f, 0.7854f);
+    assertTrue(euler.toQuaternion().equals(
+      Quaternion.fromEulerAngles(0.0, 0.1, 0.7854), EPSILON));
+  }
+
+  @Test
+  public void testLerp() {
+    QuaternionF from = new QuaternionF(0.0f, 1.0f, 0.0f, 1.0f);
+    QuaternionF to = new QuaternionF(1.0f, 0.0f, 1.0f, 0.0f);
+    assertQuaternionFEquals(QuaternionF.lerp(from, to, 0.7f),
+      new QuaternionF(0.7f, 0.3f, 0.7f, 0.3f));
+  }
+
+  @Test
+  public void testEqualsAndHashCode() {
+    QuaternionF q = new QuaternionF(1.12f, 1.4351f, 3.12545f, 4.12567f);
+    QuaternionF sameQ = new QuaternionF(1.12f, 1.4351f, 3.12545f, 4.12567f);
+    assertTrue(q.equals(sameQ));
+    assertEquals(q.hashCode(), sameQ.hashCode());
+    assertFalse(q.equals(new QuaternionF()));
+    assertTrue(q.equals(new QuaternionF(1.12f, 1.4351f, 3.12545f, 4.1257f),
+      0.001f));
+  }
+
+  @Test
+  public void testMultiplyPrecisionLoss() {
+    Random random = new Random(134);
+    for (int i = 0; i < 10000; ++i) {
+      Quaternion p = randomRotation(random);
+      Quaternion q = randomRotation(random);
+      QuaternionF product = new QuaternionF(p).multiply(new QuaternionF(q));
+      assertTrue(product.toQuaternion().equals(
+        p.multiply(q), MULTIPLY_ERROR_BOUND));
+    }
+  }
+
+  @Test
+  public void testRotatePrecisionLoss() {
+    Random random = new Random(134);
+    float[] in = new float[3];
+    float[] out = new float[3];
+    for (int i = 0; i < 10000; ++i) {
+      Quaternion q = randomRotation(random);
+      double[] v = new double[] {random.nextDouble(), random.nextDouble(),
+        random.nextDouble()};
+      double vNorm = Math.sqrt(v[0] * v[0] + v[1] * v[1] + v[2] * v[2]);
+      for (int j = 0; j < 3; ++j) {
+        v[j] /= vNorm;
+        in[j] = (float) v[j];
+      }
+
+      double[] expected = q.rotate(v);
+      new QuaternionF(q).rotate(in, 0, out, 0);
+      for (int j = 0; j < 3; ++j) {
+        assertEquals(out[j], expected[j], ROTATE_ERROR_BOUND);
+      }
+    }
+  }
+}
@@ -0,0 +1,217 @@
+package com.nus;
+
+/**
+ * Bulk quaternion kernels over {@link QuaternionArray} and structure-of-arrays
+ * point sets. Two backends exist: a portable scalar one, and one built on the
+ * JDK Vector API ({@code jdk.incubator.vector}) that processes several
+ * quaternions per instruction.
+ *
+ * <p>{@link #get()} returns the vector backend when it is on the class path
+ * and the JVM was started with {@code --add-modules jdk.incubator.vector};
+ * otherwise it silently falls back to {@link #scalar()}. Setting the system
+ * property {@code com.nus.kernels} to {@code scalar} forces the fallback.
+ *
+ * <p>All backends produce the same results as the corresponding
+ * {@link Quaternion} methods up to floating-point rounding
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+public abstract class QuaternionKernels {
+  public static final String KERNELS_PROPERTY = "com.nus.kernels";
+
+  private static final String VECTOR_KERNELS_CLASS =
+    "com.nus.VectorQuaternionKernels";
+
+  private static final QuaternionKernels SCALAR = new ScalarQuaternionKernels();
+  private static final QuaternionKernels BEST = loadBest();
+
+  // Only the backends in this package can extend this class
+  QuaternionKernels() {}
+
+  //////////////////////////////////////////////////////////
+  //
+  // Backend selection
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Gets the fastest backend available in this JVM
+   *
+   * @return The vector backend if it can be loaded, or the scalar backend
+   */
+  public static QuaternionKernels get() {
+    return BEST;
+  }
+
+  /**
+   * Gets the portable scalar backend
+   *
+   * @return The scalar backend
+   */
+  public static QuaternionKernels scalar() {
+    return SCALAR;
+  }
+
+  /**
+   * Gets the name of this backend for display purposes
+   *
+   * @return The name of this backend
+   */
+  public abstract String getName();
+
+  /**
+   * Checks if this backend uses SIMD instructions
+   *
+   * @return {@code true} if this is the vector backend, or {@code false}
+   *         otherwise
+   */
+  public abstract boolean isVectorized();
+
+  private static QuaternionKernels loadBest() {
+    if ("scalar".equals(System.getProperty(KERNELS_PROPERTY))) {
+      return SCALAR;
+    }
+
+    try {
+      return (QuaternionKernels) Class.forName(VECTOR_KERNELS_CLASS)
+        .getDeclaredConstructor()
+        .newInstance();
+    } catch (ReflectiveOperationException e) {
+      // Vector backend is not on the class path
+    } catch (LinkageError e) {
+      // jdk.incubator.vector module is not available in this JVM
+    }
+    return SCALAR;
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Bulk operations
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Multiplies every quaternion of {@code a} in {@code [fromIndex, toIndex)}
+   * with the quaternion at the same index of {@code b}, that is
+   * {@code a[i] = a[i] * b[i]}
+   *
+   * @param a The left-hand operands, which receive the products
+   * @param b The right-hand operands
+   * @param fromIndex The index of the first quaternion, inclusive
+   * @param toIndex The index of the last quaternion, exclusive
+   * @throws IllegalArgumentException if the index range is invalid for
+   *         either array
+   *
+   * @see QuaternionArray#multiplyEq(QuaternionArray, int, int)
+   */
+  public final void multiplyEq(final QuaternionArray a,
+      final QuaternionArray b, int fromIndex, int toIndex)
+      throws IllegalArgumentException {
+    a.checkRange(fromIndex, toIndex);
+    b.checkRange(fromIndex, toIndex);
+    doMultiplyEq(a, b, fromIndex, toIndex);
+  }
+
+  /**
+   * Normalizes every quaternion of {@code a} in {@code [fromIndex, toIndex)}
+   *
+   * @param a The quaternions to be normalized
+   * @param fromIndex The index of the first quaternion, inclusive
+   * @param toIndex The index of the last quaternion, exclusive
+   * @throws IllegalArgumentException if the index range is invalid
+   *
+   * @see QuaternionArray#normalize(int, int)
+   */
+  public final void normalize(
+      final QuaternionArray a, int fromIndex, int toIndex)
+      throws IllegalArgumentException {
+    a.checkRange(fromIndex, toIndex);
+    doNormalize(a, fromIndex, toIndex);
+  }
+
+  /**
+   * Rotates the points {@code (xs[i], ys[i], zs[i])} for every {@code i} in
+   * {@code [fromIndex, toIndex)} by the rotation represented by the
+   * normalized version of {@code q}, and writes the images to the same
+   * indices of {@code outX}, {@code outY} and {@code outZ}. The output arrays
+   * may be the input arrays
+   *
+   * @param q The rotation
+   * @param xs The x-coordinates of the points
+   * @param ys The y-coordinates of the points
+   * @param zs The z-coordinates of the points
+   * @param outX The array receiving the x-coordinates of the images
+   * @param outY The array receiving the y-coordinates of the images
+   * @param outZ The array receiving the z-coordinates of the images
+   * @param fromIndex The index of the first point, inclusive
+   * @param toIndex The index of the last point, exclusive
+   * @throws IllegalArgumentException if the index range does not fit inside
+   *         every array
+   *
+   * @see Quaternion#rotate(double[], int, int, double[], int, int, int)
+   */
+  public final void rotate(final Quaternion q,
+      final double[] xs, final double[] ys, final double[] zs,
+      final double[] outX, final double[] outY, final double[] outZ,
+      int fromIndex, int toIndex) throws IllegalArgumentException {
+    int minLength = Math.min(Math.min(xs.length, ys.length), zs.length);
+    minLength = Math.min(minLength, Math.min(outX.length, outY.length));
+    minLength = Math.min(minLength, outZ.length);
+    if (fromIndex < 0 || fromIndex > toIndex || toIndex > minLength) {
+      throw new IllegalArgumentException(
+        QuaternionArray.INVALID_INDEX_RANGE_MSG);
+    }
+    doRotate(q, xs, ys, zs, outX, outY, outZ, fromIndex, toIndex);
+  }
+
+  /**
+   * Spherically interpolates between {@code from[i]} and {@code to[i]} for
+   * every {@code i} in {@code [fromIndex, toIndex)}, and writes the result
+   * to {@code out[i]}. The inputs are expected to be unit quaternions. The
+   * shorter of the two arcs between the end points is followed, and nearly
+   * parallel end points are interpolated linearly and renormalized
+   *
+   * @param from The quaternions at {@code t = 0}
+   * @param to The quaternions at {@code t = 1}
+   * @param t Value indicating how far to interpolate between the two
+   *          Quaternions
+   * @param out The array receiving the interpolated quaternions, which may
+   *            be {@code from} or {@code to}
+   * @param fromIndex The index of the first quaternion, inclusive
+   * @param toIndex The index of the last quaternion, exclusive
+   * @throws IllegalArgumentException if {@code t} is not between 0 and 1
+   *         inclusively, or the index range is invalid for any array
+   *
+   * @see Quaternion#SLERP_LINEAR_THRESHOLD
+   */
+  public final void slerp(final QuaternionArray from,
+      final QuaternionArray to, double t, final QuaternionArray out,
+      int fromIndex, int toIndex) throws IllegalArgumentException {
+    Quaternion.checkInterpolationParam(t);
+    from.checkRange(fromIndex, toIndex);
+    to.checkRange(fromIndex, toIndex);
+    out.checkRange(fromIndex, toIndex);
+    doSlerp(from, to, t, out, fromIndex, toIndex);
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Backend implementations, called with validated ranges
+  //
+  /////////////////////////////////////////////////////////
+
+  abstract void doMultiplyEq(final QuaternionArray a,
+      final QuaternionArray b, int fromIndex, int toIndex);
+
+  abstract void doNormalize(
+      final QuaternionArray a, int fromIndex, int toIndex);
+
+  abstract void doRotate(final Quaternion q,
+      final double[] xs, final double[] ys, final double[] zs,
+      final double[] outX, final double[] outY, final double[] outZ,
+      int fromIndex, int toIndex);
+
+  abstract void doSlerp(final QuaternionArray from,
+      final QuaternionArray to, double t, final QuaternionArray out,
+      int fromIndex, int toIndex);
+}
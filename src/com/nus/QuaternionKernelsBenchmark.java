@@ -0,0 +1,158 @@
+package com.nus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of the bulk {@link QuaternionKernels} against a loop over
+ * the scalar {@link Quaternion} methods. The {@code backend} parameter picks
+ * the implementation: {@code reference} loops over {@code Quaternion[]},
+ * {@code scalar} and {@code vector} run the corresponding kernels on a
+ * {@link QuaternionArray}.
+ *
+ * <p>The forked JVM is started with {@code --add-modules
+ * jdk.incubator.vector}. Scores are per batch of {@code size} elements
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Thread)
+public class QuaternionKernelsBenchmark {
+
+  @Param({"1024", "65536"})
+  public int size;
+
+  @Param({"reference", "scalar", "vector"})
+  public String backend;
+
+  private QuaternionKernels kernels;
+  private Quaternion rotation;
+  private Quaternion[] sources;
+  private Quaternion[] operands;
+  private Quaternion[] results;
+  private QuaternionArray sourceArray;
+  private QuaternionArray operandArray;
+  private QuaternionArray outArray;
+  private double[] xs;
+  private double[] ys;
+  private double[] zs;
+  private double[] packed;
+  private double[] outX;
+  private double[] outY;
+  private double[] outZ;
+  private double[] outPacked;
+
+  @Setup
+  public void setUp() {
+    if ("vector".equals(backend)) {
+      kernels = QuaternionKernels.get();
+      if (!kernels.isVectorized()) {
+        throw new IllegalStateException("Vector backend is not available");
+      }
+    } else {
+      kernels = QuaternionKernels.scalar();
+    }
+
+    Random random = new Random(QuaternionBenchmark.SEED);
+    rotation = QuaternionBenchmark.randomUnitQuaternion(random);
+    sources = new Quaternion[size];
+    operands = new Quaternion[size];
+    results = new Quaternion[size];
+    xs = new double[size];
+    ys = new double[size];
+    zs = new double[size];
+    packed = new double[size * 3];
+    for (int i = 0; i < size; ++i) {
+      sources[i] = QuaternionBenchmark.randomUnitQuaternion(random);
+      operands[i] = QuaternionBenchmark.randomUnitQuaternion(random);
+      results[i] = new Quaternion();
+      xs[i] = packed[i * 3] = random.nextDouble();
+      ys[i] = packed[i * 3 + 1] = random.nextDouble();
+      zs[i] = packed[i * 3 + 2] = random.nextDouble();
+    }
+    sourceArray = new QuaternionArray(sources);
+    operandArray = new QuaternionArray(operands);
+    outArray = new QuaternionArray(size);
+    outX = new double[size];
+    outY = new double[size];
+    outZ = new double[size];
+    outPacked = new double[size * 3];
+  }
+
+  @Benchmark
+  public Object multiplyEq() {
+    if ("reference".equals(backend)) {
+      for (int i = 0; i < size; ++i) {
+        sources[i].multiplyEq(operands[i]);
+      }
+      return sources;
+    }
+    kernels.multiplyEq(sourceArray, operandArray, 0, size);
+    return sourceArray;
+  }
+
+  @Benchmark
+  public Object normalize() {
+    if ("reference".equals(backend)) {
+      for (int i = 0; i < size; ++i) {
+        sources[i].normalize();
+      }
+      return sources;
+    }
+    kernels.normalize(sourceArray, 0, size);
+    return sourceArray;
+  }
+
+  @Benchmark
+  public Object rotatePoints() {
+    if ("reference".equals(backend)) {
+      for (int i = 0; i < size; ++i) {
+        rotation.rotate(packed, i * 3, outPacked, i * 3);
+      }
+      return outPacked;
+    }
+    kernels.rotate(rotation, xs, ys, zs, outX, outY, outZ, 0, size);
+    return outX;
+  }
+
+  @Benchmark
+  public Object slerp() {
+    if ("reference".equals(backend)) {
+      for (int i = 0; i < size; ++i) {
+        Quaternion.slerp(sources[i], operands[i], 0.3, results[i]);
+      }
+      return results;
+    }
+    kernels.slerp(sourceArray, operandArray, 0.3, outArray, 0, size);
+    return outArray;
+  }
+
+  @Benchmark
+  public Object slerpNearlyParallel() {
+    // Equal end points take the linear fallback in every lane
+    if ("reference".equals(backend)) {
+      for (int i = 0; i < size; ++i) {
+        Quaternion.slerp(sources[i], sources[i], 0.3, results[i]);
+      }
+      return results;
+    }
+    kernels.slerp(sourceArray, sourceArray, 0.3, outArray, 0, size);
+    return outArray;
+  }
+}
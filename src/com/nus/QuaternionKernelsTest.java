@@ -0,0 +1,130 @@
+package com.nus;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+import static com.nus.QuaternionTest.EPSILON;
+import static com.nus.QuaternionTest.assertQuaternionEquals;
+
+import java.util.Random;
+
+public class QuaternionKernelsTest {
+
+  // Odd size so that vector backends also run their scalar tail
+  public static final int SIZE = 37;
+
+  public static QuaternionArray randomArray(Random random, int size) {
+    QuaternionArray array = new QuaternionArray(size);
+    for (int i = 0; i < size; ++i) {
+      array.set(i, random.nextGaussian(), random.nextGaussian(),
+        random.nextGaussian(), random.nextGaussian());
+    }
+    return array;
+  }
+
+  /**
+   * Checks the input kernels against the Quaternion reference implementation
+   */
+  public static void assertKernelsMatchReference(QuaternionKernels kernels) {
+    Random random = new Random(134);
+    QuaternionArray a = randomArray(random, SIZE);
+    QuaternionArray b = randomArray(random, SIZE);
+    Quaternion[] expected = a.toArray();
+
+    kernels.multiplyEq(a, b, 1, SIZE);
+    assertQuaternionEquals(a.get(0), expected[0]);
+    for (int i = 1; i < SIZE; ++i) {
+      assertQuaternionEquals(a.get(i), expected[i].multiply(b.get(i)));
+    }
+
+    expected = a.toArray();
+    kernels.normalize(a, 0, SIZE);
+    for (int i = 0; i < SIZE; ++i) {
+      expected[i].normalize();
+      assertQuaternionEquals(a.get(i), expected[i]);
+    }
+
+    Quaternion q = new Quaternion(0.3, -1.2, 0.5, 2.0);
+    double[] xs = new double[SIZE];
+    double[] ys = new double[SIZE];
+    double[] zs = new double[SIZE];
+    for (int i = 0; i < SIZE; ++i) {
+      xs[i] = random.nextDouble();
+      ys[i] = random.nextDouble();
+      zs[i] = random.nextDouble();
+    }
+    double[] outX = new double[SIZE];
+    double[] outY = new double[SIZE];
+    double[] outZ = new double[SIZE];
+    kernels.rotate(q, xs, ys, zs, outX, outY, outZ, 0, SIZE);
+    for (int i = 0; i < SIZE; ++i) {
+      double[] image = q.rotate(new double[] {xs[i], ys[i], zs[i]});
+      assertEquals(outX[i], image[0], EPSILON);
+      assertEquals(outY[i], image[1], EPSILON);
+      assertEquals(outZ[i], image[2], EPSILON);
+    }
+
+    QuaternionArray from = randomArray(random, SIZE);
+    QuaternionArray to = randomArray(random, SIZE);
+    from.normalize();
+    to.normalize();
+    // Nearly parallel end points take the linear path
+    to.set(3, from.get(3));
+    QuaternionArray out = new QuaternionArray(SIZE);
+    kernels.slerp(from, to, 0.3, out, 0, SIZE);
+    QuaternionArray reference = new QuaternionArray(SIZE);
+    QuaternionKernels.scalar().slerp(from, to, 0.3, reference, 0, SIZE);
+    for (int i = 0; i < SIZE; ++i) {
+      assertQuaternionEquals(out.get(i), reference.get(i));
+      assertEquals(out.get(i).norm(), 1.0, EPSILON);
+    }
+    assertQuaternionEquals(out.get(3), from.get(3));
+  }
+
+  @Test
+  public void testScalarKernels() {
+    QuaternionKernels kernels = QuaternionKernels.scalar();
+    assertEquals(kernels.isVectorized(), false);
+    assertKernelsMatchReference(kernels);
+  }
+
+  @Test
+  public void testBestKernels() {
+    assertKernelsMatchReference(QuaternionKernels.get());
+  }
+
+  @Test
+  public void testSlerp() {
+    double[] axis = new double[] {0.0, 0.0, 1.0};
+    QuaternionArray from = new QuaternionArray(1);
+    QuaternionArray to = new QuaternionArray(1);
+    QuaternionArray out = new QuaternionArray(1);
+    to.set(0, Quaternion.fromAxisAngle(axis, 90.0));
+
+    QuaternionKernels kernels = QuaternionKernels.scalar();
+    kernels.slerp(from, to, 0.5, out, 0, 1);
+    assertQuaternionEquals(out.get(0), Quaternion.fromAxisAngle(axis, 45.0));
+
+    kernels.slerp(from, to, 0.0, out, 0, 1);
+    assertQuaternionEquals(out.get(0), from.get(0));
+
+    // -to is the same rotation as to, and must give the same result
+    to.set(0, Quaternion.fromAxisAngle(axis, 90.0).multiply(-1.0));
+    kernels.slerp(from, to, 0.5, out, 0, 1);
+    assertQuaternionEquals(out.get(0), Quaternion.fromAxisAngle(axis, 45.0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSlerpWithInvalidParameter() {
+    QuaternionArray array = new QuaternionArray(1);
+    QuaternionKernels.scalar().slerp(array, array, 1.5, array, 0, 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRotateWithInvalidRange() {
+    double[] v = new double[4];
+    QuaternionKernels.scalar().rotate(
+      new Quaternion(), v, v, new double[3], v, v, v, 0, 4);
+  }
+}
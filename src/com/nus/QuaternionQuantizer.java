@@ -0,0 +1,417 @@
+package com.nus;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Lossy compression of unit quaternions with the "smallest three" encoding.
+ * Since q and -q are the same rotation and a unit quaternion has norm 1, the
+ * largest component is made positive and dropped; it is recovered as
+ * {@code sqrt(1 - a^2 - b^2 - c^2)}. The other three components all lie in
+ * {@code [-1/sqrt(2), 1/sqrt(2)]} and are each quantized to
+ * {@code bitsPerComponent} bits.
+ *
+ * <p>An encoded quaternion is a {@code long} holding, from the least
+ * significant bit, the 2-bit index of the dropped component followed by the
+ * three quantized components in x, y, z, w order. {@link #BITS_32},
+ * {@link #BITS_48} and {@link #BITS_64} use 10, 15 and 20 bits per component,
+ * so that an encoded value fits in 4, 6 or 8 bytes.
+ *
+ * <p>The rotation angle between a unit quaternion and its decoded value is
+ * at most {@link #getMaxAngularError()}: 8.7e-3 rad (0.5 degree) for 32
+ * bits, 2.7e-4 rad for 48 bits and 8.5e-6 rad for 64 bits. The largest
+ * errors measured over random rotations are about half of these. The input
+ * is normalized before encoding, so only its rotation is kept.
+ *
+ * <p>Quantizers are immutable and can be shared between threads. Encoding and
+ * decoding do not allocate
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+public final class QuaternionQuantizer {
+  public static final int MIN_BITS_PER_COMPONENT = 2;
+  public static final int MAX_BITS_PER_COMPONENT = 20;
+
+  public static final String INVALID_BITS_MSG =
+    "Bits per component must be between " + MIN_BITS_PER_COMPONENT +
+    " and " + MAX_BITS_PER_COMPONENT;
+  public static final String INVALID_RESOLUTION_MSG =
+    "Angular resolution must be at least that of " + MAX_BITS_PER_COMPONENT +
+    " bits per component";
+
+  // Range of the three smallest components of a unit quaternion. Declared
+  // before the instances below, which use it when they are constructed
+  private static final double RANGE = Math.sqrt(0.5);
+
+  /**
+   * 10 bits per component, 4 bytes per quaternion
+   */
+  public static final QuaternionQuantizer BITS_32 =
+    new QuaternionQuantizer(10);
+
+  /**
+   * 15 bits per component, 6 bytes per quaternion
+   */
+  public static final QuaternionQuantizer BITS_48 =
+    new QuaternionQuantizer(15);
+
+  /**
+   * 20 bits per component, 8 bytes per quaternion
+   */
+  public static final QuaternionQuantizer BITS_64 =
+    new QuaternionQuantizer(20);
+
+  private final int bitsPerComponent;
+  private final long mask;
+  private final double scale;
+  private final double step;
+
+  /**
+   * Constructs a quantizer
+   *
+   * @param bitsPerComponent The number of bits of each of the three stored
+   *                         components
+   * @throws IllegalArgumentException if {@code bitsPerComponent} is not
+   *                                  between {@link #MIN_BITS_PER_COMPONENT}
+   *                                  and {@link #MAX_BITS_PER_COMPONENT}
+   */
+  public QuaternionQuantizer(int bitsPerComponent)
+      throws IllegalArgumentException {
+    if (bitsPerComponent < MIN_BITS_PER_COMPONENT ||
+        bitsPerComponent > MAX_BITS_PER_COMPONENT) {
+      throw new IllegalArgumentException(INVALID_BITS_MSG);
+    }
+    this.bitsPerComponent = bitsPerComponent;
+    this.mask = (1L << bitsPerComponent) - 1;
+    this.scale = mask / (2.0 * RANGE);
+    this.step = 2.0 * RANGE / mask;
+  }
+
+  /**
+   * Constructs the quantizer with the fewest bits per component such that
+   * any two rotations with the same encoded value are within
+   * {@code resolutionRad} of each other, that is, such that
+   * {@code 2 * getMaxAngularError() <= resolutionRad}
+   *
+   * @param resolutionRad The largest angle in radians between two rotations
+   *                      with the same encoded value
+   * @return The quantizer
+   * @throws IllegalArgumentException if {@code resolutionRad} is finer than
+   *                                  what {@link #MAX_BITS_PER_COMPONENT}
+   *                                  bits achieve, about 1.7e-5 rad
+   */
+  public static QuaternionQuantizer forResolution(double resolutionRad)
+      throws IllegalArgumentException {
+    for (int bits = MIN_BITS_PER_COMPONENT; bits <= MAX_BITS_PER_COMPONENT;
+        ++bits) {
+      QuaternionQuantizer quantizer = new QuaternionQuantizer(bits);
+      if (2.0 * quantizer.getMaxAngularError() <= resolutionRad) {
+        return quantizer;
+      }
+    }
+    throw new IllegalArgumentException(INVALID_RESOLUTION_MSG);
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Getters
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Gets the number of bits of each stored component
+   *
+   * @return The number of bits per component
+   */
+  public int getBitsPerComponent() {
+    return bitsPerComponent;
+  }
+
+  /**
+   * Gets the number of significant bits of an encoded quaternion
+   *
+   * @return {@code 2 + 3 * getBitsPerComponent()}
+   */
+  public int getBits() {
+    return 2 + 3 * bitsPerComponent;
+  }
+
+  /**
+   * Gets the number of bytes of an encoded quaternion in a ByteBuffer
+   *
+   * @return The number of bits rounded up to whole bytes
+   */
+  public int getEncodedBytes() {
+    return (getBits() + 7) / 8;
+  }
+
+  /**
+   * Gets an upper bound of the rotation angle between a unit quaternion and
+   * its decoded value. Each stored component is off by at most half a
+   * quantization step {@code d}, so the three of them together by at most
+   * {@code c = sqrt(3) * d / 2}. The recovered component is at least 1/2, so
+   * it is off by at most {@code 2 * c * (sqrt(3) + c)}. The decoded
+   * quaternion is then within {@code e = c * sqrt(1 + 4 * (sqrt(3) + c)^2)}
+   * of the input, which bounds the rotation angle by {@code 2 * asin(e)}
+   *
+   * @return The maximum angular error in radians
+   */
+  public double getMaxAngularError() {
+    double c = Math.sqrt(3.0) * step / 2.0;
+    double k = Math.sqrt(3.0) + c;
+    double e = c * Math.sqrt(1.0 + 4.0 * k * k);
+    return 2.0 * Math.asin(Math.min(1.0, e));
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Encoding and decoding of single quaternions
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Encodes the rotation represented by a quaternion
+   *
+   * @param q The quaternion to be encoded; it need not be a unit quaternion
+   * @return The encoded value, in the low {@link #getBits()} bits
+   */
+  public long encode(final Quaternion q) {
+    return encode(q.getX(), q.getY(), q.getZ(), q.getW());
+  }
+
+  /**
+   * Decodes a quaternion
+   *
+   * @param bits A value returned by one of the encode methods of a quantizer
+   *             with the same number of bits per component
+   * @param out The Quaternion receiving the decoded unit quaternion
+   */
+  public void decode(long bits, final Quaternion out) {
+    int largest = (int) (bits & 3);
+    double a = component(bits >>> 2);
+    double b = component(bits >>> (2 + bitsPerComponent));
+    double c = component(bits >>> (2 + 2 * bitsPerComponent));
+    double d = Math.sqrt(Math.max(0.0, 1.0 - a * a - b * b - c * c));
+    // Conditional moves rather than a switch
+    out.set(largest == 0 ? d : a,
+      largest == 0 ? a : largest == 1 ? d : b,
+      largest <= 1 ? b : largest == 2 ? d : c,
+      largest == 3 ? d : c);
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Batch encoding and decoding
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Encodes {@code src[fromIndex, toIndex)} into {@code dst}, starting at
+   * {@code dstOff}
+   *
+   * @param src The quaternions to be encoded
+   * @param fromIndex The index of the first quaternion, inclusive
+   * @param toIndex The index of the last quaternion, exclusive
+   * @param dst The array receiving one encoded value per quaternion
+   * @param dstOff The index in {@code dst} of the first encoded value
+   * @throws IllegalArgumentException if the index range is invalid
+   * @throws ArrayIndexOutOfBoundsException if {@code dst} is too short
+   */
+  public void encode(final QuaternionArray src, int fromIndex, int toIndex,
+      final long[] dst, int dstOff)
+      throws IllegalArgumentException, ArrayIndexOutOfBoundsException {
+    src.checkRange(fromIndex, toIndex);
+    for (int i = fromIndex, j = dstOff; i < toIndex; ++i, ++j) {
+      dst[j] = encode(src.x[i], src.y[i], src.z[i], src.w[i]);
+    }
+  }
+
+  /**
+   * Decodes values from {@code src}, starting at {@code srcOff}, into
+   * {@code dst[fromIndex, toIndex)}
+   *
+   * @param src The encoded values
+   * @param srcOff The index in {@code src} of the first encoded value
+   * @param dst The array receiving the decoded unit quaternions
+   * @param fromIndex The index of the first quaternion, inclusive
+   * @param toIndex The index of the last quaternion, exclusive
+   * @throws IllegalArgumentException if the index range is invalid
+   * @throws ArrayIndexOutOfBoundsException if {@code src} is too short
+   */
+  public void decode(final long[] src, int srcOff, final QuaternionArray dst,
+      int fromIndex, int toIndex)
+      throws IllegalArgumentException, ArrayIndexOutOfBoundsException {
+    dst.checkRange(fromIndex, toIndex);
+    for (int i = fromIndex, j = srcOff; i < toIndex; ++i, ++j) {
+      decode(src[j], dst, i);
+    }
+  }
+
+  /**
+   * Encodes {@code src[fromIndex, toIndex)} into {@code dst} at its
+   * position, {@link #getEncodedBytes()} little-endian bytes per quaternion,
+   * and advances the position. The byte order of {@code dst} is ignored
+   *
+   * @param src The quaternions to be encoded
+   * @param fromIndex The index of the first quaternion, inclusive
+   * @param toIndex The index of the last quaternion, exclusive
+   * @param dst The destination buffer
+   * @throws IllegalArgumentException if the index range is invalid
+   * @throws BufferOverflowException if {@code dst} cannot hold all the
+   *                                 quaternions; nothing is written then
+   */
+  public void encode(final QuaternionArray src, int fromIndex, int toIndex,
+      final ByteBuffer dst)
+      throws IllegalArgumentException, BufferOverflowException {
+    src.checkRange(fromIndex, toIndex);
+    int bytes = getEncodedBytes();
+    if (dst.remaining() < (long) (toIndex - fromIndex) * bytes) {
+      throw new BufferOverflowException();
+    }
+
+    ByteOrder order = dst.order();
+    dst.order(ByteOrder.LITTLE_ENDIAN);
+    int position = dst.position();
+    for (int i = fromIndex; i < toIndex; ++i, position += bytes) {
+      long bits = encode(src.x[i], src.y[i], src.z[i], src.w[i]);
+      if (bytes == 8) {
+        dst.putLong(position, bits);
+        continue;
+      }
+      int k = 0;
+      if (bytes >= 4) {
+        dst.putInt(position, (int) bits);
+        k = 4;
+      }
+      for (; k < bytes; ++k) {
+        dst.put(position + k, (byte) (bits >>> (8 * k)));
+      }
+    }
+    dst.position(position);
+    dst.order(order);
+  }
+
+  /**
+   * Decodes {@link #getEncodedBytes()} little-endian bytes per quaternion
+   * from {@code src} at its position into {@code dst[fromIndex, toIndex)},
+   * and advances the position. The byte order of {@code src} is ignored
+   *
+   * @param src The source buffer
+   * @param dst The array receiving the decoded unit quaternions
+   * @param fromIndex The index of the first quaternion, inclusive
+   * @param toIndex The index of the last quaternion, exclusive
+   * @throws IllegalArgumentException if the index range is invalid
+   * @throws BufferUnderflowException if {@code src} does not hold enough
+   *                                  quaternions; nothing is read then
+   */
+  public void decode(final ByteBuffer src, final QuaternionArray dst,
+      int fromIndex, int toIndex)
+      throws IllegalArgumentException, BufferUnderflowException {
+    dst.checkRange(fromIndex, toIndex);
+    int bytes = getEncodedBytes();
+    if (src.remaining() < (long) (toIndex - fromIndex) * bytes) {
+      throw new BufferUnderflowException();
+    }
+
+    ByteOrder order = src.order();
+    src.order(ByteOrder.LITTLE_ENDIAN);
+    int position = src.position();
+    for (int i = fromIndex; i < toIndex; ++i, position += bytes) {
+      long bits;
+      if (bytes == 8) {
+        bits = src.getLong(position);
+      } else {
+        int k = 0;
+        bits = 0;
+        if (bytes >= 4) {
+          bits = src.getInt(position) & 0xffffffffL;
+          k = 4;
+        }
+        for (; k < bytes; ++k) {
+          bits |= (src.get(position + k) & 0xffL) << (8 * k);
+        }
+      }
+      decode(bits, dst, i);
+    }
+    src.position(position);
+    src.order(order);
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Private methods
+  //
+  /////////////////////////////////////////////////////////
+
+  private long encode(double x, double y, double z, double w) {
+    double ax = Math.abs(x);
+    double ay = Math.abs(y);
+    double az = Math.abs(z);
+    double aw = Math.abs(w);
+    int largest = 0;
+    double max = ax;
+    if (ay > max) {
+      largest = 1;
+      max = ay;
+    }
+    if (az > max) {
+      largest = 2;
+      max = az;
+    }
+    if (aw > max) {
+      largest = 3;
+      max = aw;
+    }
+
+    double norm = Math.sqrt(x * x + y * y + z * z + w * w);
+    // Makes the dropped component positive and the quaternion unit
+    double largestValue = largest == 0 ? x : largest == 1 ? y
+      : largest == 2 ? z : w;
+    double factor = (largestValue < 0.0 ? -1.0 : 1.0) / norm;
+
+    long bits = largest;
+    int shift = 2;
+    if (largest != 0) {
+      bits |= quantize(x * factor) << shift;
+      shift += bitsPerComponent;
+    }
+    if (largest != 1) {
+      bits |= quantize(y * factor) << shift;
+      shift += bitsPerComponent;
+    }
+    if (largest != 2) {
+      bits |= quantize(z * factor) << shift;
+      shift += bitsPerComponent;
+    }
+    if (largest != 3) {
+      bits |= quantize(w * factor) << shift;
+    }
+    return bits;
+  }
+
+  private void decode(long bits, final QuaternionArray dst, int index) {
+    int largest = (int) (bits & 3);
+    double a = component(bits >>> 2);
+    double b = component(bits >>> (2 + bitsPerComponent));
+    double c = component(bits >>> (2 + 2 * bitsPerComponent));
+    double d = Math.sqrt(Math.max(0.0, 1.0 - a * a - b * b - c * c));
+    dst.x[index] = largest == 0 ? d : a;
+    dst.y[index] = largest == 0 ? a : largest == 1 ? d : b;
+    dst.z[index] = largest <= 1 ? b : largest == 2 ? d : c;
+    dst.w[index] = largest == 3 ? d : c;
+  }
+
+  private long quantize(double value) {
+    long q = Math.round((value + RANGE) * scale);
+    return Math.max(0L, Math.min(mask, q));
+  }
+
+  /**
+   * Dequantizes the component stored in the low bits of {@code bits}
+   */
+  private double component(long bits) {
+    return (bits & mask) * step - RANGE;
+  }
+}
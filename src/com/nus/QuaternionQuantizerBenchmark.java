@@ -0,0 +1,88 @@
+package com.nus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of {@link QuaternionQuantizer} batch encoding and decoding,
+ * to {@code long[]} and to a direct ByteBuffer. Scores are per batch of
+ * {@code size} quaternions; {@code bitsPerComponent} 10, 15 and 20 are the
+ * 32, 48 and 64-bit encodings
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class QuaternionQuantizerBenchmark {
+
+  @Param({"1024"})
+  public int size;
+
+  @Param({"10", "15", "20"})
+  public int bitsPerComponent;
+
+  private QuaternionQuantizer quantizer;
+  private QuaternionArray array;
+  private QuaternionArray decoded;
+  private long[] encoded;
+  private ByteBuffer buffer;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(QuaternionBenchmark.SEED);
+    Quaternion[] quaternions = new Quaternion[size];
+    for (int i = 0; i < size; ++i) {
+      quaternions[i] = QuaternionBenchmark.randomUnitQuaternion(random);
+    }
+    quantizer = new QuaternionQuantizer(bitsPerComponent);
+    array = new QuaternionArray(quaternions);
+    decoded = new QuaternionArray(size);
+    encoded = new long[size];
+    buffer = ByteBuffer.allocateDirect(size * quantizer.getEncodedBytes());
+    encodeLongs();
+    encodeBuffer();
+  }
+
+  @Benchmark
+  public long[] encodeLongs() {
+    quantizer.encode(array, 0, size, encoded, 0);
+    return encoded;
+  }
+
+  @Benchmark
+  public QuaternionArray decodeLongs() {
+    quantizer.decode(encoded, 0, decoded, 0, size);
+    return decoded;
+  }
+
+  @Benchmark
+  public ByteBuffer encodeBuffer() {
+    buffer.clear();
+    quantizer.encode(array, 0, size, buffer);
+    return buffer;
+  }
+
+  @Benchmark
+  public QuaternionArray decodeBuffer() {
+    buffer.rewind();
+    quantizer.decode(buffer, decoded, 0, size);
+    return decoded;
+  }
+}
@@ -0,0 +1,186 @@
+package com.nus;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import static com.nus.QuaternionTest.EPSILON;
+import static com.nus.QuaternionTestUtils.angleBetween;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+public class QuaternionQuantizerTest {
+
+  private static QuaternionArray randomArray(Random random, int size) {
+    QuaternionArray array = new QuaternionArray(size);
+    for (int i = 0; i < size; ++i) {
+      array.set(i, random.nextGaussian(), random.nextGaussian(),
+        random.nextGaussian(), random.nextGaussian());
+    }
+    array.normalize();
+    return array;
+  }
+
+  @Test
+  public void testSizes() {
+    assertEquals(QuaternionQuantizer.BITS_32.getBits(), 32);
+    assertEquals(QuaternionQuantizer.BITS_32.getEncodedBytes(), 4);
+    assertEquals(QuaternionQuantizer.BITS_48.getBits(), 47);
+    assertEquals(QuaternionQuantizer.BITS_48.getEncodedBytes(), 6);
+    assertEquals(QuaternionQuantizer.BITS_64.getBits(), 62);
+    assertEquals(QuaternionQuantizer.BITS_64.getEncodedBytes(), 8);
+    assertEquals(new QuaternionQuantizer(7).getEncodedBytes(), 3);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidBits() throws Exception {
+    new QuaternionQuantizer(21);
+  }
+
+  @Test
+  public void testExactValues() {
+    QuaternionQuantizer quantizer = QuaternionQuantizer.BITS_32;
+    Quaternion decoded = new Quaternion();
+    Quaternion[] inputs = {
+      new Quaternion(),
+      new Quaternion(1.0, 0.0, 0.0, 0.0),
+      new Quaternion(0.0, -1.0, 0.0, 0.0),
+      new Quaternion(0.0, 0.0, 0.0, -2.0),
+    };
+    for (Quaternion q : inputs) {
+      quantizer.decode(quantizer.encode(q), decoded);
+      assertTrue(angleBetween(q, decoded) <=
+        quantizer.getMaxAngularError());
+      assertEquals(decoded.norm(), 1.0, 1e-3);
+    }
+  }
+
+  @Test
+  public void testErrorBound() {
+    Random random = new Random(3);
+    Quaternion q = new Quaternion();
+    Quaternion decoded = new Quaternion();
+    for (int bits = QuaternionQuantizer.MIN_BITS_PER_COMPONENT;
+        bits <= QuaternionQuantizer.MAX_BITS_PER_COMPONENT; ++bits) {
+      QuaternionQuantizer quantizer = new QuaternionQuantizer(bits);
+      double maxError = 0.0;
+      for (int i = 0; i < 20000; ++i) {
+        q.set(random.nextGaussian(), random.nextGaussian(),
+          random.nextGaussian(), random.nextGaussian());
+        long encoded = quantizer.encode(q);
+        assertEquals(encoded >>> quantizer.getBits(), 0L);
+        quantizer.decode(encoded, decoded);
+        maxError = Math.max(maxError, angleBetween(q, decoded));
+      }
+      assertTrue(maxError <= quantizer.getMaxAngularError());
+      // The bound is not loose by more than an order of magnitude
+      assertTrue(maxError > quantizer.getMaxAngularError() / 10.0);
+    }
+  }
+
+  @Test
+  public void testBatchLongs() {
+    Random random = new Random(5);
+    QuaternionArray array = randomArray(random, 100);
+    for (QuaternionQuantizer quantizer : new QuaternionQuantizer[] {
+        QuaternionQuantizer.BITS_32, QuaternionQuantizer.BITS_48,
+        QuaternionQuantizer.BITS_64}) {
+      long[] encoded = new long[102];
+      quantizer.encode(array, 0, 100, encoded, 2);
+      QuaternionArray decoded = new QuaternionArray(100);
+      quantizer.decode(encoded, 2, decoded, 0, 100);
+
+      Quaternion expected = new Quaternion();
+      for (int i = 0; i < 100; ++i) {
+        assertEquals(encoded[i + 2], quantizer.encode(array.get(i)));
+        quantizer.decode(encoded[i + 2], expected);
+        assertEquals(decoded.get(i), expected);
+        assertEquals(decoded.get(i).norm(), 1.0, 1e-3);
+      }
+    }
+  }
+
+  @Test
+  public void testBatchByteBuffer() {
+    Random random = new Random(11);
+    QuaternionArray array = randomArray(random, 64);
+    for (int bits = QuaternionQuantizer.MIN_BITS_PER_COMPONENT;
+        bits <= QuaternionQuantizer.MAX_BITS_PER_COMPONENT; ++bits) {
+      QuaternionQuantizer quantizer = new QuaternionQuantizer(bits);
+      ByteBuffer buffer = ByteBuffer.allocate(64 * 8)
+        .order(ByteOrder.BIG_ENDIAN);
+      quantizer.encode(array, 0, 64, buffer);
+      assertEquals(buffer.position(), 64 * quantizer.getEncodedBytes());
+      assertEquals(buffer.order(), ByteOrder.BIG_ENDIAN);
+
+      buffer.flip();
+      QuaternionArray decoded = new QuaternionArray(64);
+      quantizer.decode(buffer, decoded, 0, 64);
+      assertEquals(buffer.remaining(), 0);
+
+      long[] encoded = new long[64];
+      quantizer.encode(array, 0, 64, encoded, 0);
+      QuaternionArray expected = new QuaternionArray(64);
+      quantizer.decode(encoded, 0, expected, 0, 64);
+      for (int i = 0; i < 64; ++i) {
+        assertEquals(decoded.get(i), expected.get(i));
+      }
+    }
+  }
+
+  @Test
+  public void testLittleEndianLayout() {
+    QuaternionQuantizer quantizer = QuaternionQuantizer.BITS_48;
+    Quaternion q = new Quaternion(0.1, 0.2, 0.3, 0.9);
+    q.normalize();
+    QuaternionArray array = new QuaternionArray(new Quaternion[] {q});
+    ByteBuffer buffer = ByteBuffer.allocate(6);
+    quantizer.encode(array, 0, 1, buffer);
+    long bits = 0;
+    for (int k = 0; k < 6; ++k) {
+      bits |= (buffer.get(k) & 0xffL) << (8 * k);
+    }
+    assertEquals(bits, quantizer.encode(q));
+    assertEquals(bits & 3, 3L);
+  }
+
+  @Test(expected = java.nio.BufferOverflowException.class)
+  public void testEncodeOverflow() throws Exception {
+    QuaternionQuantizer.BITS_32.encode(new QuaternionArray(3), 0, 3,
+      ByteBuffer.allocate(11));
+  }
+
+  @Test
+  public void testNegatedQuaternionEncodesTheSame() {
+    Quaternion q = new Quaternion(0.3, -0.5, 0.1, -0.8);
+    q.normalize();
+    QuaternionQuantizer quantizer = QuaternionQuantizer.BITS_64;
+    assertEquals(quantizer.encode(q), quantizer.encode(q.multiply(-1.0)));
+    Quaternion decoded = new Quaternion();
+    quantizer.decode(quantizer.encode(q), decoded);
+    assertEquals(angleBetween(decoded, q), 0.0, 1e-5);
+    assertEquals(decoded.getW(), 0.8 / Math.sqrt(0.99), 1e-5);
+    assertEquals(decoded.norm(), 1.0, EPSILON * 1e4);
+  }
+
+  @Test
+  public void testForResolution() {
+    for (double resolution : new double[] {0.5, 1e-2, 1e-3, 1e-4, 2e-5}) {
+      QuaternionQuantizer quantizer =
+        QuaternionQuantizer.forResolution(resolution);
+      assertTrue(2.0 * quantizer.getMaxAngularError() <= resolution);
+      // One bit fewer would be too coarse
+      QuaternionQuantizer coarser =
+        new QuaternionQuantizer(quantizer.getBitsPerComponent() - 1);
+      assertTrue(2.0 * coarser.getMaxAngularError() > resolution);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testForResolutionTooFine() {
+    QuaternionQuantizer.forResolution(1e-5);
+  }
+}
@@ -0,0 +1,353 @@
+package com.nus;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Parallel products of long sequences of unit quaternions, such as the
+ * increments of an integrated gyroscope log. Quaternion multiplication is
+ * associative, so the range is split into blocks processed by a
+ * {@link ForkJoinPool}:
+ *
+ * <ol>
+ *   <li>the product of every block is computed in parallel;</li>
+ *   <li>the products of the blocks before each block are combined
+ *       sequentially, one multiplication per block;</li>
+ *   <li>for a prefix product, every block is scanned in parallel, starting
+ *       from the product of the blocks before it.</li>
+ * </ol>
+ *
+ * <p>A prefix product reads the input twice and writes it once, so with
+ * {@code p} workers it runs up to {@code p / 2} times faster than a
+ * sequential scan; a product reads it once and scales with {@code p}. Ranges
+ * of fewer than {@link #SEQUENTIAL_THRESHOLD} quaternions, and all ranges
+ * when the pool has a parallelism of 1, are processed sequentially in the
+ * calling thread.
+ *
+ * <p>The running product is renormalized every {@link #RENORMALIZE_INTERVAL}
+ * factors and at block boundaries, so rounding errors do not make its norm
+ * drift over millions of factors. The factors are therefore expected to be
+ * unit quaternions. Results depend on the block boundaries, and differ from
+ * those of a sequential scan by floating-point rounding only
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+public final class QuaternionScan {
+  /**
+   * Number of factors between renormalizations of a running product
+   */
+  public static final int RENORMALIZE_INTERVAL = 256;
+
+  /**
+   * Ranges shorter than this are not split
+   */
+  public static final int SEQUENTIAL_THRESHOLD = 1 << 14;
+
+  // Blocks per worker, so that workers finishing early can steal blocks
+  private static final int BLOCKS_PER_WORKER = 4;
+
+  private QuaternionScan() {}
+
+  //////////////////////////////////////////////////////////
+  //
+  // Prefix products
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Computes the prefix products
+   * {@code dst[dstOff + k] = src[fromIndex] * src[fromIndex + 1] * ... *
+   * src[fromIndex + k]} for {@code k} in {@code [0, toIndex - fromIndex)},
+   * in the common pool
+   *
+   * @param src The factors
+   * @param fromIndex The index of the first factor, inclusive
+   * @param toIndex The index of the last factor, exclusive
+   * @param dst The array receiving the prefix products. It may be
+   *            {@code src} if {@code dstOff == fromIndex}; other overlaps
+   *            give undefined results
+   * @param dstOff The index in {@code dst} of the first prefix product
+   * @throws IllegalArgumentException if an index range is invalid
+   */
+  public static void prefixProduct(final QuaternionArray src, int fromIndex,
+      int toIndex, final QuaternionArray dst, int dstOff)
+      throws IllegalArgumentException {
+    prefixProduct(src, fromIndex, toIndex, dst, dstOff,
+      ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Computes the prefix products of {@code src[fromIndex, toIndex)} in the
+   * given pool
+   *
+   * @param src The factors
+   * @param fromIndex The index of the first factor, inclusive
+   * @param toIndex The index of the last factor, exclusive
+   * @param dst The array receiving the prefix products
+   * @param dstOff The index in {@code dst} of the first prefix product
+   * @param pool The pool running the blocks
+   * @throws IllegalArgumentException if an index range is invalid
+   *
+   * @see #prefixProduct(QuaternionArray, int, int, QuaternionArray, int)
+   */
+  public static void prefixProduct(final QuaternionArray src, int fromIndex,
+      int toIndex, final QuaternionArray dst, int dstOff,
+      final ForkJoinPool pool) throws IllegalArgumentException {
+    prefixProduct(src, fromIndex, toIndex, dst, dstOff, pool,
+      minBlockSize(pool));
+  }
+
+  static void prefixProduct(final QuaternionArray src, int fromIndex,
+      int toIndex, final QuaternionArray dst, int dstOff,
+      final ForkJoinPool pool, int minBlockSize)
+      throws IllegalArgumentException {
+    src.checkRange(fromIndex, toIndex);
+    dst.checkRange(dstOff, dstOff + (toIndex - fromIndex));
+
+    int blocks = blockCount(toIndex - fromIndex, pool, minBlockSize);
+    if (blocks == 1) {
+      scan(src, fromIndex, toIndex, dst, dstOff, 0.0, 0.0, 0.0, 1.0);
+      return;
+    }
+
+    double[] carries = blockProducts(src, fromIndex, toIndex, blocks, pool);
+    // Exclusive prefix products of the block products
+    double cx = 0.0;
+    double cy = 0.0;
+    double cz = 0.0;
+    double cw = 1.0;
+    for (int b = 0; b < blocks; ++b) {
+      int k = 4 * b;
+      double bx = carries[k];
+      double by = carries[k + 1];
+      double bz = carries[k + 2];
+      double bw = carries[k + 3];
+      carries[k] = cx;
+      carries[k + 1] = cy;
+      carries[k + 2] = cz;
+      carries[k + 3] = cw;
+      double nx = cw * bx + cx * bw + cy * bz - cz * by;
+      double ny = cw * by - cx * bz + cy * bw + cz * bx;
+      double nz = cw * bz + cx * by - cy * bx + cz * bw;
+      double nw = cw * bw - cx * bx - cy * by - cz * bz;
+      double invNorm = 1.0 / Math.sqrt(nx * nx + ny * ny + nz * nz + nw * nw);
+      cx = nx * invNorm;
+      cy = ny * invNorm;
+      cz = nz * invNorm;
+      cw = nw * invNorm;
+    }
+
+    int length = toIndex - fromIndex;
+    pool.invoke(new BlockTask(0, blocks, b -> {
+      int from = fromIndex + blockStart(length, blocks, b);
+      int to = fromIndex + blockStart(length, blocks, b + 1);
+      int k = 4 * b;
+      scan(src, from, to, dst, dstOff + (from - fromIndex), carries[k],
+        carries[k + 1], carries[k + 2], carries[k + 3]);
+    }));
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Products
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Computes the product {@code src[fromIndex] * ... * src[toIndex - 1]} in
+   * the common pool
+   *
+   * @param src The factors
+   * @param fromIndex The index of the first factor, inclusive
+   * @param toIndex The index of the last factor, exclusive
+   * @param out The Quaternion receiving the product, which is the identity
+   *            for an empty range
+   * @throws IllegalArgumentException if the index range is invalid
+   */
+  public static void product(final QuaternionArray src, int fromIndex,
+      int toIndex, final Quaternion out) throws IllegalArgumentException {
+    product(src, fromIndex, toIndex, ForkJoinPool.commonPool(), out);
+  }
+
+  /**
+   * Computes the product {@code src[fromIndex] * ... * src[toIndex - 1]} in
+   * the given pool
+   *
+   * @param src The factors
+   * @param fromIndex The index of the first factor, inclusive
+   * @param toIndex The index of the last factor, exclusive
+   * @param pool The pool running the blocks
+   * @param out The Quaternion receiving the product
+   * @throws IllegalArgumentException if the index range is invalid
+   */
+  public static void product(final QuaternionArray src, int fromIndex,
+      int toIndex, final ForkJoinPool pool, final Quaternion out)
+      throws IllegalArgumentException {
+    product(src, fromIndex, toIndex, pool, minBlockSize(pool), out);
+  }
+
+  static void product(final QuaternionArray src, int fromIndex, int toIndex,
+      final ForkJoinPool pool, int minBlockSize, final Quaternion out)
+      throws IllegalArgumentException {
+    src.checkRange(fromIndex, toIndex);
+    int blocks = blockCount(toIndex - fromIndex, pool, minBlockSize);
+    double[] products = blocks == 1
+      ? blockProduct(src, fromIndex, toIndex)
+      : blockProducts(src, fromIndex, toIndex, blocks, pool);
+
+    out.set(0.0, 0.0, 0.0, 1.0);
+    Quaternion factor = new Quaternion();
+    for (int k = 0; k < products.length; k += 4) {
+      factor.set(products[k], products[k + 1], products[k + 2],
+        products[k + 3]);
+      out.multiplyEq(factor);
+      out.normalize();
+    }
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Private methods
+  //
+  /////////////////////////////////////////////////////////
+
+  private static int minBlockSize(final ForkJoinPool pool) {
+    // With a single worker, splitting would only add a pass over the input
+    return pool.getParallelism() == 1 ? Integer.MAX_VALUE
+      : SEQUENTIAL_THRESHOLD;
+  }
+
+  private static int blockCount(int length, final ForkJoinPool pool,
+      int minBlockSize) {
+    long blocks = Math.min((long) pool.getParallelism() * BLOCKS_PER_WORKER,
+      length / Math.max(minBlockSize, 1));
+    return (int) Math.max(blocks, 1);
+  }
+
+  /**
+   * Gets the offset of block {@code b} of {@code blocks} nearly equal blocks
+   */
+  private static int blockStart(int length, int blocks, int b) {
+    return (int) ((long) length * b / blocks);
+  }
+
+  /**
+   * Computes the products of {@code blocks} blocks in parallel, as the
+   * components x, y, z, w of each product in turn
+   */
+  private static double[] blockProducts(final QuaternionArray src,
+      int fromIndex, int toIndex, int blocks, final ForkJoinPool pool) {
+    double[] products = new double[4 * blocks];
+    int length = toIndex - fromIndex;
+    pool.invoke(new BlockTask(0, blocks, b -> {
+      int from = fromIndex + blockStart(length, blocks, b);
+      int to = fromIndex + blockStart(length, blocks, b + 1);
+      System.arraycopy(blockProduct(src, from, to), 0, products, 4 * b, 4);
+    }));
+    return products;
+  }
+
+  private static double[] blockProduct(final QuaternionArray src,
+      int fromIndex, int toIndex) {
+    double[] sx = src.x;
+    double[] sy = src.y;
+    double[] sz = src.z;
+    double[] sw = src.w;
+    double rx = 0.0;
+    double ry = 0.0;
+    double rz = 0.0;
+    double rw = 1.0;
+    for (int i = fromIndex; i < toIndex; ) {
+      int end = Math.min(toIndex, i + RENORMALIZE_INTERVAL);
+      for (; i < end; ++i) {
+        double nx = rw * sx[i] + rx * sw[i] + ry * sz[i] - rz * sy[i];
+        double ny = rw * sy[i] - rx * sz[i] + ry * sw[i] + rz * sx[i];
+        double nz = rw * sz[i] + rx * sy[i] - ry * sx[i] + rz * sw[i];
+        double nw = rw * sw[i] - rx * sx[i] - ry * sy[i] - rz * sz[i];
+        rx = nx;
+        ry = ny;
+        rz = nz;
+        rw = nw;
+      }
+      double invNorm = 1.0 / Math.sqrt(rx * rx + ry * ry + rz * rz + rw * rw);
+      rx *= invNorm;
+      ry *= invNorm;
+      rz *= invNorm;
+      rw *= invNorm;
+    }
+    return new double[] {rx, ry, rz, rw};
+  }
+
+  /**
+   * Writes the prefix products of {@code src[fromIndex, toIndex)}, each
+   * multiplied on the left by {@code (cx, cy, cz, cw)}, to {@code dst}
+   */
+  private static void scan(final QuaternionArray src, int fromIndex,
+      int toIndex, final QuaternionArray dst, int dstOff, double cx,
+      double cy, double cz, double cw) {
+    double[] sx = src.x;
+    double[] sy = src.y;
+    double[] sz = src.z;
+    double[] sw = src.w;
+    double[] dx = dst.x;
+    double[] dy = dst.y;
+    double[] dz = dst.z;
+    double[] dw = dst.w;
+    double rx = cx;
+    double ry = cy;
+    double rz = cz;
+    double rw = cw;
+    int shift = dstOff - fromIndex;
+    for (int i = fromIndex; i < toIndex; ) {
+      int end = Math.min(toIndex, i + RENORMALIZE_INTERVAL);
+      for (; i < end; ++i) {
+        double nx = rw * sx[i] + rx * sw[i] + ry * sz[i] - rz * sy[i];
+        double ny = rw * sy[i] - rx * sz[i] + ry * sw[i] + rz * sx[i];
+        double nz = rw * sz[i] + rx * sy[i] - ry * sx[i] + rz * sw[i];
+        double nw = rw * sw[i] - rx * sx[i] - ry * sy[i] - rz * sz[i];
+        rx = nx;
+        ry = ny;
+        rz = nz;
+        rw = nw;
+        dx[i + shift] = rx;
+        dy[i + shift] = ry;
+        dz[i + shift] = rz;
+        dw[i + shift] = rw;
+      }
+      double invNorm = 1.0 / Math.sqrt(rx * rx + ry * ry + rz * rz + rw * rw);
+      rx *= invNorm;
+      ry *= invNorm;
+      rz *= invNorm;
+      rw *= invNorm;
+    }
+  }
+
+  /**
+   * Runs {@code body} for every block of {@code [lo, hi)}, splitting the
+   * range in halves so that idle workers can steal them
+   */
+  private static final class BlockTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final int lo;
+    private final int hi;
+    private final IntConsumer body;
+
+    BlockTask(int lo, int hi, final IntConsumer body) {
+      this.lo = lo;
+      this.hi = hi;
+      this.body = body;
+    }
+
+    @Override
+    protected void compute() {
+      if (hi - lo == 1) {
+        body.accept(lo);
+      } else {
+        int mid = (lo + hi) >>> 1;
+        invokeAll(new BlockTask(lo, mid, body), new BlockTask(mid, hi, body));
+      }
+    }
+  }
+}
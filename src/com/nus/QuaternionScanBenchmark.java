@@ -0,0 +1,89 @@
+package com.nus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of {@link QuaternionScan} against a sequential chain of
+ * {@link Quaternion#multiplyEq(Quaternion)} calls. Scores are per batch of
+ * {@code size} quaternions; {@code threads} is the parallelism of the pool
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class QuaternionScanBenchmark {
+
+  @Param({"1048576"})
+  public int size;
+
+  @Param({"1", "4"})
+  public int threads;
+
+  private Quaternion[] quaternions;
+  private Quaternion[] prefixes;
+  private QuaternionArray array;
+  private QuaternionArray result;
+  private Quaternion product;
+  private ForkJoinPool pool;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(QuaternionBenchmark.SEED);
+    quaternions = new Quaternion[size];
+    prefixes = new Quaternion[size];
+    for (int i = 0; i < size; ++i) {
+      quaternions[i] = QuaternionBenchmark.randomUnitQuaternion(random);
+      prefixes[i] = new Quaternion();
+    }
+    array = new QuaternionArray(quaternions);
+    result = new QuaternionArray(size);
+    product = new Quaternion();
+    pool = new ForkJoinPool(threads);
+  }
+
+  @TearDown
+  public void tearDown() {
+    pool.shutdown();
+  }
+
+  @Benchmark
+  public Quaternion[] sequentialMultiplyEq() {
+    Quaternion running = new Quaternion();
+    for (int i = 0; i < size; ++i) {
+      running.multiplyEq(quaternions[i]);
+      prefixes[i].set(running);
+    }
+    return prefixes;
+  }
+
+  @Benchmark
+  public QuaternionArray prefixProduct() {
+    QuaternionScan.prefixProduct(array, 0, size, result, 0, pool);
+    return result;
+  }
+
+  @Benchmark
+  public Quaternion product() {
+    QuaternionScan.product(array, 0, size, pool, product);
+    return product;
+  }
+}
@@ -0,0 +1,133 @@
+package com.nus;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+import static com.nus.QuaternionTest.assertQuaternionEquals;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class QuaternionScanTest {
+  private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+  @AfterClass
+  public static void tearDown() {
+    POOL.shutdown();
+  }
+
+  private static QuaternionArray randomArray(Random random, int size) {
+    QuaternionArray array = new QuaternionArray(size);
+    for (int i = 0; i < size; ++i) {
+      array.set(i, random.nextGaussian(), random.nextGaussian(),
+        random.nextGaussian(), random.nextGaussian());
+    }
+    array.normalize();
+    return array;
+  }
+
+  private static QuaternionArray sequentialPrefix(QuaternionArray src,
+      int fromIndex, int toIndex) {
+    QuaternionArray expected = new QuaternionArray(toIndex - fromIndex);
+    Quaternion running = new Quaternion();
+    for (int i = fromIndex; i < toIndex; ++i) {
+      running.multiplyEq(src.get(i));
+      expected.set(i - fromIndex, running);
+    }
+    return expected;
+  }
+
+  private static void assertArrayEquals(QuaternionArray actual, int offset,
+      QuaternionArray expected) {
+    for (int i = 0; i < expected.size(); ++i) {
+      assertQuaternionEquals(actual.get(offset + i), expected.get(i));
+    }
+  }
+
+  @Test
+  public void testPrefixProductSequential() {
+    QuaternionArray src = randomArray(new Random(1), 1000);
+    QuaternionArray dst = new QuaternionArray(1010);
+    QuaternionScan.prefixProduct(src, 0, 1000, dst, 10);
+    assertArrayEquals(dst, 10, sequentialPrefix(src, 0, 1000));
+  }
+
+  @Test
+  public void testPrefixProductParallel() {
+    QuaternionArray src = randomArray(new Random(2), 1003);
+    QuaternionArray expected = sequentialPrefix(src, 3, 1003);
+    for (int minBlockSize : new int[] {1, 7, 100, 5000}) {
+      QuaternionArray dst = new QuaternionArray(1000);
+      QuaternionScan.prefixProduct(src, 3, 1003, dst, 0, POOL, minBlockSize);
+      assertArrayEquals(dst, 0, expected);
+    }
+  }
+
+  @Test
+  public void testPrefixProductInPlace() {
+    QuaternionArray src = randomArray(new Random(3), 2000);
+    QuaternionArray expected = sequentialPrefix(src, 500, 2000);
+    QuaternionScan.prefixProduct(src, 500, 2000, src, 500, POOL, 64);
+    assertArrayEquals(src, 500, expected);
+  }
+
+  @Test
+  public void testProduct() {
+    QuaternionArray src = randomArray(new Random(4), 777);
+    QuaternionArray expected = sequentialPrefix(src, 0, 777);
+    Quaternion product = new Quaternion();
+    for (int minBlockSize : new int[] {1, 10, 1000}) {
+      QuaternionScan.product(src, 0, 777, POOL, minBlockSize, product);
+      assertQuaternionEquals(product, expected.get(776));
+    }
+    QuaternionScan.product(src, 0, 777, product);
+    assertQuaternionEquals(product, expected.get(776));
+  }
+
+  @Test
+  public void testEmptyRange() {
+    QuaternionArray src = randomArray(new Random(5), 10);
+    Quaternion product = new Quaternion(1.0, 2.0, 3.0, 4.0);
+    QuaternionScan.product(src, 4, 4, POOL, 1, product);
+    assertQuaternionEquals(product, new Quaternion());
+    QuaternionScan.prefixProduct(src, 4, 4, new QuaternionArray(0), 0);
+  }
+
+  @Test
+  public void testNormDoesNotDrift() {
+    // Small rotations, like integrated gyroscope increments
+    int size = 1 << 20;
+    Random random = new Random(6);
+    QuaternionArray src = new QuaternionArray(size);
+    for (int i = 0; i < size; ++i) {
+      src.set(i, 1e-3 * random.nextGaussian(), 1e-3 * random.nextGaussian(),
+        1e-3 * random.nextGaussian(), 1.0);
+    }
+    src.normalize();
+    QuaternionArray dst = new QuaternionArray(size);
+    QuaternionScan.prefixProduct(src, 0, size, dst, 0, POOL);
+    double[] norms = new double[size];
+    dst.norm(norms, 0, 0, size);
+    for (double norm : norms) {
+      assertEquals(norm, 1.0, 1e-12);
+    }
+
+    Quaternion product = new Quaternion();
+    QuaternionScan.product(src, 0, size, POOL, product);
+    assertQuaternionEquals(product, dst.get(size - 1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidSourceRange() {
+    QuaternionScan.prefixProduct(new QuaternionArray(10), 5, 11,
+      new QuaternionArray(10), 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidDestinationRange() {
+    QuaternionScan.prefixProduct(new QuaternionArray(10), 0, 10,
+      new QuaternionArray(10), 1);
+  }
+}
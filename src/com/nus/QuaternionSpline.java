@@ -0,0 +1,312 @@
+package com.nus;
+
+/**
+ * A smooth rotation path through unit quaternion keys at strictly increasing
+ * times, interpolated with squad (spherical and quadrangle). Between keys
+ * {@code q[i]} and {@code q[i + 1]} the path is
+ *
+ * <pre>
+ * squad(h) = slerp(slerp(q[i], q[i + 1], h), slerp(s[i], s[i + 1], h),
+ *                  2h(1 - h))
+ * </pre>
+ *
+ * <p>where the inner control points
+ * {@code s[i] = q[i] exp(-(log(q[i]^-1 q[i + 1]) + log(q[i]^-1 q[i - 1])) / 4)}
+ * make the path tangent continuous at the keys with respect to the segment
+ * parameter {@code h}; with unevenly spaced keys the angular velocity in time
+ * is scaled by the duration of each segment. The end control points are the
+ * end keys.
+ *
+ * <p>Everything that does not depend on the sample time is computed once by
+ * the constructor: the control points, and the angle between the two pairs of
+ * quaternions interpolated by the inner slerps of every segment. A sample
+ * then costs the sines of the two inner slerps and a single outer slerp, and
+ * allocates nothing.
+ *
+ * <p>Keys are flipped as needed so that consecutive keys lie in the same
+ * hemisphere, so the path takes the shorter arc between keys. Key lookup and
+ * the cursor protocol are those of {@link KeyframeTrack}
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+public class QuaternionSpline {
+  private final double[] times;
+  private final QuaternionArray keys;
+  private final QuaternionArray controls;
+  // Per segment i: the angle between keys i and i + 1, and between control
+  // points i and i + 1, with the reciprocal of its sine or 0 when the slerp
+  // falls back to linear interpolation
+  private final double[] keyAngles;
+  private final double[] keyInvSines;
+  private final double[] controlAngles;
+  private final double[] controlInvSines;
+  // -1 where control point i + 1 must be negated to take the shorter arc
+  private final double[] controlSigns;
+
+  //////////////////////////////////////////////////////////
+  //
+  // Constructors and getters
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Constructs a spline through the input keys. The inputs are copied
+   *
+   * @param times The key times, finite and strictly increasing
+   * @param keys The unit quaternion keys, one per time
+   * @throws IllegalArgumentException if there is no key, the number of keys
+   *                                  differs from the number of times or the
+   *                                  times are not strictly increasing
+   */
+  public QuaternionSpline(final double[] times, final QuaternionArray keys)
+      throws IllegalArgumentException {
+    KeyframeTrack.checkTimes(times, keys.size());
+
+    int n = times.length;
+    this.times = times.clone();
+    this.keys = new QuaternionArray(n);
+    for (int i = 0; i < n; ++i) {
+      double sign = 1.0;
+      if (i > 0 && dot(keys, i, this.keys, i - 1) < 0.0) {
+        sign = -1.0;
+      }
+      this.keys.set(i, sign * keys.x[i], sign * keys.y[i],
+        sign * keys.z[i], sign * keys.w[i]);
+    }
+
+    this.controls = new QuaternionArray(n);
+    for (int i = 0; i < n; ++i) {
+      if (i == 0 || i == n - 1) {
+        this.controls.set(i, this.keys.get(i));
+        continue;
+      }
+      Quaternion q = this.keys.get(i);
+      Quaternion inverse = q.inverse();
+      Quaternion tangent = inverse.multiply(this.keys.get(i + 1)).log();
+      tangent.addEq(inverse.multiply(this.keys.get(i - 1)).log());
+      tangent.multiplyEq(-0.25);
+      Quaternion control = q.multiply(tangent.exp());
+      control.normalize();
+      this.controls.set(i, control);
+    }
+
+    int segments = n - 1;
+    this.keyAngles = new double[segments];
+    this.keyInvSines = new double[segments];
+    this.controlAngles = new double[segments];
+    this.controlInvSines = new double[segments];
+    this.controlSigns = new double[segments];
+    for (int i = 0; i < segments; ++i) {
+      double cos = dot(this.keys, i, this.keys, i + 1);
+      keyAngles[i] = Math.acos(Math.min(cos, 1.0));
+      keyInvSines[i] = invSine(cos, keyAngles[i]);
+
+      cos = dot(controls, i, controls, i + 1);
+      controlSigns[i] = cos < 0.0 ? -1.0 : 1.0;
+      cos = Math.abs(cos);
+      controlAngles[i] = Math.acos(Math.min(cos, 1.0));
+      controlInvSines[i] = invSine(cos, controlAngles[i]);
+    }
+  }
+
+  /**
+   * Gets the number of keys
+   *
+   * @return The number of keys
+   */
+  public int size() {
+    return times.length;
+  }
+
+  /**
+   * Gets the time of the key at {@code index}
+   *
+   * @param index The index of the key
+   * @return The key time
+   */
+  public double getTime(int index) {
+    return times[index];
+  }
+
+  /**
+   * Gets a copy of the key at {@code index}, possibly negated so that it lies
+   * in the same hemisphere as the previous key
+   *
+   * @param index The index of the key
+   * @return A new Quaternion equal to the key
+   */
+  public Quaternion getKey(int index) {
+    return keys.get(index);
+  }
+
+  /**
+   * Gets a copy of the inner control point of the key at {@code index}
+   *
+   * @param index The index of the key
+   * @return A new Quaternion equal to the control point
+   */
+  public Quaternion getControlPoint(int index) {
+    return controls.get(index);
+  }
+
+  /**
+   * Gets the time of the first key
+   *
+   * @return The start time of the spline
+   */
+  public double getStartTime() {
+    return times[0];
+  }
+
+  /**
+   * Gets the time of the last key
+   *
+   * @return The end time of the spline
+   */
+  public double getEndTime() {
+    return times[times.length - 1];
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Evaluation
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Evaluates the spline at {@code time} into {@code out[outIndex]}. Times
+   * outside the key range are clamped to it
+   *
+   * @param time The sample time
+   * @param cursor The value returned by the previous call, or 0 on the first
+   *               call
+   * @param out The array receiving the result
+   * @param outIndex The index of the result in {@code out}
+   * @return The cursor to pass to the next call
+   */
+  public int evaluate(double time, int cursor, final QuaternionArray out,
+      int outIndex) {
+    int key = KeyframeTrack.findKey(times, time, cursor);
+    if (key == times.length - 1 || time <= times[key]) {
+      out.x[outIndex] = keys.x[key];
+      out.y[outIndex] = keys.y[key];
+      out.z[outIndex] = keys.z[key];
+      out.w[outIndex] = keys.w[key];
+    } else {
+      double h = (time - times[key]) / (times[key + 1] - times[key]);
+      evaluateSegment(key, h, out, outIndex);
+    }
+    return key;
+  }
+
+  /**
+   * Evaluates the spline at {@code time}. Unlike the other evaluation methods
+   * this allocates the result
+   *
+   * @param time The sample time
+   * @return A new unit Quaternion
+   */
+  public Quaternion evaluate(double time) {
+    QuaternionArray out = new QuaternionArray(1);
+    evaluate(time, 0, out, 0);
+    return out.get(0);
+  }
+
+  /**
+   * Fills {@code out[fromIndex, toIndex)} with samples of the spline at
+   * regularly spaced times: {@code out[i]} receives the sample at
+   * {@code startTime + (i - fromIndex) * step}
+   *
+   * @param startTime The time of the first sample
+   * @param step The time between consecutive samples
+   * @param out The array receiving the samples
+   * @param fromIndex The index of the first sample, inclusive
+   * @param toIndex The index of the last sample, exclusive
+   * @throws IllegalArgumentException if the index range is invalid for
+   *                                  {@code out}
+   */
+  public void evaluate(double startTime, double step,
+      final QuaternionArray out, int fromIndex, int toIndex)
+      throws IllegalArgumentException {
+    out.checkRange(fromIndex, toIndex);
+    int cursor = 0;
+    for (int i = fromIndex; i < toIndex; ++i) {
+      // Not accumulated, so that rounding errors do not drift
+      double time = startTime + (i - fromIndex) * step;
+      cursor = evaluate(time, cursor, out, i);
+    }
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Private methods
+  //
+  /////////////////////////////////////////////////////////
+
+  private void evaluateSegment(int i, double h, final QuaternionArray out,
+      int outIndex) {
+    double wa = weight(keyAngles[i], keyInvSines[i], 1.0 - h);
+    double wb = weight(keyAngles[i], keyInvSines[i], h);
+    double px = wa * keys.x[i] + wb * keys.x[i + 1];
+    double py = wa * keys.y[i] + wb * keys.y[i + 1];
+    double pz = wa * keys.z[i] + wb * keys.z[i + 1];
+    double pw = wa * keys.w[i] + wb * keys.w[i + 1];
+
+    wa = weight(controlAngles[i], controlInvSines[i], 1.0 - h);
+    wb = controlSigns[i] * weight(controlAngles[i], controlInvSines[i], h);
+    double sx = wa * controls.x[i] + wb * controls.x[i + 1];
+    double sy = wa * controls.y[i] + wb * controls.y[i + 1];
+    double sz = wa * controls.z[i] + wb * controls.z[i + 1];
+    double sw = wa * controls.w[i] + wb * controls.w[i + 1];
+
+    // The outer slerp is the only one whose end points depend on h
+    double t = 2.0 * h * (1.0 - h);
+    double cos = (px * sx + py * sy + pz * sz + pw * sw) /
+      Math.sqrt((px * px + py * py + pz * pz + pw * pw) *
+        (sx * sx + sy * sy + sz * sz + sw * sw));
+    double sign = 1.0;
+    if (cos < 0.0) {
+      cos = -cos;
+      sign = -1.0;
+    }
+    double theta = Math.acos(Math.min(cos, 1.0));
+    double invSin = invSine(cos, theta);
+    wa = weight(theta, invSin, 1.0 - t);
+    wb = sign * weight(theta, invSin, t);
+
+    double rx = wa * px + wb * sx;
+    double ry = wa * py + wb * sy;
+    double rz = wa * pz + wb * sz;
+    double rw = wa * pw + wb * sw;
+    double invNorm = 1.0 / Math.sqrt(rx * rx + ry * ry + rz * rz + rw * rw);
+    out.x[outIndex] = rx * invNorm;
+    out.y[outIndex] = ry * invNorm;
+    out.z[outIndex] = rz * invNorm;
+    out.w[outIndex] = rw * invNorm;
+  }
+
+  private static double dot(final QuaternionArray a, int i,
+      final QuaternionArray b, int j) {
+    return a.x[i] * b.x[j] + a.y[i] * b.y[j] + a.z[i] * b.z[j] +
+      a.w[i] * b.w[j];
+  }
+
+  /**
+   * Returns 1 / sin(theta), or 0 to select linear interpolation when the end
+   * points are too close for the sine to be divided by
+   */
+  private static double invSine(double cos, double theta) {
+    if (cos > Quaternion.SLERP_LINEAR_THRESHOLD) {
+      return 0.0;
+    }
+    return 1.0 / Math.sin(theta);
+  }
+
+  /**
+   * Returns the slerp weight of an end point for the fraction {@code t} of
+   * the arc leading to it
+   */
+  private static double weight(double theta, double invSin, double t) {
+    return invSin == 0.0 ? t : Math.sin(t * theta) * invSin;
+  }
+}
@@ -0,0 +1,93 @@
+package com.nus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of {@link QuaternionSpline}. Each benchmark fills
+ * {@code SAMPLES} samples spread over the whole spline; {@code squadReference}
+ * computes the control points with {@link Quaternion#log()} and
+ * {@link Quaternion#exp()} at every sample, as squad is usually written.
+ * Scores are per fill
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class QuaternionSplineBenchmark {
+  private static final int KEYS = 64;
+  private static final int SAMPLES = 4096;
+
+  private double[] times;
+  private Quaternion[] keys;
+  private QuaternionSpline spline;
+  private QuaternionArray out;
+  private Quaternion[] outObjects;
+  private double step;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(QuaternionBenchmark.SEED);
+    times = new double[KEYS];
+    keys = new Quaternion[KEYS];
+    for (int i = 0; i < KEYS; ++i) {
+      times[i] = i == 0 ? 0.0 : times[i - 1] + 0.5 + random.nextDouble();
+      keys[i] = QuaternionBenchmark.randomUnitQuaternion(random);
+      if (i > 0 && keys[i].dot(keys[i - 1]) < 0.0) {
+        keys[i].multiplyEq(-1.0);
+      }
+    }
+    spline = new QuaternionSpline(times, new QuaternionArray(keys));
+    out = new QuaternionArray(SAMPLES);
+    outObjects = new Quaternion[SAMPLES];
+    step = times[KEYS - 1] / (SAMPLES - 1);
+  }
+
+  @Benchmark
+  public QuaternionArray evaluateFill() {
+    spline.evaluate(0.0, step, out, 0, SAMPLES);
+    return out;
+  }
+
+  @Benchmark
+  public Quaternion[] squadReference() {
+    int key = 0;
+    for (int i = 0; i < SAMPLES; ++i) {
+      double time = i * step;
+      while (key < KEYS - 2 && times[key + 1] <= time) {
+        ++key;
+      }
+      double h = Math.min((time - times[key]) /
+        (times[key + 1] - times[key]), 1.0);
+      Quaternion a = Quaternion.slerp(keys[key], keys[key + 1], h);
+      Quaternion b = Quaternion.slerp(control(key), control(key + 1), h);
+      outObjects[i] = Quaternion.slerp(a, b, 2.0 * h * (1.0 - h));
+    }
+    return outObjects;
+  }
+
+  private Quaternion control(int i) {
+    if (i == 0 || i == KEYS - 1) {
+      return keys[i];
+    }
+    Quaternion inverse = keys[i].inverse();
+    Quaternion tangent = inverse.multiply(keys[i + 1]).log()
+      .add(inverse.multiply(keys[i - 1]).log()).multiply(-0.25);
+    return keys[i].multiply(tangent.exp());
+  }
+}
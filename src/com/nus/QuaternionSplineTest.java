@@ -0,0 +1,184 @@
+package com.nus;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import static com.nus.QuaternionTest.EPSILON;
+import static com.nus.QuaternionTest.assertQuaternionEquals;
+import static com.nus.QuaternionTestUtils.angleBetween;
+
+import java.util.Random;
+
+public class QuaternionSplineTest {
+  private static final double[] TIMES = {0.0, 1.0, 2.5, 3.0, 5.0};
+
+  private static QuaternionArray sampleKeys() {
+    return new QuaternionArray(new Quaternion[] {
+      Quaternion.fromEulerAngles(0.0, 0.0, 0.0),
+      Quaternion.fromEulerAngles(30.0, 10.0, -20.0),
+      // Negated on purpose: the spline must bring it to the near hemisphere
+      Quaternion.fromEulerAngles(60.0, 45.0, 10.0).multiply(-1.0),
+      Quaternion.fromEulerAngles(75.0, 40.0, 50.0),
+      Quaternion.fromEulerAngles(120.0, -10.0, 80.0),
+    });
+  }
+
+  // Straightforward squad on Quaternion objects, recomputing everything
+  private static Quaternion referenceSquad(QuaternionSpline spline,
+      double time) {
+    int i = 0;
+    while (i < spline.size() - 1 && spline.getTime(i + 1) <= time) {
+      ++i;
+    }
+    if (i == spline.size() - 1 || time <= spline.getTime(i)) {
+      return spline.getKey(i);
+    }
+    double h = (time - spline.getTime(i)) /
+      (spline.getTime(i + 1) - spline.getTime(i));
+    Quaternion a = Quaternion.slerp(spline.getKey(i), spline.getKey(i + 1), h);
+    Quaternion b = Quaternion.slerp(spline.getControlPoint(i),
+      spline.getControlPoint(i + 1), h);
+    return Quaternion.slerp(a, b, 2.0 * h * (1.0 - h));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testEmptySpline() throws Exception {
+    new QuaternionSpline(new double[0], new QuaternionArray(0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnsortedTimes() throws Exception {
+    new QuaternionSpline(new double[] {1.0, 0.0}, new QuaternionArray(2));
+  }
+
+  @Test
+  public void testKeysAreMadeContiguous() {
+    QuaternionArray keys = sampleKeys();
+    QuaternionSpline spline = new QuaternionSpline(TIMES, keys);
+    assertEquals(spline.size(), TIMES.length);
+    assertEquals(spline.getStartTime(), 0.0, 0.0);
+    assertEquals(spline.getEndTime(), 5.0, 0.0);
+    for (int i = 0; i < spline.size(); ++i) {
+      assertEquals(Math.abs(spline.getKey(i).dot(keys.get(i))), 1.0, EPSILON);
+      if (i > 0) {
+        assertTrue(spline.getKey(i).dot(spline.getKey(i - 1)) >= 0.0);
+      }
+    }
+    assertQuaternionEquals(spline.getControlPoint(0), spline.getKey(0));
+    assertQuaternionEquals(spline.getControlPoint(4), spline.getKey(4));
+  }
+
+  @Test
+  public void testControlPoints() {
+    QuaternionSpline spline = new QuaternionSpline(TIMES, sampleKeys());
+    for (int i = 1; i < spline.size() - 1; ++i) {
+      Quaternion q = spline.getKey(i);
+      Quaternion next = q.inverse().multiply(spline.getKey(i + 1)).log();
+      Quaternion previous = q.inverse().multiply(spline.getKey(i - 1)).log();
+      Quaternion expected =
+        q.multiply(next.add(previous).multiply(-0.25).exp());
+      assertQuaternionEquals(spline.getControlPoint(i), expected);
+    }
+  }
+
+  @Test
+  public void testEvaluatePassesThroughKeys() {
+    QuaternionSpline spline = new QuaternionSpline(TIMES, sampleKeys());
+    for (int i = 0; i < TIMES.length; ++i) {
+      assertQuaternionEquals(spline.evaluate(TIMES[i]), spline.getKey(i));
+    }
+    assertQuaternionEquals(spline.evaluate(-1.0), spline.getKey(0));
+    assertQuaternionEquals(spline.evaluate(7.0), spline.getKey(4));
+  }
+
+  @Test
+  public void testEvaluateMatchesReference() {
+    QuaternionSpline spline = new QuaternionSpline(TIMES, sampleKeys());
+    QuaternionArray out = new QuaternionArray(1);
+    int cursor = 0;
+    for (double time = -0.5; time < 5.5; time += 0.01) {
+      cursor = spline.evaluate(time, cursor, out, 0);
+      Quaternion expected = referenceSquad(spline, time);
+      assertTrue(angleBetween(out.get(0), expected) < 1e-7);
+      assertEquals(out.get(0).norm(), 1.0, EPSILON);
+    }
+  }
+
+  @Test
+  public void testTwoKeysReduceToSlerp() {
+    double[] axis = {0.0, 1.0, 0.0};
+    Quaternion from = Quaternion.fromAxisAngle(axis, 10.0);
+    Quaternion to = Quaternion.fromAxisAngle(axis, 100.0);
+    QuaternionSpline spline = new QuaternionSpline(new double[] {0.0, 2.0},
+      new QuaternionArray(new Quaternion[] {from, to}));
+    for (double h = 0.0; h <= 1.0; h += 0.125) {
+      assertQuaternionEquals(spline.evaluate(2.0 * h),
+        Quaternion.slerp(from, to, h));
+    }
+  }
+
+  @Test
+  public void testTangentIsContinuousAtKeys() {
+    QuaternionSpline spline = new QuaternionSpline(TIMES, sampleKeys());
+    double dh = 1e-5;
+    for (int i = 1; i < TIMES.length - 1; ++i) {
+      // Same step in the segment parameter on both sides of the key
+      Quaternion before =
+        spline.evaluate(TIMES[i] - dh * (TIMES[i] - TIMES[i - 1]));
+      Quaternion at = spline.evaluate(TIMES[i]);
+      Quaternion after =
+        spline.evaluate(TIMES[i] + dh * (TIMES[i + 1] - TIMES[i]));
+      // Tangents in the body frame, by finite differences
+      Quaternion incoming = at.inverse().multiply(before).log();
+      Quaternion outgoing = at.inverse().multiply(after).log();
+      double scale = Math.max(outgoing.norm(), 1e-12);
+      assertEquals(incoming.getX() / scale, -outgoing.getX() / scale, 1e-3);
+      assertEquals(incoming.getY() / scale, -outgoing.getY() / scale, 1e-3);
+      assertEquals(incoming.getZ() / scale, -outgoing.getZ() / scale, 1e-3);
+    }
+  }
+
+  @Test
+  public void testFill() {
+    QuaternionSpline spline = new QuaternionSpline(TIMES, sampleKeys());
+    QuaternionArray out = new QuaternionArray(130);
+    spline.evaluate(-0.2, 0.05, out, 2, 130);
+    assertQuaternionEquals(out.get(0), Quaternion.getIdentity());
+    assertQuaternionEquals(out.get(1), Quaternion.getIdentity());
+    for (int i = 2; i < out.size(); ++i) {
+      assertQuaternionEquals(out.get(i),
+        spline.evaluate(-0.2 + (i - 2) * 0.05));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFillWithInvalidRange() throws Exception {
+    QuaternionSpline spline = new QuaternionSpline(TIMES, sampleKeys());
+    spline.evaluate(0.0, 0.1, new QuaternionArray(4), 2, 5);
+  }
+
+  @Test
+  public void testRandomKeys() {
+    Random random = new Random(7);
+    int n = 50;
+    double[] times = new double[n];
+    Quaternion[] keys = new Quaternion[n];
+    for (int i = 0; i < n; ++i) {
+      times[i] = i == 0 ? 0.0 : times[i - 1] + 0.1 + random.nextDouble();
+      keys[i] = new Quaternion(random.nextGaussian(), random.nextGaussian(),
+        random.nextGaussian(), random.nextGaussian());
+      keys[i].normalize();
+    }
+    QuaternionSpline spline =
+      new QuaternionSpline(times, new QuaternionArray(keys));
+    QuaternionArray out = new QuaternionArray(1000);
+    double step = times[n - 1] / (out.size() - 1);
+    spline.evaluate(0.0, step, out, 0, out.size());
+    for (int i = 0; i < out.size(); ++i) {
+      Quaternion expected = referenceSquad(spline, i * step);
+      assertTrue(angleBetween(out.get(i), expected) < 1e-7);
+    }
+  }
+}
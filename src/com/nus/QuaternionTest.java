@@ -311,6 +311,109 @@ public class QuaternionTest {
     } catch (Exception e) {}
   }
 
+  @Test
+  public void testRotateIntoBuffer() {
+    Quaternion q = new Quaternion(2.0, -1.0, -3.0, 0.0);
+    double[] in = new double[] {9.0, 1.0, 1.0, 1.0};
+    double[] out = new double[] {0.0, 0.0, 0.0, 0.0, 0.0};
+    q.rotate(in, 1, out, 2);
+    double[] expected = new double[] {
+      0.0, 0.0, -11.0 / 7.0, -5.0 / 7.0, -1.0 / 7.0};
+    assertArrayEquals(out, expected, EPSILON);
+
+    // Rotation in place
+    q.rotate(in, 1, in, 1);
+    expected = new double[] {9.0, -11.0 / 7.0, -5.0 / 7.0, -1.0 / 7.0};
+    assertArrayEquals(in, expected, EPSILON);
+
+    // Same result as the allocating version
+    q = new Quaternion(0.3, -1.2, 0.5, 2.0);
+    double[] v = new double[] {1.5, -2.0, 0.25};
+    out = new double[3];
+    q.rotate(v, 0, out, 0);
+    assertArrayEquals(out, q.rotate(v), EPSILON);
+  }
+
+  @Test
+  public void testRotateUnitIntoBuffer() {
+    Quaternion q = new Quaternion(0.0, 1.0, 0.0, 1.0);
+    q.normalize();
+    double[] v = new double[] {1.0, 1.0, 1.0};
+    double[] out = new double[3];
+    q.rotateUnit(v, 0, out, 0);
+    assertArrayEquals(out, new double[] {1.0, 1.0, -1.0}, EPSILON);
+
+    q = new Quaternion(0.3, -1.2, 0.5, 2.0);
+    q.normalize();
+    v = new double[] {1.5, -2.0, 0.25};
+    q.rotateUnit(v, 0, out, 0);
+    assertArrayEquals(out, q.rotate(v), EPSILON);
+  }
+
+  @Test(expected = ArrayIndexOutOfBoundsException.class)
+  public void testRotateIntoBufferOutOfBounds() {
+    Quaternion q = new Quaternion(0.0, 1.0, 0.0, 1.0);
+    q.rotate(new double[3], 1, new double[3], 0);
+  }
+
+  @Test
+  public void testRotateBatch() {
+    Quaternion q = new Quaternion(0.3, -1.2, 0.5, 2.0);
+    double[][] vectors = new double[][] {
+      {1.0, 1.0, 1.0}, {1.5, -2.0, 0.25}, {0.0, 0.0, -3.0}, {7.0, 0.1, 2.2}};
+
+    // Packed input, strided output starting at an offset
+    double[] in = new double[vectors.length * 3];
+    for (int i = 0; i < vectors.length; ++i) {
+      System.arraycopy(vectors[i], 0, in, i * 3, 3);
+    }
+    double[] out = new double[2 + vectors.length * 4];
+    q.rotate(in, 0, 3, out, 2, 4, vectors.length);
+    for (int i = 0; i < vectors.length; ++i) {
+      double[] image = new double[3];
+      System.arraycopy(out, 2 + i * 4, image, 0, 3);
+      assertArrayEquals(image, q.rotate(vectors[i]), EPSILON);
+    }
+
+    // In place
+    q.rotate(in, 0, 3, in, 0, 3, vectors.length);
+    for (int i = 0; i < vectors.length; ++i) {
+      double[] image = new double[3];
+      System.arraycopy(in, i * 3, image, 0, 3);
+      assertArrayEquals(image, q.rotate(vectors[i]), EPSILON);
+    }
+
+    // Nothing to do
+    q.rotate(new double[0], 0, 3, new double[0], 0, 3, 0);
+  }
+
+  @Test
+  public void testRotateBatchFloat() {
+    Quaternion q = new Quaternion(0.3, -1.2, 0.5, 2.0);
+    float[] in = new float[] {1.0f, 1.0f, 1.0f, 1.5f, -2.0f, 0.25f};
+    float[] out = new float[6];
+    q.rotate(in, 0, 3, out, 0, 3, 2);
+    for (int i = 0; i < 2; ++i) {
+      double[] image = q.rotate(
+        new double[] {in[i * 3], in[i * 3 + 1], in[i * 3 + 2]});
+      for (int j = 0; j < 3; ++j) {
+        assertEquals(out[i * 3 + j], image[j], 0.000001);
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRotateBatchOutOfRange() {
+    Quaternion q = new Quaternion(0.0, 1.0, 0.0, 1.0);
+    q.rotate(new double[9], 0, 3, new double[8], 0, 3, 3);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRotateBatchWithInvalidStride() {
+    Quaternion q = new Quaternion(0.0, 1.0, 0.0, 1.0);
+    q.rotate(new double[9], 0, 2, new double[9], 0, 3, 3);
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void testRotateWithInvalidInput() throws Exception {
     Quaternion q = new Quaternion(0.0, 1.0, 0.0, 1.0);
@@ -386,6 +489,12 @@ public class QuaternionTest {
     result = Quaternion.fromAxisAngle(axis, angleRad);
     assertQuaternionEquals(result, expected);
     assertTrue(result.isIdentity());
+
+    // The input axis is not normalized in place
+    axis = new double[] {0.0, 0.0, 2.0};
+    result = Quaternion.fromAxisAngleRad(axis, angleRad);
+    assertArrayEquals(axis, new double[] {0.0, 0.0, 2.0}, 0.0);
+    assertTrue(result.isUnit());
   }
 
   @Test(expected = IllegalArgumentException.class)
@@ -534,4 +643,131 @@ public class QuaternionTest {
     expected = new Quaternion(0.7, 0.3, 0.7, 0.3);
     assertQuaternionEquals(lerp, expected);
   }
+
+  @Test
+  public void testSetters() {
+    Quaternion q = new Quaternion();
+    q.set(1.0, 2.0, 3.0, 4.0);
+    assertQuaternionEquals(q, new Quaternion(1.0, 2.0, 3.0, 4.0));
+
+    Quaternion p = new Quaternion();
+    p.set(q);
+    assertQuaternionEquals(p, q);
+  }
+
+  @Test
+  public void testDot() {
+    Quaternion p = new Quaternion(1.0, 2.0, 3.0, 4.0);
+    Quaternion q = new Quaternion(2.0, -1.0, 0.5, 3.0);
+    assertEquals(p.dot(q), 13.5, EPSILON);
+    assertEquals(p.dot(p), p.squaredNorm(), EPSILON);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSlerpWithInvalidRange() throws Exception {
+    Quaternion.slerp(new Quaternion(), new Quaternion(), 1.5);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNlerpWithInvalidRange() throws Exception {
+    Quaternion.nlerp(new Quaternion(), new Quaternion(), -0.5);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSlerpApproxWithInvalidRange() throws Exception {
+    Quaternion.slerpApprox(new Quaternion(), new Quaternion(), 2.0);
+  }
+
+  @Test
+  public void testSlerp() {
+    double[] axis = {0.0, 0.0, 1.0};
+    Quaternion from = new Quaternion();
+    Quaternion to = Quaternion.fromAxisAngle(axis, 90.0);
+
+    assertQuaternionEquals(Quaternion.slerp(from, to, 0.0), from);
+    assertQuaternionEquals(Quaternion.slerp(from, to, 1.0), to);
+    assertQuaternionEquals(Quaternion.slerp(from, to, 0.5),
+      Quaternion.fromAxisAngle(axis, 45.0));
+    assertQuaternionEquals(Quaternion.slerp(from, to, 0.2),
+      Quaternion.fromAxisAngle(axis, 18.0));
+  }
+
+  @Test
+  public void testSlerpTakesShortestPath() {
+    double[] axis = {1.0, 0.0, 0.0};
+    Quaternion from = new Quaternion();
+    // Same rotation as 90 degrees about x, on the far hemisphere
+    Quaternion to = Quaternion.fromAxisAngle(axis, 90.0).multiply(-1.0);
+
+    Quaternion result = Quaternion.slerp(from, to, 0.5);
+    assertQuaternionEquals(result, Quaternion.fromAxisAngle(axis, 45.0));
+    result = Quaternion.nlerp(from, to, 0.5);
+    assertQuaternionEquals(result, Quaternion.fromAxisAngle(axis, 45.0));
+  }
+
+  @Test
+  public void testSlerpSmallAngle() {
+    double[] axis = {0.0, 1.0, 0.0};
+    Quaternion from = Quaternion.fromAxisAngle(axis, 10.0);
+    Quaternion to = Quaternion.fromAxisAngle(axis, 10.001);
+
+    Quaternion result = Quaternion.slerp(from, to, 0.5);
+    assertEquals(result.norm(), 1.0, EPSILON);
+    assertQuaternionEquals(result, Quaternion.fromAxisAngle(axis, 10.0005));
+    assertQuaternionEquals(Quaternion.slerp(from, from, 0.3), from);
+  }
+
+  @Test
+  public void testSlerpIntoAliasedOutput() {
+    double[] axis = {0.0, 0.0, 1.0};
+    Quaternion from = new Quaternion();
+    Quaternion to = Quaternion.fromAxisAngle(axis, 120.0);
+    Quaternion expected = Quaternion.fromAxisAngle(axis, 30.0);
+
+    Quaternion out = new Quaternion(from);
+    Quaternion.slerp(out, to, 0.25, out);
+    assertQuaternionEquals(out, expected);
+
+    out = new Quaternion(to);
+    Quaternion.slerp(from, out, 0.25, out);
+    assertQuaternionEquals(out, expected);
+  }
+
+  @Test
+  public void testNlerp() {
+    double[] axis = {0.0, 0.0, 1.0};
+    Quaternion from = new Quaternion();
+    Quaternion to = Quaternion.fromAxisAngle(axis, 90.0);
+
+    // Symmetric, so the midpoint matches slerp
+    Quaternion result = Quaternion.nlerp(from, to, 0.5);
+    assertQuaternionEquals(result, Quaternion.fromAxisAngle(axis, 45.0));
+    result = Quaternion.nlerp(from, to, 0.2);
+    assertEquals(result.norm(), 1.0, EPSILON);
+  }
+
+  @Test
+  public void testSlerpApproxStaysCloseToSlerp() {
+    // Worst case measured over 2e6 random unit pairs is about 7.8e-4 radian;
+    // the documented bound is 1e-3
+    java.util.Random random = new java.util.Random(42);
+    Quaternion approx = new Quaternion();
+    Quaternion exact = new Quaternion();
+    for (int i = 0; i < 1000; ++i) {
+      Quaternion from = new Quaternion(random.nextGaussian(),
+        random.nextGaussian(), random.nextGaussian(), random.nextGaussian());
+      Quaternion to = new Quaternion(random.nextGaussian(),
+        random.nextGaussian(), random.nextGaussian(), random.nextGaussian());
+      from.normalize();
+      to.normalize();
+      double t = random.nextDouble();
+
+      Quaternion.slerpApprox(from, to, t, approx);
+      Quaternion.slerp(from, to, t, exact);
+      assertEquals(approx.norm(), 1.0, EPSILON);
+      double cos = Math.min(1.0, Math.abs(approx.dot(exact)));
+      double angle = 2.0 * Math.acos(cos);
+      assertTrue(angle < 1e-3);
+    }
+  }
 }
@@ -0,0 +1,32 @@
+package com.nus;
+
+import java.util.Random;
+
+/**
+ * Fixtures shared by the quaternion tests
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+final class QuaternionTestUtils {
+  private QuaternionTestUtils() {
+  }
+
+  /**
+   * Returns a rotation drawn uniformly at random, as a unit quaternion
+   */
+  static Quaternion randomRotation(Random random) {
+    Quaternion q = new Quaternion(random.nextGaussian(),
+      random.nextGaussian(), random.nextGaussian(), random.nextGaussian());
+    q.normalize();
+    return q;
+  }
+
+  /**
+   * Returns the angle in radians of the rotation between the rotations
+   * {@code p} and {@code q}, which need not be normalized
+   */
+  static double angleBetween(Quaternion p, Quaternion q) {
+    double cos = Math.abs(p.dot(q)) / (p.norm() * q.norm());
+    return 2.0 * Math.acos(Math.min(cos, 1.0));
+  }
+}
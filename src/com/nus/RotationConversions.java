@@ -0,0 +1,471 @@
+package com.nus;
+
+/**
+ * Conversions between quaternions and the other rotation formats found in
+ * external data: 3 x 3 rotation matrices stored as 9 flat doubles, row-major
+ * or column-major, and Euler angles in any of the 12 axis orders. Every
+ * conversion has a single form, reading or filling a {@link Quaternion},
+ * and a bulk form over a range of a {@link QuaternionArray}. Both write into
+ * caller buffers and never allocate.
+ *
+ * <p>Euler angles {@code (a, b, c)} in order {@code IJK} stand for the
+ * rotation {@code R_I(a) R_J(b) R_K(c)}: intrinsic rotations about I, then
+ * the new J, then the newest K, which equal extrinsic rotations about K, J
+ * then I. {@link Quaternion#fromEulerAngles(double, double, double)} with
+ * {@code (roll, pitch, yaw)} is order {@link EulerOrder#ZYX} with angles
+ * {@code (yaw, pitch, roll)}.
+ *
+ * <p>Conversions to Euler angles return {@code a} and {@code c} in
+ * {@code [-pi, pi]}, and {@code b} in {@code [-pi / 2, pi / 2]} for
+ * Tait-Bryan orders (three distinct axes) or in {@code [0, pi]} for proper
+ * Euler orders (first axis repeated). Within {@link #GIMBAL_LOCK_THRESHOLD}
+ * of a gimbal lock, only {@code a + c} or {@code a - c} is defined, and
+ * {@code c} is set to 0
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+public final class RotationConversions {
+  /**
+   * Cosine of {@code b} (Tait-Bryan) or sine of {@code b / 2} or
+   * {@code (pi - b) / 2} (proper Euler) below which a conversion to Euler
+   * angles treats the rotation as gimbal locked
+   */
+  public static final double GIMBAL_LOCK_THRESHOLD = 1e-9;
+
+  public static final String ZERO_QUATERNION_MSG =
+    "Cannot convert the zero quaternion to Euler angles";
+  public static final String INVALID_BUFFER_MSG =
+    "Buffer must hold the values of every converted rotation";
+
+  /**
+   * Orders of Euler angles: the axes of the first, second and third
+   * rotations, applied intrinsically
+   */
+  public enum EulerOrder {
+    XYZ(0, 1, 2), XZY(0, 2, 1), YXZ(1, 0, 2),
+    YZX(1, 2, 0), ZXY(2, 0, 1), ZYX(2, 1, 0),
+    XYX(0, 1, 0), XZX(0, 2, 0), YXY(1, 0, 1),
+    YZY(1, 2, 1), ZXZ(2, 0, 2), ZYZ(2, 1, 2);
+
+    // Axes i, j of the first two rotations, and the remaining axis k
+    final int i;
+    final int j;
+    final int k;
+    // Whether the first axis is repeated
+    final boolean proper;
+    // Sign of the permutation (i, j, k)
+    final double parity;
+
+    EulerOrder(int first, int second, int third) {
+      this.i = first;
+      this.j = second;
+      this.k = 3 - first - second;
+      this.proper = first == third;
+      this.parity = (second - first + 3) % 3 == 1 ? 1.0 : -1.0;
+    }
+
+    /**
+     * Checks whether the first and last axes are the same
+     *
+     * @return true for proper Euler orders, false for Tait-Bryan orders
+     */
+    public boolean isProperEuler() {
+      return proper;
+    }
+  }
+
+  private RotationConversions() {}
+
+  //////////////////////////////////////////////////////////
+  //
+  // Rotation matrices
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Writes the rotation matrix of the normalized version of a quaternion,
+   * the same as {@link Quaternion#getRotationMatrix()}
+   *
+   * @param q The quaternion
+   * @param out The array receiving the 9 entries of the matrix
+   * @param outOff The index of the first entry
+   * @param rowMajor Whether to write the matrix row by row, or column by
+   *                 column
+   * @throws IllegalArgumentException if {@code out} is too short
+   */
+  public static void toMatrix(final Quaternion q, final double[] out,
+      int outOff, boolean rowMajor) throws IllegalArgumentException {
+    checkBuffer(out, outOff, 9, 1);
+    toMatrix(q.getX(), q.getY(), q.getZ(), q.getW(), out, outOff, rowMajor);
+  }
+
+  /**
+   * Writes the rotation matrices of the normalized versions of the
+   * quaternions {@code [fromIndex, toIndex)}, 9 entries each
+   *
+   * @param src The quaternions
+   * @param fromIndex The first quaternion, inclusive
+   * @param toIndex The last quaternion, exclusive
+   * @param out The array receiving the matrices
+   * @param outOff The index of the first entry of the first matrix
+   * @param rowMajor Whether to write the matrices row by row, or column by
+   *                 column
+   * @throws IllegalArgumentException if the range is invalid or {@code out}
+   *                                  is too short
+   */
+  public static void toMatrices(final QuaternionArray src, int fromIndex,
+      int toIndex, final double[] out, int outOff, boolean rowMajor)
+      throws IllegalArgumentException {
+    src.checkRange(fromIndex, toIndex);
+    checkBuffer(out, outOff, 9, toIndex - fromIndex);
+    for (int n = fromIndex, o = outOff; n < toIndex; ++n, o += 9) {
+      toMatrix(src.x[n], src.y[n], src.z[n], src.w[n], out, o, rowMajor);
+    }
+  }
+
+  /**
+   * Reads a rotation matrix into a unit quaternion with a non-negative
+   * w-component, following Shepperd's method: the component of largest
+   * magnitude is derived from the diagonal, and the others from sums and
+   * differences of the off-diagonal entries, which keeps full precision for
+   * every rotation. Matrices which are not quite orthogonal give the nearest
+   * rotation up to rounding of that drift
+   *
+   * @param m The array holding the 9 entries of the matrix
+   * @param off The index of the first entry
+   * @param rowMajor Whether the matrix is stored row by row, or column by
+   *                 column
+   * @param out The quaternion receiving the rotation
+   * @throws IllegalArgumentException if {@code m} is too short
+   */
+  public static void fromMatrix(final double[] m, int off, boolean rowMajor,
+      final Quaternion out) throws IllegalArgumentException {
+    checkBuffer(m, off, 9, 1);
+    fromMatrix(m, off, rowMajor, out, null, 0);
+  }
+
+  /**
+   * Reads the rotation matrices at {@code mOff}, 9 entries each, into the
+   * quaternions {@code [fromIndex, toIndex)}, as
+   * {@link #fromMatrix(double[], int, boolean, Quaternion)}
+   *
+   * @param m The array holding the matrices
+   * @param mOff The index of the first entry of the first matrix
+   * @param rowMajor Whether the matrices are stored row by row, or column by
+   *                 column
+   * @param dst The array receiving the quaternions
+   * @param fromIndex The first quaternion, inclusive
+   * @param toIndex The last quaternion, exclusive
+   * @throws IllegalArgumentException if the range is invalid or {@code m}
+   *                                  is too short
+   */
+  public static void fromMatrices(final double[] m, int mOff,
+      boolean rowMajor, final QuaternionArray dst, int fromIndex, int toIndex)
+      throws IllegalArgumentException {
+    dst.checkRange(fromIndex, toIndex);
+    checkBuffer(m, mOff, 9, toIndex - fromIndex);
+    for (int n = fromIndex, o = mOff; n < toIndex; ++n, o += 9) {
+      fromMatrix(m, o, rowMajor, null, dst, n);
+    }
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Euler angles
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Gets the unit quaternion of Euler angles, with one sine and one cosine
+   * per angle
+   *
+   * @param order The order of the angles
+   * @param a The angle of the first rotation, in radians
+   * @param b The angle of the second rotation, in radians
+   * @param c The angle of the third rotation, in radians
+   * @param out The quaternion receiving the rotation
+   */
+  public static void fromEuler(EulerOrder order, double a, double b,
+      double c, final Quaternion out) {
+    fromEuler(order, a, b, c, out, null, 0);
+  }
+
+  /**
+   * Gets the unit quaternions of Euler angles, as
+   * {@link #fromEuler(EulerOrder, double, double, double, Quaternion)}
+   *
+   * @param order The order of the angles
+   * @param angles The angles, packed as abcabc...
+   * @param anglesOff The index of the first angle
+   * @param dst The array receiving the quaternions
+   * @param fromIndex The first quaternion, inclusive
+   * @param toIndex The last quaternion, exclusive
+   * @throws IllegalArgumentException if the range is invalid or
+   *                                  {@code angles} is too short
+   */
+  public static void fromEuler(EulerOrder order, final double[] angles,
+      int anglesOff, final QuaternionArray dst, int fromIndex, int toIndex)
+      throws IllegalArgumentException {
+    dst.checkRange(fromIndex, toIndex);
+    checkBuffer(angles, anglesOff, 3, toIndex - fromIndex);
+    for (int n = fromIndex, o = anglesOff; n < toIndex; ++n, o += 3) {
+      fromEuler(order, angles[o], angles[o + 1], angles[o + 2], null, dst, n);
+    }
+  }
+
+  /**
+   * Gets the Euler angles of the normalized version of a quaternion
+   *
+   * @param q The quaternion
+   * @param order The order of the angles
+   * @param out The array receiving the angles {@code a, b, c}
+   * @param outOff The index of {@code a}
+   * @throws IllegalArgumentException if {@code q} is zero or {@code out} is
+   *                                  too short
+   */
+  public static void toEuler(final Quaternion q, EulerOrder order,
+      final double[] out, int outOff) throws IllegalArgumentException {
+    checkBuffer(out, outOff, 3, 1);
+    toEuler(q.getX(), q.getY(), q.getZ(), q.getW(), order, out, outOff);
+  }
+
+  /**
+   * Gets the Euler angles of the normalized versions of the quaternions
+   * {@code [fromIndex, toIndex)}, 3 angles each
+   *
+   * @param src The quaternions
+   * @param fromIndex The first quaternion, inclusive
+   * @param toIndex The last quaternion, exclusive
+   * @param order The order of the angles
+   * @param out The array receiving the angles, packed as abcabc...
+   * @param outOff The index of the first angle
+   * @throws IllegalArgumentException if the range is invalid, a quaternion
+   *                                  is zero or {@code out} is too short
+   */
+  public static void toEuler(final QuaternionArray src, int fromIndex,
+      int toIndex, EulerOrder order, final double[] out, int outOff)
+      throws IllegalArgumentException {
+    src.checkRange(fromIndex, toIndex);
+    checkBuffer(out, outOff, 3, toIndex - fromIndex);
+    for (int n = fromIndex, o = outOff; n < toIndex; ++n, o += 3) {
+      toEuler(src.x[n], src.y[n], src.z[n], src.w[n], order, out, o);
+    }
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Private methods
+  //
+  /////////////////////////////////////////////////////////
+
+  private static void checkBuffer(final double[] buffer, int off,
+      int stride, int count) throws IllegalArgumentException {
+    if (off < 0 || buffer.length - off < (long) stride * count) {
+      throw new IllegalArgumentException(INVALID_BUFFER_MSG);
+    }
+  }
+
+  private static void toMatrix(double x, double y, double z, double w,
+      final double[] out, int off, boolean rowMajor) {
+    double s = 2.0 / (x * x + y * y + z * z + w * w);
+    double xs = x * s;
+    double ys = y * s;
+    double zs = z * s;
+    double xx = x * xs;
+    double yy = y * ys;
+    double zz = z * zs;
+    double xy = x * ys;
+    double xz = x * zs;
+    double yz = y * zs;
+    double wx = w * xs;
+    double wy = w * ys;
+    double wz = w * zs;
+    int along = rowMajor ? 1 : 3;
+    int across = rowMajor ? 3 : 1;
+    out[off] = 1.0 - (yy + zz);
+    out[off + along] = xy - wz;
+    out[off + 2 * along] = xz + wy;
+    out[off + across] = xy + wz;
+    out[off + 4] = 1.0 - (xx + zz);
+    out[off + across + 2 * along] = yz - wx;
+    out[off + 2 * across] = xz - wy;
+    out[off + 2 * across + along] = yz + wx;
+    out[off + 8] = 1.0 - (xx + yy);
+  }
+
+  /**
+   * Reads a matrix into {@code out}, or into {@code dst} at {@code index}
+   * when {@code out} is null
+   */
+  private static void fromMatrix(final double[] m, int off, boolean rowMajor,
+      final Quaternion out, final QuaternionArray dst, int index) {
+    int along = rowMajor ? 1 : 3;
+    int across = rowMajor ? 3 : 1;
+    double m00 = m[off];
+    double m11 = m[off + 4];
+    double m22 = m[off + 8];
+    double m01 = m[off + along];
+    double m02 = m[off + 2 * along];
+    double m10 = m[off + across];
+    double m12 = m[off + across + 2 * along];
+    double m20 = m[off + 2 * across];
+    double m21 = m[off + 2 * across + along];
+    double x;
+    double y;
+    double z;
+    double w;
+    double trace = m00 + m11 + m22;
+    if (trace >= m00 && trace >= m11 && trace >= m22) {
+      w = 1.0 + trace;
+      x = m21 - m12;
+      y = m02 - m20;
+      z = m10 - m01;
+    } else if (m00 >= m11 && m00 >= m22) {
+      x = 1.0 + m00 - m11 - m22;
+      y = m01 + m10;
+      z = m02 + m20;
+      w = m21 - m12;
+    } else if (m11 >= m22) {
+      x = m01 + m10;
+      y = 1.0 - m00 + m11 - m22;
+      z = m12 + m21;
+      w = m02 - m20;
+    } else {
+      x = m02 + m20;
+      y = m12 + m21;
+      z = 1.0 - m00 - m11 + m22;
+      w = m10 - m01;
+    }
+    // All four are 4 q_largest times the true components
+    double scale = 1.0 / Math.sqrt(x * x + y * y + z * z + w * w);
+    if (w < 0.0) {
+      scale = -scale;
+    }
+    store(x * scale, y * scale, z * scale, w * scale, out, dst, index);
+  }
+
+  /**
+   * Converts Euler angles into {@code out}, or into {@code dst} at
+   * {@code index} when {@code out} is null
+   */
+  private static void fromEuler(EulerOrder order, double a, double b,
+      double c, final Quaternion out, final QuaternionArray dst, int index) {
+    double sa = Math.sin(0.5 * a);
+    double ca = Math.cos(0.5 * a);
+    double sb = Math.sin(0.5 * b);
+    double cb = Math.cos(0.5 * b);
+    double sc = Math.sin(0.5 * c);
+    double cc = Math.cos(0.5 * c);
+    double e = order.parity;
+    double vi;
+    double vj;
+    double vk;
+    double w;
+    if (order.proper) {
+      // R_i(a) R_j(b) R_i(c)
+      vi = cb * (sa * cc + ca * sc);
+      vj = sb * (ca * cc + sa * sc);
+      vk = e * sb * (sa * cc - ca * sc);
+      w = cb * (ca * cc - sa * sc);
+    } else {
+      // R_i(a) R_j(b) R_k(c)
+      vi = sa * cb * cc + e * ca * sb * sc;
+      vj = ca * sb * cc - e * sa * cb * sc;
+      vk = ca * cb * sc + e * sa * sb * cc;
+      w = ca * cb * cc - e * sa * sb * sc;
+    }
+    store(component(order, 0, vi, vj, vk), component(order, 1, vi, vj, vk),
+      component(order, 2, vi, vj, vk), w, out, dst, index);
+  }
+
+  private static void store(double x, double y, double z, double w,
+      final Quaternion out, final QuaternionArray dst, int index) {
+    if (out != null) {
+      out.set(x, y, z, w);
+    } else {
+      dst.x[index] = x;
+      dst.y[index] = y;
+      dst.z[index] = z;
+      dst.w[index] = w;
+    }
+  }
+
+  /**
+   * Gets the component of the quaternion along an axis, given its
+   * components along the axes i, j and k of an order
+   */
+  private static double component(EulerOrder order, int axis, double vi,
+      double vj, double vk) {
+    return axis == order.i ? vi : axis == order.j ? vj : vk;
+  }
+
+  private static void toEuler(double x, double y, double z, double w,
+      EulerOrder order, final double[] out, int off)
+      throws IllegalArgumentException {
+    double norm = Math.sqrt(x * x + y * y + z * z + w * w);
+    if (!(norm > 0.0)) {
+      throw new IllegalArgumentException(ZERO_QUATERNION_MSG);
+    }
+    double invNorm = 1.0 / norm;
+    int i = order.i;
+    int j = order.j;
+    double vi = (i == 0 ? x : i == 1 ? y : z) * invNorm;
+    double vj = (j == 0 ? x : j == 1 ? y : z) * invNorm;
+    double vk = (order.k == 0 ? x : order.k == 1 ? y : z) * invNorm;
+    w *= invNorm;
+    double e = order.parity;
+    double a;
+    double b;
+    double c;
+    if (order.proper) {
+      // Half-angles of R_i(a) R_j(b) R_i(c): w + i vi = cos(b / 2)
+      // e^(i (a + c) / 2) and vj + i e vk = sin(b / 2) e^(i (a - c) / 2)
+      double cosHalf = Math.sqrt(w * w + vi * vi);
+      double sinHalf = Math.sqrt(vj * vj + vk * vk);
+      b = 2.0 * Math.atan2(sinHalf, cosHalf);
+      double sum = Math.atan2(vi, w);
+      double difference = Math.atan2(e * vk, vj);
+      if (sinHalf < GIMBAL_LOCK_THRESHOLD) {
+        difference = sum;
+      } else if (cosHalf < GIMBAL_LOCK_THRESHOLD) {
+        sum = difference;
+      }
+      a = wrap(sum + difference);
+      c = wrap(sum - difference);
+    } else {
+      // Entries of R = R_i(a) R_j(b) R_k(c): R[i][k] = e sin(b),
+      // R[j][k] = -e cos(b) sin(a), R[i][j] = -e cos(b) sin(c)
+      double sinB = 2.0 * (w * vj + e * vi * vk);
+      double rii = 1.0 - 2.0 * (vj * vj + vk * vk);
+      double rij = 2.0 * (vi * vj - e * w * vk);
+      double cosB = Math.sqrt(rii * rii + rij * rij);
+      b = Math.atan2(sinB, cosB);
+      if (cosB < GIMBAL_LOCK_THRESHOLD) {
+        // Column j of R_i(a) R_j(b) is cos(a) e_j + e sin(a) e_k
+        a = Math.atan2(2.0 * (w * vi + e * vj * vk),
+          1.0 - 2.0 * (vi * vi + vk * vk));
+        c = 0.0;
+      } else {
+        a = Math.atan2(2.0 * (w * vi - e * vj * vk),
+          1.0 - 2.0 * (vi * vi + vj * vj));
+        c = Math.atan2(-e * rij, rii);
+      }
+    }
+    out[off] = a;
+    out[off + 1] = b;
+    out[off + 2] = c;
+  }
+
+  /**
+   * Wraps an angle of {@code (-2 pi, 2 pi]} into {@code [-pi, pi]}
+   */
+  private static double wrap(double angle) {
+    if (angle > Math.PI) {
+      return angle - 2.0 * Math.PI;
+    }
+    if (angle < -Math.PI) {
+      return angle + 2.0 * Math.PI;
+    }
+    return angle;
+  }
+}
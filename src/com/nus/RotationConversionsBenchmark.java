@@ -0,0 +1,103 @@
+package com.nus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.nus.RotationConversions.EulerOrder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of the bulk {@link RotationConversions} over {@code size}
+ * rotations, against {@link Quaternion#getRotationMatrix()} and
+ * {@link Quaternion#fromEulerAngles(double, double, double)} called per
+ * rotation
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RotationConversionsBenchmark {
+  @Param({"65536"})
+  public int size;
+
+  private QuaternionArray rotations;
+  private Quaternion[] quaternions;
+  private double[] matrices;
+  private double[] angles;
+  private QuaternionArray out;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(QuaternionBenchmark.SEED);
+    quaternions = new Quaternion[size];
+    for (int i = 0; i < size; ++i) {
+      quaternions[i] = QuaternionBenchmark.randomUnitQuaternion(random);
+    }
+    rotations = new QuaternionArray(quaternions);
+    matrices = new double[9 * size];
+    RotationConversions.toMatrices(rotations, 0, size, matrices, 0, true);
+    angles = new double[3 * size];
+    RotationConversions.toEuler(rotations, 0, size, EulerOrder.ZYX, angles,
+      0);
+    out = new QuaternionArray(size);
+  }
+
+  @Benchmark
+  public double[] toMatrices() {
+    RotationConversions.toMatrices(rotations, 0, size, matrices, 0, true);
+    return matrices;
+  }
+
+  @Benchmark
+  public double getRotationMatrix() {
+    double sum = 0.0;
+    for (Quaternion q : quaternions) {
+      sum += q.getRotationMatrix()[0][1];
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public QuaternionArray fromMatrices() {
+    RotationConversions.fromMatrices(matrices, 0, true, out, 0, size);
+    return out;
+  }
+
+  @Benchmark
+  public QuaternionArray fromEuler() {
+    RotationConversions.fromEuler(EulerOrder.ZYX, angles, 0, out, 0, size);
+    return out;
+  }
+
+  @Benchmark
+  public double fromEulerAngles() {
+    double sum = 0.0;
+    for (int i = 0; i < angles.length; i += 3) {
+      sum += Quaternion.fromEulerAngles(angles[i + 2], angles[i + 1],
+        angles[i]).getW();
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public double[] toEuler() {
+    RotationConversions.toEuler(rotations, 0, size, EulerOrder.ZYX, angles,
+      0);
+    return angles;
+  }
+}
@@ -0,0 +1,269 @@
+package com.nus;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import static com.nus.QuaternionTestUtils.randomRotation;
+
+import com.nus.RotationConversions.EulerOrder;
+
+import java.util.Random;
+
+public class RotationConversionsTest {
+  private static final double EPSILON = 1e-12;
+  private static final double[][] AXES = {
+    {1.0, 0.0, 0.0}, {0.0, 1.0, 0.0}, {0.0, 0.0, 1.0}};
+
+  private static int axis(EulerOrder order, int position) {
+    return order.name().charAt(position) - 'X';
+  }
+
+  /**
+   * Composes the elementary rotations with Quaternion operations
+   */
+  private static Quaternion referenceEuler(EulerOrder order, double a,
+      double b, double c) {
+    return Quaternion.fromAxisAngleRad(AXES[axis(order, 0)], a)
+      .multiply(Quaternion.fromAxisAngleRad(AXES[axis(order, 1)], b))
+      .multiply(Quaternion.fromAxisAngleRad(AXES[axis(order, 2)], c));
+  }
+
+  private static void assertSameRotation(Quaternion actual,
+      Quaternion expected, double tolerance) {
+    assertEquals(Math.abs(actual.dot(expected)), 1.0, tolerance);
+  }
+
+  @Test
+  public void testMatrixMatchesGetRotationMatrix() {
+    Random random = new Random(1);
+    double[] rowMajor = new double[10];
+    double[] columnMajor = new double[9];
+    for (int n = 0; n < 100; ++n) {
+      Quaternion q = randomRotation(random);
+      // Not normalized on purpose
+      q.multiplyEq(0.5 + random.nextDouble());
+      double[][] expected = q.getRotationMatrix();
+      RotationConversions.toMatrix(q, rowMajor, 1, true);
+      RotationConversions.toMatrix(q, columnMajor, 0, false);
+      for (int r = 0; r < 3; ++r) {
+        for (int c = 0; c < 3; ++c) {
+          assertEquals(rowMajor[1 + 3 * r + c], expected[r][c], EPSILON);
+          assertEquals(columnMajor[r + 3 * c], expected[r][c], EPSILON);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testMatrixRoundTrip() {
+    Random random = new Random(2);
+    double[] m = new double[9];
+    Quaternion actual = new Quaternion();
+    for (int n = 0; n < 1000; ++n) {
+      Quaternion q = randomRotation(random);
+      boolean rowMajor = random.nextBoolean();
+      RotationConversions.toMatrix(q, m, 0, rowMajor);
+      RotationConversions.fromMatrix(m, 0, rowMajor, actual);
+      assertTrue(actual.getW() >= 0.0);
+      assertTrue(actual.isUnit());
+      assertSameRotation(actual, q, EPSILON);
+    }
+
+    // Half turns, where the trace is -1 and w is 0
+    for (double[] axis : AXES) {
+      Quaternion q = Quaternion.fromAxisAngleRad(axis, Math.PI);
+      RotationConversions.toMatrix(q, m, 0, true);
+      RotationConversions.fromMatrix(m, 0, true, actual);
+      assertSameRotation(actual, q, EPSILON);
+    }
+  }
+
+  @Test
+  public void testMatrixLayouts() {
+    // A quarter turn about z maps x to y
+    Quaternion q = Quaternion.fromAxisAngleRad(AXES[2], Math.PI / 2);
+    double[] m = new double[9];
+    RotationConversions.toMatrix(q, m, 0, true);
+    assertArrayEquals(m, new double[] {
+      0.0, -1.0, 0.0,
+      1.0, 0.0, 0.0,
+      0.0, 0.0, 1.0}, EPSILON);
+    RotationConversions.toMatrix(q, m, 0, false);
+    assertArrayEquals(m, new double[] {
+      0.0, 1.0, 0.0,
+      -1.0, 0.0, 0.0,
+      0.0, 0.0, 1.0}, EPSILON);
+    Quaternion actual = new Quaternion();
+    RotationConversions.fromMatrix(m, 0, false, actual);
+    QuaternionTest.assertQuaternionEquals(actual, q);
+  }
+
+  @Test
+  public void testFromEulerMatchesReference() {
+    Random random = new Random(3);
+    Quaternion actual = new Quaternion();
+    for (EulerOrder order : EulerOrder.values()) {
+      assertEquals(order.isProperEuler(), axis(order, 0) == axis(order, 2));
+      for (int n = 0; n < 100; ++n) {
+        double a = 4.0 * random.nextGaussian();
+        double b = 4.0 * random.nextGaussian();
+        double c = 4.0 * random.nextGaussian();
+        RotationConversions.fromEuler(order, a, b, c, actual);
+        QuaternionTest.assertQuaternionEquals(actual,
+          referenceEuler(order, a, b, c));
+      }
+    }
+  }
+
+  @Test
+  public void testZyxMatchesFromEulerAngles() {
+    Random random = new Random(4);
+    Quaternion actual = new Quaternion();
+    double[] angles = new double[3];
+    for (int n = 0; n < 100; ++n) {
+      double roll = random.nextGaussian();
+      double pitch = random.nextGaussian();
+      double yaw = random.nextGaussian();
+      Quaternion expected = Quaternion.fromEulerAngles(roll, pitch, yaw);
+      RotationConversions.fromEuler(EulerOrder.ZYX, yaw, pitch, roll, actual);
+      QuaternionTest.assertQuaternionEquals(actual, expected);
+
+      RotationConversions.toEuler(expected, EulerOrder.ZYX, angles, 0);
+      Quaternion back = Quaternion.fromEulerAngles(angles[2], angles[1],
+        angles[0]);
+      assertSameRotation(back, expected, EPSILON);
+    }
+  }
+
+  @Test
+  public void testEulerRoundTrip() {
+    Random random = new Random(5);
+    double[] angles = new double[4];
+    Quaternion back = new Quaternion();
+    for (EulerOrder order : EulerOrder.values()) {
+      for (int n = 0; n < 200; ++n) {
+        Quaternion q = randomRotation(random);
+        q.multiplyEq(1.0 + random.nextDouble());
+        RotationConversions.toEuler(q, order, angles, 1);
+        double a = angles[1];
+        double b = angles[2];
+        double c = angles[3];
+        assertTrue(Math.abs(a) <= Math.PI && Math.abs(c) <= Math.PI);
+        if (order.isProperEuler()) {
+          assertTrue(b >= 0.0 && b <= Math.PI);
+        } else {
+          assertTrue(Math.abs(b) <= Math.PI / 2);
+        }
+        RotationConversions.fromEuler(order, a, b, c, back);
+        q.normalize();
+        assertSameRotation(back, q, EPSILON);
+      }
+    }
+  }
+
+  @Test
+  public void testEulerRecoversAngles() {
+    // Away from gimbal lock, angles within the ranges are recovered exactly
+    double[] angles = new double[3];
+    Quaternion q = new Quaternion();
+    for (EulerOrder order : EulerOrder.values()) {
+      double b = order.isProperEuler() ? 1.2 : -0.7;
+      RotationConversions.fromEuler(order, 0.4, b, -2.5, q);
+      RotationConversions.toEuler(q, order, angles, 0);
+      assertArrayEquals(angles, new double[] {0.4, b, -2.5}, 1e-12);
+    }
+  }
+
+  @Test
+  public void testGimbalLock() {
+    double[] angles = new double[3];
+    Quaternion q = new Quaternion();
+    Quaternion back = new Quaternion();
+    for (EulerOrder order : EulerOrder.values()) {
+      double[] locks = order.isProperEuler() ? new double[] {0.0, Math.PI} :
+        new double[] {Math.PI / 2, -Math.PI / 2};
+      for (double b : locks) {
+        RotationConversions.fromEuler(order, 0.3, b, 0.9, q);
+        RotationConversions.toEuler(q, order, angles, 0);
+        assertEquals(angles[1], b, 1e-7);
+        assertEquals(angles[2], 0.0, 0.0);
+        RotationConversions.fromEuler(order, angles[0], angles[1], angles[2],
+          back);
+        assertSameRotation(back, q, EPSILON);
+        assertFalse(Double.isNaN(angles[0]));
+      }
+    }
+  }
+
+  @Test
+  public void testBulkMatchesSingle() {
+    Random random = new Random(6);
+    int count = 50;
+    QuaternionArray src = new QuaternionArray(count + 3);
+    for (int n = 0; n < src.size(); ++n) {
+      src.set(n, randomRotation(random));
+    }
+    double[] matrices = new double[2 + 9 * count];
+    RotationConversions.toMatrices(src, 3, count + 3, matrices, 2, false);
+    QuaternionArray fromMatrices = new QuaternionArray(count);
+    RotationConversions.fromMatrices(matrices, 2, false, fromMatrices, 0,
+      count);
+    double[] angles = new double[3 * count];
+    RotationConversions.toEuler(src, 3, count + 3, EulerOrder.YZY, angles, 0);
+    QuaternionArray fromAngles = new QuaternionArray(count + 1);
+    RotationConversions.fromEuler(EulerOrder.YZY, angles, 0, fromAngles, 1,
+      count + 1);
+
+    double[] m = new double[9];
+    double[] e = new double[3];
+    Quaternion q = new Quaternion();
+    for (int n = 0; n < count; ++n) {
+      Quaternion expected = src.get(n + 3);
+      RotationConversions.toMatrix(expected, m, 0, false);
+      for (int k = 0; k < 9; ++k) {
+        assertEquals(matrices[2 + 9 * n + k], m[k], 0.0);
+      }
+      RotationConversions.fromMatrix(m, 0, false, q);
+      assertEquals(fromMatrices.get(n), q);
+      RotationConversions.toEuler(expected, EulerOrder.YZY, e, 0);
+      for (int k = 0; k < 3; ++k) {
+        assertEquals(angles[3 * n + k], e[k], 0.0);
+      }
+      RotationConversions.fromEuler(EulerOrder.YZY, e[0], e[1], e[2], q);
+      assertEquals(fromAngles.get(n + 1), q);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testToMatricesWithShortBuffer() {
+    RotationConversions.toMatrices(new QuaternionArray(4), 0, 4,
+      new double[35], 0, true);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFromMatricesOutOfRange() {
+    RotationConversions.fromMatrices(new double[36], 0, true,
+      new QuaternionArray(4), 1, 5);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFromMatrixWithShortBuffer() {
+    RotationConversions.fromMatrix(new double[9], 1, true, new Quaternion());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testToEulerWithZeroQuaternion() {
+    RotationConversions.toEuler(new Quaternion(0, 0, 0, 0), EulerOrder.XYZ,
+      new double[3], 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFromEulerWithShortBuffer() {
+    RotationConversions.fromEuler(EulerOrder.XYZ, new double[11], 0,
+      new QuaternionArray(4), 0, 4);
+  }
+}
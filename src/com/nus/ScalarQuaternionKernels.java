@@ -0,0 +1,72 @@
+package com.nus;
+
+/**
+ * Portable scalar backend of {@link QuaternionKernels}. It is also used by the
+ * vector backend for the tail elements that do not fill a whole vector
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+class ScalarQuaternionKernels extends QuaternionKernels {
+
+  @Override
+  public String getName() {
+    return "scalar";
+  }
+
+  @Override
+  public boolean isVectorized() {
+    return false;
+  }
+
+  @Override
+  void doMultiplyEq(final QuaternionArray a, final QuaternionArray b,
+      int fromIndex, int toIndex) {
+    a.multiplyEq(b, fromIndex, toIndex);
+  }
+
+  @Override
+  void doNormalize(final QuaternionArray a, int fromIndex, int toIndex) {
+    a.normalize(fromIndex, toIndex);
+  }
+
+  @Override
+  void doRotate(final Quaternion q,
+      final double[] xs, final double[] ys, final double[] zs,
+      final double[] outX, final double[] outY, final double[] outZ,
+      int fromIndex, int toIndex) {
+    double qx = q.getX();
+    double qy = q.getY();
+    double qz = q.getZ();
+    double qw = q.getW();
+    double s = 2.0 / q.squaredNorm();
+    double xx = qx * qx;
+    double yy = qy * qy;
+    double zz = qz * qz;
+    double m00 = 1.0 - s * (yy + zz);
+    double m01 = s * (qx * qy - qz * qw);
+    double m02 = s * (qx * qz + qy * qw);
+    double m10 = s * (qx * qy + qz * qw);
+    double m11 = 1.0 - s * (xx + zz);
+    double m12 = s * (qy * qz - qx * qw);
+    double m20 = s * (qx * qz - qy * qw);
+    double m21 = s * (qy * qz + qx * qw);
+    double m22 = 1.0 - s * (xx + yy);
+
+    for (int i = fromIndex; i < toIndex; ++i) {
+      double vx = xs[i];
+      double vy = ys[i];
+      double vz = zs[i];
+      outX[i] = m00 * vx + m01 * vy + m02 * vz;
+      outY[i] = m10 * vx + m11 * vy + m12 * vz;
+      outZ[i] = m20 * vx + m21 * vy + m22 * vz;
+    }
+  }
+
+  @Override
+  void doSlerp(final QuaternionArray from, final QuaternionArray to,
+      double t, final QuaternionArray out, int fromIndex, int toIndex) {
+    for (int i = fromIndex; i < toIndex; ++i) {
+      out.interpolate(i, from, i, to, i, t, true);
+    }
+  }
+}
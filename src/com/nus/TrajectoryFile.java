@@ -0,0 +1,132 @@
+package com.nus;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Layout of orientation trajectory files, written by {@link TrajectoryWriter}
+ * and read by {@link TrajectoryReader}. A trajectory is a sequence of samples,
+ * each a timestamp and a quaternion, in non-decreasing time order. All values
+ * are little-endian.
+ *
+ * <p>The file starts with a {@link #HEADER_BYTES}-byte header:
+ *
+ * <pre>
+ * offset  size  content
+ *      0     4  magic number {@link #MAGIC}
+ *      4     2  format version {@link #VERSION}
+ *      6     2  reserved, 0
+ *      8     4  record size {@link #RECORD_BYTES}
+ *     12     4  index stride k, or 0 if the file has no index
+ *     16     8  number of samples n
+ *     24     8  byte offset of the index, or 0 if the file has no index
+ *     32     8  number of index entries
+ *     40     8  time of the first sample
+ *     48     8  time of the last sample
+ *     56     8  reserved, 0
+ * </pre>
+ *
+ * <p>Sample {@code i} is the fixed-size record at byte offset
+ * {@code HEADER_BYTES + i * RECORD_BYTES}, holding the time and the x, y, z
+ * and w components as doubles. The optional index follows the records: it
+ * holds the time of every k-th sample, which lets a time search touch the
+ * records of a single block of k samples. Unused bytes may follow the last
+ * record or the index.
+ *
+ * <p>Records are accessed through {@link FileChannel#map} in chunks of a fixed
+ * number of records, so a file can hold more than 2 GB although a single
+ * mapping cannot
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+public final class TrajectoryFile {
+  public static final int MAGIC = 0x4a525451; // "QTRJ" in little-endian
+  public static final short VERSION = 1;
+  public static final int HEADER_BYTES = 64;
+  public static final int RECORD_BYTES = 5 * 8;
+
+  public static final String INVALID_HEADER_MSG =
+    "File does not start with a trajectory header";
+  public static final String UNSUPPORTED_VERSION_MSG =
+    "Unsupported trajectory file version";
+  public static final String INVALID_TIME_MSG =
+    "Sample times must not be NaN and must not decrease";
+  public static final String INVALID_INDEX_STRIDE_MSG =
+    "Index stride must be non-negative";
+  public static final String INVALID_SAMPLE_RANGE_MSG =
+    "Sample range must lie within the trajectory";
+
+  // 4M records, 160 MB per mapping
+  static final int DEFAULT_RECORDS_PER_CHUNK = 1 << 22;
+
+  static final int MAGIC_OFFSET = 0;
+  static final int VERSION_OFFSET = 4;
+  static final int RECORD_BYTES_OFFSET = 8;
+  static final int INDEX_STRIDE_OFFSET = 12;
+  static final int COUNT_OFFSET = 16;
+  static final int INDEX_OFFSET_OFFSET = 24;
+  static final int INDEX_ENTRIES_OFFSET = 32;
+  static final int START_TIME_OFFSET = 40;
+  static final int END_TIME_OFFSET = 48;
+
+  static final int TIME = 0;
+  static final int X = 8;
+  static final int Y = 16;
+  static final int Z = 24;
+  static final int W = 32;
+
+  private TrajectoryFile() {}
+
+  //////////////////////////////////////////////////////////
+  //
+  // Package-private static methods
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Maps the records of chunk {@code chunk} of the file, in little-endian
+   * order. In read-write mode the file grows to cover the whole chunk
+   */
+  static MappedByteBuffer mapChunk(final FileChannel channel,
+      FileChannel.MapMode mode, int recordsPerChunk, long chunk,
+      int records) throws IOException {
+    long offset = HEADER_BYTES + chunk * recordsPerChunk * RECORD_BYTES;
+    MappedByteBuffer buffer =
+      channel.map(mode, offset, (long) records * RECORD_BYTES);
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    return buffer;
+  }
+
+  /**
+   * Reads and validates the header at the start of the file
+   */
+  static ByteBuffer readHeader(final FileChannel channel)
+      throws IOException, IllegalArgumentException {
+    ByteBuffer header =
+      ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    while (header.hasRemaining()) {
+      if (channel.read(header, header.position()) < 0) {
+        throw new IllegalArgumentException(INVALID_HEADER_MSG);
+      }
+    }
+    if (header.getInt(MAGIC_OFFSET) != MAGIC ||
+        header.getInt(RECORD_BYTES_OFFSET) != RECORD_BYTES) {
+      throw new IllegalArgumentException(INVALID_HEADER_MSG);
+    }
+    if (header.getShort(VERSION_OFFSET) != VERSION) {
+      throw new IllegalArgumentException(UNSUPPORTED_VERSION_MSG);
+    }
+    return header;
+  }
+
+  static void writeHeader(final FileChannel channel, final ByteBuffer header)
+      throws IOException {
+    header.clear();
+    while (header.hasRemaining()) {
+      channel.write(header, header.position());
+    }
+  }
+}
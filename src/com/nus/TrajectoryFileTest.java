@@ -0,0 +1,261 @@
+package com.nus;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import static com.nus.QuaternionTest.assertQuaternionEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class TrajectoryFileTest {
+  // Small chunks so that the tests cross chunk boundaries
+  private static final int RECORDS_PER_CHUNK = 7;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static Quaternion sample(long i) {
+    return new Quaternion(i, -i, 0.5 * i, 1.0 / (i + 1));
+  }
+
+  private static double time(long i) {
+    // Repeats every time once, to cover equal timestamps
+    return 0.25 * (i / 2);
+  }
+
+  private Path writeTrajectory(int count, int indexStride) throws Exception {
+    Path path = folder.newFile().toPath();
+    try (TrajectoryWriter writer =
+        TrajectoryWriter.create(path, indexStride, RECORDS_PER_CHUNK)) {
+      for (int i = 0; i < count; ++i) {
+        writer.append(time(i), sample(i));
+      }
+      assertEquals(writer.size(), count);
+    }
+    return path;
+  }
+
+  @Test
+  public void testWriteAndRead() throws Exception {
+    Path path = writeTrajectory(50, 0);
+    // The last window of 7 records is mapped whole
+    assertEquals(Files.size(path),
+      TrajectoryFile.HEADER_BYTES + 56 * TrajectoryFile.RECORD_BYTES);
+
+    try (TrajectoryReader reader =
+        TrajectoryReader.open(path, RECORDS_PER_CHUNK)) {
+      assertEquals(reader.size(), 50);
+      assertFalse(reader.hasIndex());
+      Quaternion q = new Quaternion();
+      for (int i = 0; i < 50; ++i) {
+        assertEquals(reader.getTime(i), time(i), 0.0);
+        reader.get(i, q);
+        assertQuaternionEquals(q, sample(i));
+      }
+    }
+  }
+
+  @Test
+  public void testDefaultChunkSize() throws Exception {
+    Path path = folder.newFile().toPath();
+    try (TrajectoryWriter writer = TrajectoryWriter.create(path, 16)) {
+      for (int i = 0; i < 100; ++i) {
+        writer.append(time(i), sample(i));
+      }
+    }
+    try (TrajectoryReader reader = TrajectoryReader.open(path)) {
+      assertEquals(reader.size(), 100);
+      assertTrue(reader.hasIndex());
+      Quaternion q = new Quaternion();
+      reader.get(99, q);
+      assertQuaternionEquals(q, sample(99));
+    }
+  }
+
+  @Test
+  public void testFileGrowsInBoundedSteps() throws Exception {
+    Path path = folder.newFile().toPath();
+    try (TrajectoryWriter writer = TrajectoryWriter.create(path, 0)) {
+      writer.append(0.0, new Quaternion());
+      // Not a whole chunk of the default size
+      assertTrue(Files.size(path) <= TrajectoryFile.HEADER_BYTES +
+        (1 << 12) * TrajectoryFile.RECORD_BYTES);
+    }
+    try (TrajectoryReader reader = TrajectoryReader.open(path)) {
+      assertEquals(reader.size(), 1);
+    }
+  }
+
+  @Test
+  public void testRangeScan() throws Exception {
+    Path path = writeTrajectory(40, 0);
+    try (TrajectoryReader reader =
+        TrajectoryReader.open(path, RECORDS_PER_CHUNK)) {
+      double[] times = new double[30];
+      QuaternionArray out = new QuaternionArray(30);
+      reader.read(5, 25, times, 3, out, 2);
+      for (int k = 0; k < 25; ++k) {
+        assertEquals(times[3 + k], time(5 + k), 0.0);
+        assertQuaternionEquals(out.get(2 + k), sample(5 + k));
+      }
+      assertQuaternionEquals(out.get(0), Quaternion.getIdentity());
+
+      reader.read(0, 0, null, 0, out, 0);
+      reader.read(39, 1, null, 0, out, 0);
+      assertQuaternionEquals(out.get(0), sample(39));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRangeScanOutOfRange() throws Exception {
+    Path path = writeTrajectory(10, 0);
+    try (TrajectoryReader reader = TrajectoryReader.open(path)) {
+      reader.read(5, 6, null, 0, new QuaternionArray(6), 0);
+    }
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testGetOutOfRange() throws Exception {
+    Path path = writeTrajectory(10, 0);
+    try (TrajectoryReader reader = TrajectoryReader.open(path)) {
+      reader.getTime(10);
+    }
+  }
+
+  @Test
+  public void testSearch() throws Exception {
+    for (int stride : new int[] {0, 1, 4, 100}) {
+      Path path = writeTrajectory(45, stride);
+      try (TrajectoryReader reader =
+          TrajectoryReader.open(path, RECORDS_PER_CHUNK)) {
+        assertEquals(reader.hasIndex(), stride > 0);
+        assertEquals(reader.search(-1.0), -1);
+        assertEquals(reader.search(100.0), 44);
+        for (int i = 0; i < 45; ++i) {
+          // Last of the two samples sharing the time, or the last sample
+          long expected = Math.min(44, (i / 2) * 2 + 1);
+          assertEquals(reader.search(time(i)), expected);
+          assertEquals(reader.search(time(i) + 0.1), expected);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSearchEmpty() throws Exception {
+    Path path = writeTrajectory(0, 4);
+    try (TrajectoryReader reader = TrajectoryReader.open(path)) {
+      assertEquals(reader.size(), 0);
+      assertEquals(reader.search(0.0), -1);
+    }
+  }
+
+  @Test
+  public void testAppend() throws Exception {
+    Path path = writeTrajectory(20, 3);
+    try (TrajectoryWriter writer =
+        TrajectoryWriter.append(path, RECORDS_PER_CHUNK)) {
+      assertEquals(writer.size(), 20);
+      double[] times = new double[15];
+      QuaternionArray samples = new QuaternionArray(15);
+      for (int k = 0; k < 15; ++k) {
+        times[k] = time(20 + k);
+        samples.set(k, sample(20 + k));
+      }
+      writer.append(times, 0, samples, 0, 15);
+    }
+
+    try (TrajectoryReader reader =
+        TrajectoryReader.open(path, RECORDS_PER_CHUNK)) {
+      assertEquals(reader.size(), 35);
+      assertTrue(reader.hasIndex());
+      Quaternion q = new Quaternion();
+      for (int i = 0; i < 35; ++i) {
+        reader.get(i, q);
+        assertQuaternionEquals(q, sample(i));
+        assertEquals(reader.search(time(i)), Math.min(34, (i / 2) * 2 + 1));
+      }
+    }
+  }
+
+  @Test
+  public void testFlushMakesSamplesVisible() throws Exception {
+    Path path = folder.newFile().toPath();
+    try (TrajectoryWriter writer =
+        TrajectoryWriter.create(path, 2, RECORDS_PER_CHUNK)) {
+      for (int i = 0; i < 10; ++i) {
+        writer.append(time(i), sample(i));
+      }
+      writer.flush();
+      try (TrajectoryReader reader =
+          TrajectoryReader.open(path, RECORDS_PER_CHUNK)) {
+        assertEquals(reader.size(), 10);
+        assertFalse(reader.hasIndex());
+        assertEquals(reader.search(time(9)), 9);
+      }
+    }
+  }
+
+  @Test
+  public void testLargerThanTwoGigabytes() throws Exception {
+    // Sparse file: only the header and the last record are written
+    long count = (3L << 30) / TrajectoryFile.RECORD_BYTES;
+    Path path = writeTrajectory(0, 0);
+    try (FileChannel channel = FileChannel.open(path,
+        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      ByteBuffer header = TrajectoryFile.readHeader(channel);
+      header.putLong(TrajectoryFile.COUNT_OFFSET, count);
+      TrajectoryFile.writeHeader(channel, header);
+
+      ByteBuffer record = ByteBuffer.allocate(TrajectoryFile.RECORD_BYTES)
+        .order(ByteOrder.LITTLE_ENDIAN);
+      record.putDouble(7.0).putDouble(1.0).putDouble(2.0).putDouble(3.0)
+        .putDouble(4.0).flip();
+      channel.write(record, TrajectoryFile.HEADER_BYTES +
+        (count - 1) * TrajectoryFile.RECORD_BYTES);
+    }
+
+    try (TrajectoryReader reader = TrajectoryReader.open(path)) {
+      assertEquals(reader.size(), count);
+      assertEquals(reader.getTime(count - 1), 7.0, 0.0);
+      Quaternion q = new Quaternion();
+      reader.get(count - 1, q);
+      assertQuaternionEquals(q, new Quaternion(1.0, 2.0, 3.0, 4.0));
+      assertEquals(reader.search(7.0), count - 1);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDecreasingTime() throws Exception {
+    Path path = folder.newFile().toPath();
+    try (TrajectoryWriter writer = TrajectoryWriter.create(path, 0)) {
+      writer.append(1.0, new Quaternion());
+      writer.append(0.5, new Quaternion());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNaNTime() throws Exception {
+    Path path = folder.newFile().toPath();
+    try (TrajectoryWriter writer = TrajectoryWriter.create(path, 0)) {
+      writer.append(Double.NaN, new Quaternion());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidFile() throws Exception {
+    Path path = folder.newFile().toPath();
+    Files.write(path, new byte[100]);
+    TrajectoryReader.open(path);
+  }
+}
@@ -0,0 +1,264 @@
+package com.nus;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Random access to the samples of a trajectory file (see
+ * {@link TrajectoryFile} for the layout). The records are memory-mapped when
+ * the file is opened, so reading sample {@code i} is a few loads from the
+ * page cache, without copying the file through Java buffers.
+ *
+ * <p>A reader sees the samples present when it was opened. Its methods do not
+ * allocate, and it can be used by several threads at once
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+public class TrajectoryReader implements Closeable {
+  private final FileChannel channel;
+  private final MappedByteBuffer[] chunks;
+  private final int recordsPerChunk;
+  private final long count;
+  private final int indexStride;
+  // Time of every indexStride-th sample, or null if the file has no index
+  private final double[] index;
+
+  private TrajectoryReader(final FileChannel channel, int recordsPerChunk)
+      throws IOException, IllegalArgumentException {
+    ByteBuffer header = TrajectoryFile.readHeader(channel);
+    long count = header.getLong(TrajectoryFile.COUNT_OFFSET);
+    long available = (channel.size() - TrajectoryFile.HEADER_BYTES) /
+      TrajectoryFile.RECORD_BYTES;
+    if (count < 0 || count > available) {
+      throw new IllegalArgumentException(TrajectoryFile.INVALID_HEADER_MSG);
+    }
+
+    this.channel = channel;
+    this.recordsPerChunk = recordsPerChunk;
+    this.count = count;
+
+    long chunkCount = (count + recordsPerChunk - 1) / recordsPerChunk;
+    this.chunks = new MappedByteBuffer[(int) chunkCount];
+    for (int c = 0; c < chunks.length; ++c) {
+      int records = (int) Math.min(recordsPerChunk,
+        count - (long) c * recordsPerChunk);
+      chunks[c] = TrajectoryFile.mapChunk(channel,
+        FileChannel.MapMode.READ_ONLY, recordsPerChunk, c, records);
+    }
+
+    long indexOffset = header.getLong(TrajectoryFile.INDEX_OFFSET_OFFSET);
+    long indexEntries = header.getLong(TrajectoryFile.INDEX_ENTRIES_OFFSET);
+    int stride = header.getInt(TrajectoryFile.INDEX_STRIDE_OFFSET);
+    if (indexOffset > 0 && stride > 0 &&
+        indexEntries == (count + stride - 1) / stride &&
+        indexOffset + indexEntries * 8 <= channel.size()) {
+      this.indexStride = stride;
+      this.index = readIndex(channel, indexOffset, (int) indexEntries);
+    } else {
+      this.indexStride = 0;
+      this.index = null;
+    }
+  }
+
+  /**
+   * Opens a trajectory file for reading
+   *
+   * @param path The file path
+   * @return A new reader
+   * @throws IOException if the file cannot be opened or mapped
+   * @throws IllegalArgumentException if the file is not a trajectory file
+   */
+  public static TrajectoryReader open(final Path path)
+      throws IOException, IllegalArgumentException {
+    return open(path, TrajectoryFile.DEFAULT_RECORDS_PER_CHUNK);
+  }
+
+  static TrajectoryReader open(final Path path, int recordsPerChunk)
+      throws IOException, IllegalArgumentException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      return new TrajectoryReader(channel, recordsPerChunk);
+    } catch (IOException | IllegalArgumentException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Getters
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Gets the number of samples
+   *
+   * @return The number of samples
+   */
+  public long size() {
+    return count;
+  }
+
+  /**
+   * Checks whether the file has an index for time searches
+   *
+   * @return true if the file has an index
+   */
+  public boolean hasIndex() {
+    return index != null;
+  }
+
+  /**
+   * Gets the time of sample {@code i}
+   *
+   * @param i The index of the sample
+   * @return The sample time
+   * @throws IndexOutOfBoundsException if {@code i} is not a sample index
+   */
+  public double getTime(long i) throws IndexOutOfBoundsException {
+    return chunk(i).getDouble(offset(i) + TrajectoryFile.TIME);
+  }
+
+  /**
+   * Gets the orientation of sample {@code i}
+   *
+   * @param i The index of the sample
+   * @param out The Quaternion receiving the orientation
+   * @throws IndexOutOfBoundsException if {@code i} is not a sample index
+   */
+  public void get(long i, final Quaternion out)
+      throws IndexOutOfBoundsException {
+    ByteBuffer chunk = chunk(i);
+    int offset = offset(i);
+    out.set(chunk.getDouble(offset + TrajectoryFile.X),
+      chunk.getDouble(offset + TrajectoryFile.Y),
+      chunk.getDouble(offset + TrajectoryFile.Z),
+      chunk.getDouble(offset + TrajectoryFile.W));
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Range scans and search
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Reads the samples {@code [from, from + length)}, writing their times to
+   * {@code times} starting at {@code timesOff} and their orientations to
+   * {@code out} starting at {@code outOff}
+   *
+   * @param from The index of the first sample
+   * @param length The number of samples
+   * @param times The array receiving the times, or null to skip them
+   * @param timesOff The index in {@code times} of the first time
+   * @param out The array receiving the orientations
+   * @param outOff The index in {@code out} of the first orientation
+   * @throws IllegalArgumentException if the samples are not all in the
+   *                                  trajectory, or {@code out} is too short
+   */
+  public void read(long from, int length, final double[] times, int timesOff,
+      final QuaternionArray out, int outOff) throws IllegalArgumentException {
+    if (from < 0 || length < 0 || from > count - length) {
+      throw new IllegalArgumentException(
+        TrajectoryFile.INVALID_SAMPLE_RANGE_MSG);
+    }
+    out.checkRange(outOff, outOff + length);
+
+    for (int k = 0; k < length; ) {
+      long i = from + k;
+      ByteBuffer chunk = chunk(i);
+      int offset = offset(i);
+      // Stay within the current chunk
+      int end = (int) Math.min(length,
+        k + (recordsPerChunk - i % recordsPerChunk));
+      for (; k < end; ++k, offset += TrajectoryFile.RECORD_BYTES) {
+        if (times != null) {
+          times[timesOff + k] = chunk.getDouble(offset + TrajectoryFile.TIME);
+        }
+        int j = outOff + k;
+        out.x[j] = chunk.getDouble(offset + TrajectoryFile.X);
+        out.y[j] = chunk.getDouble(offset + TrajectoryFile.Y);
+        out.z[j] = chunk.getDouble(offset + TrajectoryFile.Z);
+        out.w[j] = chunk.getDouble(offset + TrajectoryFile.W);
+      }
+    }
+  }
+
+  /**
+   * Finds the last sample at or before {@code time}. With an index, only the
+   * records of one index block are read
+   *
+   * @param time The time to search for
+   * @return The largest index {@code i} with {@code getTime(i) <= time}, or -1
+   *         if the trajectory is empty or starts after {@code time}
+   */
+  public long search(double time) {
+    long low = 0;
+    long high = count - 1;
+    if (index != null) {
+      if (index.length == 0 || index[0] > time) {
+        return -1;
+      }
+      int block = KeyframeTrack.findKey(index, time, 0);
+      low = (long) block * indexStride;
+      high = Math.min(count - 1, low + indexStride - 1);
+    }
+    if (count == 0 || getTime(low) > time) {
+      return -1;
+    }
+
+    // Invariant: getTime(low) <= time, and time < getTime(high + 1)
+    while (low < high) {
+      long mid = (low + high + 1) >>> 1;
+      if (getTime(mid) <= time) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Closes the file. The mappings are released when the reader is garbage
+   * collected
+   *
+   * @throws IOException if the file cannot be closed
+   */
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Private methods
+  //
+  /////////////////////////////////////////////////////////
+
+  private ByteBuffer chunk(long i) throws IndexOutOfBoundsException {
+    if (i < 0 || i >= count) {
+      throw new IndexOutOfBoundsException("Sample " + i + " of " + count);
+    }
+    return chunks[(int) (i / recordsPerChunk)];
+  }
+
+  private int offset(long i) {
+    return (int) (i % recordsPerChunk) * TrajectoryFile.RECORD_BYTES;
+  }
+
+  private static double[] readIndex(final FileChannel channel, long offset,
+      int entries) throws IOException {
+    double[] index = new double[entries];
+    ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+      (long) entries * 8).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.asDoubleBuffer().get(index);
+    return index;
+  }
+}
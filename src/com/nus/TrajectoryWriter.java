@@ -0,0 +1,323 @@
+package com.nus;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends samples to a trajectory file (see {@link TrajectoryFile} for the
+ * layout). Records are written through memory-mapped windows of at most
+ * {@code GROWTH_RECORDS} records, so the file grows in bounded steps and
+ * ends at most one window past the last sample or the index; the header,
+ * and the index if the file has one, are written by {@link #close()}.
+ * {@link #flush()} makes the samples written so far durable and visible to
+ * readers opening the file afterwards.
+ *
+ * <p>Sample times must not decrease. A writer is not thread-safe
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+public class TrajectoryWriter implements Closeable {
+  // Largest growth of the file for one mapping, 160 KB
+  private static final int GROWTH_RECORDS = 1 << 12;
+
+  private final FileChannel channel;
+  private final ByteBuffer header;
+  private final int windowRecords;
+  private final int indexStride;
+  private MappedByteBuffer window;
+  private long windowIndex = -1;
+  private long count;
+  private double startTime = Double.NaN;
+  private double lastTime = Double.NEGATIVE_INFINITY;
+
+  private TrajectoryWriter(final FileChannel channel, final ByteBuffer header,
+      int recordsPerChunk, int indexStride, long count) {
+    this.channel = channel;
+    this.header = header;
+    this.windowRecords = Math.min(recordsPerChunk, GROWTH_RECORDS);
+    this.indexStride = indexStride;
+    this.count = count;
+    if (count > 0) {
+      this.startTime = header.getDouble(TrajectoryFile.START_TIME_OFFSET);
+      this.lastTime = header.getDouble(TrajectoryFile.END_TIME_OFFSET);
+    }
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Opening
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Creates a new, empty trajectory file, replacing any existing file
+   *
+   * @param path The file path
+   * @param indexStride Write the time of every {@code indexStride}-th sample
+   *                    to the index, or 0 to write no index
+   * @return A writer positioned at the start of the trajectory
+   * @throws IOException if the file cannot be created
+   * @throws IllegalArgumentException if {@code indexStride} is negative
+   */
+  public static TrajectoryWriter create(final Path path, int indexStride)
+      throws IOException, IllegalArgumentException {
+    return create(path, indexStride,
+      TrajectoryFile.DEFAULT_RECORDS_PER_CHUNK);
+  }
+
+  static TrajectoryWriter create(final Path path, int indexStride,
+      int recordsPerChunk) throws IOException, IllegalArgumentException {
+    if (indexStride < 0) {
+      throw new IllegalArgumentException(
+        TrajectoryFile.INVALID_INDEX_STRIDE_MSG);
+    }
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+      StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+      StandardOpenOption.WRITE);
+    ByteBuffer header = ByteBuffer.allocate(TrajectoryFile.HEADER_BYTES)
+      .order(ByteOrder.LITTLE_ENDIAN);
+    header.putInt(TrajectoryFile.MAGIC_OFFSET, TrajectoryFile.MAGIC);
+    header.putShort(TrajectoryFile.VERSION_OFFSET, TrajectoryFile.VERSION);
+    header.putInt(TrajectoryFile.RECORD_BYTES_OFFSET,
+      TrajectoryFile.RECORD_BYTES);
+    TrajectoryWriter writer =
+      new TrajectoryWriter(channel, header, recordsPerChunk, indexStride, 0);
+    writer.flush();
+    return writer;
+  }
+
+  /**
+   * Opens an existing trajectory file to append samples to it. Its index, if
+   * any, is dropped until the writer is closed, when it is rewritten with the
+   * same stride, and the file is truncated after the last sample
+   *
+   * @param path The file path
+   * @return A writer positioned after the last sample
+   * @throws IOException if the file cannot be opened
+   * @throws IllegalArgumentException if the file is not a trajectory file
+   */
+  public static TrajectoryWriter append(final Path path)
+      throws IOException, IllegalArgumentException {
+    return append(path, TrajectoryFile.DEFAULT_RECORDS_PER_CHUNK);
+  }
+
+  static TrajectoryWriter append(final Path path, int recordsPerChunk)
+      throws IOException, IllegalArgumentException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ,
+      StandardOpenOption.WRITE);
+    ByteBuffer header;
+    int indexStride;
+    long count;
+    try {
+      header = TrajectoryFile.readHeader(channel);
+      indexStride = header.getInt(TrajectoryFile.INDEX_STRIDE_OFFSET);
+      count = header.getLong(TrajectoryFile.COUNT_OFFSET);
+      // Nothing is mapped yet, so the old index and tail can be cut here
+      channel.truncate(TrajectoryFile.HEADER_BYTES +
+        count * TrajectoryFile.RECORD_BYTES);
+    } catch (IOException | IllegalArgumentException e) {
+      channel.close();
+      throw e;
+    }
+    TrajectoryWriter writer = new TrajectoryWriter(channel, header,
+      recordsPerChunk, indexStride, count);
+    writer.flush();
+    return writer;
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Writing
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Gets the number of samples in the trajectory, including the samples
+   * written by this writer
+   *
+   * @return The number of samples
+   */
+  public long size() {
+    return count;
+  }
+
+  /**
+   * Appends a sample
+   *
+   * @param time The sample time, not less than the time of the last sample
+   * @param q The orientation
+   * @throws IOException if the file cannot grow
+   * @throws IllegalArgumentException if {@code time} is NaN or less than the
+   *                                  time of the last sample
+   */
+  public void append(double time, final Quaternion q)
+      throws IOException, IllegalArgumentException {
+    append(time, q.getX(), q.getY(), q.getZ(), q.getW());
+  }
+
+  /**
+   * Appends a sample
+   *
+   * @param time The sample time, not less than the time of the last sample
+   * @param x the x coordinate
+   * @param y the y coordinate
+   * @param z the z coordinate
+   * @param w the scalar component
+   * @throws IOException if the file cannot grow
+   * @throws IllegalArgumentException if {@code time} is NaN or less than the
+   *                                  time of the last sample
+   */
+  public void append(double time, double x, double y, double z, double w)
+      throws IOException, IllegalArgumentException {
+    // Written so that NaN fails as well
+    if (!(time >= lastTime)) {
+      throw new IllegalArgumentException(TrajectoryFile.INVALID_TIME_MSG);
+    }
+
+    long windowOfRecord = count / windowRecords;
+    if (windowOfRecord != windowIndex) {
+      window = TrajectoryFile.mapChunk(channel,
+        FileChannel.MapMode.READ_WRITE, windowRecords, windowOfRecord,
+        windowRecords);
+      windowIndex = windowOfRecord;
+    }
+    int offset =
+      (int) (count - windowOfRecord * windowRecords) *
+      TrajectoryFile.RECORD_BYTES;
+    window.putDouble(offset + TrajectoryFile.TIME, time);
+    window.putDouble(offset + TrajectoryFile.X, x);
+    window.putDouble(offset + TrajectoryFile.Y, y);
+    window.putDouble(offset + TrajectoryFile.Z, z);
+    window.putDouble(offset + TrajectoryFile.W, w);
+
+    if (count == 0) {
+      startTime = time;
+    }
+    lastTime = time;
+    ++count;
+  }
+
+  /**
+   * Appends the samples {@code times[timesOff + i]} and
+   * {@code src[fromIndex + i]} for {@code i} in
+   * {@code [0, toIndex - fromIndex)}
+   *
+   * @param times The sample times
+   * @param timesOff The index in {@code times} of the first time
+   * @param src The orientations
+   * @param fromIndex The index of the first orientation, inclusive
+   * @param toIndex The index of the last orientation, exclusive
+   * @throws IOException if the file cannot grow
+   * @throws IllegalArgumentException if the index range is invalid, or a time
+   *                                  is NaN or decreases; the samples before
+   *                                  it are written
+   */
+  public void append(final double[] times, int timesOff,
+      final QuaternionArray src, int fromIndex, int toIndex)
+      throws IOException, IllegalArgumentException {
+    src.checkRange(fromIndex, toIndex);
+    for (int i = fromIndex, j = timesOff; i < toIndex; ++i, ++j) {
+      append(times[j], src.x[i], src.y[i], src.z[i], src.w[i]);
+    }
+  }
+
+  /**
+   * Forces the samples written so far and an up-to-date header, without
+   * index, to the storage device
+   *
+   * @throws IOException if the file cannot be written
+   */
+  public void flush() throws IOException {
+    if (window != null) {
+      window.force();
+    }
+    writeHeader(0, 0);
+    channel.force(false);
+  }
+
+  /**
+   * Writes the index, if any, and the header and closes the file. The file is
+   * not truncated, since the last window may still be mapped: it ends at
+   * most {@code GROWTH_RECORDS} records past the last sample or the index
+   *
+   * @throws IOException if the file cannot be written
+   */
+  @Override
+  public void close() throws IOException {
+    if (!channel.isOpen()) {
+      return;
+    }
+    try {
+      if (window != null) {
+        window.force();
+        window = null;
+      }
+      long end = TrajectoryFile.HEADER_BYTES +
+        count * TrajectoryFile.RECORD_BYTES;
+      long entries = 0;
+      if (indexStride > 0) {
+        entries = (count + indexStride - 1) / indexStride;
+        writeIndex(end, entries);
+      }
+      writeHeader(indexStride > 0 ? end : 0, entries);
+      channel.force(true);
+    } finally {
+      channel.close();
+    }
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Private methods
+  //
+  /////////////////////////////////////////////////////////
+
+  private void writeHeader(long indexOffset, long indexEntries)
+      throws IOException {
+    header.putInt(TrajectoryFile.INDEX_STRIDE_OFFSET, indexStride);
+    header.putLong(TrajectoryFile.COUNT_OFFSET, count);
+    header.putLong(TrajectoryFile.INDEX_OFFSET_OFFSET, indexOffset);
+    header.putLong(TrajectoryFile.INDEX_ENTRIES_OFFSET, indexEntries);
+    header.putDouble(TrajectoryFile.START_TIME_OFFSET, startTime);
+    header.putDouble(TrajectoryFile.END_TIME_OFFSET,
+      count > 0 ? lastTime : Double.NaN);
+    TrajectoryFile.writeHeader(channel, header);
+  }
+
+  /**
+   * Copies the time of every {@code indexStride}-th record to the index at
+   * {@code offset}, reading the records with positional reads so that no
+   * new mapping is made
+   */
+  private void writeIndex(long offset, long entries) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(8 * 1024)
+      .order(ByteOrder.LITTLE_ENDIAN);
+    ByteBuffer time = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+    for (long entry = 0; entry < entries; ++entry) {
+      long position = TrajectoryFile.HEADER_BYTES +
+        entry * indexStride * TrajectoryFile.RECORD_BYTES +
+        TrajectoryFile.TIME;
+      time.clear();
+      while (time.hasRemaining()) {
+        if (channel.read(time, position + time.position()) < 0) {
+          throw new EOFException();
+        }
+      }
+      buffer.putDouble(time.getDouble(0));
+      if (!buffer.hasRemaining() || entry == entries - 1) {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+          offset += channel.write(buffer, offset);
+        }
+        buffer.clear();
+      }
+    }
+  }
+}
@@ -0,0 +1,402 @@
+package com.nus;
+
+import java.util.Arrays;
+
+/**
+ * A tree of rigid transforms, such as a skeleton or a scene graph, stored in
+ * flat arrays. Every node has a local rotation and translation relative to
+ * its parent; its world transform is the world transform of its parent
+ * composed with its local transform, {@code world[i] = world[parent] *
+ * local[i]}, so a point is rotated by the local rotation first.
+ *
+ * <p>Nodes are numbered in topological order, every parent preceding its
+ * children, so all world transforms are computed in one linear pass over the
+ * arrays. World transforms are cached: setting a local transform only marks
+ * its node dirty, and the next read recomputes the dirty nodes and their
+ * descendants, starting from the first dirty node. Reading a clean node
+ * performs no quaternion product.
+ *
+ * <p>Local rotations are normalized when set. The tree shape is fixed at
+ * construction
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+public final class TransformHierarchy {
+  public static final String INVALID_PARENT_MSG =
+    "Parents must precede their children: -1 <= parents[i] < i";
+  public static final String ZERO_QUATERNION_MSG =
+    "Rotation must not be the zero quaternion";
+
+  private final int[] parents;
+  private final QuaternionArray localRotations;
+  private final double[] localTranslations;
+  private final QuaternionArray worldRotations;
+  private final double[] worldTranslations;
+  // Nodes whose world transform must be recomputed, up to the next update
+  private final boolean[] dirty;
+  // The first dirty node, or size() when all world transforms are current
+  private int firstDirty;
+
+  /**
+   * Constructs a hierarchy whose local transforms are all the identity
+   *
+   * @param parents The parent of every node, or -1 for a root. The array is
+   *                copied
+   * @throws IllegalArgumentException if a parent does not precede its child
+   */
+  public TransformHierarchy(final int[] parents)
+      throws IllegalArgumentException {
+    int n = parents.length;
+    for (int i = 0; i < n; ++i) {
+      if (parents[i] < -1 || parents[i] >= i) {
+        throw new IllegalArgumentException(INVALID_PARENT_MSG);
+      }
+    }
+    this.parents = parents.clone();
+    this.localRotations = new QuaternionArray(n);
+    this.localTranslations = new double[3 * n];
+    this.worldRotations = new QuaternionArray(n);
+    this.worldTranslations = new double[3 * n];
+    this.dirty = new boolean[n];
+    this.firstDirty = n;
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Getters
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Gets the number of nodes
+   *
+   * @return The number of nodes
+   */
+  public int size() {
+    return parents.length;
+  }
+
+  /**
+   * Gets the parent of a node
+   *
+   * @param node The node index
+   * @return The parent index, or -1 for a root
+   */
+  public int getParent(int node) {
+    return parents[node];
+  }
+
+  /**
+   * Gets the local rotation of a node
+   *
+   * @param node The node index
+   * @param out The quaternion receiving the rotation
+   */
+  public void getLocalRotation(int node, final Quaternion out) {
+    QuaternionArray a = localRotations;
+    out.set(a.x[node], a.y[node], a.z[node], a.w[node]);
+  }
+
+  /**
+   * Gets the local translation of a node
+   *
+   * @param node The node index
+   * @param out The array receiving the translation at {@code outOff}
+   * @param outOff The index of the x-coordinate in {@code out}
+   */
+  public void getLocalTranslation(int node, final double[] out, int outOff) {
+    System.arraycopy(localTranslations, 3 * node, out, outOff, 3);
+  }
+
+  /**
+   * Gets the world rotation of a node, bringing the cache up to date first
+   *
+   * @param node The node index
+   * @param out The quaternion receiving the rotation
+   */
+  public void getWorldRotation(int node, final Quaternion out) {
+    update();
+    QuaternionArray a = worldRotations;
+    out.set(a.x[node], a.y[node], a.z[node], a.w[node]);
+  }
+
+  /**
+   * Gets the world translation of a node, that is the world position of its
+   * origin, bringing the cache up to date first
+   *
+   * @param node The node index
+   * @param out The array receiving the translation at {@code outOff}
+   * @param outOff The index of the x-coordinate in {@code out}
+   */
+  public void getWorldTranslation(int node, final double[] out, int outOff) {
+    update();
+    System.arraycopy(worldTranslations, 3 * node, out, outOff, 3);
+  }
+
+  /**
+   * Copies the world rotations of the nodes {@code [fromNode, toNode)},
+   * bringing the cache up to date first
+   *
+   * @param out The array receiving the rotations
+   * @param outOff The index in {@code out} of the rotation of
+   *               {@code fromNode}
+   * @param fromNode The first node, inclusive
+   * @param toNode The last node, exclusive
+   * @throws IllegalArgumentException if a range is invalid
+   */
+  public void getWorldRotations(final QuaternionArray out, int outOff,
+      int fromNode, int toNode) throws IllegalArgumentException {
+    worldRotations.checkRange(fromNode, toNode);
+    out.checkRange(outOff, outOff + (toNode - fromNode));
+    update();
+    int count = toNode - fromNode;
+    System.arraycopy(worldRotations.x, fromNode, out.x, outOff, count);
+    System.arraycopy(worldRotations.y, fromNode, out.y, outOff, count);
+    System.arraycopy(worldRotations.z, fromNode, out.z, outOff, count);
+    System.arraycopy(worldRotations.w, fromNode, out.w, outOff, count);
+  }
+
+  /**
+   * Copies the world translations of the nodes {@code [fromNode, toNode)},
+   * bringing the cache up to date first
+   *
+   * @param out The array receiving the translations, packed as xyzxyz...
+   * @param outOff The index in {@code out} of the x-coordinate of
+   *               {@code fromNode}
+   * @param fromNode The first node, inclusive
+   * @param toNode The last node, exclusive
+   * @throws IllegalArgumentException if the node range is invalid
+   */
+  public void getWorldTranslations(final double[] out, int outOff,
+      int fromNode, int toNode) throws IllegalArgumentException {
+    worldRotations.checkRange(fromNode, toNode);
+    update();
+    System.arraycopy(worldTranslations, 3 * fromNode, out, outOff,
+      3 * (toNode - fromNode));
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Setters
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Sets the local rotation of a node
+   *
+   * @param node The node index
+   * @param rotation The rotation, which is normalized
+   * @throws IllegalArgumentException if {@code rotation} is zero
+   */
+  public void setLocalRotation(int node, final Quaternion rotation)
+      throws IllegalArgumentException {
+    setLocalRotation(node, rotation.getX(), rotation.getY(), rotation.getZ(),
+      rotation.getW());
+  }
+
+  /**
+   * Sets the local rotation of a node
+   *
+   * @param node The node index
+   * @param x The x-component of the rotation, which is normalized
+   * @param y The y-component of the rotation
+   * @param z The z-component of the rotation
+   * @param w The w-component of the rotation
+   * @throws IllegalArgumentException if the rotation is zero
+   */
+  public void setLocalRotation(int node, double x, double y, double z,
+      double w) throws IllegalArgumentException {
+    double norm = Math.sqrt(x * x + y * y + z * z + w * w);
+    if (!(norm > 0.0)) {
+      throw new IllegalArgumentException(ZERO_QUATERNION_MSG);
+    }
+    double invNorm = 1.0 / norm;
+    localRotations.set(node, x * invNorm, y * invNorm, z * invNorm,
+      w * invNorm);
+    markDirty(node);
+  }
+
+  /**
+   * Sets the local translation of a node
+   *
+   * @param node The node index
+   * @param tx The x-coordinate of the translation
+   * @param ty The y-coordinate of the translation
+   * @param tz The z-coordinate of the translation
+   */
+  public void setLocalTranslation(int node, double tx, double ty,
+      double tz) {
+    int t = 3 * node;
+    localTranslations[t] = tx;
+    localTranslations[t + 1] = ty;
+    localTranslations[t + 2] = tz;
+    markDirty(node);
+  }
+
+  /**
+   * Sets the local rotations of the nodes {@code [fromNode, toNode)}, as
+   * when a new animation frame is applied to a whole skeleton
+   *
+   * @param rotations The rotations, which are normalized
+   * @param rotationsOff The index in {@code rotations} of the rotation of
+   *                     {@code fromNode}
+   * @param fromNode The first node, inclusive
+   * @param toNode The last node, exclusive
+   * @throws IllegalArgumentException if a range is invalid or a rotation is
+   *                                  zero
+   */
+  public void setLocalRotations(final QuaternionArray rotations,
+      int rotationsOff, int fromNode, int toNode)
+      throws IllegalArgumentException {
+    localRotations.checkRange(fromNode, toNode);
+    rotations.checkRange(rotationsOff, rotationsOff + (toNode - fromNode));
+    QuaternionArray a = localRotations;
+    for (int i = fromNode, j = rotationsOff; i < toNode; ++i, ++j) {
+      double x = rotations.x[j];
+      double y = rotations.y[j];
+      double z = rotations.z[j];
+      double w = rotations.w[j];
+      double norm = Math.sqrt(x * x + y * y + z * z + w * w);
+      if (!(norm > 0.0)) {
+        throw new IllegalArgumentException(ZERO_QUATERNION_MSG);
+      }
+      double invNorm = 1.0 / norm;
+      a.x[i] = x * invNorm;
+      a.y[i] = y * invNorm;
+      a.z[i] = z * invNorm;
+      a.w[i] = w * invNorm;
+    }
+    markDirty(fromNode, toNode);
+  }
+
+  /**
+   * Sets the local translations of the nodes {@code [fromNode, toNode)}
+   *
+   * @param translations The translations, packed as xyzxyz...
+   * @param translationsOff The index in {@code translations} of the
+   *                        x-coordinate of {@code fromNode}
+   * @param fromNode The first node, inclusive
+   * @param toNode The last node, exclusive
+   * @throws IllegalArgumentException if the node range is invalid
+   */
+  public void setLocalTranslations(final double[] translations,
+      int translationsOff, int fromNode, int toNode)
+      throws IllegalArgumentException {
+    localRotations.checkRange(fromNode, toNode);
+    System.arraycopy(translations, translationsOff, localTranslations,
+      3 * fromNode, 3 * (toNode - fromNode));
+    markDirty(fromNode, toNode);
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Update
+  //
+  /////////////////////////////////////////////////////////
+
+  /**
+   * Checks whether some world transform is out of date
+   *
+   * @return true if the next read recomputes world transforms
+   */
+  public boolean isDirty() {
+    return firstDirty < parents.length;
+  }
+
+  /**
+   * Recomputes the world transforms of the dirty nodes and their
+   * descendants, in one pass from the first dirty node. The getters call
+   * this; calling it directly moves the work to a chosen point of a frame
+   */
+  public void update() {
+    int n = parents.length;
+    int from = firstDirty;
+    if (from >= n) {
+      return;
+    }
+    final int[] parent = parents;
+    final boolean[] stale = dirty;
+    final double[] lx = localRotations.x;
+    final double[] ly = localRotations.y;
+    final double[] lz = localRotations.z;
+    final double[] lw = localRotations.w;
+    final double[] wx = worldRotations.x;
+    final double[] wy = worldRotations.y;
+    final double[] wz = worldRotations.z;
+    final double[] ww = worldRotations.w;
+    final double[] lt = localTranslations;
+    final double[] wt = worldTranslations;
+    for (int i = from; i < n; ++i) {
+      int p = parent[i];
+      if (p < 0) {
+        if (stale[i]) {
+          wx[i] = lx[i];
+          wy[i] = ly[i];
+          wz[i] = lz[i];
+          ww[i] = lw[i];
+          System.arraycopy(lt, 3 * i, wt, 3 * i, 3);
+        }
+        continue;
+      }
+      if (!stale[i]) {
+        if (!stale[p]) {
+          continue;
+        }
+        // Descendant of a dirty node
+        stale[i] = true;
+      }
+
+      double px = wx[p];
+      double py = wy[p];
+      double pz = wz[p];
+      double pw = ww[p];
+      double qx = lx[i];
+      double qy = ly[i];
+      double qz = lz[i];
+      double qw = lw[i];
+      wx[i] = pw * qx + px * qw + py * qz - pz * qy;
+      wy[i] = pw * qy - px * qz + py * qw + pz * qx;
+      wz[i] = pw * qz + px * qy - py * qx + pz * qw;
+      ww[i] = pw * qw - px * qx - py * qy - pz * qz;
+
+      // Parent origin plus the local translation rotated by the parent:
+      // v + 2 p x (p x v + pw v)
+      int t = 3 * i;
+      int s = 3 * p;
+      double vx = lt[t];
+      double vy = lt[t + 1];
+      double vz = lt[t + 2];
+      double cx = py * vz - pz * vy + pw * vx;
+      double cy = pz * vx - px * vz + pw * vy;
+      double cz = px * vy - py * vx + pw * vz;
+      wt[t] = wt[s] + vx + 2.0 * (py * cz - pz * cy);
+      wt[t + 1] = wt[s + 1] + vy + 2.0 * (pz * cx - px * cz);
+      wt[t + 2] = wt[s + 2] + vz + 2.0 * (px * cy - py * cx);
+    }
+    Arrays.fill(stale, from, n, false);
+    firstDirty = n;
+  }
+
+  //////////////////////////////////////////////////////////
+  //
+  // Private methods
+  //
+  /////////////////////////////////////////////////////////
+
+  private void markDirty(int node) {
+    dirty[node] = true;
+    if (node < firstDirty) {
+      firstDirty = node;
+    }
+  }
+
+  private void markDirty(int fromNode, int toNode) {
+    if (fromNode == toNode) {
+      return;
+    }
+    Arrays.fill(dirty, fromNode, toNode, true);
+    if (fromNode < firstDirty) {
+      firstDirty = fromNode;
+    }
+  }
+}
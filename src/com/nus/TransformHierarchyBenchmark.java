@@ -0,0 +1,86 @@
+package com.nus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of {@link TransformHierarchy} with {@code size} nodes:
+ * a full update after setting every local rotation, against composing every
+ * world rotation with {@link Quaternion#multiply(Quaternion)}, and an update
+ * after changing one node near the end of the order
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TransformHierarchyBenchmark {
+  @Param({"100000"})
+  public int size;
+
+  private int[] parents;
+  private TransformHierarchy tree;
+  private QuaternionArray rotations;
+  private Quaternion[] locals;
+  private Quaternion[] worlds;
+  private Quaternion out;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(QuaternionBenchmark.SEED);
+    parents = new int[size];
+    for (int i = 0; i < size; ++i) {
+      parents[i] = i == 0 ? -1 : Math.max(0, i - 1 - random.nextInt(8));
+    }
+    tree = new TransformHierarchy(parents);
+    rotations = new QuaternionArray(size);
+    locals = new Quaternion[size];
+    for (int i = 0; i < size; ++i) {
+      locals[i] = QuaternionBenchmark.randomUnitQuaternion(random);
+      rotations.set(i, locals[i]);
+      tree.setLocalTranslation(i, random.nextGaussian(),
+        random.nextGaussian(), random.nextGaussian());
+    }
+    worlds = new Quaternion[size];
+    out = new Quaternion();
+  }
+
+  @Benchmark
+  public Quaternion updateAll() {
+    tree.setLocalRotations(rotations, 0, 0, size);
+    tree.getWorldRotation(size - 1, out);
+    return out;
+  }
+
+  @Benchmark
+  public Quaternion multiplyAll() {
+    for (int i = 0; i < size; ++i) {
+      int p = parents[i];
+      worlds[i] = p < 0 ? locals[i] : worlds[p].multiply(locals[i]);
+    }
+    return worlds[size - 1];
+  }
+
+  @Benchmark
+  public Quaternion updateOne() {
+    int node = size - 16;
+    tree.setLocalRotation(node, locals[node]);
+    tree.getWorldRotation(size - 1, out);
+    return out;
+  }
+}
@@ -0,0 +1,205 @@
+package com.nus;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import static com.nus.QuaternionTestUtils.randomRotation;
+
+import java.util.Random;
+
+public class TransformHierarchyTest {
+  private static final double EPSILON = 1e-12;
+
+  private static int[] randomParents(Random random, int size) {
+    int[] parents = new int[size];
+    for (int i = 0; i < size; ++i) {
+      // A few roots, the other nodes hanging off a recent node
+      parents[i] = i == 0 || random.nextInt(20) == 0 ? -1 :
+        Math.max(0, i - 1 - random.nextInt(8));
+    }
+    return parents;
+  }
+
+  /**
+   * Composes with Quaternion operations, walking up to the root
+   */
+  private static void assertWorldMatches(TransformHierarchy tree) {
+    Quaternion rotation = new Quaternion();
+    Quaternion local = new Quaternion();
+    Quaternion actual = new Quaternion();
+    double[] translation = new double[3];
+    double[] actualTranslation = new double[3];
+    for (int i = 0; i < tree.size(); ++i) {
+      tree.getLocalRotation(i, rotation);
+      tree.getLocalTranslation(i, translation, 0);
+      for (int p = tree.getParent(i); p >= 0; p = tree.getParent(p)) {
+        tree.getLocalRotation(p, local);
+        translation = local.rotate(translation);
+        double[] parentTranslation = new double[3];
+        tree.getLocalTranslation(p, parentTranslation, 0);
+        for (int k = 0; k < 3; ++k) {
+          translation[k] += parentTranslation[k];
+        }
+        rotation = local.multiply(rotation);
+      }
+      tree.getWorldRotation(i, actual);
+      QuaternionTest.assertQuaternionEquals(actual, rotation);
+      tree.getWorldTranslation(i, actualTranslation, 0);
+      assertArrayEquals(actualTranslation, translation, 1e-10);
+    }
+  }
+
+  @Test
+  public void testIdentity() {
+    TransformHierarchy tree = new TransformHierarchy(new int[] {-1, 0, 1});
+    assertEquals(tree.size(), 3);
+    assertFalse(tree.isDirty());
+    Quaternion q = new Quaternion(0, 0, 0, 0);
+    tree.getWorldRotation(2, q);
+    assertEquals(q, new Quaternion());
+  }
+
+  @Test
+  public void testChain() {
+    // A 2-link arm, each joint turning a quarter about z
+    TransformHierarchy tree = new TransformHierarchy(new int[] {-1, 0, 1});
+    Quaternion quarter = Quaternion.fromAxisAngleRad(
+      new double[] {0.0, 0.0, 1.0}, Math.PI / 2);
+    tree.setLocalRotation(0, quarter);
+    tree.setLocalRotation(1, quarter);
+    tree.setLocalTranslation(1, 1.0, 0.0, 0.0);
+    tree.setLocalTranslation(2, 1.0, 0.0, 0.0);
+    assertTrue(tree.isDirty());
+
+    double[] tip = new double[3];
+    tree.getWorldTranslation(2, tip, 0);
+    assertFalse(tree.isDirty());
+    assertArrayEquals(tip, new double[] {-1.0, 1.0, 0.0}, EPSILON);
+    Quaternion rotation = new Quaternion();
+    tree.getWorldRotation(2, rotation);
+    QuaternionTest.assertQuaternionEquals(rotation, quarter.multiply(quarter));
+  }
+
+  @Test
+  public void testMatchesReference() {
+    Random random = new Random(1);
+    int size = 500;
+    TransformHierarchy tree =
+      new TransformHierarchy(randomParents(random, size));
+    for (int i = 0; i < size; ++i) {
+      tree.setLocalRotation(i, randomRotation(random));
+      tree.setLocalTranslation(i, random.nextGaussian(),
+        random.nextGaussian(), random.nextGaussian());
+    }
+    assertWorldMatches(tree);
+
+    // Dirty subtrees, updated repeatedly
+    for (int round = 0; round < 20; ++round) {
+      for (int k = 0; k < 3; ++k) {
+        int node = random.nextInt(size);
+        if (random.nextBoolean()) {
+          tree.setLocalRotation(node, randomRotation(random));
+        } else {
+          tree.setLocalTranslation(node, random.nextGaussian(),
+            random.nextGaussian(), random.nextGaussian());
+        }
+      }
+      assertWorldMatches(tree);
+    }
+  }
+
+  @Test
+  public void testUpdateLeavesOtherSubtrees() {
+    // Two chains under one root; changing one keeps the other bit-identical
+    int[] parents = {-1, 0, 1, 2, 0, 4, 5};
+    TransformHierarchy tree = new TransformHierarchy(parents);
+    Random random = new Random(2);
+    for (int i = 0; i < parents.length; ++i) {
+      tree.setLocalRotation(i, randomRotation(random));
+      tree.setLocalTranslation(i, 1.0, 0.0, 0.0);
+    }
+    double[] before = new double[3 * parents.length];
+    tree.getWorldTranslations(before, 0, 0, parents.length);
+
+    tree.setLocalRotation(2, randomRotation(random));
+    double[] after = new double[3 * parents.length];
+    tree.getWorldTranslations(after, 0, 0, parents.length);
+    for (int i = 0; i < parents.length; ++i) {
+      boolean moved = i == 3;
+      for (int k = 0; k < 3; ++k) {
+        assertEquals(after[3 * i + k] != before[3 * i + k], moved);
+      }
+    }
+    assertWorldMatches(tree);
+  }
+
+  @Test
+  public void testBulkSetters() {
+    Random random = new Random(3);
+    int size = 300;
+    int[] parents = randomParents(random, size);
+    TransformHierarchy bulk = new TransformHierarchy(parents);
+    TransformHierarchy single = new TransformHierarchy(parents);
+    QuaternionArray rotations = new QuaternionArray(size + 1);
+    double[] translations = new double[3 * size + 2];
+    for (int i = 0; i < size; ++i) {
+      Quaternion q = randomRotation(random);
+      q.multiplyEq(3.0);
+      rotations.set(i + 1, q);
+      for (int k = 0; k < 3; ++k) {
+        translations[3 * i + 2 + k] = random.nextGaussian();
+      }
+      single.setLocalRotation(i, q);
+      single.setLocalTranslation(i, translations[3 * i + 2],
+        translations[3 * i + 3], translations[3 * i + 4]);
+    }
+    bulk.setLocalRotations(rotations, 1, 0, size);
+    bulk.setLocalTranslations(translations, 2, 0, size);
+
+    QuaternionArray expected = new QuaternionArray(size);
+    QuaternionArray actual = new QuaternionArray(size + 4);
+    single.getWorldRotations(expected, 0, 0, size);
+    bulk.getWorldRotations(actual, 4, 0, size);
+    for (int i = 0; i < size; ++i) {
+      assertEquals(actual.get(i + 4), expected.get(i));
+    }
+    double[] expectedTranslations = new double[3 * size];
+    double[] actualTranslations = new double[3 * size];
+    single.getWorldTranslations(expectedTranslations, 0, 0, size);
+    bulk.getWorldTranslations(actualTranslations, 0, 0, size);
+    assertArrayEquals(actualTranslations, expectedTranslations, 0.0);
+    assertWorldMatches(bulk);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSetLocalRotationsOutOfRange() {
+    new TransformHierarchy(new int[] {-1, 0}).setLocalRotations(
+      new QuaternionArray(3), 2, 0, 2);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetWorldRotationsOutOfRange() {
+    new TransformHierarchy(new int[] {-1, 0}).getWorldRotations(
+      new QuaternionArray(3), 0, 1, 3);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructWithSelfParent() {
+    new TransformHierarchy(new int[] {-1, 1});
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructWithInvalidParent() {
+    new TransformHierarchy(new int[] {-2});
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSetLocalRotationWithZeroQuaternion() {
+    new TransformHierarchy(new int[] {-1}).setLocalRotation(0,
+      new Quaternion(0, 0, 0, 0));
+  }
+}
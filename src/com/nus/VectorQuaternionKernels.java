@@ -0,0 +1,170 @@
+package com.nus;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Backend of {@link QuaternionKernels} built on the JDK Vector API. Each loop
+ * processes {@code SPECIES.length()} quaternions at a time (4 doubles with
+ * AVX2, 8 with AVX-512) and hands the remaining tail to the scalar backend.
+ *
+ * <p>This class is only loaded reflectively by {@link QuaternionKernels}, and
+ * must be compiled and run with {@code --add-modules jdk.incubator.vector}
+ *
+ * @author Duy Nguyen-Truong (truongduy134@gmail.com)
+ */
+final class VectorQuaternionKernels extends ScalarQuaternionKernels {
+  private static final VectorSpecies<Double> SPECIES =
+    DoubleVector.SPECIES_PREFERRED;
+
+  @Override
+  public String getName() {
+    return "vector-" + SPECIES.vectorBitSize();
+  }
+
+  @Override
+  public boolean isVectorized() {
+    return true;
+  }
+
+  @Override
+  void doMultiplyEq(final QuaternionArray a, final QuaternionArray b,
+      int fromIndex, int toIndex) {
+    double[] x = a.x;
+    double[] y = a.y;
+    double[] z = a.z;
+    double[] w = a.w;
+    int i = fromIndex;
+    int upperBound = fromIndex + SPECIES.loopBound(toIndex - fromIndex);
+    for (; i < upperBound; i += SPECIES.length()) {
+      DoubleVector px = DoubleVector.fromArray(SPECIES, x, i);
+      DoubleVector py = DoubleVector.fromArray(SPECIES, y, i);
+      DoubleVector pz = DoubleVector.fromArray(SPECIES, z, i);
+      DoubleVector pw = DoubleVector.fromArray(SPECIES, w, i);
+      DoubleVector qx = DoubleVector.fromArray(SPECIES, b.x, i);
+      DoubleVector qy = DoubleVector.fromArray(SPECIES, b.y, i);
+      DoubleVector qz = DoubleVector.fromArray(SPECIES, b.z, i);
+      DoubleVector qw = DoubleVector.fromArray(SPECIES, b.w, i);
+
+      qw.mul(pw).sub(qx.mul(px)).sub(qy.mul(py)).sub(qz.mul(pz))
+        .intoArray(w, i);
+      qw.mul(px).add(qx.mul(pw)).sub(qy.mul(pz)).add(qz.mul(py))
+        .intoArray(x, i);
+      qw.mul(py).add(qx.mul(pz)).add(qy.mul(pw)).sub(qz.mul(px))
+        .intoArray(y, i);
+      qw.mul(pz).sub(qx.mul(py)).add(qy.mul(px)).add(qz.mul(pw))
+        .intoArray(z, i);
+    }
+    super.doMultiplyEq(a, b, i, toIndex);
+  }
+
+  @Override
+  void doNormalize(final QuaternionArray a, int fromIndex, int toIndex) {
+    double[] x = a.x;
+    double[] y = a.y;
+    double[] z = a.z;
+    double[] w = a.w;
+    int i = fromIndex;
+    int upperBound = fromIndex + SPECIES.loopBound(toIndex - fromIndex);
+    for (; i < upperBound; i += SPECIES.length()) {
+      DoubleVector vx = DoubleVector.fromArray(SPECIES, x, i);
+      DoubleVector vy = DoubleVector.fromArray(SPECIES, y, i);
+      DoubleVector vz = DoubleVector.fromArray(SPECIES, z, i);
+      DoubleVector vw = DoubleVector.fromArray(SPECIES, w, i);
+      // One division per quaternion instead of four
+      DoubleVector invNorm = DoubleVector.broadcast(SPECIES, 1.0).div(
+        vx.mul(vx).add(vy.mul(vy)).add(vz.mul(vz)).add(vw.mul(vw)).sqrt());
+      vx.mul(invNorm).intoArray(x, i);
+      vy.mul(invNorm).intoArray(y, i);
+      vz.mul(invNorm).intoArray(z, i);
+      vw.mul(invNorm).intoArray(w, i);
+    }
+    super.doNormalize(a, i, toIndex);
+  }
+
+  @Override
+  void doRotate(final Quaternion q,
+      final double[] xs, final double[] ys, final double[] zs,
+      final double[] outX, final double[] outY, final double[] outZ,
+      int fromIndex, int toIndex) {
+    double qx = q.getX();
+    double qy = q.getY();
+    double qz = q.getZ();
+    double qw = q.getW();
+    double s = 2.0 / q.squaredNorm();
+    double xx = qx * qx;
+    double yy = qy * qy;
+    double zz = qz * qz;
+    double m00 = 1.0 - s * (yy + zz);
+    double m01 = s * (qx * qy - qz * qw);
+    double m02 = s * (qx * qz + qy * qw);
+    double m10 = s * (qx * qy + qz * qw);
+    double m11 = 1.0 - s * (xx + zz);
+    double m12 = s * (qy * qz - qx * qw);
+    double m20 = s * (qx * qz - qy * qw);
+    double m21 = s * (qy * qz + qx * qw);
+    double m22 = 1.0 - s * (xx + yy);
+
+    int i = fromIndex;
+    int upperBound = fromIndex + SPECIES.loopBound(toIndex - fromIndex);
+    for (; i < upperBound; i += SPECIES.length()) {
+      DoubleVector vx = DoubleVector.fromArray(SPECIES, xs, i);
+      DoubleVector vy = DoubleVector.fromArray(SPECIES, ys, i);
+      DoubleVector vz = DoubleVector.fromArray(SPECIES, zs, i);
+      vx.mul(m00).add(vy.mul(m01)).add(vz.mul(m02)).intoArray(outX, i);
+      vx.mul(m10).add(vy.mul(m11)).add(vz.mul(m12)).intoArray(outY, i);
+      vx.mul(m20).add(vy.mul(m21)).add(vz.mul(m22)).intoArray(outZ, i);
+    }
+    super.doRotate(q, xs, ys, zs, outX, outY, outZ, i, toIndex);
+  }
+
+  @Override
+  void doSlerp(final QuaternionArray from, final QuaternionArray to,
+      double t, final QuaternionArray out, int fromIndex, int toIndex) {
+    int i = fromIndex;
+    int upperBound = fromIndex + SPECIES.loopBound(toIndex - fromIndex);
+    for (; i < upperBound; i += SPECIES.length()) {
+      DoubleVector ax = DoubleVector.fromArray(SPECIES, from.x, i);
+      DoubleVector ay = DoubleVector.fromArray(SPECIES, from.y, i);
+      DoubleVector az = DoubleVector.fromArray(SPECIES, from.z, i);
+      DoubleVector aw = DoubleVector.fromArray(SPECIES, from.w, i);
+      DoubleVector bx = DoubleVector.fromArray(SPECIES, to.x, i);
+      DoubleVector by = DoubleVector.fromArray(SPECIES, to.y, i);
+      DoubleVector bz = DoubleVector.fromArray(SPECIES, to.z, i);
+      DoubleVector bw = DoubleVector.fromArray(SPECIES, to.w, i);
+
+      DoubleVector cos = ax.mul(bx).add(ay.mul(by)).add(az.mul(bz))
+        .add(aw.mul(bw));
+      // q and -q are the same rotation; take the shorter arc by negating
+      // the weight of the end point
+      VectorMask<Double> negative = cos.compare(VectorOperators.LT, 0.0);
+      cos = cos.abs();
+      VectorMask<Double> linear =
+        cos.compare(VectorOperators.GT, Quaternion.SLERP_LINEAR_THRESHOLD);
+
+      // Lanes on the linear path get NaN weights here, replaced below
+      DoubleVector theta = cos.lanewise(VectorOperators.ACOS);
+      DoubleVector invSin = DoubleVector.broadcast(SPECIES, 1.0).div(
+        theta.lanewise(VectorOperators.SIN));
+      DoubleVector wa = theta.mul(1.0 - t).lanewise(VectorOperators.SIN)
+        .mul(invSin).blend(1.0 - t, linear);
+      DoubleVector wb = theta.mul(t).lanewise(VectorOperators.SIN)
+        .mul(invSin).blend(t, linear);
+      wb = wb.lanewise(VectorOperators.NEG, negative);
+
+      DoubleVector rx = wa.mul(ax).add(wb.mul(bx));
+      DoubleVector ry = wa.mul(ay).add(wb.mul(by));
+      DoubleVector rz = wa.mul(az).add(wb.mul(bz));
+      DoubleVector rw = wa.mul(aw).add(wb.mul(bw));
+      DoubleVector invNorm = DoubleVector.broadcast(SPECIES, 1.0).div(
+        rx.mul(rx).add(ry.mul(ry)).add(rz.mul(rz)).add(rw.mul(rw)).sqrt());
+      rx.mul(invNorm).intoArray(out.x, i);
+      ry.mul(invNorm).intoArray(out.y, i);
+      rz.mul(invNorm).intoArray(out.z, i);
+      rw.mul(invNorm).intoArray(out.w, i);
+    }
+    super.doSlerp(from, to, t, out, i, toIndex);
+  }
+}
@@ -0,0 +1,19 @@
+package com.nus;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+public class VectorQuaternionKernelsTest {
+
+  @Test
+  public void testVectorBackendIsSelected() {
+    assertTrue(QuaternionKernels.get().isVectorized());
+  }
+
+  @Test
+  public void testVectorKernels() {
+    QuaternionKernelsTest.assertKernelsMatchReference(
+      new VectorQuaternionKernels());
+  }
+}